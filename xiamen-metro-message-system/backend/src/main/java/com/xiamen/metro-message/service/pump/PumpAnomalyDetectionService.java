@@ -3,6 +3,7 @@ package com.xiamen.metro.message.service.pump;
 import com.xiamen.metro.message.entity.PumpDataEntity;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisRequestDTO;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -10,10 +11,11 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 水泵异常检测服务
+ * <p>
+ * 各项检测基于共享的 PumpSeries 列式数据及其缓存视图；接收实体列表的方法先转换为 PumpSeries
  *
  * @author Xiamen Metro System
  */
@@ -34,27 +36,47 @@ public class PumpAnomalyDetectionService {
      */
     public PumpAnalysisResponseDTO.AnalysisResult detectStartupFrequencyAnomaly(
             List<PumpDataEntity> pumpData, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+        return detectStartupFrequencyAnomaly(PumpSeries.of(pumpData), thresholdConfig);
+    }
+
+    /**
+     * 启泵频率异常检测(列式数据)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult detectStartupFrequencyAnomaly(
+            PumpSeries series, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
         double threshold = thresholdConfig != null && thresholdConfig.getStartupFrequencyThreshold() != null ?
                 thresholdConfig.getStartupFrequencyThreshold() : DEFAULT_STARTUP_FREQUENCY_THRESHOLD;
 
-        // 计算启泵事件
-        List<LocalDateTime> startEvents = pumpData.stream()
-                .filter(data -> data.getPumpStatus() != null && data.getPumpStatus() == 1)
-                .map(PumpDataEntity::getTimestamp)
-                .sorted()
-                .collect(Collectors.toList());
+        return startupFrequencyResult(series.startEventTimestamps().length,
+                series.isEmpty() ? null : series.time(0),
+                series.isEmpty() ? null : series.time(series.size() - 1),
+                threshold);
+    }
+
+    /**
+     * 启泵频率异常检测(单遍统计)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult detectStartupFrequencyAnomaly(
+            PumpStreamingStats stats, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
-        if (startEvents.size() < 2) {
+        double threshold = thresholdConfig != null && thresholdConfig.getStartupFrequencyThreshold() != null ?
+                thresholdConfig.getStartupFrequencyThreshold() : DEFAULT_STARTUP_FREQUENCY_THRESHOLD;
+
+        return startupFrequencyResult(stats.getStartEvents(), stats.getFirstTime(), stats.getLastTime(), threshold);
+    }
+
+    private PumpAnalysisResponseDTO.AnalysisResult startupFrequencyResult(
+            long startEvents, LocalDateTime startTime, LocalDateTime endTime, double threshold) {
+
+        if (startEvents < 2) {
             return createAnalysisResult("启泵频率异常检测", 1, 0.5,
                     "数据不足，无法检测启泵频率异常", null, threshold, null, "STABLE");
         }
 
         // 计算时间窗口内的启泵频率
-        LocalDateTime startTime = pumpData.get(0).getTimestamp();
-        LocalDateTime endTime = pumpData.get(pumpData.size() - 1).getTimestamp();
         double hours = ChronoUnit.MINUTES.between(startTime, endTime) / 60.0;
-        double startupFrequency = startEvents.size() / hours;
+        double startupFrequency = startEvents / hours;
 
         // 检测异常
         double deviation = ((startupFrequency - threshold) / threshold) * 100;
@@ -68,14 +90,14 @@ public class PumpAnomalyDetectionService {
         }
 
         Map<String, Object> detailedMetrics = new HashMap<>();
-        detailedMetrics.put("totalStartEvents", startEvents.size());
+        detailedMetrics.put("totalStartEvents", (int) startEvents);
         detailedMetrics.put("timeWindowHours", hours);
-        detailedMetrics.put("avgIntervalMinutes", hours * 60 / startEvents.size());
+        detailedMetrics.put("avgIntervalMinutes", hours * 60 / startEvents);
 
         return PumpAnalysisResponseDTO.AnalysisResult.builder()
                 .analysisType("启泵频率异常检测")
                 .severityLevel(severityLevel)
-                .confidence(Math.min(0.9, 0.6 + startEvents.size() * 0.01))
+                .confidence(Math.min(0.9, 0.6 + startEvents * 0.01))
                 .description(description)
                 .detectedValue(startupFrequency)
                 .expectedValue(threshold)
@@ -91,31 +113,55 @@ public class PumpAnomalyDetectionService {
      */
     public PumpAnalysisResponseDTO.AnalysisResult detectRuntimeAnomaly(
             List<PumpDataEntity> pumpData, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+        return detectRuntimeAnomaly(PumpSeries.of(pumpData), thresholdConfig);
+    }
+
+    /**
+     * 运行时间异常分析(列式数据)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult detectRuntimeAnomaly(
+            PumpSeries series, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+
+        double threshold = thresholdConfig != null && thresholdConfig.getRuntimeThreshold() != null ?
+                thresholdConfig.getRuntimeThreshold() : DEFAULT_RUNTIME_THRESHOLD;
+
+        PumpSeries.Summary runtime = series.positiveSummary(PumpDataAggregate.Metric.RUNTIME);
+        if (runtime.isEmpty()) {
+            return runtimeResult(0, 0, 0, 0, 0, null, threshold);
+        }
+
+        return runtimeResult(runtime.getCount(), runtime.getMean(), runtime.getMax(), runtime.getMin(),
+                runtime.getStandardDeviation(),
+                TimeSeriesAnalyzer.analyzeTrend(series.positiveColumn(PumpDataAggregate.Metric.RUNTIME)), threshold);
+    }
+
+    /**
+     * 运行时间异常分析(单遍统计)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult detectRuntimeAnomaly(
+            PumpStreamingStats stats, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
         double threshold = thresholdConfig != null && thresholdConfig.getRuntimeThreshold() != null ?
                 thresholdConfig.getRuntimeThreshold() : DEFAULT_RUNTIME_THRESHOLD;
 
-        List<Double> runtimes = pumpData.stream()
-                .filter(data -> data.getRuntimeMinutes() != null && data.getRuntimeMinutes() > 0)
-                .map(PumpDataEntity::getRuntimeMinutes)
-                .collect(Collectors.toList());
+        RunningStats runtime = stats.getRuntime();
+        return runtimeResult(runtime.getCount(), runtime.getMean(), runtime.getMax(), runtime.getMin(),
+                runtime.getStandardDeviation(), stats.getRuntimeTrend(), threshold);
+    }
 
-        if (runtimes.isEmpty()) {
+    private PumpAnalysisResponseDTO.AnalysisResult runtimeResult(
+            long cycles, double avgRuntime, double maxRuntime, double minRuntime, double stdDev,
+            TimeSeriesAnalyzer.TrendAnalysisResult trend, double threshold) {
+
+        if (cycles == 0) {
             return createAnalysisResult("运行时间异常分析", 1, 0.3,
                     "无有效运行时间数据", null, threshold, null, "STABLE");
         }
 
-        double avgRuntime = TimeSeriesAnalyzer.mean(runtimes);
-        double maxRuntime = Collections.max(runtimes);
-        double stdDev = TimeSeriesAnalyzer.standardDeviation(runtimes);
-
         // 检测异常
         double deviation = ((avgRuntime - threshold) / threshold) * 100;
         int severityLevel = calculateSeverityLevel(Math.abs(deviation));
 
-        // 检测运行时间趋势
-        TimeSeriesAnalyzer.TrendAnalysisResult trend = TimeSeriesAnalyzer.analyzeTrend(runtimes);
-
         String description = String.format("平均运行时间: %.1f分钟, 最大运行时间: %.1f分钟, 阈值: %.1f分钟, 偏差: %.1f%%",
                 avgRuntime, maxRuntime, threshold, deviation);
 
@@ -126,14 +172,14 @@ public class PumpAnomalyDetectionService {
         Map<String, Object> detailedMetrics = new HashMap<>();
         detailedMetrics.put("averageRuntime", avgRuntime);
         detailedMetrics.put("maxRuntime", maxRuntime);
-        detailedMetrics.put("minRuntime", Collections.min(runtimes));
+        detailedMetrics.put("minRuntime", minRuntime);
         detailedMetrics.put("standardDeviation", stdDev);
-        detailedMetrics.put("totalCycles", runtimes.size());
+        detailedMetrics.put("totalCycles", (int) cycles);
 
         return PumpAnalysisResponseDTO.AnalysisResult.builder()
                 .analysisType("运行时间异常分析")
                 .severityLevel(severityLevel)
-                .confidence(Math.min(0.95, 0.7 + runtimes.size() * 0.005))
+                .confidence(Math.min(0.95, 0.7 + cycles * 0.005))
                 .description(description)
                 .detectedValue(avgRuntime)
                 .expectedValue(threshold)
@@ -149,28 +195,60 @@ public class PumpAnomalyDetectionService {
      */
     public PumpAnalysisResponseDTO.AnalysisResult analyzeEnergyTrend(
             List<PumpDataEntity> pumpData, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+        return analyzeEnergyTrend(PumpSeries.of(pumpData), thresholdConfig);
+    }
+
+    /**
+     * 能耗趋势分析(列式数据)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult analyzeEnergyTrend(
+            PumpSeries series, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
         double threshold = thresholdConfig != null && thresholdConfig.getEnergyIncreaseThreshold() != null ?
                 thresholdConfig.getEnergyIncreaseThreshold() : DEFAULT_ENERGY_INCREASE_THRESHOLD;
 
-        List<Double> energyData = pumpData.stream()
-                .filter(data -> data.getEnergyConsumptionKwh() != null && data.getEnergyConsumptionKwh() > 0)
-                .map(PumpDataEntity::getEnergyConsumptionKwh)
-                .collect(Collectors.toList());
-
-        if (energyData.size() < 3) {
-            return createAnalysisResult("能耗趋势分析", 1, 0.4,
-                    "能耗数据不足，无法进行趋势分析", null, null, null, "STABLE");
+        double[] energyData = series.positiveColumn(PumpDataAggregate.Metric.ENERGY);
+        if (energyData.length < 3) {
+            return energyTrendResult(energyData.length, 0, 0, 0, null, threshold);
         }
 
         // 计算移动平均以平滑噪声
-        List<Double> smoothedData = TimeSeriesAnalyzer.movingAverage(energyData, Math.min(5, energyData.size() / 3));
+        double[] smoothedData = TimeSeriesAnalyzer.movingAverage(energyData, Math.min(5, energyData.length / 3));
 
         // 趋势分析
         TimeSeriesAnalyzer.TrendAnalysisResult trend = TimeSeriesAnalyzer.analyzeTrend(smoothedData);
 
+        PumpSeries.Summary energy = series.positiveSummary(PumpDataAggregate.Metric.ENERGY);
+        return energyTrendResult(smoothedData.length, energy.getTotal(), energy.getMean(),
+                TimeSeriesAnalyzer.mean(smoothedData), trend, threshold);
+    }
+
+    /**
+     * 能耗趋势分析(单遍统计)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult analyzeEnergyTrend(
+            PumpStreamingStats stats, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+
+        double threshold = thresholdConfig != null && thresholdConfig.getEnergyIncreaseThreshold() != null ?
+                thresholdConfig.getEnergyIncreaseThreshold() : DEFAULT_ENERGY_INCREASE_THRESHOLD;
+
+        RunningStats energy = stats.getEnergy();
+        RunningTrend smoothed = stats.getSmoothedEnergyTrend();
+        return energyTrendResult(energy.getCount(), energy.getSum(), energy.getMean(), smoothed.getMean(),
+                smoothed.toTrendResult(), threshold);
+    }
+
+    private PumpAnalysisResponseDTO.AnalysisResult energyTrendResult(
+            long samples, double totalEnergy, double avgEnergy, double smoothedMean,
+            TimeSeriesAnalyzer.TrendAnalysisResult trend, double threshold) {
+
+        if (samples < 3) {
+            return createAnalysisResult("能耗趋势分析", 1, 0.4,
+                    "能耗数据不足，无法进行趋势分析", null, null, null, "STABLE");
+        }
+
         // 计算能耗增长率
-        double energyGrowthRate = trend.getSlope() / TimeSeriesAnalyzer.mean(smoothedData) * 100;
+        double energyGrowthRate = trend.getSlope() / smoothedMean * 100;
         int severityLevel = calculateSeverityLevel(Math.abs(energyGrowthRate));
 
         String description = String.format("能耗趋势: %s, 增长率: %.2f%%, 趋势强度: %.2f",
@@ -181,15 +259,15 @@ public class PumpAnomalyDetectionService {
         }
 
         Map<String, Object> detailedMetrics = new HashMap<>();
-        detailedMetrics.put("totalEnergyConsumption", energyData.stream().mapToDouble(Double::doubleValue).sum());
-        detailedMetrics.put("averageEnergyConsumption", TimeSeriesAnalyzer.mean(energyData));
+        detailedMetrics.put("totalEnergyConsumption", totalEnergy);
+        detailedMetrics.put("averageEnergyConsumption", avgEnergy);
         detailedMetrics.put("energyGrowthRate", energyGrowthRate);
         detailedMetrics.put("trendStrength", trend.getStrength());
 
         return PumpAnalysisResponseDTO.AnalysisResult.builder()
                 .analysisType("能耗趋势分析")
                 .severityLevel(severityLevel)
-                .confidence(Math.min(0.9, 0.6 + smoothedData.size() * 0.01))
+                .confidence(Math.min(0.9, 0.6 + samples * 0.01))
                 .description(description)
                 .detectedValue(energyGrowthRate)
                 .expectedValue(threshold)
@@ -205,26 +283,32 @@ public class PumpAnomalyDetectionService {
      */
     public PumpAnalysisResponseDTO.AnalysisResult detectVibrationAnomaly(
             List<PumpDataEntity> pumpData, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+        return detectVibrationAnomaly(PumpSeries.of(pumpData), thresholdConfig);
+    }
+
+    /**
+     * 振动异常检测(列式数据)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult detectVibrationAnomaly(
+            PumpSeries series, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
         double threshold = thresholdConfig != null && thresholdConfig.getVibrationThreshold() != null ?
                 thresholdConfig.getVibrationThreshold() : DEFAULT_VIBRATION_THRESHOLD;
 
-        List<Double> vibrationData = pumpData.stream()
-                .filter(data -> data.getVibrationMmS() != null && data.getVibrationMmS() > 0)
-                .map(PumpDataEntity::getVibrationMmS)
-                .collect(Collectors.toList());
-
-        if (vibrationData.isEmpty()) {
+        PumpSeries.Summary vibration = series.positiveSummary(PumpDataAggregate.Metric.VIBRATION);
+        if (vibration.isEmpty()) {
             return createAnalysisResult("振动异常检测", 1, 0.3,
                     "无振动数据", null, threshold, null, "STABLE");
         }
 
-        double avgVibration = TimeSeriesAnalyzer.mean(vibrationData);
-        double maxVibration = Collections.max(vibrationData);
-        double stdDev = TimeSeriesAnalyzer.standardDeviation(vibrationData);
+        double avgVibration = vibration.getMean();
+        double maxVibration = vibration.getMax();
+        double stdDev = vibration.getStandardDeviation();
 
         // 检测异常值
-        List<Integer> outlierIndices = TimeSeriesAnalyzer.detectOutliers(vibrationData);
+        int outlierCount = TimeSeriesAnalyzer.countOutliers(
+                series.positiveColumn(PumpDataAggregate.Metric.VIBRATION),
+                series.sortedPositiveColumn(PumpDataAggregate.Metric.VIBRATION));
 
         int severityLevel = 1;
         if (maxVibration > threshold * 1.5) {
@@ -238,7 +322,7 @@ public class PumpAnomalyDetectionService {
         double deviation = ((avgVibration - threshold) / threshold) * 100;
 
         String description = String.format("平均振动: %.2fmm/s, 最大振动: %.2fmm/s, 阈值: %.2fmm/s, 异常点数: %d",
-                avgVibration, maxVibration, threshold, outlierIndices.size());
+                avgVibration, maxVibration, threshold, outlierCount);
 
         if (severityLevel > 1) {
             description += String.format(" - 振动异常");
@@ -248,20 +332,20 @@ public class PumpAnomalyDetectionService {
         detailedMetrics.put("averageVibration", avgVibration);
         detailedMetrics.put("maxVibration", maxVibration);
         detailedMetrics.put("standardDeviation", stdDev);
-        detailedMetrics.put("outlierCount", outlierIndices.size());
-        detailedMetrics.put("outlierPercentage", (double) outlierIndices.size() / vibrationData.size() * 100);
+        detailedMetrics.put("outlierCount", outlierCount);
+        detailedMetrics.put("outlierPercentage", (double) outlierCount / vibration.getCount() * 100);
 
         return PumpAnalysisResponseDTO.AnalysisResult.builder()
                 .analysisType("振动异常检测")
                 .severityLevel(severityLevel)
-                .confidence(Math.min(0.95, 0.7 + vibrationData.size() * 0.005))
+                .confidence(Math.min(0.95, 0.7 + vibration.getCount() * 0.005))
                 .description(description)
                 .detectedValue(avgVibration)
                 .expectedValue(threshold)
                 .deviationPercentage(deviation)
                 .trendDirection("STABLE")
                 .detailedMetrics(detailedMetrics)
-                .recommendations(generateVibrationRecommendations(avgVibration, maxVibration, outlierIndices.size(), severityLevel))
+                .recommendations(generateVibrationRecommendations(avgVibration, maxVibration, outlierCount, severityLevel))
                 .build();
     }
 
@@ -270,22 +354,26 @@ public class PumpAnomalyDetectionService {
      */
     public PumpAnalysisResponseDTO.AnalysisResult detectPowerAnomaly(
             List<PumpDataEntity> pumpData, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+        return detectPowerAnomaly(PumpSeries.of(pumpData), thresholdConfig);
+    }
+
+    /**
+     * 功率异常检测(列式数据)
+     */
+    public PumpAnalysisResponseDTO.AnalysisResult detectPowerAnomaly(
+            PumpSeries series, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
         double threshold = thresholdConfig != null && thresholdConfig.getPowerAnomalyThreshold() != null ?
                 thresholdConfig.getPowerAnomalyThreshold() : DEFAULT_POWER_ANOMALY_THRESHOLD;
 
-        List<Double> powerData = pumpData.stream()
-                .filter(data -> data.getPowerKw() != null && data.getPowerKw() > 0)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
-
-        if (powerData.size() < 3) {
+        PumpSeries.Summary power = series.positiveSummary(PumpDataAggregate.Metric.POWER);
+        if (power.getCount() < 3) {
             return createAnalysisResult("功率异常检测", 1, 0.4,
                     "功率数据不足", null, null, null, "STABLE");
         }
 
-        double avgPower = TimeSeriesAnalyzer.mean(powerData);
-        double expectedPower = calculateExpectedPower(pumpData);
+        double avgPower = power.getMean();
+        double expectedPower = calculateExpectedPower(series);
         double deviation = Math.abs((avgPower - expectedPower) / expectedPower) * 100;
 
         int severityLevel = calculateSeverityLevel(deviation);
@@ -300,14 +388,14 @@ public class PumpAnomalyDetectionService {
         Map<String, Object> detailedMetrics = new HashMap<>();
         detailedMetrics.put("averagePower", avgPower);
         detailedMetrics.put("expectedPower", expectedPower);
-        detailedMetrics.put("maxPower", Collections.max(powerData));
-        detailedMetrics.put("minPower", Collections.min(powerData));
-        detailedMetrics.put("powerVariability", TimeSeriesAnalyzer.standardDeviation(powerData));
+        detailedMetrics.put("maxPower", power.getMax());
+        detailedMetrics.put("minPower", power.getMin());
+        detailedMetrics.put("powerVariability", power.getStandardDeviation());
 
         return PumpAnalysisResponseDTO.AnalysisResult.builder()
                 .analysisType("功率异常检测")
                 .severityLevel(severityLevel)
-                .confidence(Math.min(0.9, 0.6 + powerData.size() * 0.01))
+                .confidence(Math.min(0.9, 0.6 + power.getCount() * 0.01))
                 .description(description)
                 .detectedValue(avgPower)
                 .expectedValue(expectedPower)
@@ -321,14 +409,9 @@ public class PumpAnomalyDetectionService {
     /**
      * 计算预期功率（基于历史数据和运行条件）
      */
-    private double calculateExpectedPower(List<PumpDataEntity> pumpData) {
+    private double calculateExpectedPower(PumpSeries series) {
         // 使用中位数作为基准功率，避免异常值影响
-        List<Double> powerData = pumpData.stream()
-                .filter(data -> data.getPowerKw() != null && data.getPowerKw() > 0)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
-
-        return powerData.isEmpty() ? 0 : TimeSeriesAnalyzer.median(powerData);
+        return TimeSeriesAnalyzer.medianOfSorted(series.sortedPositiveColumn(PumpDataAggregate.Metric.POWER));
     }
 
     /**
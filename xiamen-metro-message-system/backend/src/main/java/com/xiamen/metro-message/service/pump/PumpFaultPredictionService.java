@@ -3,18 +3,16 @@ package com.xiamen.metro.message.service.pump;
 import com.xiamen.metro.message.entity.PumpDataEntity;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisRequestDTO;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
-
 /**
  * 水泵故障预测服务
- * 基于历史数据和机器学习算法进行故障预测
+ * 基于历史数据和机器学习算法进行故障预测，各组件预测共享 PumpSeries 的列与汇总统计
  *
  * @author Xiamen Metro System
  */
@@ -33,6 +31,15 @@ public class PumpFaultPredictionService {
     public PumpAnalysisResponseDTO.PredictionInfo predictFaults(
             List<PumpDataEntity> historicalData,
             PumpAnalysisRequestDTO.ModelConfig modelConfig) {
+        return predictFaults(PumpSeries.of(historicalData), modelConfig);
+    }
+
+    /**
+     * 故障预测(列式数据)
+     */
+    public PumpAnalysisResponseDTO.PredictionInfo predictFaults(
+            PumpSeries historicalData,
+            PumpAnalysisRequestDTO.ModelConfig modelConfig) {
 
         if (historicalData.size() < MIN_TRAINING_SAMPLES) {
             return createLowConfidencePrediction("历史数据不足，无法进行可靠预测");
@@ -43,7 +50,7 @@ public class PumpFaultPredictionService {
             Map<String, Double> failureProbabilities = predictComponentFailures(historicalData, modelConfig);
 
             // 预测剩余寿命
-            int remainingUsefulLife = predictRemainingUsefulLife(historicalData, modelConfig);
+            int remainingUsefulLife = predictRemainingUsefulLife(failureProbabilities, modelConfig);
 
             // 预测性能退化趋势
             String performanceTrend = predictPerformanceDegradation(historicalData);
@@ -59,7 +66,7 @@ public class PumpFaultPredictionService {
 
             // 计算置信区间
             Map<String, Double[]> confidenceIntervals = calculateConfidenceIntervals(
-                    historicalData, keyMetricsPrediction, modelConfig);
+                    keyMetricsPrediction, modelConfig);
 
             double confidence = calculatePredictionConfidence(historicalData.size(), failureProbabilities);
 
@@ -82,7 +89,7 @@ public class PumpFaultPredictionService {
      * 预测组件故障概率
      */
     private Map<String, Double> predictComponentFailures(
-            List<PumpDataEntity> data, PumpAnalysisRequestDTO.ModelConfig config) {
+            PumpSeries data, PumpAnalysisRequestDTO.ModelConfig config) {
 
         Map<String, Double> componentFailures = new HashMap<>();
 
@@ -107,28 +114,17 @@ public class PumpFaultPredictionService {
     /**
      * 预测电机故障
      */
-    private Double predictMotorFailure(List<PumpDataEntity> data) {
-        List<Double> currents = data.stream()
-                .filter(d -> d.getCurrentAmperage() != null)
-                .map(PumpDataEntity::getCurrentAmperage)
-                .collect(Collectors.toList());
-
-        List<Double> powers = data.stream()
-                .filter(d -> d.getPowerKw() != null)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
-
-        List<Double> temperatures = data.stream()
-                .filter(d -> d.getWaterTemperatureCelsius() != null)
-                .map(PumpDataEntity::getWaterTemperatureCelsius)
-                .collect(Collectors.toList());
+    private Double predictMotorFailure(PumpSeries data) {
+        PumpSeries.Summary currents = data.summary(PumpDataAggregate.Metric.CURRENT);
+        double[] powers = data.column(PumpDataAggregate.Metric.POWER);
+        PumpSeries.Summary temperatures = data.summary(PumpDataAggregate.Metric.TEMPERATURE);
 
         double failureProbability = 0.0;
 
         // 电流异常分析
         if (!currents.isEmpty()) {
-            double currentStdDev = TimeSeriesAnalyzer.standardDeviation(currents);
-            double currentMean = TimeSeriesAnalyzer.mean(currents);
+            double currentStdDev = currents.getStandardDeviation();
+            double currentMean = currents.getMean();
             double currentCV = currentStdDev / currentMean; // 变异系数
 
             if (currentCV > 0.15) {
@@ -140,7 +136,7 @@ public class PumpFaultPredictionService {
         }
 
         // 功率趋势分析
-        if (!powers.isEmpty() && powers.size() >= 10) {
+        if (powers.length >= 10) {
             TimeSeriesAnalyzer.TrendAnalysisResult powerTrend = TimeSeriesAnalyzer.analyzeTrend(powers);
             if (powerTrend.getDirection() == TimeSeriesAnalyzer.TrendDirection.INCREASING &&
                 powerTrend.getStrength() > 0.6) {
@@ -150,8 +146,8 @@ public class PumpFaultPredictionService {
 
         // 温度异常分析
         if (!temperatures.isEmpty()) {
-            double maxTemp = Collections.max(temperatures);
-            double avgTemp = TimeSeriesAnalyzer.mean(temperatures);
+            double maxTemp = temperatures.getMax();
+            double avgTemp = temperatures.getMean();
 
             if (maxTemp > 80) {
                 failureProbability += 0.3;
@@ -166,11 +162,8 @@ public class PumpFaultPredictionService {
     /**
      * 预测轴承故障
      */
-    private Double predictBearingFailure(List<PumpDataEntity> data) {
-        List<Double> vibrations = data.stream()
-                .filter(d -> d.getVibrationMmS() != null)
-                .map(PumpDataEntity::getVibrationMmS)
-                .collect(Collectors.toList());
+    private Double predictBearingFailure(PumpSeries data) {
+        PumpSeries.Summary vibrations = data.summary(PumpDataAggregate.Metric.VIBRATION);
 
         if (vibrations.isEmpty()) {
             return 0.1; // 默认低概率
@@ -179,9 +172,8 @@ public class PumpFaultPredictionService {
         double failureProbability = 0.0;
 
         // 振动水平分析
-        double maxVibration = Collections.max(vibrations);
-        double avgVibration = TimeSeriesAnalyzer.mean(vibrations);
-        double vibrationStdDev = TimeSeriesAnalyzer.standardDeviation(vibrations);
+        double maxVibration = vibrations.getMax();
+        double vibrationStdDev = vibrations.getStandardDeviation();
 
         if (maxVibration > 7.0) {
             failureProbability += 0.4;
@@ -194,8 +186,9 @@ public class PumpFaultPredictionService {
         }
 
         // 振动趋势分析
-        if (vibrations.size() >= 10) {
-            TimeSeriesAnalyzer.TrendAnalysisResult vibrationTrend = TimeSeriesAnalyzer.analyzeTrend(vibrations);
+        double[] vibrationColumn = data.column(PumpDataAggregate.Metric.VIBRATION);
+        if (vibrations.getCount() >= 10) {
+            TimeSeriesAnalyzer.TrendAnalysisResult vibrationTrend = TimeSeriesAnalyzer.analyzeTrend(vibrationColumn);
             if (vibrationTrend.getDirection() == TimeSeriesAnalyzer.TrendDirection.INCREASING &&
                 vibrationTrend.getStrength() > 0.7) {
                 failureProbability += 0.3;
@@ -203,8 +196,9 @@ public class PumpFaultPredictionService {
         }
 
         // 检测异常振动模式
-        List<Integer> outliers = TimeSeriesAnalyzer.detectOutliers(vibrations);
-        double outlierRatio = (double) outliers.size() / vibrations.size();
+        int outliers = TimeSeriesAnalyzer.countOutliers(vibrationColumn,
+                data.sortedColumn(PumpDataAggregate.Metric.VIBRATION));
+        double outlierRatio = (double) outliers / vibrations.getCount();
         if (outlierRatio > 0.2) {
             failureProbability += 0.2;
         }
@@ -215,23 +209,17 @@ public class PumpFaultPredictionService {
     /**
      * 预测叶轮故障
      */
-    private Double predictImpellerFailure(List<PumpDataEntity> data) {
-        List<Double> pressures = data.stream()
-                .filter(d -> d.getWaterPressureKpa() != null)
-                .map(PumpDataEntity::getWaterPressureKpa)
-                .collect(Collectors.toList());
-
-        List<Double> flows = data.stream()
-                .filter(d -> d.getFlowRateM3h() != null)
-                .map(PumpDataEntity::getFlowRateM3h)
-                .collect(Collectors.toList());
+    private Double predictImpellerFailure(PumpSeries data) {
+        double[] pressures = data.column(PumpDataAggregate.Metric.PRESSURE);
+        double[] flows = data.column(PumpDataAggregate.Metric.FLOW);
 
         double failureProbability = 0.0;
 
         // 压力异常分析
-        if (!pressures.isEmpty() && pressures.size() >= 5) {
-            double pressureMean = TimeSeriesAnalyzer.mean(pressures);
-            double pressureStdDev = TimeSeriesAnalyzer.standardDeviation(pressures);
+        if (pressures.length >= 5) {
+            PumpSeries.Summary pressureSummary = data.summary(PumpDataAggregate.Metric.PRESSURE);
+            double pressureMean = pressureSummary.getMean();
+            double pressureStdDev = pressureSummary.getStandardDeviation();
 
             // 压力不稳定可能表示叶轮问题
             if (pressureStdDev / pressureMean > 0.2) {
@@ -247,9 +235,7 @@ public class PumpFaultPredictionService {
         }
 
         // 流量异常分析
-        if (!flows.isEmpty() && flows.size() >= 5) {
-            double flowMean = TimeSeriesAnalyzer.mean(flows);
-
+        if (flows.length >= 5) {
             // 流量下降可能表示叶轮磨损
             TimeSeriesAnalyzer.TrendAnalysisResult flowTrend = TimeSeriesAnalyzer.analyzeTrend(flows);
             if (flowTrend.getDirection() == TimeSeriesAnalyzer.TrendDirection.DECREASING &&
@@ -259,16 +245,13 @@ public class PumpFaultPredictionService {
         }
 
         // 功率效率分析
-        List<Double> powers = data.stream()
-                .filter(d -> d.getPowerKw() != null)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
+        double[] powers = data.column(PumpDataAggregate.Metric.POWER);
 
-        if (!powers.isEmpty() && !pressures.isEmpty()) {
+        if (powers.length > 0 && pressures.length > 0) {
             // 计算效率趋势（简化版本）
             TimeSeriesAnalyzer.TrendAnalysisResult powerTrend = TimeSeriesAnalyzer.analyzeTrend(powers);
             if (powerTrend.getDirection() == TimeSeriesAnalyzer.TrendDirection.INCREASING &&
-                pressures.size() > 10) {
+                pressures.length > 10) {
                 TimeSeriesAnalyzer.TrendAnalysisResult pressureTrend = TimeSeriesAnalyzer.analyzeTrend(pressures);
                 if (pressureTrend.getDirection() == TimeSeriesAnalyzer.TrendDirection.DECREASING) {
                     failureProbability += 0.2; // 功率上升但压力下降，效率降低
@@ -282,24 +265,17 @@ public class PumpFaultPredictionService {
     /**
      * 预测密封件故障
      */
-    private Double predictSealFailure(List<PumpDataEntity> data) {
+    private Double predictSealFailure(PumpSeries data) {
         // 密封件故障通常通过泄漏检测，但这里我们使用间接指标
-        List<Double> temperatures = data.stream()
-                .filter(d -> d.getWaterTemperatureCelsius() != null)
-                .map(PumpDataEntity::getWaterTemperatureCelsius)
-                .collect(Collectors.toList());
-
-        List<Double> pressures = data.stream()
-                .filter(d -> d.getWaterPressureKpa() != null)
-                .map(PumpDataEntity::getWaterPressureKpa)
-                .collect(Collectors.toList());
+        PumpSeries.Summary temperatures = data.summary(PumpDataAggregate.Metric.TEMPERATURE);
+        PumpSeries.Summary pressures = data.summary(PumpDataAggregate.Metric.PRESSURE);
 
         double failureProbability = 0.0;
 
         // 温度异常可能导致密封件老化
         if (!temperatures.isEmpty()) {
-            double maxTemp = Collections.max(temperatures);
-            double avgTemp = TimeSeriesAnalyzer.mean(temperatures);
+            double maxTemp = temperatures.getMax();
+            double avgTemp = temperatures.getMean();
 
             if (maxTemp > 85) {
                 failureProbability += 0.3;
@@ -309,9 +285,9 @@ public class PumpFaultPredictionService {
         }
 
         // 压力波动对密封件的损伤
-        if (!pressures.isEmpty() && pressures.size() >= 10) {
-            double pressureStdDev = TimeSeriesAnalyzer.standardDeviation(pressures);
-            double pressureMean = TimeSeriesAnalyzer.mean(pressures);
+        if (pressures.getCount() >= 10) {
+            double pressureStdDev = pressures.getStandardDeviation();
+            double pressureMean = pressures.getMean();
             double pressureCV = pressureStdDev / pressureMean;
 
             if (pressureCV > 0.25) {
@@ -320,10 +296,11 @@ public class PumpFaultPredictionService {
         }
 
         // 运行时间累积影响
-        long totalRuntimeHours = data.stream()
-                .filter(d -> d.getRuntimeMinutes() != null)
-                .mapToLong(d -> d.getRuntimeMinutes().longValue())
-                .sum() / 60;
+        long totalRuntimeMinutes = 0;
+        for (double runtime : data.column(PumpDataAggregate.Metric.RUNTIME)) {
+            totalRuntimeMinutes += (long) runtime;
+        }
+        long totalRuntimeHours = totalRuntimeMinutes / 60;
 
         if (totalRuntimeHours > 8760) { // 超过一年
             failureProbability += 0.1 * (totalRuntimeHours / 8760); // 累积效应
@@ -335,25 +312,20 @@ public class PumpFaultPredictionService {
     /**
      * 预测控制系统故障
      */
-    private Double predictControlSystemFailure(List<PumpDataEntity> data) {
+    private Double predictControlSystemFailure(PumpSeries data) {
         // 分析启停模式
-        List<LocalDateTime> startEvents = data.stream()
-                .filter(d -> d.getPumpStatus() != null && d.getPumpStatus() == 1)
-                .map(PumpDataEntity::getTimestamp)
-                .sorted()
-                .collect(Collectors.toList());
+        long[] startEvents = data.startEventTimestamps();
 
         double failureProbability = 0.0;
 
-        if (startEvents.size() >= 10) {
-            // 计算启停间隔的变异系数
-            List<Long> intervals = new ArrayList<>();
-            for (int i = 1; i < startEvents.size(); i++) {
-                long interval = ChronoUnit.MINUTES.between(startEvents.get(i-1), startEvents.get(i));
-                intervals.add((double) interval);
+        if (startEvents.length >= 10) {
+            // 计算启停间隔(整分钟)的变异系数
+            double[] intervals = new double[startEvents.length - 1];
+            for (int i = 1; i < startEvents.length; i++) {
+                intervals[i - 1] = (startEvents[i] - startEvents[i - 1]) / 60000;
             }
 
-            if (!intervals.isEmpty()) {
+            if (intervals.length > 0) {
                 double intervalMean = TimeSeriesAnalyzer.mean(intervals);
                 double intervalStdDev = TimeSeriesAnalyzer.standardDeviation(intervals);
                 double intervalCV = intervalStdDev / intervalMean;
@@ -365,10 +337,7 @@ public class PumpFaultPredictionService {
         }
 
         // 分析故障代码
-        List<String> faultCodes = data.stream()
-                .filter(d -> d.getFaultCode() != null && !d.getFaultCode().trim().isEmpty())
-                .map(PumpDataEntity::getFaultCode)
-                .collect(Collectors.toList());
+        List<String> faultCodes = data.faultCodes();
 
         if (!faultCodes.isEmpty()) {
             // 控制系统相关故障代码
@@ -385,9 +354,8 @@ public class PumpFaultPredictionService {
     /**
      * 预测剩余寿命
      */
-    private int predictRemainingUsefulLife(List<PumpDataEntity> data, PumpAnalysisRequestDTO.ModelConfig config) {
-        Map<String, Double> componentFailures = predictComponentFailures(data, config);
-
+    private int predictRemainingUsefulLife(Map<String, Double> componentFailures,
+                                           PumpAnalysisRequestDTO.ModelConfig config) {
         // 基于最薄弱的组件预测寿命
         double maxFailureProbability = componentFailures.values().stream()
                 .mapToDouble(Double::doubleValue)
@@ -414,10 +382,10 @@ public class PumpFaultPredictionService {
     /**
      * 预测性能退化趋势
      */
-    private String predictPerformanceDegradation(List<PumpDataEntity> data) {
-        List<Double> efficiencies = calculateEfficiencyTrend(data);
+    private String predictPerformanceDegradation(PumpSeries data) {
+        double[] efficiencies = calculateEfficiencyTrend(data);
 
-        if (efficiencies.size() < 5) {
+        if (efficiencies.length < 5) {
             return "INSUFFICIENT_DATA";
         }
 
@@ -441,38 +409,29 @@ public class PumpFaultPredictionService {
     /**
      * 预测关键指标
      */
-    private Map<String, Double> predictKeyMetrics(List<PumpDataEntity> data, PumpAnalysisRequestDTO.ModelConfig config) {
+    private Map<String, Double> predictKeyMetrics(PumpSeries data, PumpAnalysisRequestDTO.ModelConfig config) {
         Map<String, Double> predictions = new HashMap<>();
 
         // 预测功率
-        List<Double> powers = data.stream()
-                .filter(d -> d.getPowerKw() != null)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
+        double[] powers = data.column(PumpDataAggregate.Metric.POWER);
 
-        if (!powers.isEmpty()) {
+        if (powers.length > 0) {
             double predictedPower = predictNextValue(powers);
             predictions.put("power_kw", predictedPower);
         }
 
         // 预测振动
-        List<Double> vibrations = data.stream()
-                .filter(d -> d.getVibrationMmS() != null)
-                .map(PumpDataEntity::getVibrationMmS)
-                .collect(Collectors.toList());
+        double[] vibrations = data.column(PumpDataAggregate.Metric.VIBRATION);
 
-        if (!vibrations.isEmpty()) {
+        if (vibrations.length > 0) {
             double predictedVibration = predictNextValue(vibrations);
             predictions.put("vibration_mm_s", predictedVibration);
         }
 
         // 预测能耗
-        List<Double> energies = data.stream()
-                .filter(d -> d.getEnergyConsumptionKwh() != null)
-                .map(PumpDataEntity::getEnergyConsumptionKwh)
-                .collect(Collectors.toList());
+        double[] energies = data.column(PumpDataAggregate.Metric.ENERGY);
 
-        if (!energies.isEmpty()) {
+        if (energies.length > 0) {
             double predictedEnergy = predictNextValue(energies);
             predictions.put("energy_consumption_kwh", predictedEnergy);
         }
@@ -483,37 +442,35 @@ public class PumpFaultPredictionService {
     /**
      * 预测下一个值（简单线性预测）
      */
-    private double predictNextValue(List<Double> data) {
-        if (data.size() < 3) {
+    private double predictNextValue(double[] data) {
+        if (data.length < 3) {
             return TimeSeriesAnalyzer.mean(data);
         }
 
-        // 使用最近的几个点进行线性预测
-        int windowSize = Math.min(10, data.size());
-        List<Double> recentData = data.subList(data.size() - windowSize, data.size());
-
-        List<Double> xValues = new ArrayList<>();
-        for (int i = 0; i < recentData.size(); i++) {
-            xValues.add((double) i);
-        }
-
+        // 使用最近的几个点进行线性预测，x 为窗口内下标
+        int windowSize = Math.min(10, data.length);
         TimeSeriesAnalyzer.LinearRegressionResult regression =
-                TimeSeriesAnalyzer.linearRegression(xValues, recentData);
+                TimeSeriesAnalyzer.linearRegression(data, data.length - windowSize, data.length);
 
         // 预测下一个点
-        return regression.getIntercept() + regression.getSlope() * recentData.size();
+        return regression.getIntercept() + regression.getSlope() * windowSize;
     }
 
     /**
      * 计算效率趋势
      */
-    private List<Double> calculateEfficiencyTrend(List<PumpDataEntity> data) {
-        // 简化的效率计算：功率/压力的比值趋势
-        return data.stream()
-                .filter(d -> d.getPowerKw() != null && d.getWaterPressureKpa() != null &&
-                            d.getPowerKw() > 0 && d.getWaterPressureKpa() > 0)
-                .map(d -> d.getWaterPressureKpa() / d.getPowerKw()) // 简化效率指标
-                .collect(Collectors.toList());
+    private double[] calculateEfficiencyTrend(PumpSeries data) {
+        // 简化的效率计算：功率/压力的比值趋势(空值为 NaN，比较不成立)
+        double[] efficiencies = new double[data.size()];
+        int n = 0;
+        for (int i = 0; i < data.size(); i++) {
+            double power = data.value(PumpDataAggregate.Metric.POWER, i);
+            double pressure = data.value(PumpDataAggregate.Metric.PRESSURE, i);
+            if (power > 0 && pressure > 0) {
+                efficiencies[n++] = pressure / power; // 简化效率指标
+            }
+        }
+        return Arrays.copyOf(efficiencies, n);
     }
 
     /**
@@ -543,7 +500,7 @@ public class PumpFaultPredictionService {
      * 计算置信区间
      */
     private Map<String, Double[]> calculateConfidenceIntervals(
-            List<PumpDataEntity> data, Map<String, Double> predictions,
+            Map<String, Double> predictions,
             PumpAnalysisRequestDTO.ModelConfig config) {
 
         Map<String, Double[]> confidenceIntervals = new HashMap<>();
@@ -594,12 +551,8 @@ public class PumpFaultPredictionService {
     /**
      * 获取额定电流（简化版本）
      */
-    private double getRatedCurrent(List<PumpDataEntity> data) {
-        List<Double> currents = data.stream()
-                .filter(d -> d.getCurrentAmperage() != null)
-                .map(PumpDataEntity::getCurrentAmperage)
-                .collect(Collectors.toList());
-
-        return currents.isEmpty() ? 10.0 : TimeSeriesAnalyzer.median(currents) * 1.2; // 中位数的120%作为额定值
+    private double getRatedCurrent(PumpSeries data) {
+        double[] currents = data.sortedColumn(PumpDataAggregate.Metric.CURRENT);
+        return currents.length == 0 ? 10.0 : TimeSeriesAnalyzer.medianOfSorted(currents) * 1.2; // 中位数的120%作为额定值
     }
 }
\ No newline at end of file
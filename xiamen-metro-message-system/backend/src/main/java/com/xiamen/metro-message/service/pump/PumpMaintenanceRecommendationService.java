@@ -3,13 +3,14 @@ package com.xiamen.metro.message.service.pump;
 import com.xiamen.metro.message.entity.PumpDataEntity;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisRequestDTO;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 水泵智能维护建议生成服务
@@ -29,6 +30,18 @@ public class PumpMaintenanceRecommendationService {
             List<PumpAnalysisResponseDTO.AnalysisResult> analysisResults,
             PumpAnalysisResponseDTO.PredictionInfo predictionInfo,
             PumpAnalysisResponseDTO.PerformanceMetrics performanceMetrics) {
+        return generateMaintenanceRecommendations(PumpSeries.of(pumpData), analysisResults,
+                predictionInfo, performanceMetrics);
+    }
+
+    /**
+     * 生成维护建议(列式数据)
+     */
+    public PumpAnalysisResponseDTO.MaintenanceRecommendations generateMaintenanceRecommendations(
+            PumpSeries pumpData,
+            List<PumpAnalysisResponseDTO.AnalysisResult> analysisResults,
+            PumpAnalysisResponseDTO.PredictionInfo predictionInfo,
+            PumpAnalysisResponseDTO.PerformanceMetrics performanceMetrics) {
 
         List<String> urgentActions = new ArrayList<>();
         List<String> scheduledActions = new ArrayList<>();
@@ -186,7 +199,7 @@ public class PumpMaintenanceRecommendationService {
      * 基于历史数据生成建议
      */
     private void generateRecommendationsFromHistory(
-            List<PumpDataEntity> pumpData,
+            PumpSeries pumpData,
             List<String> preventiveActions,
             List<String> scheduledActions) {
 
@@ -203,16 +216,13 @@ public class PumpMaintenanceRecommendationService {
     /**
      * 分析运行模式
      */
-    private void analyzeOperatingPattern(List<PumpDataEntity> pumpData, List<String> preventiveActions) {
+    private void analyzeOperatingPattern(PumpSeries pumpData, List<String> preventiveActions) {
         // 计算平均每日运行时间
-        double totalRuntime = pumpData.stream()
-                .filter(data -> data.getRuntimeMinutes() != null)
-                .mapToDouble(PumpDataEntity::getRuntimeMinutes)
-                .sum() / 60.0; // 转换为小时
+        double totalRuntime = pumpData.summary(PumpDataAggregate.Metric.RUNTIME).getTotal() / 60.0; // 转换为小时
 
         if (pumpData.size() > 0) {
-            LocalDateTime firstTimestamp = pumpData.get(0).getTimestamp();
-            LocalDateTime lastTimestamp = pumpData.get(pumpData.size() - 1).getTimestamp();
+            LocalDateTime firstTimestamp = pumpData.time(0);
+            LocalDateTime lastTimestamp = pumpData.time(pumpData.size() - 1);
             long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(firstTimestamp, lastTimestamp);
 
             if (daysBetween > 0) {
@@ -230,22 +240,16 @@ public class PumpMaintenanceRecommendationService {
     /**
      * 分析维护历史
      */
-    private void analyzeMaintenanceHistory(List<PumpDataEntity> pumpData, List<String> scheduledActions) {
+    private void analyzeMaintenanceHistory(PumpSeries pumpData, List<String> scheduledActions) {
         // 检查是否有维护标志
-        boolean hasRecentMaintenanceFlag = pumpData.stream()
-                .anyMatch(data -> Boolean.TRUE.equals(data.getMaintenanceFlag()));
+        boolean hasRecentMaintenanceFlag = pumpData.hasMaintenance();
 
         if (hasRecentMaintenanceFlag) {
             scheduledActions.add("存在维护需求标志，跟进处理");
         }
 
         // 检查故障历史
-        List<String> faultCodes = pumpData.stream()
-                .filter(data -> data.getFaultCode() != null && !data.getFaultCode().trim().isEmpty())
-                .map(PumpDataEntity::getFaultCode)
-                .collect(Collectors.toList());
-
-        if (!faultCodes.isEmpty()) {
+        if (!pumpData.faultCodes().isEmpty()) {
             scheduledActions.add("分析历史故障模式，制定针对性维护策略");
         }
     }
@@ -253,19 +257,32 @@ public class PumpMaintenanceRecommendationService {
     /**
      * 分析季节性模式
      */
-    private void analyzeSeasonalPatterns(List<PumpDataEntity> pumpData, List<String> preventiveActions) {
-        // 简化的季节性分析
-        Map<Integer, List<Double>> monthlyPowerUsage = new HashMap<>();
-
-        for (PumpDataEntity data : pumpData) {
-            if (data.getPowerKw() != null && data.getTimestamp() != null) {
-                int month = data.getTimestamp().getMonthValue();
-                monthlyPowerUsage.computeIfAbsent(month, k -> new ArrayList<>()).add(data.getPowerKw());
+    private void analyzeSeasonalPatterns(PumpSeries pumpData, List<String> preventiveActions) {
+        // 简化的季节性分析：统计有功率数据的月份数，时间戳跨出当前月份时才重新换算
+        boolean[] months = new boolean[13];
+        int monthCount = 0;
+        long monthStart = Long.MAX_VALUE;
+        long monthEnd = Long.MIN_VALUE;
+        int month = 0;
+        for (int i = 0; i < pumpData.size(); i++) {
+            if (pumpData.isNull(PumpDataAggregate.Metric.POWER, i)) {
+                continue;
+            }
+            long timestamp = pumpData.timestamp(i);
+            if (timestamp < monthStart || timestamp >= monthEnd) {
+                LocalDateTime start = pumpData.time(i).toLocalDate().withDayOfMonth(1).atStartOfDay();
+                monthStart = Timestamp.valueOf(start).getTime();
+                monthEnd = Timestamp.valueOf(start.plusMonths(1)).getTime();
+                month = start.getMonthValue();
+            }
+            if (!months[month]) {
+                months[month] = true;
+                monthCount++;
             }
         }
 
         // 如果有明显的季节性变化，建议相应调整
-        if (monthlyPowerUsage.size() >= 6) {
+        if (monthCount >= 6) {
             preventiveActions.add("建立季节性维护计划");
             preventiveActions.add("根据季节变化调整运行参数");
         }
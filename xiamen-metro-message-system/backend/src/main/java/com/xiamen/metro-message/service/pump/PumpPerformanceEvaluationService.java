@@ -1,11 +1,17 @@
 package com.xiamen.metro.message.service.pump;
 
 import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.config.ReplicaRead;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+import com.xiamen.metro.message.repository.PumpDataRepository;
+import com.xiamen.metro.message.repository.PumpDataRollupRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -13,6 +19,8 @@ import java.util.stream.Collectors;
 
 /**
  * 水泵性能评估服务
+ * <p>
+ * 已加载的数据基于 PumpSeries 列式数据计算；按设备和时间范围评估时读取汇总表，长时间范围无需加载原始数据
  *
  * @author Xiamen Metro System
  */
@@ -21,33 +29,48 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PumpPerformanceEvaluationService {
 
+    /**
+     * 评估范围不少于该天数时按天取趋势序列，否则按小时
+     */
+    private static final long DAILY_SERIES_MIN_DAYS = 30;
+
+    private final PumpDataRepository pumpDataRepository;
+
     /**
      * 评估水泵性能
      */
     public PumpAnalysisResponseDTO.PerformanceMetrics evaluatePerformance(
             List<PumpDataEntity> pumpData, LocalDateTime startTime, LocalDateTime endTime) {
+        return evaluatePerformance(PumpSeries.of(pumpData), startTime, endTime);
+    }
 
-        if (pumpData.isEmpty()) {
+    /**
+     * 评估水泵性能(列式数据)
+     */
+    public PumpAnalysisResponseDTO.PerformanceMetrics evaluatePerformance(
+            PumpSeries series, LocalDateTime startTime, LocalDateTime endTime) {
+
+        if (series.isEmpty()) {
             return createEmptyPerformanceMetrics();
         }
 
         // 计算基础指标
-        double startupFrequency = calculateStartupFrequency(pumpData, startTime, endTime);
-        double totalRuntimeHours = calculateTotalRuntime(pumpData);
-        double averagePower = calculateAveragePower(pumpData);
-        double totalEnergyConsumption = calculateTotalEnergyConsumption(pumpData);
+        double startupFrequency = calculateStartupFrequency(series, startTime, endTime);
+        double totalRuntimeHours = calculateTotalRuntime(series);
+        double averagePower = series.positiveSummary(PumpDataAggregate.Metric.POWER).getMean();
+        double totalEnergyConsumption = series.positiveSummary(PumpDataAggregate.Metric.ENERGY).getTotal();
 
         // 计算振动指标
-        PerformanceVibrationMetrics vibrationMetrics = calculateVibrationMetrics(pumpData);
+        PerformanceVibrationMetrics vibrationMetrics = calculateVibrationMetrics(series);
 
         // 计算水压和流量指标
-        double averagePressure = calculateAveragePressure(pumpData);
-        double averageFlowRate = calculateAverageFlowRate(pumpData);
+        double averagePressure = series.positiveSummary(PumpDataAggregate.Metric.PRESSURE).getMean();
+        double averageFlowRate = series.positiveSummary(PumpDataAggregate.Metric.FLOW).getMean();
 
         // 计算性能评分
-        double efficiencyScore = calculateEfficiencyScore(pumpData);
-        double reliabilityScore = calculateReliabilityScore(pumpData);
-        double maintenanceScore = calculateMaintenanceScore(pumpData);
+        double efficiencyScore = calculateEfficiencyScore(series);
+        double reliabilityScore = calculateReliabilityScore(series);
+        double maintenanceScore = calculateMaintenanceScore(series);
 
         return PumpAnalysisResponseDTO.PerformanceMetrics.builder()
                 .startupFrequency(startupFrequency)
@@ -65,121 +88,192 @@ public class PumpPerformanceEvaluationService {
     }
 
     /**
-     * 计算启泵频率
+     * 按设备和时间范围评估水泵性能，统计量取自汇总表
+     * <p>
+     * 计数、求和、均值、标准差与逐条计算一致；压力流量相关性、能耗趋势和前后期功率对比
+     * 基于按小时(30天以上按天)汇总的序列计算
      */
-    private double calculateStartupFrequency(List<PumpDataEntity> pumpData, LocalDateTime startTime, LocalDateTime endTime) {
-        List<LocalDateTime> startEvents = pumpData.stream()
-                .filter(data -> data.getPumpStatus() != null && data.getPumpStatus() == 1)
-                .map(PumpDataEntity::getTimestamp)
-                .sorted()
-                .collect(Collectors.toList());
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public PumpAnalysisResponseDTO.PerformanceMetrics evaluatePerformance(
+            String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
 
-        if (startEvents.isEmpty()) {
-            return 0.0;
+        PumpDataAggregate total = pumpDataRepository.aggregate(deviceId, startTime, endTime);
+        if (total.getRowCount() == 0) {
+            return createEmptyPerformanceMetrics();
         }
 
-        // 过滤在时间范围内的事件
-        List<LocalDateTime> filteredEvents = startEvents.stream()
-                .filter(timestamp -> !timestamp.isBefore(startTime) && !timestamp.isAfter(endTime))
-                .collect(Collectors.toList());
+        PumpDataRollupRepository.Bucket bucket = ChronoUnit.DAYS.between(startTime, endTime) >= DAILY_SERIES_MIN_DAYS
+                ? PumpDataRollupRepository.Bucket.DAY : PumpDataRollupRepository.Bucket.HOUR;
+        List<PumpDataAggregate> series = pumpDataRepository.aggregateSeries(deviceId, startTime, endTime, bucket);
 
-        if (filteredEvents.isEmpty()) {
-            return 0.0;
-        }
+        PumpDataAggregate.MetricStats power = total.get(PumpDataAggregate.Metric.POWER);
+        PumpDataAggregate.MetricStats vibration = total.get(PumpDataAggregate.Metric.VIBRATION);
+        PumpDataAggregate.MetricStats pressure = total.get(PumpDataAggregate.Metric.PRESSURE);
+        PumpDataAggregate.MetricStats flow = total.get(PumpDataAggregate.Metric.FLOW);
+        PumpDataAggregate.MetricStats energy = total.get(PumpDataAggregate.Metric.ENERGY);
 
         double hours = ChronoUnit.MINUTES.between(startTime, endTime) / 60.0;
-        return filteredEvents.size() / hours;
+        double startupFrequency = total.getStartCount() > 0 ? total.getStartCount() / hours : 0.0;
+        double totalRuntimeHours = total.get(PumpDataAggregate.Metric.RUNTIME).getPositiveSum() / 60.0;
+        double maxVibration = vibration.getPositiveCount() > 0 ? vibration.getMax() : 0.0;
+
+        // 效率评分
+        Double powerVariability = power.getCount() > 0 ? power.getStdDev() / power.getMean() : null;
+        Double correlation = null;
+        if (pressure.getCount() > 0 && pressure.getCount() == flow.getCount()) {
+            correlation = seriesCorrelation(series, PumpDataAggregate.Metric.PRESSURE, PumpDataAggregate.Metric.FLOW);
+        }
+        TimeSeriesAnalyzer.TrendAnalysisResult energyTrend = energy.getCount() >= 10
+                ? TimeSeriesAnalyzer.analyzeTrend(seriesMeans(series, PumpDataAggregate.Metric.ENERGY)) : null;
+
+        // 维护评分
+        Double powerIncrease = power.getCount() >= 20 ? seriesPowerIncrease(series, power.getCount()) : null;
+
+        return PumpAnalysisResponseDTO.PerformanceMetrics.builder()
+                .startupFrequency(startupFrequency)
+                .totalRuntimeHours(totalRuntimeHours)
+                .averagePower(power.getPositiveMean())
+                .totalEnergyConsumption(energy.getPositiveSum())
+                .averageVibration(vibration.getPositiveMean())
+                .maxVibration(maxVibration)
+                .averagePressure(pressure.getPositiveMean())
+                .averageFlowRate(flow.getPositiveMean())
+                .efficiencyScore(scoreEfficiency(powerVariability, correlation, energyTrend))
+                .reliabilityScore(scoreReliability(total.getRowCount(), total.getFaultCount(), total.getAlarmCount(),
+                        vibration.getMean(), vibration.getStdDev()))
+                .maintenanceScore(scoreMaintenance(total.getMaintenanceCount() > 0, totalRuntimeHours, powerIncrease))
+                .build();
     }
 
     /**
-     * 计算总运行时间
+     * 各时间桶的均值序列，跳过无数据的时间桶
      */
-    private double calculateTotalRuntime(List<PumpDataEntity> pumpData) {
-        return pumpData.stream()
-                .filter(data -> data.getRuntimeMinutes() != null && data.getRuntimeMinutes() > 0)
-                .mapToDouble(PumpDataEntity::getRuntimeMinutes)
-                .sum() / 60.0; // 转换为小时
+    private List<Double> seriesMeans(List<PumpDataAggregate> series, PumpDataAggregate.Metric metric) {
+        return series.stream()
+                .map(bucket -> bucket.get(metric).getMean())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     /**
-     * 计算平均功率
+     * 两个字段在同一时间桶均值之间的相关系数
      */
-    private double calculateAveragePower(List<PumpDataEntity> pumpData) {
-        List<Double> powers = pumpData.stream()
-                .filter(data -> data.getPowerKw() != null && data.getPowerKw() > 0)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
-
-        return powers.isEmpty() ? 0.0 : TimeSeriesAnalyzer.mean(powers);
+    private double seriesCorrelation(List<PumpDataAggregate> series,
+                                     PumpDataAggregate.Metric first, PumpDataAggregate.Metric second) {
+        double[] x = new double[series.size()];
+        double[] y = new double[series.size()];
+        int n = 0;
+        for (PumpDataAggregate bucket : series) {
+            Double a = bucket.get(first).getMean();
+            Double b = bucket.get(second).getMean();
+            if (a != null && b != null) {
+                x[n] = a;
+                y[n] = b;
+                n++;
+            }
+        }
+        return calculateCorrelation(Arrays.copyOf(x, n), Arrays.copyOf(y, n));
     }
 
     /**
-     * 计算总能耗
+     * 按记录数把时间桶序列分为前后两半，返回后期平均功率相对前期的变化百分比
      */
-    private double calculateTotalEnergyConsumption(List<PumpDataEntity> pumpData) {
-        return pumpData.stream()
-                .filter(data -> data.getEnergyConsumptionKwh() != null && data.getEnergyConsumptionKwh() > 0)
-                .mapToDouble(PumpDataEntity::getEnergyConsumptionKwh)
-                .sum();
+    private Double seriesPowerIncrease(List<PumpDataAggregate> series, long powerCount) {
+        long midPoint = powerCount / 2;
+        PumpDataAggregate.MetricStats early = new PumpDataAggregate.MetricStats();
+        PumpDataAggregate.MetricStats late = new PumpDataAggregate.MetricStats();
+        for (PumpDataAggregate bucket : series) {
+            PumpDataAggregate.MetricStats stats = bucket.get(PumpDataAggregate.Metric.POWER);
+            (early.getCount() < midPoint ? early : late).merge(stats);
+        }
+        if (early.getMean() == null || late.getMean() == null) {
+            return null;
+        }
+        return (late.getMean() - early.getMean()) / early.getMean() * 100;
     }
 
     /**
-     * 计算振动指标
+     * 计算启泵频率
      */
-    private PerformanceVibrationMetrics calculateVibrationMetrics(List<PumpDataEntity> pumpData) {
-        List<Double> vibrations = pumpData.stream()
-                .filter(data -> data.getVibrationMmS() != null && data.getVibrationMmS() > 0)
-                .map(PumpDataEntity::getVibrationMmS)
-                .collect(Collectors.toList());
+    private double calculateStartupFrequency(PumpSeries series, LocalDateTime startTime, LocalDateTime endTime) {
+        long[] startEvents = series.startEventTimestamps();
+        if (startEvents.length == 0) {
+            return 0.0;
+        }
 
-        if (vibrations.isEmpty()) {
-            return new PerformanceVibrationMetrics(0.0, 0.0);
+        // 统计在时间范围内的事件
+        long from = Timestamp.valueOf(startTime).getTime();
+        long to = Timestamp.valueOf(endTime).getTime();
+        int filteredEvents = 0;
+        for (long timestamp : startEvents) {
+            if (timestamp >= from && timestamp <= to) {
+                filteredEvents++;
+            }
         }
 
-        double averageVibration = TimeSeriesAnalyzer.mean(vibrations);
-        double maxVibration = Collections.max(vibrations);
+        if (filteredEvents == 0) {
+            return 0.0;
+        }
 
-        return new PerformanceVibrationMetrics(averageVibration, maxVibration);
+        double hours = ChronoUnit.MINUTES.between(startTime, endTime) / 60.0;
+        return filteredEvents / hours;
     }
 
     /**
-     * 计算平均水压
+     * 计算总运行时间
      */
-    private double calculateAveragePressure(List<PumpDataEntity> pumpData) {
-        List<Double> pressures = pumpData.stream()
-                .filter(data -> data.getWaterPressureKpa() != null && data.getWaterPressureKpa() > 0)
-                .map(PumpDataEntity::getWaterPressureKpa)
-                .collect(Collectors.toList());
-
-        return pressures.isEmpty() ? 0.0 : TimeSeriesAnalyzer.mean(pressures);
+    private double calculateTotalRuntime(PumpSeries series) {
+        return series.positiveSummary(PumpDataAggregate.Metric.RUNTIME).getTotal() / 60.0; // 转换为小时
     }
 
     /**
-     * 计算平均流量
+     * 计算振动指标
      */
-    private double calculateAverageFlowRate(List<PumpDataEntity> pumpData) {
-        List<Double> flowRates = pumpData.stream()
-                .filter(data -> data.getFlowRateM3h() != null && data.getFlowRateM3h() > 0)
-                .map(PumpDataEntity::getFlowRateM3h)
-                .collect(Collectors.toList());
+    private PerformanceVibrationMetrics calculateVibrationMetrics(PumpSeries series) {
+        PumpSeries.Summary vibrations = series.positiveSummary(PumpDataAggregate.Metric.VIBRATION);
+        if (vibrations.isEmpty()) {
+            return new PerformanceVibrationMetrics(0.0, 0.0);
+        }
 
-        return flowRates.isEmpty() ? 0.0 : TimeSeriesAnalyzer.mean(flowRates);
+        return new PerformanceVibrationMetrics(vibrations.getMean(), vibrations.getMax());
     }
 
     /**
      * 计算效率评分 (0-100)
      */
-    private double calculateEfficiencyScore(List<PumpDataEntity> pumpData) {
-        double score = 100.0; // 满分100分
-
+    private double calculateEfficiencyScore(PumpSeries series) {
         // 功率效率评估
-        List<Double> powers = pumpData.stream()
-                .filter(data -> data.getPowerKw() != null)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
+        PumpSeries.Summary powers = series.summary(PumpDataAggregate.Metric.POWER);
+        Double powerVariability = powers.isEmpty() ? null
+                : powers.getStandardDeviation() / powers.getMean();
+
+        // 压力与流量匹配度评估
+        double[] pressures = series.column(PumpDataAggregate.Metric.PRESSURE);
+        double[] flowRates = series.column(PumpDataAggregate.Metric.FLOW);
+
+        Double correlation = null;
+        if (pressures.length > 0 && flowRates.length > 0 && pressures.length == flowRates.length) {
+            // 计算压力-流量相关性
+            correlation = calculateCorrelation(pressures, flowRates);
+        }
+
+        // 能耗趋势评估
+        double[] energies = series.column(PumpDataAggregate.Metric.ENERGY);
+        TimeSeriesAnalyzer.TrendAnalysisResult energyTrend = energies.length >= 10
+                ? TimeSeriesAnalyzer.analyzeTrend(energies) : null;
 
-        if (!powers.isEmpty()) {
-            double powerVariability = TimeSeriesAnalyzer.standardDeviation(powers) / TimeSeriesAnalyzer.mean(powers);
+        return scoreEfficiency(powerVariability, correlation, energyTrend);
+    }
+
+    /**
+     * 效率评分规则，参数为 null 表示数据不足、不扣分
+     */
+    private double scoreEfficiency(Double powerVariability, Double correlation,
+                                   TimeSeriesAnalyzer.TrendAnalysisResult energyTrend) {
+        double score = 100.0; // 满分100分
+
+        if (powerVariability != null) {
             if (powerVariability > 0.2) {
                 score -= 15; // 功率波动大，效率低
             } else if (powerVariability > 0.1) {
@@ -187,37 +281,14 @@ public class PumpPerformanceEvaluationService {
             }
         }
 
-        // 压力与流量匹配度评估
-        List<Double> pressures = pumpData.stream()
-                .filter(data -> data.getWaterPressureKpa() != null)
-                .map(PumpDataEntity::getWaterPressureKpa)
-                .collect(Collectors.toList());
-
-        List<Double> flowRates = pumpData.stream()
-                .filter(data -> data.getFlowRateM3h() != null)
-                .map(PumpDataEntity::getFlowRateM3h)
-                .collect(Collectors.toList());
-
-        if (!pressures.isEmpty() && !flowRates.isEmpty() && pressures.size() == flowRates.size()) {
-            // 计算压力-流量相关性
-            double correlation = calculateCorrelation(pressures, flowRates);
-            if (correlation < 0.7) {
-                score -= 10; // 压力流量不匹配
-            }
+        if (correlation != null && correlation < 0.7) {
+            score -= 10; // 压力流量不匹配
         }
 
-        // 能耗趋势评估
-        List<Double> energies = pumpData.stream()
-                .filter(data -> data.getEnergyConsumptionKwh() != null)
-                .map(PumpDataEntity::getEnergyConsumptionKwh)
-                .collect(Collectors.toList());
-
-        if (energies.size() >= 10) {
-            TimeSeriesAnalyzer.TrendAnalysisResult energyTrend = TimeSeriesAnalyzer.analyzeTrend(energies);
-            if (energyTrend.getDirection() == TimeSeriesAnalyzer.TrendDirection.INCREASING &&
-                energyTrend.getStrength() > 0.6) {
-                score -= 20; // 能耗持续增长
-            }
+        if (energyTrend != null &&
+            energyTrend.getDirection() == TimeSeriesAnalyzer.TrendDirection.INCREASING &&
+            energyTrend.getStrength() > 0.6) {
+            score -= 20; // 能耗持续增长
         }
 
         return Math.max(0, Math.min(100, score));
@@ -226,37 +297,38 @@ public class PumpPerformanceEvaluationService {
     /**
      * 计算可靠性评分 (0-100)
      */
-    private double calculateReliabilityScore(List<PumpDataEntity> pumpData) {
-        double score = 100.0;
+    private double calculateReliabilityScore(PumpSeries series) {
+        // 故障频率与报警频率评估
+        long faultCount = series.faultCodes().size();
+        long alarmCount = series.alarmCount();
 
-        // 故障频率评估
-        long faultCount = pumpData.stream()
-                .filter(data -> data.getFaultCode() != null && !data.getFaultCode().trim().isEmpty())
-                .count();
+        // 运行稳定性评估
+        PumpSeries.Summary vibrations = series.summary(PumpDataAggregate.Metric.VIBRATION);
+        if (vibrations.isEmpty()) {
+            return scoreReliability(series.size(), faultCount, alarmCount, null, 0.0);
+        }
+        return scoreReliability(series.size(), faultCount, alarmCount,
+                vibrations.getMean(), vibrations.getStandardDeviation());
+    }
+
+    /**
+     * 可靠性评分规则，avgVibration 为 null 表示无振动数据
+     */
+    private double scoreReliability(long total, long faultCount, long alarmCount,
+                                    Double avgVibration, double vibrationStdDev) {
+        double score = 100.0;
 
         if (faultCount > 0) {
-            double faultRate = (double) faultCount / pumpData.size();
+            double faultRate = (double) faultCount / total;
             score -= faultRate * 50; // 故障率影响
         }
 
-        // 报警频率评估
-        long alarmCount = pumpData.stream()
-                .filter(data -> data.getAlarmLevel() != null && data.getAlarmLevel() > 1)
-                .count();
-
         if (alarmCount > 0) {
-            double alarmRate = (double) alarmCount / pumpData.size();
+            double alarmRate = (double) alarmCount / total;
             score -= alarmRate * 30; // 报警率影响
         }
 
-        // 运行稳定性评估
-        List<Double> vibrations = pumpData.stream()
-                .filter(data -> data.getVibrationMmS() != null)
-                .map(PumpDataEntity::getVibrationMmS)
-                .collect(Collectors.toList());
-
-        if (!vibrations.isEmpty()) {
-            double avgVibration = TimeSeriesAnalyzer.mean(vibrations);
+        if (avgVibration != null) {
             if (avgVibration > 4.5) {
                 score -= 25; // 振动过大
             } else if (avgVibration > 3.0) {
@@ -264,7 +336,6 @@ public class PumpPerformanceEvaluationService {
             }
 
             // 振动稳定性
-            double vibrationStdDev = TimeSeriesAnalyzer.standardDeviation(vibrations);
             if (vibrationStdDev > 1.0) {
                 score -= 15; // 振动不稳定
             }
@@ -276,41 +347,40 @@ public class PumpPerformanceEvaluationService {
     /**
      * 计算维护评分 (0-100)
      */
-    private double calculateMaintenanceScore(List<PumpDataEntity> pumpData) {
-        double score = 100.0;
+    private double calculateMaintenanceScore(PumpSeries series) {
+        // 性能退化评估
+        double[] powers = series.column(PumpDataAggregate.Metric.POWER);
 
-        // 维护需求评估
-        boolean hasMaintenanceFlag = pumpData.stream()
-                .anyMatch(data -> Boolean.TRUE.equals(data.getMaintenanceFlag()));
+        Double powerIncrease = null;
+        if (powers.length >= 20) {
+            // 比较前期和后期的功率
+            int midPoint = powers.length / 2;
+            double earlyAvg = TimeSeriesAnalyzer.mean(powers, 0, midPoint);
+            double lateAvg = TimeSeriesAnalyzer.mean(powers, midPoint, powers.length);
+            powerIncrease = (lateAvg - earlyAvg) / earlyAvg * 100;
+        }
+
+        return scoreMaintenance(series.hasMaintenance(), calculateTotalRuntime(series), powerIncrease);
+    }
+
+    /**
+     * 维护评分规则，powerIncrease 为前后期功率变化百分比，null 表示数据不足
+     */
+    private double scoreMaintenance(boolean hasMaintenanceFlag, double totalRuntime, Double powerIncrease) {
+        double score = 100.0;
 
         if (hasMaintenanceFlag) {
             score -= 30; // 有维护标志
         }
 
         // 运行时间评估
-        double totalRuntime = calculateTotalRuntime(pumpData);
         if (totalRuntime > 8760) { // 超过一年
             score -= 20; // 长期运行需要维护
         } else if (totalRuntime > 4380) { // 超过半年
             score -= 10;
         }
 
-        // 性能退化评估
-        List<Double> powers = pumpData.stream()
-                .filter(data -> data.getPowerKw() != null)
-                .map(PumpDataEntity::getPowerKw)
-                .collect(Collectors.toList());
-
-        if (powers.size() >= 20) {
-            // 比较前期和后期的功率
-            int midPoint = powers.size() / 2;
-            List<Double> earlyPowers = powers.subList(0, midPoint);
-            List<Double> latePowers = powers.subList(midPoint, powers.size());
-
-            double earlyAvg = TimeSeriesAnalyzer.mean(earlyPowers);
-            double lateAvg = TimeSeriesAnalyzer.mean(latePowers);
-
-            double powerIncrease = (lateAvg - earlyAvg) / earlyAvg * 100;
+        if (powerIncrease != null) {
             if (powerIncrease > 15) {
                 score -= 25; // 功率显著增加，可能需要维护
             } else if (powerIncrease > 8) {
@@ -324,28 +394,8 @@ public class PumpPerformanceEvaluationService {
     /**
      * 计算两个序列的相关系数
      */
-    private double calculateCorrelation(List<Double> x, List<Double> y) {
-        if (x.size() != y.size() || x.isEmpty()) {
-            return 0.0;
-        }
-
-        double meanX = TimeSeriesAnalyzer.mean(x);
-        double meanY = TimeSeriesAnalyzer.mean(y);
-
-        double numerator = 0.0;
-        double sumXSquared = 0.0;
-        double sumYSquared = 0.0;
-
-        for (int i = 0; i < x.size(); i++) {
-            double diffX = x.get(i) - meanX;
-            double diffY = y.get(i) - meanY;
-            numerator += diffX * diffY;
-            sumXSquared += diffX * diffX;
-            sumYSquared += diffY * diffY;
-        }
-
-        double denominator = Math.sqrt(sumXSquared * sumYSquared);
-        return denominator == 0 ? 0.0 : numerator / denominator;
+    private double calculateCorrelation(double[] x, double[] y) {
+        return TimeSeriesAnalyzer.correlation(x, y);
     }
 
     /**
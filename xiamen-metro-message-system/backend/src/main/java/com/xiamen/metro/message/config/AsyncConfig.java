@@ -2,6 +2,7 @@ package com.xiamen.metro.message.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
@@ -98,6 +99,58 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * 水泵分析阶段线程池 - 单设备分析内各阶段并行执行
+     * 阶段均为内存计算，线程数按CPU核数；队列满时由提交线程自行执行，不丢弃阶段
+     */
+    @Bean("pumpAnalysisStageExecutor")
+    public Executor pumpAnalysisStageExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        executor.setCorePoolSize(processors);
+        executor.setMaxPoolSize(processors);
+        executor.setQueueCapacity(200);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("PumpStage-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+
+        executor.initialize();
+        log.info("水泵分析阶段线程池初始化完成: core={}, max={}, queue={}",
+                executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getThreadPoolExecutor().getQueue().remainingCapacity());
+
+        return executor;
+    }
+
+    /**
+     * 水泵数据入库线程池 - 每条入库流水线的提取、入库阶段各占一个线程直到文件处理结束
+     * 同时运行的流水线数由 PumpIngestionService 按核心线程数限制，阶段任务不会排队等待其他文件
+     */
+    @Bean("pumpIngestionExecutor")
+    public ThreadPoolTaskExecutor pumpIngestionExecutor(
+            @Value("${app.ingestion.executor.core-pool-size:8}") int corePoolSize,
+            @Value("${app.ingestion.executor.max-pool-size:8}") int maxPoolSize,
+            @Value("${app.ingestion.executor.queue-capacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(Math.max(corePoolSize, maxPoolSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("PumpIngest-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+
+        executor.initialize();
+        log.info("水泵数据入库线程池初始化完成: core={}, max={}, queue={}",
+                executor.getCorePoolSize(), executor.getMaxPoolSize(), executor.getThreadPoolExecutor().getQueue().remainingCapacity());
+
+        return executor;
+    }
+
     /**
      * 告警处理线程池 - 用于告警评估和通知
      */
@@ -2,11 +2,13 @@ package com.xiamen.metro.message.config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -25,6 +27,18 @@ import java.util.Properties;
 @EnableJpaRepositories(basePackages = "com.xiamen.metro.message.repository")
 public class DatabaseConfig {
 
+    /**
+     * 是否将 @ReplicaRead 只读事务路由到只读副本
+     */
+    @Value("${app.datasource.read-routing.enabled:true}")
+    private boolean readRoutingEnabled = true;
+
+    /**
+     * 副本允许的最大回放延迟(毫秒)，超过后只读事务回退到主库
+     */
+    @Value("${app.datasource.read-routing.max-replica-lag-ms:5000}")
+    private long maxReplicaLagMs = 5000;
+
     @Bean
     @Primary
     @ConfigurationProperties(prefix = "spring.datasource.hikari")
@@ -48,10 +62,31 @@ public class DatabaseConfig {
         return config;
     }
 
+    /**
+     * 主库数据源
+     */
+    @Bean("writeDataSource")
+    public DataSource writeDataSource() {
+        return new HikariDataSource(hikariConfig());
+    }
+
+    /**
+     * 读写路由：@ReplicaRead 只读事务走副本，其余走主库。外层的懒连接代理保证路由时事务只读标记已设置
+     */
     @Bean
     @Primary
     public DataSource dataSource() {
-        return new HikariDataSource(hikariConfig());
+        return new LazyConnectionDataSourceProxy(routingDataSource());
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource() {
+        return new ReadWriteRoutingDataSource(writeDataSource(), readDataSource(), replicaLagMonitor(), readRoutingEnabled);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor() {
+        return new ReplicaLagMonitor(readDataSource(), maxReplicaLagMs, readRoutingEnabled);
     }
 
     @Bean
@@ -105,7 +140,7 @@ public class DatabaseConfig {
     }
 
     /**
-     * 读写分离数据源配置（如果需要）
+     * 只读副本连接池配置
      */
     @Bean
     @ConfigurationProperties(prefix = "spring.datasource.read")
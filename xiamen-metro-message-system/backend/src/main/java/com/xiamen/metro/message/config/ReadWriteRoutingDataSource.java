@@ -0,0 +1,140 @@
+package com.xiamen.metro.message.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 读写分离路由数据源
+ * <p>
+ * 标记了 {@link ReplicaRead} 的只读事务路由到只读副本，其余(包括 Spring Data 仓库默认的只读事务)
+ * 走主库。副本延迟超过阈值或获取连接失败时回退到主库。需要外层包一层
+ * LazyConnectionDataSourceProxy，使连接在事务只读标记设置之后才获取
+ *
+ * @author Xiamen Metro System
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource writeDataSource;
+    private final DataSource readDataSource;
+    private final ReplicaLagMonitor lagMonitor;
+    private final boolean routingEnabled;
+
+    private final AtomicLong primaryRoutes = new AtomicLong();
+    private final AtomicLong replicaRoutes = new AtomicLong();
+    private final AtomicLong replicaFallbacks = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(DataSource writeDataSource, DataSource readDataSource,
+                                      ReplicaLagMonitor lagMonitor, boolean routingEnabled) {
+        this.writeDataSource = writeDataSource;
+        this.readDataSource = readDataSource;
+        this.lagMonitor = lagMonitor;
+        this.routingEnabled = routingEnabled;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, writeDataSource);
+        targets.put(Route.REPLICA, readDataSource);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(writeDataSource);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route(ReplicaReadAspect.isReplicaRead()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    Route route(boolean replicaRead) {
+        if (!routingEnabled || !replicaRead) {
+            primaryRoutes.incrementAndGet();
+            return Route.PRIMARY;
+        }
+        if (!lagMonitor.isAvailable()) {
+            replicaFallbacks.incrementAndGet();
+            primaryRoutes.incrementAndGet();
+            return Route.PRIMARY;
+        }
+        replicaRoutes.incrementAndGet();
+        return Route.REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target != readDataSource) {
+            return target.getConnection();
+        }
+        try {
+            return readDataSource.getConnection();
+        } catch (SQLException e) {
+            lagMonitor.markUnavailable("获取副本连接失败: " + e.getMessage());
+            replicaFallbacks.incrementAndGet();
+            return writeDataSource.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target != readDataSource) {
+            return target.getConnection(username, password);
+        }
+        try {
+            return readDataSource.getConnection(username, password);
+        } catch (SQLException e) {
+            lagMonitor.markUnavailable("获取副本连接失败: " + e.getMessage());
+            replicaFallbacks.incrementAndGet();
+            return writeDataSource.getConnection(username, password);
+        }
+    }
+
+    /**
+     * 路由统计与各连接池指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("routingEnabled", routingEnabled);
+        metrics.put("primaryRoutes", primaryRoutes.get());
+        metrics.put("replicaRoutes", replicaRoutes.get());
+        metrics.put("replicaFallbacks", replicaFallbacks.get());
+        metrics.put("replicaAvailable", lagMonitor.isAvailable());
+        metrics.put("replicaLagMs", lagMonitor.getLagMs());
+        metrics.put("maxReplicaLagMs", lagMonitor.getMaxLagMs());
+        metrics.put("primaryPool", poolMetrics(writeDataSource));
+        metrics.put("replicaPool", poolMetrics(readDataSource));
+        return metrics;
+    }
+
+    static Map<String, Object> poolMetrics(DataSource dataSource) {
+        Map<String, Object> pool = new HashMap<>();
+        if (!(dataSource instanceof HikariDataSource)) {
+            pool.put("type", dataSource.getClass().getSimpleName());
+            return pool;
+        }
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        pool.put("poolName", hikari.getPoolName());
+        pool.put("maxPoolSize", hikari.getMaximumPoolSize());
+        pool.put("minIdle", hikari.getMinimumIdle());
+        HikariPoolMXBean poolBean = hikari.getHikariPoolMXBean();
+        if (poolBean != null) {
+            pool.put("activeConnections", poolBean.getActiveConnections());
+            pool.put("idleConnections", poolBean.getIdleConnections());
+            pool.put("totalConnections", poolBean.getTotalConnections());
+            pool.put("threadsAwaitingConnection", poolBean.getThreadsAwaitingConnection());
+        }
+        return pool;
+    }
+}
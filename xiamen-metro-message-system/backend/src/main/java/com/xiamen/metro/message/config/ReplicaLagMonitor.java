@@ -0,0 +1,103 @@
+package com.xiamen.metro.message.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 只读副本延迟监控
+ * <p>
+ * 定期查询副本的 WAL 回放延迟，延迟超过阈值或连接失败时将副本标记为不可用，
+ * 此期间只读事务回退到主库；恢复后自动切回。未开启读写分离时不做检查
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    /**
+     * 副本上返回回放延迟(毫秒)；已追平或不处于恢复模式(即直连主库)时为 0
+     */
+    static final String LAG_QUERY_SQL = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) END";
+
+    private final DataSource readDataSource;
+    private final long maxLagMs;
+    private final boolean enabled;
+
+    private volatile boolean available = true;
+    private volatile long lagMs;
+    private volatile long lastCheckTime;
+
+    public ReplicaLagMonitor(DataSource readDataSource, long maxLagMs, boolean enabled) {
+        this.readDataSource = readDataSource;
+        this.maxLagMs = maxLagMs;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 检查副本延迟
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.read-routing.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        if (!enabled) {
+            return;
+        }
+        try (Connection connection = readDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY_SQL)) {
+            resultSet.next();
+            updateLag(resultSet.getLong(1));
+        } catch (SQLException e) {
+            markUnavailable("副本延迟检查失败: " + e.getMessage());
+        } finally {
+            lastCheckTime = System.currentTimeMillis();
+        }
+    }
+
+    void updateLag(long currentLagMs) {
+        lagMs = currentLagMs;
+        boolean healthy = currentLagMs <= maxLagMs;
+        if (healthy != available) {
+            if (healthy) {
+                log.info("只读副本已恢复，延迟 {}ms，只读事务切回副本", currentLagMs);
+            } else {
+                log.warn("只读副本延迟 {}ms 超过阈值 {}ms，只读事务回退到主库", currentLagMs, maxLagMs);
+            }
+        }
+        available = healthy;
+    }
+
+    /**
+     * 副本不可用，直到下次检查成功
+     */
+    public void markUnavailable(String reason) {
+        if (available) {
+            log.warn("只读副本不可用，只读事务回退到主库: {}", reason);
+        }
+        available = false;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    public long getMaxLagMs() {
+        return maxLagMs;
+    }
+
+    public long getLastCheckTime() {
+        return lastCheckTime;
+    }
+}
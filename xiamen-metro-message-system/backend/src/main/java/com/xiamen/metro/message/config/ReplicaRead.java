@@ -0,0 +1,22 @@
+package com.xiamen.metro.message.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记可以读取只读副本的服务方法
+ * <p>
+ * 只有同时声明 @Transactional(readOnly = true) 的方法会路由到副本；未标记的只读事务
+ * (包括 Spring Data 仓库的默认读方法)仍走主库，保证写后读一致。副本可能落后
+ * max-replica-lag-ms，只用于能容忍短暂延迟的统计、报表类查询
+ *
+ * @author Xiamen Metro System
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
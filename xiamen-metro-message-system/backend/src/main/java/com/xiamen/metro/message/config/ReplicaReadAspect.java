@@ -0,0 +1,45 @@
+package com.xiamen.metro.message.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 在 {@link ReplicaRead} 方法执行期间标记当前线程允许读副本
+ * <p>
+ * 优先级高于事务切面，事务开始前标记已设置；嵌套调用结束后恢复外层的标记
+ *
+ * @author Xiamen Metro System
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaReadAspect {
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    @Around("@annotation(com.xiamen.metro.message.config.ReplicaRead)")
+    public Object markReplicaRead(ProceedingJoinPoint joinPoint) throws Throwable {
+        Boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            if (previous == null) {
+                REPLICA_READ.remove();
+            } else {
+                REPLICA_READ.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程是否处于 {@link ReplicaRead} 方法中
+     */
+    public static boolean isReplicaRead() {
+        return Boolean.TRUE.equals(REPLICA_READ.get());
+    }
+}
@@ -2,6 +2,8 @@ package com.xiamen.metro.message.controller.pump;
 
 import com.xiamen.metro.message.dto.pump.PumpAnalysisRequestDTO;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.dto.pump.PumpDeviceStateDTO;
+import com.xiamen.metro.message.service.pump.PumpDeviceStateService;
 import com.xiamen.metro.message.service.pump.PumpIntelligentAnalysisService;
 import com.xiamen.metro.message.service.pump.PumpPerformanceEvaluationService;
 import com.xiamen.metro.message.service.pump.PumpMaintenanceRecommendationService;
@@ -35,6 +37,7 @@ public class PumpAnalysisController {
     private final PumpIntelligentAnalysisService intelligentAnalysisService;
     private final PumpPerformanceEvaluationService performanceEvaluationService;
     private final PumpMaintenanceRecommendationService maintenanceRecommendationService;
+    private final PumpDeviceStateService deviceStateService;
 
     /**
      * 执行水泵智能分析
@@ -56,6 +59,26 @@ public class PumpAnalysisController {
         }
     }
 
+    /**
+     * 长时间范围分析
+     */
+    @PostMapping("/long-range-analyze")
+    @Operation(summary = "长时间范围分析", description = "分块扫描长时间范围的历史数据，单遍计算启泵频率、运行时间和能耗趋势，性能指标来自汇总表")
+    public ResponseEntity<PumpAnalysisResponseDTO> longRangeAnalyze(
+            @Valid @RequestBody PumpAnalysisRequestDTO request) {
+
+        log.info("收到水泵长时间范围分析请求，设备: {}, 开始时间: {}, 结束时间: {}",
+                request.getDeviceId(), request.getStartTime(), request.getEndTime());
+
+        try {
+            PumpAnalysisResponseDTO response = intelligentAnalysisService.performLongRangeAnalysis(request);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("水泵长时间范围分析失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 批量分析多个设备
      */
@@ -97,6 +120,36 @@ public class PumpAnalysisController {
         }
     }
 
+    /**
+     * 获取全部设备最新状态
+     */
+    @GetMapping("/device-states")
+    @Operation(summary = "获取全部设备最新状态", description = "返回每台设备最新的运行状态、各指标最近值和最近一次故障")
+    public ResponseEntity<List<PumpDeviceStateDTO>> getDeviceStates() {
+        try {
+            return ResponseEntity.ok(deviceStateService.getAll());
+        } catch (Exception e) {
+            log.error("获取设备最新状态失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 获取设备最新状态
+     */
+    @GetMapping("/device-states/{deviceId}")
+    @Operation(summary = "获取设备最新状态", description = "返回指定设备最新的运行状态、各指标最近值和最近一次故障")
+    public ResponseEntity<PumpDeviceStateDTO> getDeviceState(
+            @Parameter(description = "设备ID") @PathVariable String deviceId) {
+        try {
+            PumpDeviceStateDTO state = deviceStateService.get(deviceId);
+            return state != null ? ResponseEntity.ok(state) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("获取设备最新状态失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 快速分析（仅基础检测）
      */
@@ -140,9 +193,9 @@ public class PumpAnalysisController {
             LocalDateTime start = LocalDateTime.parse(startTime, java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
             LocalDateTime end = LocalDateTime.parse(endTime, java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-            // 这里需要调用性能评估服务生成报告
-            // 实际实现中需要从数据库获取数据并生成报告
-            String report = "性能报告功能待完善";
+            PumpAnalysisResponseDTO.PerformanceMetrics metrics =
+                    performanceEvaluationService.evaluatePerformance(deviceId, start, end);
+            String report = performanceEvaluationService.generatePerformanceReport(metrics);
             return ResponseEntity.ok(report);
         } catch (Exception e) {
             log.error("获取性能报告失败", e);
@@ -1,6 +1,9 @@
 package com.xiamen.metro.message.dto.pump;
 
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 import jakarta.validation.constraints.NotBlank;
@@ -14,6 +17,9 @@ import java.util.List;
  * @author Xiamen Metro System
  */
 @Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class PumpAnalysisRequestDTO {
 
     /**
@@ -44,16 +50,19 @@ public class PumpAnalysisRequestDTO {
     /**
      * 是否启用实时分析
      */
+    @Builder.Default
     private Boolean enableRealTimeAnalysis = false;
 
     /**
      * 是否启用缓存
      */
+    @Builder.Default
     private Boolean enableCache = true;
 
     /**
      * 分析深度
      */
+    @Builder.Default
     private AnalysisDepth analysisDepth = AnalysisDepth.STANDARD;
 
     /**
@@ -88,6 +88,11 @@ public class PumpAnalysisResponseDTO {
      */
     private String modelVersion;
 
+    /**
+     * 各分析阶段的状态与耗时
+     */
+    private List<StageTiming> stageTimings;
+
     /**
      * 分析结果详情
      */
@@ -282,4 +287,36 @@ public class PumpAnalysisResponseDTO {
          */
         private Map<String, Double[]> confidenceIntervals;
     }
-}
\ No newline at end of file
+
+    /**
+     * 分析阶段耗时
+     */
+    @Data
+    @Builder
+    public static class StageTiming {
+        /**
+         * 阶段名称
+         */
+        private String stage;
+
+        /**
+         * 阶段状态：SUCCESS/FAILED/TIMEOUT
+         */
+        private String status;
+
+        /**
+         * 提交时刻相对分析开始的偏移（毫秒）
+         */
+        private Long startOffsetMs;
+
+        /**
+         * 自提交到结束的耗时（毫秒），含排队时间
+         */
+        private Long durationMs;
+
+        /**
+         * 失败或超时说明
+         */
+        private String message;
+    }
+}
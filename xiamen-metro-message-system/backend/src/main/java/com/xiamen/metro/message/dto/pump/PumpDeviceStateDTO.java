@@ -0,0 +1,86 @@
+package com.xiamen.metro.message.dto.pump;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 水泵设备最新状态DTO
+ *
+ * @author Xiamen Metro System
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PumpDeviceStateDTO {
+
+    /**
+     * 设备ID
+     */
+    private String deviceId;
+
+    /**
+     * 最新一条数据的时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastTimestamp;
+
+    /**
+     * 最新水泵状态 (1-启动, 0-停止)
+     */
+    private Integer pumpStatus;
+
+    /**
+     * 最新报警级别
+     */
+    private Integer alarmLevel;
+
+    /**
+     * 最新维护标志
+     */
+    private Boolean maintenanceFlag;
+
+    /**
+     * 以下数值字段为最近一次非空值
+     */
+    private Double runtimeMinutes;
+
+    private Double currentAmperage;
+
+    private Double voltage;
+
+    private Double powerKw;
+
+    private Double energyConsumptionKwh;
+
+    private Double waterPressureKpa;
+
+    private Double flowRateM3h;
+
+    private Double waterTemperatureCelsius;
+
+    private Double vibrationMmS;
+
+    private Double noiseLevelDb;
+
+    /**
+     * 最近一次故障代码
+     */
+    private String lastFaultCode;
+
+    /**
+     * 最近一次故障的数据时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastFaultTime;
+
+    /**
+     * 最近一次故障时的报警级别
+     */
+    private Integer lastFaultAlarmLevel;
+}
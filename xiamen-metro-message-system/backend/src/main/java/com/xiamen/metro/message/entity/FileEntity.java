@@ -109,6 +109,26 @@ public class FileEntity {
      */
     private Integer invalidMessageCount;
 
+    /**
+     * 已入库处理的报文行数
+     */
+    private Integer processedRowCount;
+
+    /**
+     * 提取出的水泵数据条数
+     */
+    private Integer pumpRecordCount;
+
+    /**
+     * 校验未通过的水泵数据条数
+     */
+    private Integer rejectedRecordCount;
+
+    /**
+     * 已写入的水泵数据条数
+     */
+    private Integer persistedRecordCount;
+
     /**
      * 上传用户ID
      */
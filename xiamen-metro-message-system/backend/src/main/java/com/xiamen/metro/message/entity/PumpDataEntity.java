@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = false)
 @Entity
 @Table(name = "pump_data", indexes = {
-    @Index(name = "idx_pump_device_timestamp", columnList = "deviceId,timestamp"),
+    @Index(name = "uk_pump_device_timestamp", columnList = "deviceId,timestamp", unique = true),
     @Index(name = "idx_pump_timestamp", columnList = "timestamp"),
     @Index(name = "idx_pump_device", columnList = "deviceId")
 })
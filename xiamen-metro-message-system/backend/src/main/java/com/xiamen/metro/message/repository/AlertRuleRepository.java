@@ -96,4 +96,16 @@ public interface AlertRuleRepository extends JpaRepository<AlertRuleEntity, Long
     @Query("SELECT r FROM AlertRuleEntity r WHERE r.isActive = true " +
            "ORDER BY r.updatedTime DESC")
     List<AlertRuleEntity> findRecentlyUpdatedRules(Pageable pageable);
+
+    /**
+     * 查找指定时间之后更新的规则（包括已停用的规则）
+     */
+    @Query("SELECT r FROM AlertRuleEntity r WHERE r.updatedTime > :sinceTime")
+    List<AlertRuleEntity> findUpdatedSince(@Param("sinceTime") LocalDateTime sinceTime);
+
+    /**
+     * 规则的最大更新时间
+     */
+    @Query("SELECT MAX(r.updatedTime) FROM AlertRuleEntity r")
+    LocalDateTime findMaxUpdatedTime();
 }
\ No newline at end of file
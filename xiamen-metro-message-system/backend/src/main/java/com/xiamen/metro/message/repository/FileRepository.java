@@ -4,9 +4,11 @@ import com.xiamen.metro.message.entity.FileEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -103,4 +105,24 @@ public interface FileRepository extends JpaRepository<FileEntity, Long> {
      */
     @Query("SELECT f FROM FileEntity f WHERE f.uploadStatus = 'COMPLETED' AND f.processStatus = 'PENDING'")
     List<FileEntity> findPendingProcessingFiles();
-}
\ No newline at end of file
+
+    /**
+     * 更新文件入库进度，独立事务提交以便处理过程中可查询
+     *
+     * @param id                   文件ID
+     * @param processedRowCount    已处理报文行数
+     * @param pumpRecordCount      已提取水泵数据条数
+     * @param rejectedRecordCount  校验未通过条数
+     * @param persistedRecordCount 已入库条数
+     * @return 更新行数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileEntity f SET f.processedRowCount = :processedRowCount, f.pumpRecordCount = :pumpRecordCount, " +
+            "f.rejectedRecordCount = :rejectedRecordCount, f.persistedRecordCount = :persistedRecordCount WHERE f.id = :id")
+    int updateIngestionProgress(@Param("id") Long id,
+                                @Param("processedRowCount") Integer processedRowCount,
+                                @Param("pumpRecordCount") Integer pumpRecordCount,
+                                @Param("rejectedRecordCount") Integer rejectedRecordCount,
+                                @Param("persistedRecordCount") Integer persistedRecordCount);
+}
@@ -0,0 +1,210 @@
+package com.xiamen.metro.message.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 水泵数据聚合值
+ * <p>
+ * 保存一段时间内各数值字段的计数、求和、最小、最大、平方和及正值计数/求和，
+ * 可由汇总表的多个时间桶合并得到，均值与标准差由这些量推导
+ *
+ * @author Xiamen Metro System
+ */
+public class PumpDataAggregate {
+
+    /**
+     * 参与汇总的数值字段，prefix 为汇总表列名前缀
+     */
+    public enum Metric {
+        RUNTIME("runtime_minutes", "runtime"),
+        CURRENT("current_amperage", "current"),
+        VOLTAGE("voltage", "voltage"),
+        POWER("power_kw", "power"),
+        ENERGY("energy_consumption_kwh", "energy"),
+        PRESSURE("water_pressure_kpa", "pressure"),
+        FLOW("flow_rate_m3h", "flow"),
+        TEMPERATURE("water_temperature_celsius", "temperature"),
+        VIBRATION("vibration_mm_s", "vibration"),
+        NOISE("noise_level_db", "noise");
+
+        private final String column;
+        private final String prefix;
+
+        Metric(String column, String prefix) {
+            this.column = column;
+            this.prefix = prefix;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+    }
+
+    private final LocalDateTime bucketStart;
+    private long rowCount;
+    private long startCount;
+    private long faultCount;
+    private long alarmCount;
+    private long maintenanceCount;
+    private final MetricStats[] metrics = new MetricStats[Metric.values().length];
+
+    public PumpDataAggregate() {
+        this(null);
+    }
+
+    public PumpDataAggregate(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new MetricStats();
+        }
+    }
+
+    /**
+     * 合并另一段的聚合值
+     */
+    public PumpDataAggregate merge(PumpDataAggregate other) {
+        rowCount += other.rowCount;
+        startCount += other.startCount;
+        faultCount += other.faultCount;
+        alarmCount += other.alarmCount;
+        maintenanceCount += other.maintenanceCount;
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i].merge(other.metrics[i]);
+        }
+        return this;
+    }
+
+    public void addCounts(long rows, long starts, long faults, long alarms, long maintenances) {
+        rowCount += rows;
+        startCount += starts;
+        faultCount += faults;
+        alarmCount += alarms;
+        maintenanceCount += maintenances;
+    }
+
+    public MetricStats get(Metric metric) {
+        return metrics[metric.ordinal()];
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getStartCount() {
+        return startCount;
+    }
+
+    public long getFaultCount() {
+        return faultCount;
+    }
+
+    public long getAlarmCount() {
+        return alarmCount;
+    }
+
+    public long getMaintenanceCount() {
+        return maintenanceCount;
+    }
+
+    /**
+     * 单个字段的统计量，count/sum/min/max/sumSquares 只统计非空值，positive* 只统计大于0的值
+     */
+    public static class MetricStats {
+        private long count;
+        private double sum;
+        private Double min;
+        private Double max;
+        private double sumSquares;
+        private long positiveCount;
+        private double positiveSum;
+
+        public MetricStats() {
+        }
+
+        public MetricStats(long count, double sum, Double min, Double max, double sumSquares,
+                           long positiveCount, double positiveSum) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.sumSquares = sumSquares;
+            this.positiveCount = positiveCount;
+            this.positiveSum = positiveSum;
+        }
+
+        public void merge(MetricStats other) {
+            count += other.count;
+            sum += other.sum;
+            sumSquares += other.sumSquares;
+            positiveCount += other.positiveCount;
+            positiveSum += other.positiveSum;
+            if (other.min != null && (min == null || other.min < min)) {
+                min = other.min;
+            }
+            if (other.max != null && (max == null || other.max > max)) {
+                max = other.max;
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public Double getMin() {
+            return min;
+        }
+
+        public Double getMax() {
+            return max;
+        }
+
+        public double getSumSquares() {
+            return sumSquares;
+        }
+
+        public long getPositiveCount() {
+            return positiveCount;
+        }
+
+        public double getPositiveSum() {
+            return positiveSum;
+        }
+
+        /**
+         * 非空值均值，无数据返回 null
+         */
+        public Double getMean() {
+            return count > 0 ? sum / count : null;
+        }
+
+        /**
+         * 正值均值，无正值返回 0
+         */
+        public double getPositiveMean() {
+            return positiveCount > 0 ? positiveSum / positiveCount : 0.0;
+        }
+
+        /**
+         * 样本标准差(n-1)，与 TimeSeriesAnalyzer.standardDeviation 一致
+         */
+        public double getStdDev() {
+            if (count < 2) {
+                return 0.0;
+            }
+            double variance = (sumSquares - sum * sum / count) / (count - 1);
+            return variance > 0 ? Math.sqrt(variance) : 0.0;
+        }
+    }
+}
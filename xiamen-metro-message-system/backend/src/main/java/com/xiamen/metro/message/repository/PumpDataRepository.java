@@ -11,11 +11,13 @@ import java.util.List;
 
 /**
  * 水泵数据仓库
+ * <p>
+ * 启停次数、运行时间、能耗等聚合查询由 PumpDataRollupRepository 实现，优先读取汇总表
  *
  * @author Xiamen Metro System
  */
 @Repository
-public interface PumpDataRepository extends JpaRepository<PumpDataEntity, Long> {
+public interface PumpDataRepository extends JpaRepository<PumpDataEntity, Long>, PumpDataRollupRepository {
 
     /**
      * 根据设备ID和时间范围查询数据
@@ -25,7 +27,10 @@ public interface PumpDataRepository extends JpaRepository<PumpDataEntity, Long>
 
     /**
      * 根据设备ID查询最新的数据
+     *
+     * @deprecated 返回设备全部历史数据，只需最新状态时使用 PumpDeviceStateService
      */
+    @Deprecated
     @Query("SELECT p FROM PumpDataEntity p WHERE p.deviceId = :deviceId ORDER BY p.timestamp DESC")
     List<PumpDataEntity> findLatestByDeviceId(@Param("deviceId") String deviceId);
 
@@ -47,36 +52,6 @@ public interface PumpDataRepository extends JpaRepository<PumpDataEntity, Long>
     List<PumpDataEntity> findByDeviceIdAndTimestampBetweenAndAlarmLevelGreaterThanOrderByTimestampAsc(
             String deviceId, LocalDateTime startTime, LocalDateTime endTime, Integer alarmLevel);
 
-    /**
-     * 统计指定时间范围内的启停次数
-     */
-    @Query("SELECT COUNT(*) FROM PumpDataEntity p WHERE p.deviceId = :deviceId AND p.timestamp BETWEEN :startTime AND :endTime AND p.pumpStatus = 1")
-    Long countStartEvents(@Param("deviceId") String deviceId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-
-    /**
-     * 计算总运行时间
-     */
-    @Query("SELECT COALESCE(SUM(p.runtimeMinutes), 0) FROM PumpDataEntity p WHERE p.deviceId = :deviceId AND p.timestamp BETWEEN :startTime AND :endTime")
-    Double sumRuntimeMinutes(@Param("deviceId") String deviceId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-
-    /**
-     * 计算总能耗
-     */
-    @Query("SELECT COALESCE(SUM(p.energyConsumptionKwh), 0) FROM PumpDataEntity p WHERE p.deviceId = :deviceId AND p.timestamp BETWEEN :startTime AND :endTime")
-    Double sumEnergyConsumption(@Param("deviceId") String deviceId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-
-    /**
-     * 获取平均功率
-     */
-    @Query("SELECT AVG(p.powerKw) FROM PumpDataEntity p WHERE p.deviceId = :deviceId AND p.timestamp BETWEEN :startTime AND :endTime AND p.powerKw IS NOT NULL")
-    Double averagePower(@Param("deviceId") String deviceId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-
-    /**
-     * 获取最大振动值
-     */
-    @Query("SELECT MAX(p.vibrationMmS) FROM PumpDataEntity p WHERE p.deviceId = :deviceId AND p.timestamp BETWEEN :startTime AND :endTime AND p.vibrationMmS IS NOT NULL")
-    Double maxVibration(@Param("deviceId") String deviceId, @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
-
     /**
      * 查询所有活跃的设备ID
      */
@@ -0,0 +1,57 @@
+package com.xiamen.metro.message.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 水泵数据聚合查询
+ * <p>
+ * 时间范围按天/小时/分钟对齐拆分，对齐部分读取汇总表，首尾不足一分钟的部分读取原始数据。
+ * 时间范围与 BETWEEN 一致，包含起止时刻
+ *
+ * @author Xiamen Metro System
+ */
+public interface PumpDataRollupRepository {
+
+    /**
+     * 汇总时间桶粒度
+     */
+    enum Bucket {
+        MINUTE, HOUR, DAY
+    }
+
+    /**
+     * 计算时间范围内的聚合值
+     */
+    PumpDataAggregate aggregate(String deviceId, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 按时间桶返回聚合序列，首尾时间桶不按起止时刻截断
+     */
+    List<PumpDataAggregate> aggregateSeries(String deviceId, LocalDateTime startTime, LocalDateTime endTime, Bucket bucket);
+
+    /**
+     * 统计指定时间范围内的启停次数
+     */
+    Long countStartEvents(String deviceId, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 计算总运行时间
+     */
+    Double sumRuntimeMinutes(String deviceId, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 计算总能耗
+     */
+    Double sumEnergyConsumption(String deviceId, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 获取平均功率
+     */
+    Double averagePower(String deviceId, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 获取最大振动值
+     */
+    Double maxVibration(String deviceId, LocalDateTime startTime, LocalDateTime endTime);
+}
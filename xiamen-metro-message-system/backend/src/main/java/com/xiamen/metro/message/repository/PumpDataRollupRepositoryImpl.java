@@ -0,0 +1,302 @@
+package com.xiamen.metro.message.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 水泵数据聚合查询实现
+ * <p>
+ * 汇总表由 pump_data 的插入触发器增量维护(V12迁移)，修改和删除明细时重算受影响的时间桶(V17迁移)。
+ * 一个时间范围拆成若干段后用 UNION ALL 一次查询，每段返回一行聚合值，在内存中合并：
+ * 90天的范围只读取约90行天汇总，加上首尾不超过几百行的小时/分钟汇总和原始数据
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+public class PumpDataRollupRepositoryImpl implements PumpDataRollupRepository {
+
+    private static final Bucket[] TIERS = {Bucket.DAY, Bucket.HOUR, Bucket.MINUTE};
+
+    private static final String COUNT_COLUMNS = "row_count, start_count, fault_count, alarm_count, maintenance_count";
+
+    private static final String RAW_COUNT_EXPRESSIONS = "COUNT(*), COUNT(*) FILTER (WHERE pump_status = 1), " +
+            "COUNT(*) FILTER (WHERE fault_code IS NOT NULL AND btrim(fault_code) <> ''), " +
+            "COUNT(*) FILTER (WHERE alarm_level > 1), COUNT(*) FILTER (WHERE maintenance_flag)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 是否读取汇总表，关闭时全部从原始数据聚合
+     */
+    @Value("${app.pump-data.rollup.enabled:true}")
+    private boolean rollupEnabled = true;
+
+    @Override
+    public PumpDataAggregate aggregate(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        PumpDataAggregate total = new PumpDataAggregate();
+        if (endTime.isBefore(startTime)) {
+            return total;
+        }
+
+        List<Segment> segments = rollupEnabled
+                ? decompose(startTime, endTime)
+                : List.of(new Segment(null, startTime, endTime, true));
+
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < segments.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append(segmentSql(segments.get(i), i));
+        }
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        query.setParameter("deviceId", deviceId);
+        for (int i = 0; i < segments.size(); i++) {
+            query.setParameter("from" + i, Timestamp.valueOf(segments.get(i).from));
+            query.setParameter("to" + i, Timestamp.valueOf(segments.get(i).to));
+        }
+
+        for (Object row : query.getResultList()) {
+            total.merge(readAggregate(null, (Object[]) row, 0));
+        }
+        log.debug("水泵数据聚合: 设备={}, 范围={} - {}, 分段={}", deviceId, startTime, endTime, segments);
+        return total;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<PumpDataAggregate> aggregateSeries(String deviceId, LocalDateTime startTime, LocalDateTime endTime, Bucket bucket) {
+        String sql;
+        if (rollupEnabled) {
+            sql = "SELECT bucket_start, " + rollupExpressions() + " FROM " + rollupTable(bucket) +
+                    " WHERE device_id = :deviceId AND bucket_start >= :startTime AND bucket_start < :endTime" +
+                    " GROUP BY bucket_start ORDER BY bucket_start";
+        } else {
+            sql = "SELECT date_trunc('" + bucket.name().toLowerCase() + "', timestamp), " + rawExpressions() +
+                    " FROM pump_data WHERE device_id = :deviceId AND timestamp >= :startTime AND timestamp < :endTime" +
+                    " GROUP BY 1 ORDER BY 1";
+        }
+
+        Query query = entityManager.createNativeQuery(sql);
+        query.setParameter("deviceId", deviceId);
+        query.setParameter("startTime", Timestamp.valueOf(floor(startTime, bucket)));
+        query.setParameter("endTime", Timestamp.valueOf(next(floor(endTime, bucket), bucket)));
+
+        List<PumpDataAggregate> series = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            series.add(readAggregate(toLocalDateTime(row[0]), row, 1));
+        }
+        return series;
+    }
+
+    @Override
+    public Long countStartEvents(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        return aggregate(deviceId, startTime, endTime).getStartCount();
+    }
+
+    @Override
+    public Double sumRuntimeMinutes(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        return aggregate(deviceId, startTime, endTime).get(PumpDataAggregate.Metric.RUNTIME).getSum();
+    }
+
+    @Override
+    public Double sumEnergyConsumption(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        return aggregate(deviceId, startTime, endTime).get(PumpDataAggregate.Metric.ENERGY).getSum();
+    }
+
+    @Override
+    public Double averagePower(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        return aggregate(deviceId, startTime, endTime).get(PumpDataAggregate.Metric.POWER).getMean();
+    }
+
+    @Override
+    public Double maxVibration(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        return aggregate(deviceId, startTime, endTime).get(PumpDataAggregate.Metric.VIBRATION).getMax();
+    }
+
+    /**
+     * 把 [startTime, endTime] 拆成汇总表可以覆盖的对齐段和首尾的原始数据段，
+     * 最后一段原始数据包含 endTime
+     */
+    static List<Segment> decompose(LocalDateTime startTime, LocalDateTime endTime) {
+        List<Segment> segments = new ArrayList<>();
+        decompose(startTime, endTime, 0, segments);
+
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.bucket == null && last.to.equals(endTime)) {
+            segments.set(segments.size() - 1, new Segment(null, last.from, endTime, true));
+        } else {
+            segments.add(new Segment(null, endTime, endTime, true));
+        }
+        return segments;
+    }
+
+    private static void decompose(LocalDateTime from, LocalDateTime to, int tier, List<Segment> segments) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (tier == TIERS.length) {
+            segments.add(new Segment(null, from, to, false));
+            return;
+        }
+
+        Bucket bucket = TIERS[tier];
+        LocalDateTime alignedFrom = ceil(from, bucket);
+        LocalDateTime alignedTo = floor(to, bucket);
+        if (!alignedFrom.isBefore(alignedTo)) {
+            decompose(from, to, tier + 1, segments);
+            return;
+        }
+        decompose(from, alignedFrom, tier + 1, segments);
+        segments.add(new Segment(bucket, alignedFrom, alignedTo, false));
+        decompose(alignedTo, to, tier + 1, segments);
+    }
+
+    static LocalDateTime floor(LocalDateTime time, Bucket bucket) {
+        switch (bucket) {
+            case DAY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            default:
+                return time.truncatedTo(ChronoUnit.MINUTES);
+        }
+    }
+
+    static LocalDateTime ceil(LocalDateTime time, Bucket bucket) {
+        LocalDateTime floor = floor(time, bucket);
+        return floor.equals(time) ? time : next(floor, bucket);
+    }
+
+    private static LocalDateTime next(LocalDateTime bucketStart, Bucket bucket) {
+        switch (bucket) {
+            case DAY:
+                return bucketStart.plusDays(1);
+            case HOUR:
+                return bucketStart.plusHours(1);
+            default:
+                return bucketStart.plusMinutes(1);
+        }
+    }
+
+    private static String segmentSql(Segment segment, int index) {
+        String from = ":from" + index;
+        String to = ":to" + index;
+        if (segment.bucket == null) {
+            return "SELECT " + rawExpressions() + " FROM pump_data WHERE device_id = :deviceId" +
+                    " AND timestamp >= " + from + " AND timestamp " + (segment.inclusive ? "<= " : "< ") + to;
+        }
+        return "SELECT " + rollupExpressions() + " FROM " + rollupTable(segment.bucket) +
+                " WHERE device_id = :deviceId AND bucket_start >= " + from + " AND bucket_start < " + to;
+    }
+
+    private static String rollupTable(Bucket bucket) {
+        switch (bucket) {
+            case DAY:
+                return "pump_data_rollup_1d";
+            case HOUR:
+                return "pump_data_rollup_1h";
+            default:
+                return "pump_data_rollup_1m";
+        }
+    }
+
+    /**
+     * 合并汇总表多个时间桶的表达式，列顺序与 readAggregate 一致
+     */
+    private static String rollupExpressions() {
+        StringBuilder sql = new StringBuilder();
+        for (String column : COUNT_COLUMNS.split(", ")) {
+            sql.append("SUM(").append(column).append("), ");
+        }
+        for (PumpDataAggregate.Metric metric : PumpDataAggregate.Metric.values()) {
+            String p = metric.getPrefix();
+            sql.append("SUM(").append(p).append("_cnt), SUM(").append(p).append("_sum), ")
+                    .append("MIN(").append(p).append("_min), MAX(").append(p).append("_max), ")
+                    .append("SUM(").append(p).append("_sumsq), SUM(").append(p).append("_pos_cnt), ")
+                    .append("SUM(").append(p).append("_pos_sum), ");
+        }
+        return sql.substring(0, sql.length() - 2);
+    }
+
+    /**
+     * 直接聚合原始数据的表达式，与V12迁移中汇总表的计算方式一致
+     */
+    private static String rawExpressions() {
+        StringBuilder sql = new StringBuilder(RAW_COUNT_EXPRESSIONS);
+        for (PumpDataAggregate.Metric metric : PumpDataAggregate.Metric.values()) {
+            String c = metric.getColumn();
+            sql.append(", COUNT(").append(c).append("), SUM(").append(c).append("), ")
+                    .append("MIN(").append(c).append("), MAX(").append(c).append("), ")
+                    .append("SUM(").append(c).append(" * ").append(c).append("), ")
+                    .append("COUNT(*) FILTER (WHERE ").append(c).append(" > 0), ")
+                    .append("SUM(").append(c).append(") FILTER (WHERE ").append(c).append(" > 0)");
+        }
+        return sql.toString();
+    }
+
+    static PumpDataAggregate readAggregate(LocalDateTime bucketStart, Object[] row, int offset) {
+        PumpDataAggregate aggregate = new PumpDataAggregate(bucketStart);
+        int i = offset;
+        aggregate.addCounts(asLong(row[i++]), asLong(row[i++]), asLong(row[i++]), asLong(row[i++]), asLong(row[i++]));
+        for (PumpDataAggregate.Metric metric : PumpDataAggregate.Metric.values()) {
+            aggregate.get(metric).merge(new PumpDataAggregate.MetricStats(
+                    asLong(row[i]), asDouble(row[i + 1]), asNullableDouble(row[i + 2]), asNullableDouble(row[i + 3]),
+                    asDouble(row[i + 4]), asLong(row[i + 5]), asDouble(row[i + 6])));
+            i += 7;
+        }
+        return aggregate;
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static Double asNullableDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    /**
+     * 查询分段：bucket 为空表示读取原始数据
+     */
+    static class Segment {
+        final Bucket bucket;
+        final LocalDateTime from;
+        final LocalDateTime to;
+        final boolean inclusive;
+
+        Segment(Bucket bucket, LocalDateTime from, LocalDateTime to, boolean inclusive) {
+            this.bucket = bucket;
+            this.from = from;
+            this.to = to;
+            this.inclusive = inclusive;
+        }
+
+        @Override
+        public String toString() {
+            return (bucket != null ? bucket.name() : "RAW") + "[" + from + ", " + to + (inclusive ? "]" : ")");
+        }
+    }
+}
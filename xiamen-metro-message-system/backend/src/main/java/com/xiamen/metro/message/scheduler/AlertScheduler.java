@@ -3,10 +3,12 @@ package com.xiamen.metro.message.scheduler;
 import com.xiamen.metro.message.entity.AlertRuleEntity;
 import com.xiamen.metro.message.service.alert.AlertManagementService;
 import com.xiamen.metro.message.service.alert.AlertNotificationService;
+import com.xiamen.metro.message.service.alert.AlertRetentionService;
 import com.xiamen.metro.message.service.pump.PumpIntelligentAnalysisService;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisRequestDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -29,6 +31,14 @@ public class AlertScheduler {
     private final AlertManagementService alertManagementService;
     private final AlertNotificationService alertNotificationService;
     private final PumpIntelligentAnalysisService pumpIntelligentAnalysisService;
+    private final AlertRetentionService alertRetentionService;
+
+    /**
+     * 水泵分析检查使用增量分析：只折叠上次检查之后的新数据，不再每分钟重算整个小时。
+     * 增量分析不做故障预测与维护建议，依赖故障概率、剩余寿命和风险等级的告警规则不会触发，默认关闭
+     */
+    @Value("${app.pump-data.incremental.enabled:false}")
+    private boolean incrementalAnalysis = false;
 
     /**
      * 定期检查告警规则
@@ -70,20 +80,15 @@ public class AlertScheduler {
 
     /**
      * 清理过期的告警数据
-     * 每天凌晨2点执行
+     * 每天凌晨2点执行，按块删除并可先归档到MinIO
      */
-    @Scheduled(cron = "0 0 2 * * ?")
+    @Scheduled(cron = "${app.alert.retention.cron:0 0 2 * * ?}")
     public void cleanupExpiredAlerts() {
+        if (!alertRetentionService.isEnabled()) {
+            return;
+        }
         try {
-            log.info("开始清理过期的告警数据");
-
-            LocalDateTime cleanupTime = LocalDateTime.now().minusDays(90); // 保留90天
-
-            // 这里应该实现清理逻辑
-            // alertRepository.deleteByAlertTimeBefore(cleanupTime);
-
-            log.info("过期告警数据清理完成");
-
+            alertRetentionService.purgeExpired();
         } catch (Exception e) {
             log.error("清理过期告警数据失败", e);
         }
@@ -154,7 +159,9 @@ public class AlertScheduler {
                                 .build();
 
                         // 执行分析
-                        var analysisResult = pumpIntelligentAnalysisService.performIntelligentAnalysis(analysisRequest);
+                        var analysisResult = incrementalAnalysis ?
+                                pumpIntelligentAnalysisService.performIncrementalAnalysis(analysisRequest) :
+                                pumpIntelligentAnalysisService.performIntelligentAnalysis(analysisRequest);
 
                         // 处理分析结果，生成告警
                         if (analysisResult != null && analysisResult.getStatus().equals("SUCCESS")) {
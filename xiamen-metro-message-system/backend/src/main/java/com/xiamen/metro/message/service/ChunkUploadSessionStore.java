@@ -0,0 +1,87 @@
+package com.xiamen.metro.message.service;
+
+import java.util.List;
+
+/**
+ * 分片上传会话存储
+ * <p>
+ * 会话状态保存在存储中而非节点内存，任一节点都可以接收任一分片；
+ * 分片登记与完成判定由存储原子完成，保证最后一个分片只触发一次合并
+ *
+ * @author Xiamen Metro System
+ */
+public interface ChunkUploadSessionStore {
+
+    /**
+     * 保存新建的会话
+     */
+    void create(FileChunkUploadService.ChunkUploadSession session);
+
+    /**
+     * 读取会话(含已上传分片与分片记录)，不存在时返回 null
+     */
+    FileChunkUploadService.ChunkUploadSession get(String sessionId);
+
+    /**
+     * 原子登记一个已写入的分片
+     *
+     * @param sessionId 会话ID
+     * @param chunk     分片记录(序号、偏移、长度、MD5)
+     * @return 登记结果，会话不存在时返回 null
+     */
+    ChunkMark markChunk(String sessionId, FileChunkUploadService.ChunkRecord chunk);
+
+    /**
+     * 更新会话状态与结果字段(status、endTime、fileHash、storagePath)
+     */
+    void update(FileChunkUploadService.ChunkUploadSession session);
+
+    /**
+     * 删除会话
+     */
+    void remove(String sessionId);
+
+    /**
+     * 列出全部会话
+     */
+    List<FileChunkUploadService.ChunkUploadSession> list();
+
+    /**
+     * 分片登记结果
+     */
+    class ChunkMark {
+        private final boolean newlyMarked;
+        private final int uploadedCount;
+        private final long uploadedSize;
+        private final boolean completing;
+
+        public ChunkMark(boolean newlyMarked, int uploadedCount, long uploadedSize, boolean completing) {
+            this.newlyMarked = newlyMarked;
+            this.uploadedCount = uploadedCount;
+            this.uploadedSize = uploadedSize;
+            this.completing = completing;
+        }
+
+        /**
+         * 该分片此前未登记
+         */
+        public boolean isNewlyMarked() {
+            return newlyMarked;
+        }
+
+        public int getUploadedCount() {
+            return uploadedCount;
+        }
+
+        public long getUploadedSize() {
+            return uploadedSize;
+        }
+
+        /**
+         * 本次登记使全部分片到齐，且由调用方负责完成上传(每个会话只会返回一次)
+         */
+        public boolean isCompleting() {
+            return completing;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.xiamen.metro.message.service;
 
+import com.xiamen.metro.message.entity.FileEntity;
+import com.xiamen.metro.message.repository.FileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,26 +9,60 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
  * 文件分片上传服务
  * 支持大文件分片上传、断点续传、并发上传
+ * <p>
+ * 本地模式：会话初始化时预分配目标文件，分片到达后直接写入其最终偏移，分片顺序无关；
+ * 全部分片到齐后只需校验大小并重命名，无需再次读写数据。
+ * MinIO模式：每个分片直接存为MinIO分片对象，全部到齐后由MinIO服务端拼接，本地不落盘
+ * <p>
+ * 分片写入时同步计算分片MD5，并按序增量累积整文件MD5，完成时无需重读整个文件；
+ * 客户端在初始化时声明文件哈希，若已存在相同文件则直接秒传，无需上传任何分片
+ * <p>
+ * 会话状态保存在 {@link ChunkUploadSessionStore}(默认Redis)中，任一节点都可接收任一分片，
+ * 最后一个分片只在一个节点上触发合并。整文件摘要的增量状态只在节点本地，
+ * 分片分散到多个节点时由完成节点补读缺失部分。集群部署本地模式时 upload-path 需为共享存储
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileChunkUploadService {
 
+    /**
+     * MinIO服务端拼接要求除最后一个外每个分片不小于5MB
+     */
+    private static final long MIN_COMPOSE_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final String STORAGE_LOCAL = "LOCAL";
+    private static final String STORAGE_MINIO = "MINIO";
+
     private final Executor fileTaskExecutor;
+    private final MinioService minioService;
+    private final FileRepository fileRepository;
+    private final ChunkUploadSessionStore sessionStore;
+    private final FileManagementService fileManagementService;
 
     @Value("${app.file.chunk-size:8192}")
     private int chunkSize;
@@ -37,31 +73,91 @@ public class FileChunkUploadService {
     @Value("${app.file.upload-path:./uploads}")
     private String uploadPath;
 
-    // 分片上传状态管理
-    private final Map<String, ChunkUploadSession> uploadSessions = new ConcurrentHashMap<>();
+    /**
+     * 分片存储方式：local 本地预分配文件，minio 直接写入MinIO分片对象
+     */
+    @Value("${app.file.chunk-storage:local}")
+    private String chunkStorage = "local";
+
+    /**
+     * 本节点上各会话的整文件增量摘要
+     */
+    private final Map<String, ContentDigestState> digestStates = new ConcurrentHashMap<>();
 
     /**
      * 初始化分片上传会话
      */
     public ChunkUploadSession initUploadSession(String fileId, String fileName, long fileSize, String userId) {
+        return initUploadSession(fileId, fileName, fileSize, userId, null);
+    }
+
+    /**
+     * 初始化分片上传会话
+     *
+     * @param expectedHash 客户端声明的文件MD5，可为空；已存在相同文件时返回 DUPLICATE 状态的会话，无需上传分片
+     */
+    public ChunkUploadSession initUploadSession(String fileId, String fileName, long fileSize, String userId,
+                                                String expectedHash) {
         String sessionId = UUID.randomUUID().toString();
         int totalChunks = (int) Math.ceil((double) fileSize / chunkSize);
 
+        if (expectedHash != null) {
+            Optional<FileEntity> existingFile = fileRepository.findByFileHash(expectedHash.toLowerCase());
+            if (existingFile.isPresent()) {
+                log.info("文件已存在，跳过分片上传: fileId={}, fileName={}, existing={}",
+                        fileId, fileName, existingFile.get().getFileName());
+                return ChunkUploadSession.builder()
+                        .sessionId(sessionId)
+                        .fileId(fileId)
+                        .fileName(fileName)
+                        .fileSize(fileSize)
+                        .totalChunks(totalChunks)
+                        .uploadedChunks(ConcurrentHashMap.newKeySet())
+                        .userId(userId)
+                        .startTime(System.currentTimeMillis())
+                        .status("DUPLICATE")
+                        .expectedHash(expectedHash.toLowerCase())
+                        .storagePath(existingFile.get().getStoragePath())
+                        .build();
+            }
+        }
+
+        String storage = resolveStorage(totalChunks);
+        String objectName = null;
+        if (STORAGE_MINIO.equals(storage)) {
+            objectName = minioService.generateObjectName(fileName, getFileExtension(fileName));
+        } else {
+            // 预分配目标文件，分片按偏移写入
+            Path partPath = getPartPath(fileId, fileName);
+            try {
+                Files.createDirectories(partPath.getParent());
+                try (RandomAccessFile file = new RandomAccessFile(partPath.toFile(), "rw")) {
+                    file.setLength(fileSize);
+                }
+            } catch (IOException e) {
+                log.error("预分配上传文件失败: fileId={}, fileName={}", fileId, fileName, e);
+                throw new RuntimeException("初始化分片上传失败: " + e.getMessage());
+            }
+        }
+
         ChunkUploadSession session = ChunkUploadSession.builder()
                 .sessionId(sessionId)
                 .fileId(fileId)
                 .fileName(fileName)
                 .fileSize(fileSize)
                 .totalChunks(totalChunks)
-                .uploadedChunks(new HashSet<>())
+                .uploadedChunks(ConcurrentHashMap.newKeySet())
                 .userId(userId)
                 .startTime(System.currentTimeMillis())
                 .status("INITIALIZED")
+                .storage(storage)
+                .objectName(objectName)
+                .expectedHash(expectedHash != null ? expectedHash.toLowerCase() : null)
                 .build();
 
-        uploadSessions.put(sessionId, session);
-        log.info("初始化分片上传会话: sessionId={}, fileId={}, fileName={}, totalChunks={}",
-                sessionId, fileId, fileName, totalChunks);
+        sessionStore.create(session);
+        log.info("初始化分片上传会话: sessionId={}, fileId={}, fileName={}, totalChunks={}, storage={}",
+                sessionId, fileId, fileName, totalChunks, storage);
 
         return session;
     }
@@ -70,9 +166,19 @@ public class FileChunkUploadService {
      * 上传分片
      */
     public CompletableFuture<ChunkUploadResult> uploadChunk(String sessionId, int chunkIndex, MultipartFile chunkFile) {
+        return uploadChunk(sessionId, chunkIndex, chunkFile, null);
+    }
+
+    /**
+     * 上传分片
+     *
+     * @param chunkHash 客户端计算的分片MD5，可为空；不一致时拒绝该分片
+     */
+    public CompletableFuture<ChunkUploadResult> uploadChunk(String sessionId, int chunkIndex, MultipartFile chunkFile,
+                                                            String chunkHash) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                ChunkUploadSession session = uploadSessions.get(sessionId);
+                ChunkUploadSession session = sessionStore.get(sessionId);
                 if (session == null) {
                     return ChunkUploadResult.builder()
                             .success(false)
@@ -88,21 +194,18 @@ public class FileChunkUploadService {
                             .build();
                 }
 
-                // 保存分片文件
-                String chunkFileName = getChunkFileName(session.getFileId(), chunkIndex);
-                Path chunkPath = Paths.get(uploadPath, "chunks", chunkFileName);
-
-                // 确保目录存在
-                Files.createDirectories(chunkPath.getParent());
-
-                // 保存分片文件
-                try (InputStream inputStream = chunkFile.getInputStream()) {
-                    Files.copy(inputStream, chunkPath);
+                if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+                    return ChunkUploadResult.builder()
+                            .success(false)
+                            .chunkIndex(chunkIndex)
+                            .message("分片序号超出范围")
+                            .build();
                 }
 
                 // 验证分片完整性
-                if (!validateChunkIntegrity(chunkPath, chunkIndex, chunkSize)) {
-                    Files.deleteIfExists(chunkPath);
+                long offset = (long) chunkIndex * chunkSize;
+                long expectedLength = Math.min(chunkSize, session.getFileSize() - offset);
+                if (chunkFile.getSize() != expectedLength) {
                     return ChunkUploadResult.builder()
                             .success(false)
                             .chunkIndex(chunkIndex)
@@ -110,19 +213,32 @@ public class FileChunkUploadService {
                             .build();
                 }
 
-                // 更新上传状态
-                session.getUploadedChunks().add(chunkIndex);
-                session.setUploadedSize(session.getUploadedSize() + chunkFile.getSize());
+                // 写入分片，同时计算分片MD5
+                String digest = storeChunk(session, chunkIndex, chunkFile, offset, expectedLength, chunkHash);
 
-                // 检查是否所有分片都已上传完成
-                if (session.getUploadedChunks().size() == session.getTotalChunks()) {
-                    return mergeChunks(session);
+                // 原子登记分片，全部到齐时只有一个调用方得到完成权
+                ChunkUploadSessionStore.ChunkMark mark = sessionStore.markChunk(sessionId,
+                        new ChunkRecord(chunkIndex, offset, expectedLength, digest));
+                if (mark == null) {
+                    return ChunkUploadResult.builder()
+                            .success(false)
+                            .chunkIndex(chunkIndex)
+                            .message("上传会话不存在")
+                            .build();
+                }
+
+                if (mark.isCompleting()) {
+                    ChunkUploadSession completed = sessionStore.get(sessionId);
+                    return STORAGE_MINIO.equals(completed.getStorage()) ? completeMinioUpload(completed) : completeUpload(completed);
                 }
 
+                session.getUploadedChunks().add(chunkIndex);
+                advanceContentDigest(session, false);
+
                 return ChunkUploadResult.builder()
                         .success(true)
                         .chunkIndex(chunkIndex)
-                        .uploadedCount(session.getUploadedChunks().size())
+                        .uploadedCount(mark.getUploadedCount())
                         .totalChunks(session.getTotalChunks())
                         .build();
 
@@ -138,48 +254,196 @@ public class FileChunkUploadService {
     }
 
     /**
-     * 合并分片
+     * 存储分片并返回分片MD5
+     * <p>
+     * 若该分片恰好是本节点整文件摘要的下一个分片，则在同一次读取中累积整文件摘要；
+     * 乱序到达的分片留待前序分片到齐后再补读
      */
-    private ChunkUploadResult mergeChunks(ChunkUploadSession session) {
+    private String storeChunk(ChunkUploadSession session, int chunkIndex, MultipartFile chunkFile,
+                              long offset, long length, String chunkHash) throws IOException {
+        ContentDigestState state = digestState(session.getSessionId());
+        boolean inOrder = state.lock.tryLock();
+        if (inOrder && state.digestedChunks != chunkIndex) {
+            state.lock.unlock();
+            inOrder = false;
+        }
         try {
-            session.setStatus("MERGING");
-            log.info("开始合并分片: fileId={}, totalChunks={}", session.getFileId(), session.getTotalChunks());
+            MessageDigest chunkDigest = newDigest();
+            MessageDigest contentBackup = inOrder ? cloneDigest(state.digest) : null;
+            InputStream inputStream = new DigestInputStream(chunkFile.getInputStream(), chunkDigest);
+            if (inOrder) {
+                inputStream = new DigestInputStream(inputStream, state.digest);
+            }
+            try (InputStream input = inputStream) {
+                if (STORAGE_MINIO.equals(session.getStorage())) {
+                    // 分片直接存为MinIO分片对象
+                    minioService.uploadPart(input, getPartObjectName(session, chunkIndex), length);
+                } else {
+                    // 直接写入目标文件的最终偏移
+                    writeChunk(session, input, offset, length);
+                }
 
-            String targetFileName = session.getFileId() + "_" + session.getFileName();
-            Path targetPath = Paths.get(uploadPath, targetFileName);
+                String actualHash = toHex(chunkDigest.digest());
+                if (chunkHash != null && !chunkHash.equalsIgnoreCase(actualHash)) {
+                    throw new IOException("分片校验失败: 期望" + chunkHash + ", 实际" + actualHash);
+                }
+                if (inOrder) {
+                    state.digestedChunks = chunkIndex + 1;
+                }
+                return actualHash;
+            } catch (IOException | RuntimeException e) {
+                if (inOrder) {
+                    state.digest = contentBackup;
+                }
+                throw e;
+            }
+        } finally {
+            if (inOrder) {
+                state.lock.unlock();
+            }
+        }
+    }
 
-            try (FileOutputStream outputStream = new FileOutputStream(targetPath.toFile())) {
-                for (int i = 0; i < session.getTotalChunks(); i++) {
-                    String chunkFileName = getChunkFileName(session.getFileId(), i);
-                    Path chunkPath = Paths.get(uploadPath, "chunks", chunkFileName);
-
-                    if (!Files.exists(chunkPath)) {
-                        throw new RuntimeException("分片文件不存在: " + chunkFileName);
-                    }
-
-                    try (FileInputStream inputStream = new FileInputStream(chunkPath.toFile())) {
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        while ((bytesRead = inputStream.read(buffer)) != -1) {
-                            outputStream.write(buffer, 0, bytesRead);
-                        }
-                    }
-
-                    // 删除已合并的分片文件
-                    Files.delete(chunkPath);
+    /**
+     * 把已到齐的连续分片补入整文件摘要
+     *
+     * @param wait 为 false 时若其他线程正在累积则直接返回，完成阶段传 true 以确保补齐
+     */
+    private void advanceContentDigest(ChunkUploadSession session, boolean wait) throws IOException {
+        ContentDigestState state = digestState(session.getSessionId());
+        if (wait) {
+            state.lock.lock();
+        } else if (!state.lock.tryLock()) {
+            return;
+        }
+        try {
+            while (state.digestedChunks < session.getTotalChunks()
+                    && session.getUploadedChunks().contains(state.digestedChunks)) {
+                MessageDigest contentBackup = cloneDigest(state.digest);
+                try {
+                    readChunk(session, state.digestedChunks, state.digest);
+                } catch (IOException | RuntimeException e) {
+                    state.digest = contentBackup;
+                    throw e;
                 }
+                state.digestedChunks++;
             }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * 从已存储的分片补读数据更新摘要
+     */
+    private void readChunk(ChunkUploadSession session, int chunkIndex, MessageDigest digest) throws IOException {
+        long offset = (long) chunkIndex * chunkSize;
+        long length = Math.min(chunkSize, session.getFileSize() - offset);
+        if (STORAGE_MINIO.equals(session.getStorage())) {
+            try (InputStream inputStream = minioService.downloadFile(getPartObjectName(session, chunkIndex))) {
+                byte[] buffer = new byte[8192];
+                int bytesRead;
+                while ((bytesRead = inputStream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, bytesRead);
+                }
+            }
+            return;
+        }
+
+        Path partPath = getPartPath(session.getFileId(), session.getFileName());
+        try (FileChannel channel = FileChannel.open(partPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int bytesRead = channel.read(buffer, position);
+                if (bytesRead < 0) {
+                    throw new IOException("分片数据不完整: chunkIndex=" + chunkIndex);
+                }
+                buffer.flip();
+                digest.update(buffer);
+                position += bytesRead;
+            }
+        }
+    }
+
+    /**
+     * 完成整文件摘要并校验声明的哈希
+     */
+    private String finishContentDigest(ChunkUploadSession session) throws IOException {
+        advanceContentDigest(session, true);
+        ContentDigestState state = digestState(session.getSessionId());
+        if (state.digestedChunks != session.getTotalChunks()) {
+            throw new IOException("文件摘要不完整: " + state.digestedChunks + "/" + session.getTotalChunks());
+        }
+        String fileHash = toHex(state.digest.digest());
+        if (session.getExpectedHash() != null && !session.getExpectedHash().equals(fileHash)) {
+            throw new IOException("文件哈希校验失败: 期望" + session.getExpectedHash() + ", 实际" + fileHash);
+        }
+        session.setFileHash(fileHash);
+        return fileHash;
+    }
+
+    private ContentDigestState digestState(String sessionId) {
+        return digestStates.computeIfAbsent(sessionId, id -> new ContentDigestState());
+    }
+
+    /**
+     * 写入分片到目标文件的最终偏移
+     */
+    private void writeChunk(ChunkUploadSession session, InputStream inputStream, long offset, long length) throws IOException {
+        Path partPath = getPartPath(session.getFileId(), session.getFileName());
+        try (ReadableByteChannel source = Channels.newChannel(inputStream);
+             FileChannel target = FileChannel.open(partPath, StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < length) {
+                long transferred = target.transferFrom(source, offset + written, length - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            if (written != length) {
+                throw new IOException("分片数据不完整: 期望" + length + "字节, 实际" + written + "字节");
+            }
+        }
+    }
+
+    /**
+     * 完成上传：分片已在最终位置，只需校验大小并重命名
+     */
+    private ChunkUploadResult completeUpload(ChunkUploadSession session) {
+        try {
+            session.setStatus("MERGING");
+            sessionStore.update(session);
+            log.info("分片已全部写入: fileId={}, totalChunks={}", session.getFileId(), session.getTotalChunks());
+
+            String targetFileName = session.getFileId() + "_" + session.getFileName();
+            Path partPath = getPartPath(session.getFileId(), session.getFileName());
+            Path targetPath = Paths.get(uploadPath, targetFileName);
 
             // 验证合并后的文件完整性
-            if (!validateMergedFileIntegrity(targetPath, session.getFileSize())) {
-                Files.deleteIfExists(targetPath);
+            if (!validateMergedFileIntegrity(partPath, session.getFileSize())) {
+                Files.deleteIfExists(partPath);
                 throw new RuntimeException("合并后的文件完整性验证失败");
             }
 
+            String fileHash = finishContentDigest(session);
+            Optional<FileEntity> existingFile = fileRepository.findByFileHash(fileHash);
+            if (existingFile.isPresent()) {
+                Files.deleteIfExists(partPath);
+                return duplicateResult(session, existingFile.get());
+            }
+
+            Files.move(partPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            String storagePath = registerAndProcess(session, fileHash, targetPath, null);
+
             session.setStatus("COMPLETED");
             session.setEndTime(System.currentTimeMillis());
 
-            log.info("分片合并完成: fileId={}, fileName={}, size={}, duration={}ms",
+            log.info("分片上传完成: fileId={}, fileName={}, size={}, duration={}ms",
                     session.getFileId(), session.getFileName(), session.getFileSize(),
                     session.getEndTime() - session.getStartTime());
 
@@ -187,6 +451,9 @@ public class FileChunkUploadService {
                     .success(true)
                     .sessionId(session.getSessionId())
                     .fileName(targetFileName)
+                    .storagePath(storagePath)
+                    .localPath(targetPath.toString())
+                    .fileHash(fileHash)
                     .fileSize(session.getFileSize())
                     .uploadTime(session.getEndTime() - session.getStartTime())
                     .message("文件上传完成")
@@ -195,36 +462,182 @@ public class FileChunkUploadService {
         } catch (Exception e) {
             log.error("合并分片失败: fileId={}", session.getFileId(), e);
             session.setStatus("FAILED");
+            try {
+                Files.deleteIfExists(getPartPath(session.getFileId(), session.getFileName()));
+            } catch (IOException ex) {
+                log.warn("删除分片文件失败: fileId={}", session.getFileId(), ex);
+            }
             return ChunkUploadResult.builder()
                     .success(false)
                     .message("合并分片失败: " + e.getMessage())
                     .build();
         } finally {
             // 清理会话信息
-            uploadSessions.remove(session.getSessionId());
+            removeSession(session.getSessionId());
+        }
+    }
+
+    /**
+     * 完成MinIO上传：由MinIO服务端按序拼接分片对象，随后删除分片
+     */
+    private ChunkUploadResult completeMinioUpload(ChunkUploadSession session) {
+        List<String> partNames = getPartObjectNames(session);
+        try {
+            session.setStatus("MERGING");
+            sessionStore.update(session);
+            log.info("分片已全部上传至MinIO: fileId={}, totalChunks={}", session.getFileId(), session.getTotalChunks());
+
+            String fileHash = finishContentDigest(session);
+            Optional<FileEntity> existingFile = fileRepository.findByFileHash(fileHash);
+            if (existingFile.isPresent()) {
+                return duplicateResult(session, existingFile.get());
+            }
+
+            String storagePath = registerAndProcess(session, fileHash, null,
+                    minioService.composeObject(session.getObjectName(), partNames, null));
+
+            session.setStatus("COMPLETED");
+            session.setEndTime(System.currentTimeMillis());
+
+            log.info("分片上传完成: fileId={}, objectName={}, size={}, duration={}ms",
+                    session.getFileId(), session.getObjectName(), session.getFileSize(),
+                    session.getEndTime() - session.getStartTime());
+
+            return ChunkUploadResult.builder()
+                    .success(true)
+                    .sessionId(session.getSessionId())
+                    .fileName(session.getObjectName())
+                    .storagePath(storagePath)
+                    .fileHash(fileHash)
+                    .fileSize(session.getFileSize())
+                    .uploadTime(session.getEndTime() - session.getStartTime())
+                    .message("文件上传完成")
+                    .build();
+
+        } catch (Exception e) {
+            log.error("合并分片失败: fileId={}", session.getFileId(), e);
+            session.setStatus("FAILED");
+            return ChunkUploadResult.builder()
+                    .success(false)
+                    .message("合并分片失败: " + e.getMessage())
+                    .build();
+        } finally {
+            deletePartObjects(partNames);
+            removeSession(session.getSessionId());
         }
     }
 
     /**
-     * 获取分片文件名
+     * 登记合并完成的文件并在文件任务线程池中解析入库，返回存储路径。
+     * 本地存储方式下直接映射合并后的本地文件解析，不再从MinIO下载
      */
-    private String getChunkFileName(String fileId, int chunkIndex) {
-        return String.format("%s_chunk_%d.tmp", fileId, chunkIndex);
+    private String registerAndProcess(ChunkUploadSession session, String fileHash, Path localFile, String storagePath) {
+        Optional<FileEntity> registered = fileManagementService.registerMergedFile(session.getFileName(),
+                session.getFileSize(), fileHash, localFile, storagePath, parseUserId(session.getUserId()));
+        if (registered.isEmpty()) {
+            log.info("相同内容的文件已登记，不重复解析: fileId={}", session.getFileId());
+            return fileRepository.findByFileHash(fileHash).map(FileEntity::getStoragePath).orElse(storagePath);
+        }
+        FileEntity fileEntity = registered.get();
+        fileTaskExecutor.execute(() -> fileManagementService.processFileAsync(fileEntity, localFile));
+        return fileEntity.getStoragePath();
+    }
+
+    private static Long parseUserId(String userId) {
+        try {
+            return userId != null ? Long.valueOf(userId) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     /**
-     * 验证分片完整性
+     * 整文件哈希与已有文件相同，丢弃已上传数据并返回已有文件
      */
-    private boolean validateChunkIntegrity(Path chunkPath, int chunkIndex, int expectedSize) throws Exception {
-        long actualSize = Files.size(chunkPath);
+    private ChunkUploadResult duplicateResult(ChunkUploadSession session, FileEntity existingFile) {
+        session.setStatus("DUPLICATE");
+        session.setEndTime(System.currentTimeMillis());
+        log.info("文件已存在，丢弃已上传分片: fileId={}, existing={}", session.getFileId(), existingFile.getFileName());
+        return ChunkUploadResult.builder()
+                .success(true)
+                .sessionId(session.getSessionId())
+                .fileName(existingFile.getFileName())
+                .storagePath(existingFile.getStoragePath())
+                .fileHash(session.getFileHash())
+                .fileSize(session.getFileSize())
+                .uploadTime(session.getEndTime() - session.getStartTime())
+                .message("文件已存在")
+                .build();
+    }
 
-        // 最后一个分片可能小于预期大小
-        long expectedChunkSize = expectedSize;
-        if (actualSize < expectedChunkSize) {
-            return chunkIndex > 0; // 只有非最后一个分片才检查大小
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
+    }
 
-        return true;
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] hashBytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : hashBytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 确定分片存储方式，分片小于MinIO拼接下限时退回本地模式
+     */
+    private String resolveStorage(int totalChunks) {
+        if (!STORAGE_MINIO.equalsIgnoreCase(chunkStorage)) {
+            return STORAGE_LOCAL;
+        }
+        if (totalChunks > 1 && chunkSize < MIN_COMPOSE_PART_SIZE) {
+            log.warn("分片大小{}小于MinIO拼接下限{}，使用本地存储", chunkSize, MIN_COMPOSE_PART_SIZE);
+            return STORAGE_LOCAL;
+        }
+        return STORAGE_MINIO;
+    }
+
+    private String getPartObjectName(ChunkUploadSession session, int chunkIndex) {
+        return String.format("%s.parts/%s/%05d", session.getObjectName(), session.getSessionId(), chunkIndex);
+    }
+
+    private List<String> getPartObjectNames(ChunkUploadSession session) {
+        List<String> partNames = new ArrayList<>(session.getTotalChunks());
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            partNames.add(getPartObjectName(session, i));
+        }
+        return partNames;
+    }
+
+    private void deletePartObjects(List<String> partNames) {
+        try {
+            minioService.deleteFiles(partNames);
+        } catch (Exception e) {
+            log.warn("删除MinIO分片失败: {}", e.getMessage());
+        }
+    }
+
+    private String getFileExtension(String fileName) {
+        int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+        return dot >= 0 ? fileName.substring(dot) : "";
+    }
+
+    /**
+     * 获取上传中的目标文件路径
+     */
+    private Path getPartPath(String fileId, String fileName) {
+        return Paths.get(uploadPath, "chunks", fileId + "_" + fileName + ".part");
     }
 
     /**
@@ -235,18 +648,23 @@ public class FileChunkUploadService {
         return actualSize == expectedSize;
     }
 
+    private void removeSession(String sessionId) {
+        sessionStore.remove(sessionId);
+        digestStates.remove(sessionId);
+    }
+
     /**
      * 获取上传会话状态
      */
     public ChunkUploadSession getUploadSession(String sessionId) {
-        return uploadSessions.get(sessionId);
+        return sessionStore.get(sessionId);
     }
 
     /**
      * 获取已上传的分片列表
      */
     public Set<Integer> getUploadedChunks(String sessionId) {
-        ChunkUploadSession session = uploadSessions.get(sessionId);
+        ChunkUploadSession session = sessionStore.get(sessionId);
         return session != null ? new HashSet<>(session.getUploadedChunks()) : new HashSet<>();
     }
 
@@ -254,25 +672,30 @@ public class FileChunkUploadService {
      * 取消上传会话
      */
     public boolean cancelUploadSession(String sessionId) {
-        ChunkUploadSession session = uploadSessions.get(sessionId);
+        ChunkUploadSession session = sessionStore.get(sessionId);
         if (session == null) {
             return false;
         }
 
         session.setStatus("CANCELLED");
 
-        // 删除已上传的分片文件
-        for (int i = 0; i < session.getTotalChunks(); i++) {
-            String chunkFileName = getChunkFileName(session.getFileId(), i);
-            Path chunkPath = Paths.get(uploadPath, "chunks", chunkFileName);
+        if (STORAGE_MINIO.equals(session.getStorage())) {
+            // 删除已上传的MinIO分片
+            List<String> uploadedParts = session.getUploadedChunks().stream()
+                    .map(index -> getPartObjectName(session, index))
+                    .collect(Collectors.toList());
+            deletePartObjects(uploadedParts);
+        } else {
+            // 删除预分配的目标文件
+            Path partPath = getPartPath(session.getFileId(), session.getFileName());
             try {
-                Files.deleteIfExists(chunkPath);
+                Files.deleteIfExists(partPath);
             } catch (Exception e) {
-                log.warn("删除分片文件失败: {}", chunkPath, e);
+                log.warn("删除分片文件失败: {}", partPath, e);
             }
         }
 
-        uploadSessions.remove(sessionId);
+        removeSession(sessionId);
         log.info("取消上传会话: sessionId={}", sessionId);
         return true;
     }
@@ -284,15 +707,15 @@ public class FileChunkUploadService {
         long currentTime = System.currentTimeMillis();
         long expireTime = 24 * 60 * 60 * 1000; // 24小时
 
-        uploadSessions.entrySet().removeIf(entry -> {
-            ChunkUploadSession session = entry.getValue();
+        for (ChunkUploadSession session : sessionStore.list()) {
             if (currentTime - session.getStartTime() > expireTime) {
                 log.info("清理过期上传会话: sessionId={}", session.getSessionId());
                 cancelUploadSession(session.getSessionId());
-                return true;
             }
-            return false;
-        });
+        }
+
+        // 会话已在其他节点完成或取消时，清理本节点残留的摘要状态
+        digestStates.keySet().removeIf(sessionId -> sessionStore.get(sessionId) == null);
     }
 
     /**
@@ -308,11 +731,7 @@ public class FileChunkUploadService {
             }
         }
 
-        StringBuilder sb = new StringBuilder();
-        for (byte b : md.digest()) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+        return toHex(md.digest());
     }
 
     /**
@@ -320,27 +739,28 @@ public class FileChunkUploadService {
      */
     public Map<String, Object> getUploadStatistics() {
         Map<String, Object> stats = new HashMap<>();
+        List<ChunkUploadSession> sessions = sessionStore.list();
 
-        long activeSessions = uploadSessions.values().stream()
+        long activeSessions = sessions.stream()
                 .mapToLong(s -> "INITIALIZED".equals(s.getStatus()) || "UPLOADING".equals(s.getStatus()) ? 1 : 0)
                 .sum();
 
-        long completedSessions = uploadSessions.values().stream()
+        long completedSessions = sessions.stream()
                 .mapToLong(s -> "COMPLETED".equals(s.getStatus()) ? 1 : 0)
                 .sum();
 
-        long failedSessions = uploadSessions.values().stream()
+        long failedSessions = sessions.stream()
                 .mapToLong(s -> "FAILED".equals(s.getStatus()) ? 1 : 0)
                 .sum();
 
-        long totalUploadedSize = uploadSessions.values().stream()
+        long totalUploadedSize = sessions.stream()
                 .mapToLong(ChunkUploadSession::getUploadedSize)
                 .sum();
 
         stats.put("activeSessions", activeSessions);
         stats.put("completedSessions", completedSessions);
         stats.put("failedSessions", failedSessions);
-        stats.put("totalSessions", uploadSessions.size());
+        stats.put("totalSessions", sessions.size());
         stats.put("totalUploadedSize", totalUploadedSize);
         stats.put("maxConcurrentUploads", maxConcurrentUploads);
 
@@ -357,11 +777,18 @@ public class FileChunkUploadService {
         private long fileSize;
         private int totalChunks;
         private Set<Integer> uploadedChunks;
-        private long uploadedSize;
         private String userId;
         private long startTime;
         private long endTime;
         private String status;
+        private String storage;
+        private String objectName;
+        private String storagePath;
+        private String expectedHash;
+        private String fileHash;
+        private final Map<Integer, ChunkRecord> chunks = new ConcurrentHashMap<>();
+        private final AtomicLong uploadedBytes = new AtomicLong();
+        private final AtomicBoolean completing = new AtomicBoolean();
 
         // Builder pattern
         public static Builder builder() {
@@ -381,8 +808,11 @@ public class FileChunkUploadService {
         public void setTotalChunks(int totalChunks) { this.totalChunks = totalChunks; }
         public Set<Integer> getUploadedChunks() { return uploadedChunks; }
         public void setUploadedChunks(Set<Integer> uploadedChunks) { this.uploadedChunks = uploadedChunks; }
-        public long getUploadedSize() { return uploadedSize; }
-        public void setUploadedSize(long uploadedSize) { this.uploadedSize = uploadedSize; }
+        public long getUploadedSize() { return uploadedBytes.get(); }
+        public void setUploadedSize(long uploadedSize) { uploadedBytes.set(uploadedSize); }
+        public void addUploadedSize(long size) { uploadedBytes.addAndGet(size); }
+        /** 全部分片到齐后只允许一个线程执行完成步骤 */
+        public boolean markCompleting() { return completing.compareAndSet(false, true); }
         public String getUserId() { return userId; }
         public void setUserId(String userId) { this.userId = userId; }
         public long getStartTime() { return startTime; }
@@ -391,6 +821,18 @@ public class FileChunkUploadService {
         public void setEndTime(long endTime) { this.endTime = endTime; }
         public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
+        public String getStorage() { return storage; }
+        public void setStorage(String storage) { this.storage = storage; }
+        public String getObjectName() { return objectName; }
+        public void setObjectName(String objectName) { this.objectName = objectName; }
+        public String getStoragePath() { return storagePath; }
+        public void setStoragePath(String storagePath) { this.storagePath = storagePath; }
+        public String getExpectedHash() { return expectedHash; }
+        public void setExpectedHash(String expectedHash) { this.expectedHash = expectedHash; }
+        public String getFileHash() { return fileHash; }
+        public void setFileHash(String fileHash) { this.fileHash = fileHash; }
+        /** 已登记的分片记录，按分片序号索引 */
+        public Map<Integer, ChunkRecord> getChunks() { return chunks; }
 
         public static class Builder {
             private ChunkUploadSession session = new ChunkUploadSession();
@@ -403,10 +845,46 @@ public class FileChunkUploadService {
             public Builder userId(String userId) { session.userId = userId; return this; }
             public Builder startTime(long startTime) { session.startTime = startTime; return this; }
             public Builder status(String status) { session.status = status; return this; }
+            public Builder storage(String storage) { session.storage = storage; return this; }
+            public Builder objectName(String objectName) { session.objectName = objectName; return this; }
+            public Builder storagePath(String storagePath) { session.storagePath = storagePath; return this; }
+            public Builder expectedHash(String expectedHash) { session.expectedHash = expectedHash; return this; }
             public ChunkUploadSession build() { return session; }
         }
     }
 
+    /**
+     * 分片记录
+     */
+    public static class ChunkRecord {
+        private final int index;
+        private final long offset;
+        private final long length;
+        private final String digest;
+
+        public ChunkRecord(int index, long offset, long length, String digest) {
+            this.index = index;
+            this.offset = offset;
+            this.length = length;
+            this.digest = digest;
+        }
+
+        public int getIndex() { return index; }
+        public long getOffset() { return offset; }
+        public long getLength() { return length; }
+        /** 分片MD5 */
+        public String getDigest() { return digest; }
+    }
+
+    /**
+     * 本节点的整文件增量摘要：digestedChunks 之前的分片已累积进 digest
+     */
+    private static class ContentDigestState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private MessageDigest digest = newDigest();
+        private int digestedChunks;
+    }
+
     /**
      * 分片上传结果
      */
@@ -417,6 +895,12 @@ public class FileChunkUploadService {
         private int uploadedCount;
         private int totalChunks;
         private String fileName;
+        private String storagePath;
+        /**
+         * 本地存储方式下合并后文件的路径，登记后的解析直接映射该文件
+         */
+        private String localPath;
+        private String fileHash;
         private long fileSize;
         private long uploadTime;
         private String message;
@@ -439,6 +923,12 @@ public class FileChunkUploadService {
         public void setTotalChunks(int totalChunks) { this.totalChunks = totalChunks; }
         public String getFileName() { return fileName; }
         public void setFileName(String fileName) { this.fileName = fileName; }
+        public String getStoragePath() { return storagePath; }
+        public void setStoragePath(String storagePath) { this.storagePath = storagePath; }
+        public String getLocalPath() { return localPath; }
+        public void setLocalPath(String localPath) { this.localPath = localPath; }
+        public String getFileHash() { return fileHash; }
+        public void setFileHash(String fileHash) { this.fileHash = fileHash; }
         public long getFileSize() { return fileSize; }
         public void setFileSize(long fileSize) { this.fileSize = fileSize; }
         public long getUploadTime() { return uploadTime; }
@@ -454,6 +944,9 @@ public class FileChunkUploadService {
             public Builder uploadedCount(int uploadedCount) { result.uploadedCount = uploadedCount; return this; }
             public Builder totalChunks(int totalChunks) { result.totalChunks = totalChunks; return this; }
             public Builder fileName(String fileName) { result.fileName = fileName; return this; }
+            public Builder storagePath(String storagePath) { result.storagePath = storagePath; return this; }
+            public Builder localPath(String localPath) { result.localPath = localPath; return this; }
+            public Builder fileHash(String fileHash) { result.fileHash = fileHash; return this; }
             public Builder fileSize(long fileSize) { result.fileSize = fileSize; return this; }
             public Builder uploadTime(long uploadTime) { result.uploadTime = uploadTime; return this; }
             public Builder message(String message) { result.message = message; return this; }
@@ -4,7 +4,8 @@ import com.xiamen.metro.message.dto.FileListDTO;
 import com.xiamen.metro.message.dto.FileUploadDTO;
 import com.xiamen.metro.message.entity.FileEntity;
 import com.xiamen.metro.message.repository.FileRepository;
-import lombok.RequiredArgsConstructor;
+import com.xiamen.metro.message.service.pump.PumpIngestionPipeline;
+import com.xiamen.metro.message.service.pump.PumpIngestionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
@@ -12,32 +13,40 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
  * 文件管理服务
+ * <p>
+ * 文件解析入库可能持续数分钟，不在事务中执行；处理状态与计数各自在独立的短事务中保存，
+ * 入库流水线的进度更新随写随提交，处理期间即可查询
  *
  * @author Xiamen Metro System
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class FileManagementService {
 
     private final FileRepository fileRepository;
     private final MinioService minioService;
     private final FileParseService fileParseService;
+    private final PumpIngestionService pumpIngestionService;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * 最大文件大小 (100MB)
@@ -45,6 +54,12 @@ public class FileManagementService {
     @Value("${file.max-size:104857600}")
     private long maxFileSize;
 
+    /**
+     * 超过该大小的CSV文件落地到本地后并行解析
+     */
+    @Value("${app.file.parallel-csv-threshold:67108864}")
+    private long parallelCsvThreshold;
+
     /**
      * 允许的文件扩展名
      */
@@ -60,14 +75,26 @@ public class FileManagementService {
             "application/csv"
     );
 
+    public FileManagementService(FileRepository fileRepository, MinioService minioService,
+                                 FileParseService fileParseService, PumpIngestionService pumpIngestionService,
+                                 PlatformTransactionManager transactionManager) {
+        this.fileRepository = fileRepository;
+        this.minioService = minioService;
+        this.fileParseService = fileParseService;
+        this.pumpIngestionService = pumpIngestionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     /**
      * 上传文件
+     * <p>
+     * 文件记录保存后即提交，随后的解析入库在事务之外执行
      *
      * @param multipartFile 上传的文件
      * @param uploadedBy    上传用户ID
      * @return 文件实体
      */
-    @Transactional
     public FileEntity uploadFile(MultipartFile multipartFile, Long uploadedBy) {
         log.info("开始上传文件: {}, 大小: {} bytes", multipartFile.getOriginalFilename(), multipartFile.getSize());
 
@@ -82,47 +109,48 @@ public class FileManagementService {
             FileEntity.FileType fileType = getFileType(fileExtension);
             String mimeType = multipartFile.getContentType();
 
-            // 计算文件哈希值
-            String fileHash = calculateFileHash(multipartFile.getInputStream());
-
-            // 检查文件是否已存在
-            Optional<FileEntity> existingFile = fileRepository.findByFileHash(fileHash);
-            if (existingFile.isPresent()) {
-                log.info("文件已存在，跳过上传: {}", existingFile.get().getFileName());
-                return existingFile.get();
+            // 单次读取：上传到临时对象的同时计算哈希
+            String stagingObjectName = minioService.generateObjectName(fileName, fileExtension);
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            try (InputStream inputStream = new DigestInputStream(multipartFile.getInputStream(), digest)) {
+                minioService.uploadFile(inputStream, stagingObjectName, mimeType, multipartFile.getSize());
             }
-
-            // 创建文件记录
-            FileEntity fileEntity = new FileEntity();
-            fileEntity.setFileName(fileName);
-            fileEntity.setOriginalFileName(originalFileName);
-            fileEntity.setFileExtension(fileExtension);
-            fileEntity.setFileSize(multipartFile.getSize());
-            fileEntity.setFileType(fileType);
-            fileEntity.setMimeType(mimeType);
-            fileEntity.setFileHash(fileHash);
-            fileEntity.setUploadStatus(FileEntity.UploadStatus.UPLOADING);
-            fileEntity.setProcessStatus(FileEntity.ProcessStatus.PENDING);
-            fileEntity.setUploadedBy(uploadedBy);
-
-            // 保存文件记录
-            fileEntity = fileRepository.save(fileEntity);
+            String fileHash = toHex(digest.digest());
 
             try {
-                // 生成MinIO对象名称
-                String objectName = minioService.generateObjectName(fileName, fileExtension);
-
-                // 上传到MinIO
-                String storagePath = minioService.uploadFile(
-                        multipartFile.getInputStream(),
-                        objectName,
-                        mimeType,
-                        multipartFile.getSize()
-                );
-
-                // 更新文件记录
+                // 检查文件是否已存在
+                Optional<FileEntity> existingFile = fileRepository.findByFileHash(fileHash);
+                if (existingFile.isPresent()) {
+                    log.info("文件已存在，跳过上传: {}", existingFile.get().getFileName());
+                    deleteQuietly(stagingObjectName);
+                    return existingFile.get();
+                }
+
+                // 按内容寻址命名，相同内容只存一份
+                String objectName = generateContentObjectName(fileHash, fileExtension);
+                String storagePath;
+                if (minioService.fileExists(objectName)) {
+                    deleteQuietly(stagingObjectName);
+                    storagePath = minioService.getFileUrl(objectName);
+                } else {
+                    storagePath = minioService.moveObject(stagingObjectName, objectName);
+                }
+
+                // 创建文件记录
+                FileEntity fileEntity = new FileEntity();
+                fileEntity.setFileName(fileName);
+                fileEntity.setOriginalFileName(originalFileName);
+                fileEntity.setFileExtension(fileExtension);
+                fileEntity.setFileSize(multipartFile.getSize());
+                fileEntity.setFileType(fileType);
+                fileEntity.setMimeType(mimeType);
+                fileEntity.setFileHash(fileHash);
                 fileEntity.setStoragePath(storagePath);
                 fileEntity.setUploadStatus(FileEntity.UploadStatus.COMPLETED);
+                fileEntity.setProcessStatus(FileEntity.ProcessStatus.PENDING);
+                fileEntity.setUploadedBy(uploadedBy);
+
+                // 保存文件记录
                 fileEntity = fileRepository.save(fileEntity);
 
                 log.info("文件上传成功: {}", fileName);
@@ -133,10 +161,8 @@ public class FileManagementService {
                 return fileEntity;
 
             } catch (Exception e) {
-                // 更新上传状态为失败
-                fileEntity.setUploadStatus(FileEntity.UploadStatus.FAILED);
-                fileEntity.setErrorMessage("上传失败: " + e.getMessage());
-                fileRepository.save(fileEntity);
+                // 清理临时对象
+                deleteQuietly(stagingObjectName);
                 throw e;
             }
 
@@ -147,51 +173,191 @@ public class FileManagementService {
     }
 
     /**
-     * 异步处理文件
+     * 登记分片上传合并完成的文件
+     * <p>
+     * 本地存储方式下合并文件按内容寻址上传到MinIO；MinIO存储方式下对象已由服务端拼接，直接登记其路径。
+     * 登记后的文件由调用方交给 {@link #processFileAsync(FileEntity, Path)} 解析
+     *
+     * @param localFile   合并后的本地文件，MinIO存储方式下为空
+     * @param storagePath MinIO存储方式下拼接后的对象路径，本地存储方式下为空
+     * @return 新登记的文件记录；相同内容的文件已登记时为空
      */
     @Transactional
+    public Optional<FileEntity> registerMergedFile(String originalFileName, long fileSize, String fileHash,
+                                                   Path localFile, String storagePath, Long uploadedBy) {
+        Optional<FileEntity> existingFile = fileRepository.findByFileHash(fileHash);
+        if (existingFile.isPresent()) {
+            log.info("文件已存在，跳过登记: {}", existingFile.get().getFileName());
+            return Optional.empty();
+        }
+
+        String fileExtension = getFileExtension(originalFileName);
+        FileEntity.FileType fileType = getFileType(fileExtension);
+        String mimeType = getMimeType(fileExtension);
+
+        try {
+            if (storagePath == null) {
+                String objectName = generateContentObjectName(fileHash, fileExtension);
+                if (minioService.fileExists(objectName)) {
+                    storagePath = minioService.getFileUrl(objectName);
+                } else {
+                    try (InputStream inputStream = Files.newInputStream(localFile)) {
+                        storagePath = minioService.uploadFile(inputStream, objectName, mimeType, fileSize);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("上传合并文件失败: {}", localFile, e);
+            throw new RuntimeException("上传合并文件失败: " + e.getMessage());
+        }
+
+        FileEntity fileEntity = new FileEntity();
+        fileEntity.setFileName(generateFileName(originalFileName));
+        fileEntity.setOriginalFileName(originalFileName);
+        fileEntity.setFileExtension(fileExtension);
+        fileEntity.setFileSize(fileSize);
+        fileEntity.setFileType(fileType);
+        fileEntity.setMimeType(mimeType);
+        fileEntity.setFileHash(fileHash);
+        fileEntity.setStoragePath(storagePath);
+        fileEntity.setUploadStatus(FileEntity.UploadStatus.COMPLETED);
+        fileEntity.setProcessStatus(FileEntity.ProcessStatus.PENDING);
+        fileEntity.setUploadedBy(uploadedBy);
+
+        fileEntity = fileRepository.save(fileEntity);
+        log.info("分片上传文件登记成功: {}", fileEntity.getFileName());
+        return Optional.of(fileEntity);
+    }
+
+    /**
+     * 异步处理文件
+     */
     public void processFileAsync(FileEntity fileEntity) {
+        processFileAsync(fileEntity, null);
+    }
+
+    /**
+     * 异步处理文件
+     *
+     * @param localFile 本节点上已有的完整文件(分片上传合并后的文件，见 FileChunkUploadService)，存在时直接解析，否则从MinIO下载
+     */
+    public void processFileAsync(FileEntity fileEntity, Path localFile) {
         try {
             log.info("开始处理文件: {}", fileEntity.getFileName());
 
             // 更新处理状态
             fileEntity.setProcessStatus(FileEntity.ProcessStatus.PROCESSING);
-            fileRepository.save(fileEntity);
+            saveStatus(fileEntity);
 
-            // 从MinIO下载文件
             String objectName = extractObjectNameFromPath(fileEntity.getStoragePath());
-            InputStream inputStream = minioService.downloadFile(objectName);
 
-            // 解析文件
-            FileParseService.ParseResult parseResult;
-            if (fileEntity.getFileType() == FileEntity.FileType.EXCEL) {
-                parseResult = fileParseService.parseExcel(inputStream, fileEntity.getOriginalFileName());
-            } else {
-                parseResult = fileParseService.parseCSV(inputStream, fileEntity.getOriginalFileName());
+            // 流式解析文件，有效报文按批推送给入库流水线，不在内存中累积整份文件
+            PumpIngestionPipeline pipeline = pumpIngestionService.open(fileEntity.getId());
+            FileParseService.ParseSummary summary;
+            PumpIngestionPipeline.Progress progress;
+            try {
+                summary = parseFile(objectName, localFile, fileEntity, pipeline);
+                progress = pipeline.finish();
+            } catch (Exception e) {
+                pipeline.abort();
+                throw e;
             }
 
             // 更新处理结果
-            fileEntity.setDataRowCount(parseResult.getTotalRows());
-            fileEntity.setValidMessageCount(parseResult.getValidMessages().size());
-            fileEntity.setInvalidMessageCount(parseResult.getInvalidMessages().size());
+            fileEntity.setDataRowCount(summary.getTotalRows());
+            fileEntity.setValidMessageCount(summary.getValidCount());
+            fileEntity.setInvalidMessageCount(summary.getInvalidCount());
+            fileEntity.setProcessedRowCount((int) progress.getProcessedRows());
+            fileEntity.setPumpRecordCount((int) progress.getPumpRecords());
+            fileEntity.setRejectedRecordCount((int) progress.getRejectedRecords());
+            fileEntity.setPersistedRecordCount((int) progress.getPersistedRecords());
             fileEntity.setProcessStatus(FileEntity.ProcessStatus.COMPLETED);
 
-            fileRepository.save(fileEntity);
-
-            // TODO: 保存报文数据到数据库
-            // saveMessageData(parseResult.getValidMessages());
+            saveStatus(fileEntity);
 
-            log.info("文件处理完成: {}, 总行数: {}, 有效报文: {}, 无效报文: {}",
+            log.info("文件处理完成: {}, 总行数: {}, 有效报文: {}, 无效报文: {}, 水泵数据入库: {}",
                     fileEntity.getFileName(),
-                    parseResult.getTotalRows(),
-                    parseResult.getValidMessages().size(),
-                    parseResult.getInvalidMessages().size());
+                    summary.getTotalRows(),
+                    summary.getValidCount(),
+                    summary.getInvalidCount(),
+                    progress.getPersistedRecords());
 
         } catch (Exception e) {
             log.error("处理文件失败: {}", e.getMessage(), e);
             fileEntity.setProcessStatus(FileEntity.ProcessStatus.FAILED);
             fileEntity.setErrorMessage("处理失败: " + e.getMessage());
-            fileRepository.save(fileEntity);
+            saveStatus(fileEntity);
+        }
+    }
+
+    /**
+     * 在独立的短事务中保存文件处理状态与计数
+     */
+    private void saveStatus(FileEntity fileEntity) {
+        transactionTemplate.executeWithoutResult(status -> fileRepository.save(fileEntity));
+    }
+
+    /**
+     * 按文件类型解析，本地文件可读时直接解析本地文件
+     */
+    private FileParseService.ParseSummary parseFile(String objectName, Path localFile, FileEntity fileEntity,
+                                                    FileParseService.RowSink sink) throws IOException {
+        if (localFile != null && Files.isReadable(localFile)) {
+            return parseLocalFile(localFile, fileEntity, sink);
+        }
+        if (localFile != null) {
+            log.warn("本地文件不可读，改从MinIO下载: {}", localFile);
+        }
+        if (isParallelCsvCandidate(fileEntity)) {
+            return parseCsvParallel(objectName, fileEntity, sink);
+        }
+        try (InputStream inputStream = minioService.downloadFile(objectName)) {
+            if (fileEntity.getFileType() == FileEntity.FileType.EXCEL) {
+                return fileParseService.parseExcel(inputStream, fileEntity.getOriginalFileName(), sink);
+            }
+            return fileParseService.parseCSV(inputStream, fileEntity.getOriginalFileName(), sink);
+        }
+    }
+
+    /**
+     * 解析本地文件，大CSV直接映射该文件并行解析
+     */
+    private FileParseService.ParseSummary parseLocalFile(Path localFile, FileEntity fileEntity,
+                                                         FileParseService.RowSink sink) throws IOException {
+        if (fileEntity.getFileType() == FileEntity.FileType.EXCEL) {
+            return fileParseService.parseExcel(localFile, fileEntity.getOriginalFileName(), sink);
+        }
+        if (isParallelCsvCandidate(fileEntity)) {
+            return fileParseService.parseCSV(localFile, fileEntity.getOriginalFileName(), sink);
+        }
+        try (InputStream inputStream = Files.newInputStream(localFile)) {
+            return fileParseService.parseCSV(inputStream, fileEntity.getOriginalFileName(), sink);
+        }
+    }
+
+    /**
+     * 是否使用并行方式解析CSV
+     */
+    private boolean isParallelCsvCandidate(FileEntity fileEntity) {
+        return fileEntity.getFileType() == FileEntity.FileType.CSV
+                && fileEntity.getFileSize() != null
+                && parallelCsvThreshold > 0
+                && fileEntity.getFileSize() >= parallelCsvThreshold;
+    }
+
+    /**
+     * 本地没有文件时，从MinIO下载到临时文件后并行解析CSV
+     */
+    private FileParseService.ParseSummary parseCsvParallel(String objectName, FileEntity fileEntity,
+                                                           FileParseService.RowSink sink) throws IOException {
+        Path tempFile = Files.createTempFile("metro-csv-", ".csv");
+        try {
+            try (InputStream inputStream = minioService.downloadFile(objectName)) {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return fileParseService.parseCSV(tempFile, fileEntity.getOriginalFileName(), sink);
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
     }
 
@@ -340,29 +506,48 @@ public class FileManagementService {
     }
 
     /**
-     * 计算文件哈希值
+     * 按扩展名获取MIME类型
      */
-    private String calculateFileHash(InputStream inputStream) throws NoSuchAlgorithmException, IOException {
-        MessageDigest md = MessageDigest.getInstance("MD5");
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-
-        while ((bytesRead = inputStream.read(buffer)) != -1) {
-            md.update(buffer, 0, bytesRead);
+    private String getMimeType(String fileExtension) {
+        switch (fileExtension.toLowerCase()) {
+            case "xlsx":
+                return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+            case "xls":
+                return "application/vnd.ms-excel";
+            default:
+                return "text/csv";
         }
+    }
 
-        // 重置输入流位置
-        inputStream.reset();
-
-        byte[] hashBytes = md.digest();
+    /**
+     * 哈希值转十六进制字符串
+     */
+    private String toHex(byte[] hashBytes) {
         StringBuilder sb = new StringBuilder();
         for (byte b : hashBytes) {
             sb.append(String.format("%02x", b));
         }
-
         return sb.toString();
     }
 
+    /**
+     * 按文件哈希生成对象名称
+     */
+    private String generateContentObjectName(String fileHash, String fileExtension) {
+        return String.format("metro-files/cas/%s/%s.%s", fileHash.substring(0, 2), fileHash, fileExtension);
+    }
+
+    /**
+     * 删除MinIO对象，失败只记录日志
+     */
+    private void deleteQuietly(String objectName) {
+        try {
+            minioService.deleteFile(objectName);
+        } catch (Exception e) {
+            log.warn("删除临时对象失败: {}, {}", objectName, e.getMessage());
+        }
+    }
+
     /**
      * 从存储路径提取对象名称
      */
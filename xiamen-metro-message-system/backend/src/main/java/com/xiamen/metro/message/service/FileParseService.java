@@ -1,17 +1,43 @@
 package com.xiamen.metro.message.service;
 
 import com.xiamen.metro.message.dto.MessageDataDTO;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.opencsv.CSVReader;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 /**
  * 文件解析服务
@@ -27,18 +53,115 @@ public class FileParseService {
      */
     private static final int MAX_ROWS = 100000;
 
+    /**
+     * 流式解析每批推送的报文数
+     */
+    @Value("${app.file.parse-batch-size:500}")
+    private int parseBatchSize = 500;
+
+    /**
+     * 以推送方式解析CSV的最大行数，流式与并行解析共用
+     */
+    @Value("${app.file.csv-max-rows:10000000}")
+    private int csvMaxRows = 10_000_000;
+
+    /**
+     * 并行解析CSV的线程数，0表示CPU核数
+     */
+    @Value("${app.file.csv-parallelism:0}")
+    private int csvParallelism;
+
+    /**
+     * 并行解析CSV的切分字节数
+     */
+    @Value("${app.file.csv-split-bytes:16777216}")
+    private long csvSplitBytes = 16 * 1024 * 1024;
+
+    private volatile ParallelCsvReader parallelCsvReader;
+    private ForkJoinPool csvPool;
+
     /**
      * 解析Excel文件
+     * <p>
+     * xlsx文件走SAX流式读取，不受MAX_ROWS限制；xls文件仍使用工作簿模型读取
      *
      * @param inputStream 文件输入流
      * @param fileName    文件名
      * @return 解析结果
      */
     public ParseResult parseExcel(InputStream inputStream, String fileName) {
-        log.info("开始解析Excel文件: {}", fileName);
-
         List<MessageDataDTO> validMessages = new ArrayList<>();
         List<MessageDataDTO> invalidMessages = new ArrayList<>();
+        int totalRows;
+
+        if (isXlsx(fileName)) {
+            totalRows = parseExcelStreaming(inputStream, fileName, validMessages::add, invalidMessages::add);
+        } else {
+            totalRows = readWorkbook(inputStream, fileName, validMessages::add, invalidMessages::add);
+        }
+
+        return new ParseResult(validMessages, invalidMessages, totalRows);
+    }
+
+    /**
+     * 以推送方式解析Excel文件
+     * <p>
+     * 报文按批推送给sink，sink处理完当前批次前不会继续读取，解析端内存只保留一个批次
+     *
+     * @param inputStream 文件输入流
+     * @param fileName    文件名
+     * @param sink        报文批次接收方
+     * @return 解析统计
+     */
+    public ParseSummary parseExcel(InputStream inputStream, String fileName, RowSink sink) {
+        BatchingRowSink batching = new BatchingRowSink(sink, parseBatchSize);
+
+        int totalRows;
+        if (isXlsx(fileName)) {
+            totalRows = parseExcelStreaming(inputStream, fileName, batching::addValid, batching::addInvalid);
+        } else {
+            totalRows = readWorkbook(inputStream, fileName, batching::addValid, batching::addInvalid);
+        }
+
+        return batching.complete(totalRows);
+    }
+
+    /**
+     * 解析本地Excel文件，xlsx直接按文件打开，不再复制到临时文件
+     *
+     * @param excelFile 本地文件
+     * @param fileName  文件名
+     * @param sink      报文批次接收方
+     * @return 解析统计
+     */
+    public ParseSummary parseExcel(Path excelFile, String fileName, RowSink sink) {
+        BatchingRowSink batching = new BatchingRowSink(sink, parseBatchSize);
+
+        int totalRows;
+        if (isXlsx(fileName)) {
+            totalRows = parseExcelStreaming(excelFile, fileName, batching::addValid, batching::addInvalid);
+        } else {
+            try (InputStream inputStream = Files.newInputStream(excelFile)) {
+                totalRows = readWorkbook(inputStream, fileName, batching::addValid, batching::addInvalid);
+            } catch (IOException e) {
+                log.error("读取Excel文件失败: {}", e.getMessage(), e);
+                throw new RuntimeException("解析Excel文件失败: " + e.getMessage());
+            }
+        }
+
+        return batching.complete(totalRows);
+    }
+
+    /**
+     * 基于工作簿模型读取Excel文件(xls)
+     */
+    private int readWorkbook(InputStream inputStream, String fileName,
+                             Consumer<MessageDataDTO> validConsumer,
+                             Consumer<MessageDataDTO> invalidConsumer) {
+        log.info("开始解析Excel文件: {}", fileName);
+
+        int validCount = 0;
+        int invalidCount = 0;
         int totalRows = 0;
 
         try (Workbook workbook = WorkbookFactory.create(inputStream)) {
@@ -111,22 +234,25 @@ public class FileParseService {
                     message.setMessageContent(getCellValueAsString(row.getCell(messageContentCol)));
 
                     if (validateMessage(message)) {
-                        validMessages.add(message);
+                        validCount++;
+                        validConsumer.accept(message);
                     } else {
-                        invalidMessages.add(message);
+                        invalidCount++;
+                        invalidConsumer.accept(message);
                     }
                 } catch (Exception e) {
                     log.warn("解析Excel第{}行数据失败: {}", i + 1, e.getMessage());
                     MessageDataDTO invalidMessage = new MessageDataDTO();
                     invalidMessage.setErrorMessage("解析失败: " + e.getMessage());
-                    invalidMessages.add(invalidMessage);
+                    invalidCount++;
+                    invalidConsumer.accept(invalidMessage);
                 }
             }
 
             log.info("Excel文件解析完成: 总行数={}, 有效报文={}, 无效报文={}",
-                    totalRows, validMessages.size(), invalidMessages.size());
+                    totalRows, validCount, invalidCount);
 
-            return new ParseResult(validMessages, invalidMessages, totalRows);
+            return totalRows;
 
         } catch (Exception e) {
             log.error("解析Excel文件失败: {}", e.getMessage(), e);
@@ -134,6 +260,82 @@ public class FileParseService {
         }
     }
 
+    /**
+     * 流式解析xlsx文件
+     * <p>
+     * 基于XSSFReader事件模型逐行读取工作表XML，每解析完一行即回调一次，
+     * 不构建工作簿对象，内存占用与文件行数无关
+     *
+     * @param inputStream     文件输入流
+     * @param fileName        文件名
+     * @param validConsumer   有效报文回调
+     * @param invalidConsumer 无效报文回调
+     * @return 数据总行数
+     */
+    public int parseExcelStreaming(InputStream inputStream, String fileName,
+                                   Consumer<MessageDataDTO> validConsumer,
+                                   Consumer<MessageDataDTO> invalidConsumer) {
+        Path tempFile = null;
+        try {
+            // OPCPackage基于文件打开时按需读取zip条目，避免整包解压到内存
+            tempFile = Files.createTempFile("metro-xlsx-", ".xlsx");
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return parseExcelStreaming(tempFile, fileName, validConsumer, invalidConsumer);
+        } catch (IOException e) {
+            log.error("流式解析Excel文件失败: {}", e.getMessage(), e);
+            throw new RuntimeException("解析Excel文件失败: " + e.getMessage());
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (Exception e) {
+                    log.warn("删除临时文件失败: {}", tempFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 流式解析本地xlsx文件
+     */
+    private int parseExcelStreaming(Path xlsxFile, String fileName,
+                                    Consumer<MessageDataDTO> validConsumer,
+                                    Consumer<MessageDataDTO> invalidConsumer) {
+        log.info("开始流式解析Excel文件: {}", fileName);
+
+        try (OPCPackage pkg = OPCPackage.open(xlsxFile.toFile(), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = xssfReader.getStylesTable();
+
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new RuntimeException("Excel文件没有工作表");
+            }
+
+            StreamingSheetHandler handler = new StreamingSheetHandler(validConsumer, invalidConsumer);
+            try (InputStream sheetStream = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, sharedStrings, handler, new CellTextFormatter(), false));
+                parser.parse(new InputSource(sheetStream));
+            }
+
+            if (!handler.headerParsed) {
+                throw new RuntimeException("Excel文件没有表头");
+            }
+
+            log.info("Excel文件流式解析完成: 总行数={}, 有效报文={}, 无效报文={}",
+                    handler.totalRows, handler.validCount, handler.invalidCount);
+
+            return handler.totalRows;
+
+        } catch (Exception e) {
+            log.error("流式解析Excel文件失败: {}", e.getMessage(), e);
+            throw new RuntimeException("解析Excel文件失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 解析CSV文件
      *
@@ -142,13 +344,95 @@ public class FileParseService {
      * @return 解析结果
      */
     public ParseResult parseCSV(InputStream inputStream, String fileName) {
-        log.info("开始解析CSV文件: {}", fileName);
-
         List<MessageDataDTO> validMessages = new ArrayList<>();
         List<MessageDataDTO> invalidMessages = new ArrayList<>();
+
+        int totalRows = readCSV(inputStream, fileName, validMessages::add, invalidMessages::add, MAX_ROWS);
+
+        return new ParseResult(validMessages, invalidMessages, totalRows);
+    }
+
+    /**
+     * 以推送方式解析CSV文件
+     * <p>
+     * 逐行读取并按批推送给sink，不受MAX_ROWS限制，行数上限为 app.file.csv-max-rows
+     *
+     * @param inputStream 文件输入流
+     * @param fileName    文件名
+     * @param sink        报文批次接收方
+     * @return 解析统计
+     */
+    public ParseSummary parseCSV(InputStream inputStream, String fileName, RowSink sink) {
+        BatchingRowSink batching = new BatchingRowSink(sink, parseBatchSize);
+        int totalRows = readCSV(inputStream, fileName, batching::addValid, batching::addInvalid, csvMaxRows);
+        return batching.complete(totalRows);
+    }
+
+    /**
+     * 并行解析本地CSV文件
+     * <p>
+     * 文件以内存映射方式按引号外的换行切分为多段，在ForkJoinPool上并行解析，
+     * 解析结果按原文件顺序推送给sink，适用于分片上传合并后的大文件。行数上限与流式解析相同
+     *
+     * @param csvFile  本地CSV文件
+     * @param fileName 文件名
+     * @param sink     报文批次接收方
+     * @return 解析统计
+     */
+    public ParseSummary parseCSV(Path csvFile, String fileName, RowSink sink) {
+        log.info("开始并行解析CSV文件: {}", fileName);
+
+        BatchingRowSink batching = new BatchingRowSink(sink, parseBatchSize);
+        int[][] columns = new int[1][];
+
+        try {
+            int totalRows = getParallelCsvReader().read(csvFile,
+                    headers -> columns[0] = resolveCsvColumns(headers),
+                    rows -> {
+                        List<MessageDataDTO> messages = new ArrayList<>(rows.size());
+                        for (String[] row : rows) {
+                            MessageDataDTO message = toMessage(row, columns[0]);
+                            validateMessage(message);
+                            messages.add(message);
+                        }
+                        return messages;
+                    },
+                    messages -> {
+                        for (MessageDataDTO message : messages) {
+                            if (message.getErrorMessage() == null) {
+                                batching.addValid(message);
+                            } else {
+                                batching.addInvalid(message);
+                            }
+                        }
+                    },
+                    csvMaxRows);
+
+            ParseSummary summary = batching.complete(totalRows);
+            log.info("CSV文件并行解析完成: 总行数={}, 有效报文={}, 无效报文={}",
+                    summary.getTotalRows(), summary.getValidCount(), summary.getInvalidCount());
+            return summary;
+
+        } catch (Exception e) {
+            log.error("并行解析CSV文件失败: {}", e.getMessage(), e);
+            throw new RuntimeException("解析CSV文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 逐行读取CSV文件
+     */
+    private int readCSV(InputStream inputStream, String fileName,
+                        Consumer<MessageDataDTO> validConsumer,
+                        Consumer<MessageDataDTO> invalidConsumer,
+                        int maxRows) {
+        log.info("开始解析CSV文件: {}", fileName);
+
+        int validCount = 0;
+        int invalidCount = 0;
         int totalRows = 0;
 
-        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+        try (CSVReader reader = newCsvReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
             // 读取表头
             String[] headers = reader.readNext();
             if (headers == null) {
@@ -156,42 +440,7 @@ public class FileParseService {
             }
 
             // 解析表头，获取列索引
-            int deviceIdCol = -1;
-            int timestampCol = -1;
-            int messageTypeCol = -1;
-            int messageContentCol = -1;
-
-            for (int i = 0; i < headers.length; i++) {
-                String header = headers[i].toLowerCase();
-                switch (header) {
-                    case "device_id":
-                    case "设备id":
-                    case "deviceid":
-                        deviceIdCol = i;
-                        break;
-                    case "timestamp":
-                    case "时间戳":
-                    case "时间":
-                        timestampCol = i;
-                        break;
-                    case "message_type":
-                    case "消息类型":
-                    case "报文类型":
-                        messageTypeCol = i;
-                        break;
-                    case "message_content":
-                    case "消息内容":
-                    case "报文内容":
-                        messageContentCol = i;
-                        break;
-                }
-            }
-
-            // 验证必要列是否存在
-            if (deviceIdCol == -1 || timestampCol == -1 ||
-                messageTypeCol == -1 || messageContentCol == -1) {
-                throw new RuntimeException("CSV文件缺少必要的列: device_id, timestamp, message_type, message_content");
-            }
+            int[] columns = resolveCsvColumns(headers);
 
             // 读取数据行
             String[] row;
@@ -199,34 +448,33 @@ public class FileParseService {
                 totalRows++;
 
                 // 检查最大行数限制
-                if (totalRows > MAX_ROWS) {
-                    throw new RuntimeException("CSV文件行数超过限制: " + MAX_ROWS);
+                if (totalRows > maxRows) {
+                    throw new RuntimeException("CSV文件行数超过限制: " + maxRows);
                 }
 
                 try {
-                    MessageDataDTO message = new MessageDataDTO();
-                    message.setDeviceId(getColumnValue(row, deviceIdCol));
-                    message.setTimestamp(getColumnValue(row, timestampCol));
-                    message.setMessageType(getColumnValue(row, messageTypeCol));
-                    message.setMessageContent(getColumnValue(row, messageContentCol));
+                    MessageDataDTO message = toMessage(row, columns);
 
                     if (validateMessage(message)) {
-                        validMessages.add(message);
+                        validCount++;
+                        validConsumer.accept(message);
                     } else {
-                        invalidMessages.add(message);
+                        invalidCount++;
+                        invalidConsumer.accept(message);
                     }
                 } catch (Exception e) {
                     log.warn("解析CSV第{}行数据失败: {}", totalRows, e.getMessage());
                     MessageDataDTO invalidMessage = new MessageDataDTO();
                     invalidMessage.setErrorMessage("解析失败: " + e.getMessage());
-                    invalidMessages.add(invalidMessage);
+                    invalidCount++;
+                    invalidConsumer.accept(invalidMessage);
                 }
             }
 
             log.info("CSV文件解析完成: 总行数={}, 有效报文={}, 无效报文={}",
-                    totalRows, validMessages.size(), invalidMessages.size());
+                    totalRows, validCount, invalidCount);
 
-            return new ParseResult(validMessages, invalidMessages, totalRows);
+            return totalRows;
 
         } catch (Exception e) {
             log.error("解析CSV文件失败: {}", e.getMessage(), e);
@@ -234,6 +482,18 @@ public class FileParseService {
         }
     }
 
+    /**
+     * 创建CSV读取器
+     * <p>
+     * 按RFC 4180解析：双引号包围字段，字段内两个双引号表示一个双引号，反斜杠按普通字符保留。
+     * 流式解析与并行解析共用，保证同一文件无论走哪条路径字段切分一致
+     */
+    static CSVReader newCsvReader(Reader reader) {
+        return new CSVReaderBuilder(reader)
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build();
+    }
+
     /**
      * 获取单元格值作为字符串
      */
@@ -247,9 +507,9 @@ public class FileParseService {
                 return cell.getStringCellValue().trim();
             case NUMERIC:
                 if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
+                    return CellTextFormatter.formatDate(cell.getLocalDateTimeCellValue());
                 } else {
-                    return String.valueOf((long) cell.getNumericCellValue());
+                    return CellTextFormatter.formatNumber(cell.getNumericCellValue());
                 }
             case BOOLEAN:
                 return String.valueOf(cell.getBooleanCellValue());
@@ -260,6 +520,94 @@ public class FileParseService {
         }
     }
 
+    /**
+     * 解析CSV表头，返回设备ID、时间戳、消息类型、消息内容四列的索引
+     */
+    private int[] resolveCsvColumns(String[] headers) {
+        int deviceIdCol = -1;
+        int timestampCol = -1;
+        int messageTypeCol = -1;
+        int messageContentCol = -1;
+
+        for (int i = 0; i < headers.length; i++) {
+            String header = headers[i].toLowerCase();
+            switch (header) {
+                case "device_id":
+                case "设备id":
+                case "deviceid":
+                    deviceIdCol = i;
+                    break;
+                case "timestamp":
+                case "时间戳":
+                case "时间":
+                    timestampCol = i;
+                    break;
+                case "message_type":
+                case "消息类型":
+                case "报文类型":
+                    messageTypeCol = i;
+                    break;
+                case "message_content":
+                case "消息内容":
+                case "报文内容":
+                    messageContentCol = i;
+                    break;
+            }
+        }
+
+        // 验证必要列是否存在
+        if (deviceIdCol == -1 || timestampCol == -1 ||
+            messageTypeCol == -1 || messageContentCol == -1) {
+            throw new RuntimeException("CSV文件缺少必要的列: device_id, timestamp, message_type, message_content");
+        }
+
+        return new int[]{deviceIdCol, timestampCol, messageTypeCol, messageContentCol};
+    }
+
+    /**
+     * 按列索引组装报文
+     */
+    private MessageDataDTO toMessage(String[] row, int[] columns) {
+        MessageDataDTO message = new MessageDataDTO();
+        message.setDeviceId(getColumnValue(row, columns[0]));
+        message.setTimestamp(getColumnValue(row, columns[1]));
+        message.setMessageType(getColumnValue(row, columns[2]));
+        message.setMessageContent(getColumnValue(row, columns[3]));
+        return message;
+    }
+
+    /**
+     * 并行CSV读取器，首次使用时创建专用ForkJoinPool
+     */
+    private ParallelCsvReader getParallelCsvReader() {
+        ParallelCsvReader reader = parallelCsvReader;
+        if (reader == null) {
+            synchronized (this) {
+                if (parallelCsvReader == null) {
+                    int parallelism = csvParallelism > 0 ? csvParallelism : Runtime.getRuntime().availableProcessors();
+                    csvPool = new ForkJoinPool(parallelism);
+                    parallelCsvReader = new ParallelCsvReader(csvPool, csvSplitBytes);
+                }
+                reader = parallelCsvReader;
+            }
+        }
+        return reader;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (csvPool != null) {
+            csvPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 判断是否为xlsx文件
+     */
+    private boolean isXlsx(String fileName) {
+        return fileName != null && fileName.toLowerCase().endsWith(".xlsx");
+    }
+
     /**
      * 获取列值
      */
@@ -297,6 +645,147 @@ public class FileParseService {
         return true;
     }
 
+    /**
+     * 单元格文本格式：日期按 yyyy-MM-dd HH:mm:ss 输出(与报文时间戳解析格式一致)，数值输出不带千分位、
+     * 科学计数和多余小数位的原始值，不受单元格显示格式和区域设置影响。xlsx流式解析与xls工作簿解析共用
+     */
+    static final class CellTextFormatter extends DataFormatter {
+
+        private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return formatDate(DateUtil.getLocalDateTime(value, use1904Windowing));
+            }
+            return formatNumber(value);
+        }
+
+        static String formatDate(LocalDateTime value) {
+            return value == null ? "" : value.format(DATE_FORMATTER);
+        }
+
+        static String formatNumber(double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return String.valueOf(value);
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /**
+     * xlsx工作表行回调处理器
+     * <p>
+     * 第0行作为表头解析列索引，其余每行组装为报文后立即回调
+     */
+    private class StreamingSheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Consumer<MessageDataDTO> validConsumer;
+        private final Consumer<MessageDataDTO> invalidConsumer;
+
+        private int deviceIdCol = -1;
+        private int timestampCol = -1;
+        private int messageTypeCol = -1;
+        private int messageContentCol = -1;
+
+        private boolean headerParsed;
+        private int currentRow;
+        private int currentCol;
+        private MessageDataDTO currentMessage;
+
+        private int totalRows;
+        private int validCount;
+        private int invalidCount;
+
+        StreamingSheetHandler(Consumer<MessageDataDTO> validConsumer, Consumer<MessageDataDTO> invalidConsumer) {
+            this.validConsumer = validConsumer;
+            this.invalidConsumer = invalidConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            currentRow = rowNum;
+            currentCol = -1;
+            if (rowNum == 0) {
+                return;
+            }
+            if (!headerParsed) {
+                throw new RuntimeException("Excel文件没有表头");
+            }
+            currentMessage = new MessageDataDTO();
+            currentMessage.setDeviceId("");
+            currentMessage.setTimestamp("");
+            currentMessage.setMessageType("");
+            currentMessage.setMessageContent("");
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (rowNum == 0) {
+                if (deviceIdCol == -1 || timestampCol == -1 ||
+                    messageTypeCol == -1 || messageContentCol == -1) {
+                    throw new RuntimeException("Excel文件缺少必要的列: device_id, timestamp, message_type, message_content");
+                }
+                headerParsed = true;
+                return;
+            }
+
+            totalRows++;
+            MessageDataDTO message = currentMessage;
+            currentMessage = null;
+
+            if (validateMessage(message)) {
+                validCount++;
+                validConsumer.accept(message);
+            } else {
+                invalidCount++;
+                invalidConsumer.accept(message);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            currentCol = cellReference != null ? new CellReference(cellReference).getCol() : currentCol + 1;
+            String value = formattedValue != null ? formattedValue.trim() : "";
+
+            if (currentRow == 0) {
+                switch (value.toLowerCase()) {
+                    case "device_id":
+                    case "设备id":
+                    case "deviceid":
+                        deviceIdCol = currentCol;
+                        break;
+                    case "timestamp":
+                    case "时间戳":
+                    case "时间":
+                        timestampCol = currentCol;
+                        break;
+                    case "message_type":
+                    case "消息类型":
+                    case "报文类型":
+                        messageTypeCol = currentCol;
+                        break;
+                    case "message_content":
+                    case "消息内容":
+                    case "报文内容":
+                        messageContentCol = currentCol;
+                        break;
+                }
+                return;
+            }
+
+            if (currentCol == deviceIdCol) {
+                currentMessage.setDeviceId(value);
+            } else if (currentCol == timestampCol) {
+                currentMessage.setTimestamp(value);
+            } else if (currentCol == messageTypeCol) {
+                currentMessage.setMessageType(value);
+            } else if (currentCol == messageContentCol) {
+                currentMessage.setMessageContent(value);
+            }
+        }
+    }
+
     /**
      * 解析结果
      */
@@ -323,4 +812,116 @@ public class FileParseService {
             return totalRows;
         }
     }
+
+    /**
+     * 报文批次接收方
+     * <p>
+     * 解析线程同步调用，方法返回前解析不会继续，调用方以此获得背压
+     */
+    @FunctionalInterface
+    public interface RowSink {
+
+        /**
+         * 接收一批有效报文
+         */
+        void onValid(List<MessageDataDTO> batch);
+
+        /**
+         * 接收一批无效报文
+         */
+        default void onInvalid(List<MessageDataDTO> batch) {
+        }
+
+        /**
+         * 解析结束
+         */
+        default void onComplete(int totalRows) {
+        }
+    }
+
+    /**
+     * 流式解析统计
+     */
+    public static class ParseSummary {
+        private final int totalRows;
+        private final int validCount;
+        private final int invalidCount;
+
+        public ParseSummary(int totalRows, int validCount, int invalidCount) {
+            this.totalRows = totalRows;
+            this.validCount = validCount;
+            this.invalidCount = invalidCount;
+        }
+
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        public int getValidCount() {
+            return validCount;
+        }
+
+        public int getInvalidCount() {
+            return invalidCount;
+        }
+    }
+
+    /**
+     * 按批次大小缓冲报文并推送给RowSink
+     */
+    private static class BatchingRowSink {
+        private final RowSink sink;
+        private final int batchSize;
+        private List<MessageDataDTO> validBatch;
+        private List<MessageDataDTO> invalidBatch;
+        private int validCount;
+        private int invalidCount;
+
+        BatchingRowSink(RowSink sink, int batchSize) {
+            this.sink = sink;
+            this.batchSize = Math.max(1, batchSize);
+            this.validBatch = new ArrayList<>(this.batchSize);
+            this.invalidBatch = new ArrayList<>();
+        }
+
+        void addValid(MessageDataDTO message) {
+            validCount++;
+            validBatch.add(message);
+            if (validBatch.size() >= batchSize) {
+                flushValid();
+            }
+        }
+
+        void addInvalid(MessageDataDTO message) {
+            invalidCount++;
+            invalidBatch.add(message);
+            if (invalidBatch.size() >= batchSize) {
+                flushInvalid();
+            }
+        }
+
+        ParseSummary complete(int totalRows) {
+            flushValid();
+            flushInvalid();
+            sink.onComplete(totalRows);
+            return new ParseSummary(totalRows, validCount, invalidCount);
+        }
+
+        private void flushValid() {
+            if (!validBatch.isEmpty()) {
+                // 批次交给下游后不再复用，下游可以异步持有
+                List<MessageDataDTO> batch = validBatch;
+                validBatch = new ArrayList<>(batchSize);
+                sink.onValid(batch);
+            }
+        }
+
+        private void flushInvalid() {
+            if (!invalidBatch.isEmpty()) {
+                List<MessageDataDTO> batch = invalidBatch;
+                invalidBatch = new ArrayList<>();
+                sink.onInvalid(batch);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.xiamen.metro.message.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 节点内存中的分片上传会话存储
+ * <p>
+ * 仅适用于单节点部署，重启后进行中的会话丢失
+ *
+ * @author Xiamen Metro System
+ */
+@Component
+@ConditionalOnProperty(name = "app.file.chunk-session-store", havingValue = "memory")
+public class InMemoryChunkUploadSessionStore implements ChunkUploadSessionStore {
+
+    private final Map<String, FileChunkUploadService.ChunkUploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void create(FileChunkUploadService.ChunkUploadSession session) {
+        sessions.put(session.getSessionId(), session);
+    }
+
+    @Override
+    public FileChunkUploadService.ChunkUploadSession get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Override
+    public ChunkMark markChunk(String sessionId, FileChunkUploadService.ChunkRecord chunk) {
+        FileChunkUploadService.ChunkUploadSession session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        boolean newlyMarked = session.getChunks().putIfAbsent(chunk.getIndex(), chunk) == null;
+        if (newlyMarked) {
+            session.addUploadedSize(chunk.getLength());
+            session.getUploadedChunks().add(chunk.getIndex());
+        }
+        int uploadedCount = session.getUploadedChunks().size();
+        boolean completing = newlyMarked && uploadedCount == session.getTotalChunks() && session.markCompleting();
+        return new ChunkMark(newlyMarked, uploadedCount, session.getUploadedSize(), completing);
+    }
+
+    @Override
+    public void update(FileChunkUploadService.ChunkUploadSession session) {
+        sessions.computeIfPresent(session.getSessionId(), (id, current) -> session);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    @Override
+    public List<FileChunkUploadService.ChunkUploadSession> list() {
+        return new ArrayList<>(sessions.values());
+    }
+}
@@ -2,6 +2,8 @@ package com.xiamen.metro.message.service;
 
 import io.minio.*;
 import io.minio.messages.Bucket;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,7 +11,9 @@ import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * MinIO文件存储服务
@@ -59,6 +63,114 @@ public class MinioService {
         }
     }
 
+    /**
+     * 上传分片对象，不生成访问URL
+     *
+     * @param inputStream 分片输入流
+     * @param objectName  分片对象名称
+     * @param size        分片大小
+     */
+    public void uploadPart(InputStream inputStream, String objectName, long size) {
+        try {
+            ensureBucketExists();
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .stream(inputStream, size, -1)
+                            .build()
+            );
+        } catch (Exception e) {
+            log.error("上传分片到MinIO失败: {}", e.getMessage(), e);
+            throw new RuntimeException("上传分片失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 服务端拼接分片对象，数据不经过本服务
+     * <p>
+     * 除最后一个外，每个分片需不小于5MB
+     *
+     * @param objectName  目标对象名称
+     * @param partNames   按顺序排列的分片对象名称
+     * @param contentType 内容类型
+     * @return 文件URL
+     */
+    public String composeObject(String objectName, List<String> partNames, String contentType) {
+        try {
+            List<ComposeSource> sources = partNames.stream()
+                    .map(part -> ComposeSource.builder().bucket(bucketName).object(part).build())
+                    .collect(Collectors.toList());
+
+            ComposeObjectArgs.Builder builder = ComposeObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .sources(sources);
+            if (contentType != null) {
+                builder.headers(Map.of("Content-Type", contentType));
+            }
+            minioClient.composeObject(builder.build());
+
+            return getFileUrl(objectName);
+
+        } catch (Exception e) {
+            log.error("拼接MinIO分片失败: {}", e.getMessage(), e);
+            throw new RuntimeException("拼接分片失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 批量删除文件，失败项只记录日志
+     *
+     * @param objectNames 对象名称
+     */
+    public void deleteFiles(List<String> objectNames) {
+        if (objectNames.isEmpty()) {
+            return;
+        }
+        try {
+            List<DeleteObject> objects = objectNames.stream().map(DeleteObject::new).collect(Collectors.toList());
+            // 删除结果为惰性迭代，需遍历才会真正执行
+            for (Result<DeleteError> result : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build())) {
+                DeleteError error = result.get();
+                log.warn("从MinIO删除文件失败: {}, {}", error.objectName(), error.message());
+            }
+        } catch (Exception e) {
+            log.error("从MinIO批量删除文件失败: {}", e.getMessage(), e);
+            throw new RuntimeException("删除文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 服务端移动对象(复制后删除源对象)，数据不经过本服务
+     *
+     * @param sourceObjectName 源对象名称
+     * @param targetObjectName 目标对象名称
+     * @return 目标文件URL
+     */
+    public String moveObject(String sourceObjectName, String targetObjectName) {
+        try {
+            minioClient.copyObject(
+                    CopyObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(targetObjectName)
+                            .source(CopySource.builder().bucket(bucketName).object(sourceObjectName).build())
+                            .build()
+            );
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(sourceObjectName)
+                            .build()
+            );
+            return getFileUrl(targetObjectName);
+        } catch (Exception e) {
+            log.error("移动MinIO对象失败: {}", e.getMessage(), e);
+            throw new RuntimeException("移动文件失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 下载文件
      *
@@ -0,0 +1,278 @@
+package com.xiamen.metro.message.service;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 内存映射CSV并行读取器
+ * <p>
+ * 将本地CSV文件按固定字节数切分，先并行统计各段引号数得到每段起点的引号奇偶性，
+ * 再把切分点对齐到引号外的换行处，保证每段都以完整记录开始；随后在ForkJoinPool上
+ * 并行解析各段，结果按文件顺序交给调用线程。同时在途的段数有上限，内存占用与文件大小无关。
+ * <p>
+ * 段内记录由 {@link FileParseService#newCsvReader} 解析，与流式解析使用同一RFC 4180解析器，
+ * 字段切分与文件大小无关。切分点按引号奇偶性对齐，要求引号只出现在带引号的字段内
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+class ParallelCsvReader {
+
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+
+    /**
+     * 单段映射上限，超过时说明存在异常长的记录
+     */
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private final ForkJoinPool pool;
+    private final long splitBytes;
+
+    ParallelCsvReader(ForkJoinPool pool, long splitBytes) {
+        this.pool = pool;
+        this.splitBytes = Math.max(1024, splitBytes);
+    }
+
+    /**
+     * 读取CSV文件
+     *
+     * @param file            本地文件
+     * @param headerConsumer  表头处理，在并行解析开始前调用
+     * @param segmentMapper   段内记录转换，在线程池中并行执行
+     * @param orderedConsumer 按文件顺序接收各段转换结果，在调用线程执行
+     * @param maxRows         最大数据行数，超过时抛出异常，超出部分所在的段不交给orderedConsumer
+     * @return 数据行数(不含表头)
+     */
+    <T> int read(Path file, Consumer<String[]> headerConsumer,
+                 Function<List<String[]>, T> segmentMapper, Consumer<T> orderedConsumer,
+                 int maxRows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new RuntimeException("CSV文件为空");
+            }
+
+            // 表头
+            long headerEnd = findHeaderEnd(channel, size);
+            List<String[]> header = parseSegment(channel, 0, headerEnd);
+            if (header.isEmpty()) {
+                throw new RuntimeException("CSV文件为空");
+            }
+            headerConsumer.accept(header.get(0));
+
+            long[] boundaries = computeBoundaries(channel, headerEnd, size);
+            log.debug("CSV文件切分完成: size={}, segments={}", size, boundaries.length - 1);
+
+            // 滑动窗口提交解析任务，按顺序取回结果
+            int window = Math.max(2, pool.getParallelism() * 2);
+            Deque<ForkJoinTask<Segment<T>>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            int totalRows = 0;
+            try {
+                while (next < boundaries.length - 1 || !inFlight.isEmpty()) {
+                    while (next < boundaries.length - 1 && inFlight.size() < window) {
+                        long start = boundaries[next];
+                        long end = boundaries[next + 1];
+                        inFlight.addLast(pool.submit(() -> {
+                            List<String[]> rows = parseSegment(channel, start, end);
+                            return new Segment<>(rows.size(), segmentMapper.apply(rows));
+                        }));
+                        next++;
+                    }
+
+                    Segment<T> segment = inFlight.removeFirst().get();
+                    if (segment.rowCount > maxRows - totalRows) {
+                        throw new RuntimeException("CSV文件行数超过限制: " + maxRows);
+                    }
+                    totalRows += segment.rowCount;
+                    orderedConsumer.accept(segment.result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("CSV并行解析被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw new RuntimeException(cause.getMessage(), cause);
+            } finally {
+                inFlight.forEach(task -> task.cancel(true));
+            }
+
+            return totalRows;
+        }
+    }
+
+    /**
+     * 表头结束位置(第一条引号外换行之后)
+     */
+    private long findHeaderEnd(FileChannel channel, long size) throws IOException {
+        long position = 0;
+        boolean inQuotes = false;
+        while (position < size) {
+            long length = Math.min(splitBytes, size - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(i);
+                if (b == QUOTE) {
+                    inQuotes = !inQuotes;
+                } else if (b == LF && !inQuotes) {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    /**
+     * 计算记录对齐后的切分点，返回值首尾分别为数据起点和文件末尾
+     */
+    private long[] computeBoundaries(FileChannel channel, long dataStart, long size) throws IOException {
+        int splits = (int) Math.max(1, (size - dataStart + splitBytes - 1) / splitBytes);
+        long[] starts = new long[splits];
+        for (int i = 0; i < splits; i++) {
+            starts[i] = dataStart + i * splitBytes;
+        }
+
+        // 并行统计每段引号数，以及段内偶数/奇数个引号之后的第一个换行
+        List<ForkJoinTask<long[]>> scans = new ArrayList<>(splits);
+        for (int i = 0; i < splits; i++) {
+            long start = starts[i];
+            long end = i + 1 < splits ? starts[i + 1] : size;
+            scans.add(pool.submit(() -> scanQuotes(channel, start, end)));
+        }
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(dataStart);
+        boolean oddBefore = false;
+        for (int i = 0; i < splits; i++) {
+            long[] scan = scans.get(i).join();
+            if (i > 0) {
+                long newline = oddBefore ? scan[2] : scan[1];
+                if (newline >= 0 && newline + 1 < size && newline + 1 > boundaries.get(boundaries.size() - 1)) {
+                    boundaries.add(newline + 1);
+                }
+            }
+            oddBefore ^= (scan[0] & 1) == 1;
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+            if (i > 0 && result[i] - result[i - 1] > MAX_SEGMENT_BYTES) {
+                throw new RuntimeException("CSV记录过长，无法切分");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 返回 {引号数, 偶数个引号后的第一个换行位置, 奇数个引号后的第一个换行位置}，未找到为-1
+     */
+    private long[] scanQuotes(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        long quotes = 0;
+        long evenNewline = -1;
+        long oddNewline = -1;
+        int length = (int) (end - start);
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(i);
+            if (b == QUOTE) {
+                quotes++;
+            } else if (b == LF) {
+                if ((quotes & 1) == 0) {
+                    if (evenNewline < 0) {
+                        evenNewline = start + i;
+                    }
+                } else if (oddNewline < 0) {
+                    oddNewline = start + i;
+                }
+            }
+        }
+        return new long[]{quotes, evenNewline, oddNewline};
+    }
+
+    /**
+     * 解析一段完整记录
+     */
+    private List<String[]> parseSegment(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        // 跳过UTF-8 BOM
+        if (start == 0 && buffer.remaining() >= 3
+                && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+            buffer.position(3);
+        }
+
+        List<String[]> rows = new ArrayList<>();
+        try (CSVReader reader = FileParseService.newCsvReader(
+                new InputStreamReader(new BufferInputStream(buffer), StandardCharsets.UTF_8))) {
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                rows.add(row);
+            }
+        } catch (CsvValidationException e) {
+            throw new RuntimeException("CSV记录格式错误: " + e.getMessage(), e);
+        }
+        return rows;
+    }
+
+    /**
+     * 映射缓冲区的输入流视图
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
+    /**
+     * 单段解析结果
+     */
+    private static class Segment<T> {
+        private final int rowCount;
+        private final T result;
+
+        Segment(int rowCount, T result) {
+            this.rowCount = rowCount;
+            this.result = result;
+        }
+    }
+}
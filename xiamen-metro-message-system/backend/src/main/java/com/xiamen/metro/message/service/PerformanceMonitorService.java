@@ -1,5 +1,9 @@
 package com.xiamen.metro.message.service;
 
+import com.xiamen.metro.message.config.ReadWriteRoutingDataSource;
+import com.xiamen.metro.message.service.alert.AlertRetentionService;
+import com.xiamen.metro.message.service.pump.PumpDataBlockSealer;
+import com.xiamen.metro.message.service.pump.PumpHotStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -27,6 +31,10 @@ import java.util.concurrent.TimeUnit;
 public class PerformanceMonitorService {
 
     private final DataSource dataSource;
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final PumpHotStore pumpHotStore;
+    private final PumpDataBlockSealer pumpDataBlockSealer;
+    private final AlertRetentionService alertRetentionService;
     private final CacheManager cacheManager;
     private final RedisTemplate<String, Object> redisTemplate;
 
@@ -62,6 +70,11 @@ public class PerformanceMonitorService {
         Map<String, Object> cacheMetrics = getCacheMetrics();
         metrics.put("cache", cacheMetrics);
 
+        // 水泵近期数据热存储命中率与内存占用
+        metrics.put("pumpHotStore", pumpHotStore.getStats());
+        metrics.put("pumpDataBlocks", pumpDataBlockSealer.getStats());
+        metrics.put("alertRetention", alertRetentionService.getStats());
+
         // 系统指标
         Map<String, Object> systemMetrics = getSystemMetrics();
         metrics.put("system", systemMetrics);
@@ -143,21 +156,9 @@ public class PerformanceMonitorService {
         }
 
         try {
-            // 这里使用HikariCP的JMX来获取连接池指标
-            // 实际项目中可以通过HikariDataSource获取
+            // 主库、只读副本连接池及读写路由统计
             poolMetrics.put("monitoringEnabled", true);
-            poolMetrics.put("estimatedConnections", "N/A");
-            poolMetrics.put("idleConnections", "N/A");
-            poolMetrics.put("activeConnections", "N/A");
-            poolMetrics.put("totalConnections", "N/A");
-            poolMetrics.put("threadsAwaitingConnection", "N/A");
-
-            // 模拟一些关键指标（实际项目中应该从真实连接池获取）
-            poolMetrics.put("maxPoolSize", 50);
-            poolMetrics.put("minIdle", 10);
-            poolMetrics.put("idleTimeout", 300000);
-            poolMetrics.put("connectionTimeout", 20000);
-
+            poolMetrics.putAll(routingDataSource.getMetrics());
         } catch (Exception e) {
             log.error("获取数据库连接池指标失败", e);
             poolMetrics.put("error", e.getMessage());
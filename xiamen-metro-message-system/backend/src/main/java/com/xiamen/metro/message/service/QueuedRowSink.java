@@ -0,0 +1,137 @@
+package com.xiamen.metro.message.service;
+
+import com.xiamen.metro.message.dto.MessageDataDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有界队列报文接收方
+ * <p>
+ * 解析线程把批次放入有界队列后立即返回，由执行器上的消费线程转交给下游sink，
+ * 使解析与下游处理并行；队列满时解析线程阻塞等待，下游处理失败时解析随之中止
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+public class QueuedRowSink implements FileParseService.RowSink {
+
+    private static final long OFFER_TIMEOUT_MS = 200;
+
+    /**
+     * 解析异常中止时放入队列的终止标记
+     */
+    private static final Batch ABORT = new Batch(null, false, -1);
+
+    private final FileParseService.RowSink delegate;
+    private final BlockingQueue<Batch> queue;
+    private final CompletableFuture<Void> drainFuture;
+
+    public QueuedRowSink(FileParseService.RowSink delegate, int capacity, Executor executor) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.drainFuture = CompletableFuture.runAsync(this::drain, executor);
+    }
+
+    @Override
+    public void onValid(List<MessageDataDTO> batch) {
+        enqueue(new Batch(batch, true, -1));
+    }
+
+    @Override
+    public void onInvalid(List<MessageDataDTO> batch) {
+        enqueue(new Batch(batch, false, -1));
+    }
+
+    @Override
+    public void onComplete(int totalRows) {
+        enqueue(new Batch(null, false, totalRows));
+    }
+
+    /**
+     * 等待下游处理完所有批次，下游异常会在此抛出
+     */
+    public void await() {
+        try {
+            drainFuture.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("报文下游处理失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 解析异常时中止下游，丢弃尚未处理的批次
+     */
+    public void abort() {
+        if (!drainFuture.isDone()) {
+            queue.clear();
+            queue.offer(ABORT);
+        }
+    }
+
+    /**
+     * 放入队列，队列满时阻塞；消费端已结束时不再等待
+     */
+    private void enqueue(Batch batch) {
+        try {
+            while (!queue.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (drainFuture.isDone()) {
+                    await();
+                    throw new RuntimeException("报文下游处理已结束");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待报文队列被中断", e);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Batch batch = queue.take();
+                if (batch == ABORT) {
+                    return;
+                }
+                if (batch.totalRows >= 0) {
+                    delegate.onComplete(batch.totalRows);
+                    return;
+                }
+                if (batch.valid) {
+                    delegate.onValid(batch.messages);
+                } else {
+                    delegate.onInvalid(batch.messages);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (RuntimeException e) {
+            log.error("报文下游处理失败: {}", e.getMessage(), e);
+            queue.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * 队列元素，totalRows不小于0时表示解析结束
+     */
+    private static class Batch {
+        private final List<MessageDataDTO> messages;
+        private final boolean valid;
+        private final int totalRows;
+
+        Batch(List<MessageDataDTO> messages, boolean valid, int totalRows) {
+            this.messages = messages;
+            this.valid = valid;
+            this.totalRows = totalRows;
+        }
+    }
+}
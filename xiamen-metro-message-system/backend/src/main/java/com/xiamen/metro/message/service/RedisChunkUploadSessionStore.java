@@ -0,0 +1,232 @@
+package com.xiamen.metro.message.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis的分片上传会话存储(默认)
+ * <p>
+ * 每个会话占三个键：元数据哈希、已上传分片位图、分片记录哈希(偏移、长度、MD5)。
+ * 分片登记由Lua脚本完成：SETBIT 判断是否首次登记，首次则累加计数，
+ * 计数达到分片总数时以 HSETNX 抢占完成标记，保证集群内只有一个节点执行合并
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.file.chunk-session-store", havingValue = "redis", matchIfMissing = true)
+public class RedisChunkUploadSessionStore implements ChunkUploadSessionStore {
+
+    private static final String KEY_PREFIX = "chunk:upload:session:";
+    private static final String INDEX_KEY = "chunk:upload:sessions";
+
+    /**
+     * KEYS: 元数据、位图、分片记录；ARGV: 分片序号、长度、分片记录、过期毫秒数、上传中状态
+     * 返回 {首次登记, 已上传分片数, 已上传字节数, 是否由本次触发完成}，会话不存在返回 nil
+     */
+    private static final RedisScript<List<Object>> MARK_CHUNK_SCRIPT = listScript(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return nil end\n" +
+            "local newly = 0\n" +
+            "if redis.call('SETBIT', KEYS[2], ARGV[1], 1) == 0 then\n" +
+            "  newly = 1\n" +
+            "  redis.call('HSET', KEYS[3], ARGV[1], ARGV[3])\n" +
+            "  redis.call('HINCRBY', KEYS[1], 'uploadedSize', ARGV[2])\n" +
+            "  redis.call('HINCRBY', KEYS[1], 'uploadedCount', 1)\n" +
+            "  redis.call('HSET', KEYS[1], 'status', ARGV[5])\n" +
+            "end\n" +
+            "local count = tonumber(redis.call('HGET', KEYS[1], 'uploadedCount'))\n" +
+            "local size = tonumber(redis.call('HGET', KEYS[1], 'uploadedSize'))\n" +
+            "local completing = 0\n" +
+            "if newly == 1 and count == tonumber(redis.call('HGET', KEYS[1], 'totalChunks')) then\n" +
+            "  completing = redis.call('HSETNX', KEYS[1], 'completing', 1)\n" +
+            "end\n" +
+            "for i = 1, 3 do redis.call('PEXPIRE', KEYS[i], ARGV[4]) end\n" +
+            "return {newly, count, size, completing}");
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 会话过期时间，每登记一个分片顺延
+     */
+    @Value("${app.file.chunk-session-ttl-hours:24}")
+    private long sessionTtlHours = 24;
+
+    @Override
+    public void create(FileChunkUploadService.ChunkUploadSession session) {
+        String metaKey = metaKey(session.getSessionId());
+        Map<String, Object> meta = new HashMap<>();
+        putIfNotNull(meta, "sessionId", session.getSessionId());
+        putIfNotNull(meta, "fileId", session.getFileId());
+        putIfNotNull(meta, "fileName", session.getFileName());
+        putIfNotNull(meta, "userId", session.getUserId());
+        putIfNotNull(meta, "storage", session.getStorage());
+        putIfNotNull(meta, "objectName", session.getObjectName());
+        putIfNotNull(meta, "expectedHash", session.getExpectedHash());
+        meta.put("fileSize", session.getFileSize());
+        meta.put("totalChunks", session.getTotalChunks());
+        meta.put("startTime", session.getStartTime());
+        meta.put("status", session.getStatus());
+        meta.put("uploadedCount", 0);
+        meta.put("uploadedSize", 0);
+
+        redisTemplate.opsForHash().putAll(metaKey, meta);
+        redisTemplate.expire(metaKey, sessionTtlHours, TimeUnit.HOURS);
+        redisTemplate.opsForSet().add(INDEX_KEY, session.getSessionId());
+    }
+
+    @Override
+    public FileChunkUploadService.ChunkUploadSession get(String sessionId) {
+        Map<Object, Object> meta = redisTemplate.opsForHash().entries(metaKey(sessionId));
+        if (meta.isEmpty()) {
+            return null;
+        }
+
+        FileChunkUploadService.ChunkUploadSession session = FileChunkUploadService.ChunkUploadSession.builder()
+                .sessionId(sessionId)
+                .fileId((String) meta.get("fileId"))
+                .fileName((String) meta.get("fileName"))
+                .fileSize(asLong(meta.get("fileSize")))
+                .totalChunks((int) asLong(meta.get("totalChunks")))
+                .uploadedChunks(readBitmap(bitmapKey(sessionId)))
+                .userId((String) meta.get("userId"))
+                .startTime(asLong(meta.get("startTime")))
+                .status((String) meta.get("status"))
+                .storage((String) meta.get("storage"))
+                .objectName((String) meta.get("objectName"))
+                .storagePath((String) meta.get("storagePath"))
+                .expectedHash((String) meta.get("expectedHash"))
+                .build();
+        session.setEndTime(asLong(meta.get("endTime")));
+        session.setFileHash((String) meta.get("fileHash"));
+        session.setUploadedSize(asLong(meta.get("uploadedSize")));
+
+        for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(chunksKey(sessionId)).entrySet()) {
+            FileChunkUploadService.ChunkRecord chunk = decodeChunk(Integer.parseInt((String) entry.getKey()), (String) entry.getValue());
+            session.getChunks().put(chunk.getIndex(), chunk);
+        }
+        return session;
+    }
+
+    @Override
+    public ChunkMark markChunk(String sessionId, FileChunkUploadService.ChunkRecord chunk) {
+        List<Object> result = redisTemplate.execute(MARK_CHUNK_SCRIPT,
+                List.of(metaKey(sessionId), bitmapKey(sessionId), chunksKey(sessionId)),
+                chunk.getIndex(), chunk.getLength(), encodeChunk(chunk),
+                TimeUnit.HOURS.toMillis(sessionTtlHours), "UPLOADING");
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+        return new ChunkMark(asLong(result.get(0)) == 1, (int) asLong(result.get(1)),
+                asLong(result.get(2)), asLong(result.get(3)) == 1);
+    }
+
+    @Override
+    public void update(FileChunkUploadService.ChunkUploadSession session) {
+        String metaKey = metaKey(session.getSessionId());
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(metaKey))) {
+            return;
+        }
+        Map<String, Object> changes = new HashMap<>();
+        putIfNotNull(changes, "status", session.getStatus());
+        putIfNotNull(changes, "fileHash", session.getFileHash());
+        putIfNotNull(changes, "storagePath", session.getStoragePath());
+        changes.put("endTime", session.getEndTime());
+        redisTemplate.opsForHash().putAll(metaKey, changes);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        redisTemplate.delete(List.of(metaKey(sessionId), bitmapKey(sessionId), chunksKey(sessionId)));
+        redisTemplate.opsForSet().remove(INDEX_KEY, sessionId);
+    }
+
+    @Override
+    public List<FileChunkUploadService.ChunkUploadSession> list() {
+        Set<Object> sessionIds = redisTemplate.opsForSet().members(INDEX_KEY);
+        if (sessionIds == null) {
+            return Collections.emptyList();
+        }
+        List<FileChunkUploadService.ChunkUploadSession> sessions = new ArrayList<>(sessionIds.size());
+        for (Object sessionId : sessionIds) {
+            FileChunkUploadService.ChunkUploadSession session = get((String) sessionId);
+            if (session != null) {
+                sessions.add(session);
+            } else {
+                // 会话已过期，清理索引
+                redisTemplate.opsForSet().remove(INDEX_KEY, sessionId);
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * 位图按Redis位序解析：第 i 个分片对应第 i/8 字节的最高位起第 i%8 位
+     */
+    private Set<Integer> readBitmap(String key) {
+        byte[] bitmap = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(key.getBytes(StandardCharsets.UTF_8)));
+        Set<Integer> uploadedChunks = ConcurrentHashMap.newKeySet();
+        if (bitmap != null) {
+            for (int i = 0; i < bitmap.length; i++) {
+                for (int bit = 0; bit < 8; bit++) {
+                    if ((bitmap[i] & (0x80 >>> bit)) != 0) {
+                        uploadedChunks.add(i * 8 + bit);
+                    }
+                }
+            }
+        }
+        return uploadedChunks;
+    }
+
+    /**
+     * 返回多值的Lua脚本，结果类型为 List&lt;Object&gt;
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<Object>> listScript(String script) {
+        return new DefaultRedisScript<>(script, (Class<List<Object>>) (Class) List.class);
+    }
+
+    static String encodeChunk(FileChunkUploadService.ChunkRecord chunk) {
+        return chunk.getOffset() + "," + chunk.getLength() + "," + chunk.getDigest();
+    }
+
+    static FileChunkUploadService.ChunkRecord decodeChunk(int index, String value) {
+        String[] parts = value.split(",", 3);
+        return new FileChunkUploadService.ChunkRecord(index, Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+    }
+
+    private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static String metaKey(String sessionId) {
+        return KEY_PREFIX + sessionId;
+    }
+
+    private static String bitmapKey(String sessionId) {
+        return KEY_PREFIX + sessionId + ":bits";
+    }
+
+    private static String chunksKey(String sessionId) {
+        return KEY_PREFIX + sessionId + ":chunks";
+    }
+}
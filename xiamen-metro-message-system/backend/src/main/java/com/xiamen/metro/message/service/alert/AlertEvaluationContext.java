@@ -155,7 +155,7 @@ public class AlertEvaluationContext {
     /**
      * 风险等级转换为数值
      */
-    private double convertRiskLevelToNumeric(String riskLevel) {
+    private static double convertRiskLevelToNumeric(String riskLevel) {
         if (riskLevel == null) return 0.0;
 
         switch (riskLevel.toUpperCase()) {
@@ -1,9 +1,9 @@
 package com.xiamen.metro.message.service.alert;
 
+import com.xiamen.metro.message.config.ReplicaRead;
 import com.xiamen.metro.message.entity.AlertRuleEntity;
 import com.xiamen.metro.message.entity.AlertRecordEntity;
 import com.xiamen.metro.message.dto.alert.AlertRecordDTO;
-import com.xiamen.metro.message.repository.AlertRuleRepository;
 import com.xiamen.metro.message.repository.AlertRecordRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,10 +25,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AlertManagementService {
 
-    private final AlertRuleRepository alertRuleRepository;
     private final AlertRecordRepository alertRecordRepository;
     private final AlertNotificationService alertNotificationService;
     private final AlertRuleEngine alertRuleEngine;
+    private final AlertRuleRegistry alertRuleRegistry;
 
     /**
      * 处理水泵分析结果，生成告警
@@ -41,8 +41,8 @@ public class AlertManagementService {
         // 创建评估上下文
         AlertEvaluationContext context = AlertEvaluationContext.fromPumpAnalysis(deviceId, analysisResult);
 
-        // 获取适用的告警规则
-        List<AlertRuleEntity> applicableRules = alertRuleRepository.findApplicableRules(deviceId);
+        // 获取适用的告警规则(内存注册表)
+        List<AlertRuleEntity> applicableRules = alertRuleRegistry.getApplicableRules(deviceId);
 
         List<AlertRecordDTO> generatedAlerts = new ArrayList<>();
 
@@ -303,6 +303,8 @@ public class AlertManagementService {
     /**
      * 获取告警统计信息
      */
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public Map<String, Object> getAlertStatistics(String deviceId, LocalDateTime since) {
         Map<String, Object> statistics = new HashMap<>();
 
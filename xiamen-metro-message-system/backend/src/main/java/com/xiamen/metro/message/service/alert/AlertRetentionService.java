@@ -0,0 +1,421 @@
+package com.xiamen.metro.message.service.alert;
+
+import com.xiamen.metro.message.service.MinioService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 告警数据保留期清理
+ * <p>
+ * alert_records 与 alert_notifications 未分区，按时间列逐块删除：以 (时间, id) 为键集分页，
+ * 每块在独立的短事务中删除并提交，块之间暂停 batch-pause-ms，不长时间持有锁，也不重复扫描已删除的索引项。
+ * 开启归档时每块先以 gzip 压缩的CSV(带表头，可直接 COPY ... CSV HEADER 恢复)上传到MinIO，上传成功后才删除。
+ * 单次运行超过 max-run-minutes 后停止，剩余数据留到下一次
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertRetentionService {
+
+    private static final List<RetentionTable> TABLES = List.of(
+            new RetentionTable("alert_records", "alert_time"),
+            new RetentionTable("alert_notifications", "notification_time"));
+
+    private static final DateTimeFormatter RUN_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final int PROGRESS_LOG_CHUNKS = 20;
+
+    private final DataSource dataSource;
+    private final MinioService minioService;
+
+    @Value("${app.alert.retention.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 告警数据保留天数
+     */
+    @Value("${app.alert.retention.retention-days:90}")
+    private int retentionDays = 90;
+
+    /**
+     * 每块删除的行数
+     */
+    @Value("${app.alert.retention.batch-size:5000}")
+    private int batchSize = 5000;
+
+    /**
+     * 块之间的暂停时间
+     */
+    @Value("${app.alert.retention.batch-pause-ms:200}")
+    private long batchPauseMs = 200;
+
+    /**
+     * 单次运行的最长时间
+     */
+    @Value("${app.alert.retention.max-run-minutes:60}")
+    private long maxRunMinutes = 60;
+
+    @Value("${app.alert.retention.archive.enabled:false}")
+    private boolean archiveEnabled = false;
+
+    @Value("${app.alert.retention.archive.prefix:archive/alerts/}")
+    private String archivePrefix = "archive/alerts/";
+
+    private final AtomicLong totalDeletedRows = new AtomicLong();
+    private final AtomicLong totalArchivedObjects = new AtomicLong();
+    private final AtomicLong totalArchivedBytes = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile String currentTable;
+    private volatile long currentRunStartMillis;
+    private volatile long currentRunDeletedRows;
+    private volatile RetentionResult lastResult;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 删除保留期之前的告警记录和通知记录
+     */
+    public RetentionResult purgeExpired() {
+        return purgeBefore(LocalDateTime.now().minusDays(retentionDays));
+    }
+
+    /**
+     * 逐表按块删除 cutoff 之前的数据
+     *
+     * @return 各表删除行数与耗时
+     */
+    public synchronized RetentionResult purgeBefore(LocalDateTime cutoff) {
+        long startMillis = System.currentTimeMillis();
+        long deadline = startMillis + maxRunMinutes * 60_000L;
+        String runId = LocalDateTime.now().format(RUN_FORMAT);
+        Map<String, Long> deletedByTable = new LinkedHashMap<>();
+        boolean completed = true;
+
+        running = true;
+        currentRunStartMillis = startMillis;
+        currentRunDeletedRows = 0;
+        log.info("开始清理告警数据: 截止时间={}, 每块={}行, 归档={}", cutoff, batchSize, archiveEnabled);
+        try {
+            for (RetentionTable table : TABLES) {
+                currentTable = table.name;
+                TableProgress progress = purgeTable(table, cutoff, runId, deadline);
+                deletedByTable.put(table.name, progress.deletedRows);
+                if (!progress.completed) {
+                    completed = false;
+                    break;
+                }
+            }
+        } finally {
+            running = false;
+            currentTable = null;
+        }
+
+        RetentionResult result = new RetentionResult(cutoff, deletedByTable, completed,
+                System.currentTimeMillis() - startMillis);
+        lastResult = result;
+        log.info("告警数据清理{}: 删除={}, 耗时={}ms, {}行/秒", completed ? "完成" : "达到单次时长上限，剩余数据下次继续",
+                deletedByTable, result.getElapsedMillis(), String.format("%.0f", result.getRowsPerSecond()));
+        return result;
+    }
+
+    private TableProgress purgeTable(RetentionTable table, LocalDateTime cutoff, String runId, long deadline) {
+        TableProgress progress = new TableProgress();
+        String firstChunkSql = chunkSql(table, false, archiveEnabled);
+        String nextChunkSql = chunkSql(table, true, archiveEnabled);
+        String deleteSql = "DELETE FROM " + table.name + " WHERE id = ANY(?)";
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                Timestamp lastTime = null;
+                long lastId = 0;
+                int chunk = 0;
+                while (true) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        progress.completed = false;
+                        break;
+                    }
+                    Chunk rows;
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            lastTime == null ? firstChunkSql : nextChunkSql)) {
+                        int index = 1;
+                        statement.setTimestamp(index++, Timestamp.valueOf(cutoff));
+                        if (lastTime != null) {
+                            statement.setTimestamp(index++, lastTime);
+                            statement.setLong(index++, lastId);
+                        }
+                        statement.setInt(index, batchSize);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            rows = readChunk(resultSet, table.timeColumn, archiveEnabled);
+                        }
+                    }
+                    if (rows.ids.isEmpty()) {
+                        connection.rollback();
+                        break;
+                    }
+
+                    chunk++;
+                    if (archiveEnabled) {
+                        archive(table, runId, chunk, rows.csv);
+                    }
+                    try (PreparedStatement statement = connection.prepareStatement(deleteSql)) {
+                        Array ids = connection.createArrayOf("bigint", rows.ids.toArray());
+                        statement.setArray(1, ids);
+                        progress.deletedRows += statement.executeUpdate();
+                    }
+                    connection.commit();
+
+                    lastTime = rows.lastTime;
+                    lastId = rows.lastId;
+                    currentRunDeletedRows += rows.ids.size();
+                    totalDeletedRows.addAndGet(rows.ids.size());
+                    if (chunk % PROGRESS_LOG_CHUNKS == 0) {
+                        log.info("告警数据清理进度: 表={}, 已删除={}行, 已处理至={}", table.name,
+                                progress.deletedRows, lastTime);
+                    }
+                    if (rows.ids.size() < batchSize) {
+                        break;
+                    }
+                    pause();
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            log.error("清理告警数据失败: 表={}, {}", table.name, e.getMessage(), e);
+            throw new RuntimeException("清理告警数据失败: " + e.getMessage());
+        }
+        return progress;
+    }
+
+    /**
+     * 按 (时间, id) 键集取下一块；不归档时只取键列
+     */
+    static String chunkSql(RetentionTable table, boolean afterKey, boolean allColumns) {
+        return "SELECT " + (allColumns ? "*" : "id, " + table.timeColumn) + " FROM " + table.name +
+                " WHERE " + table.timeColumn + " < ?" +
+                (afterKey ? " AND (" + table.timeColumn + ", id) > (?, ?)" : "") +
+                " ORDER BY " + table.timeColumn + ", id LIMIT ?";
+    }
+
+    private static Chunk readChunk(ResultSet resultSet, String timeColumn, boolean withCsv) throws SQLException {
+        Chunk chunk = new Chunk();
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        if (withCsv) {
+            chunk.csv = new StringBuilder();
+            appendCsvHeader(chunk.csv, metaData);
+        }
+        while (resultSet.next()) {
+            chunk.lastId = resultSet.getLong("id");
+            chunk.lastTime = resultSet.getTimestamp(timeColumn);
+            chunk.ids.add(chunk.lastId);
+            if (withCsv) {
+                appendCsvRow(chunk.csv, resultSet, metaData);
+            }
+        }
+        return chunk;
+    }
+
+    static void appendCsvHeader(StringBuilder buffer, ResultSetMetaData metaData) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            buffer.append(metaData.getColumnLabel(column)).append(',');
+        }
+        buffer.setCharAt(buffer.length() - 1, '\n');
+    }
+
+    /**
+     * 追加一行CSV：空值为未加引号的空字段(即NULL)，文本列加引号转义，与 COPY ... CSV 一致
+     */
+    static void appendCsvRow(StringBuilder buffer, ResultSet resultSet, ResultSetMetaData metaData) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            String value = resultSet.getString(column);
+            if (value != null) {
+                if (isText(metaData.getColumnType(column))) {
+                    buffer.append('"');
+                    for (int i = 0; i < value.length(); i++) {
+                        char c = value.charAt(i);
+                        if (c == '"') {
+                            buffer.append('"');
+                        }
+                        buffer.append(c);
+                    }
+                    buffer.append('"');
+                } else {
+                    buffer.append(value);
+                }
+            }
+            buffer.append(',');
+        }
+        buffer.setCharAt(buffer.length() - 1, '\n');
+    }
+
+    private static boolean isText(int sqlType) {
+        return sqlType == Types.VARCHAR || sqlType == Types.CHAR || sqlType == Types.LONGVARCHAR
+                || sqlType == Types.NVARCHAR || sqlType == Types.NCHAR || sqlType == Types.LONGNVARCHAR
+                || sqlType == Types.CLOB;
+    }
+
+    /**
+     * 上传一块归档，对象名 {prefix}{表名}/{运行时间}-{块序号}.csv.gz；失败时抛出异常，本块不删除
+     */
+    private void archive(RetentionTable table, String runId, int chunk, StringBuilder csv) {
+        byte[] compressed = gzip(csv);
+        String objectName = archivePrefix + table.name + "/" + runId + "-" + String.format("%05d", chunk) + ".csv.gz";
+        minioService.uploadFile(new ByteArrayInputStream(compressed), objectName, "application/gzip",
+                compressed.length);
+        totalArchivedObjects.incrementAndGet();
+        totalArchivedBytes.addAndGet(compressed.length);
+    }
+
+    static byte[] gzip(CharSequence text) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(256, text.length() / 4));
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(output), StandardCharsets.UTF_8)) {
+            writer.append(text);
+        } catch (IOException e) {
+            throw new RuntimeException("压缩告警归档失败: " + e.getMessage());
+        }
+        return output.toByteArray();
+    }
+
+    private void pause() {
+        if (batchPauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("告警数据清理被中断");
+        }
+    }
+
+    /**
+     * 当前进度与累计清理量
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("retentionDays", retentionDays);
+        stats.put("archiveEnabled", archiveEnabled);
+        stats.put("running", running);
+        if (running) {
+            long elapsed = Math.max(1, System.currentTimeMillis() - currentRunStartMillis);
+            stats.put("currentTable", currentTable);
+            stats.put("currentRunDeletedRows", currentRunDeletedRows);
+            stats.put("currentRowsPerSecond", currentRunDeletedRows * 1000.0 / elapsed);
+        }
+        stats.put("totalDeletedRows", totalDeletedRows.get());
+        stats.put("totalArchivedObjects", totalArchivedObjects.get());
+        stats.put("totalArchivedBytes", totalArchivedBytes.get());
+        RetentionResult result = lastResult;
+        if (result != null) {
+            Map<String, Object> last = new HashMap<>();
+            last.put("cutoff", result.getCutoff());
+            last.put("deletedRows", result.getDeletedRows());
+            last.put("completed", result.isCompleted());
+            last.put("elapsedMillis", result.getElapsedMillis());
+            last.put("rowsPerSecond", result.getRowsPerSecond());
+            stats.put("lastRun", last);
+        }
+        return stats;
+    }
+
+    static class RetentionTable {
+        final String name;
+        final String timeColumn;
+
+        RetentionTable(String name, String timeColumn) {
+            this.name = name;
+            this.timeColumn = timeColumn;
+        }
+    }
+
+    private static class TableProgress {
+        long deletedRows;
+        boolean completed = true;
+    }
+
+    private static class Chunk {
+        final List<Long> ids = new ArrayList<>();
+        Timestamp lastTime;
+        long lastId;
+        StringBuilder csv;
+    }
+
+    /**
+     * 清理结果
+     */
+    public static class RetentionResult {
+        private final LocalDateTime cutoff;
+        private final Map<String, Long> deletedRows;
+        private final boolean completed;
+        private final long elapsedMillis;
+
+        public RetentionResult(LocalDateTime cutoff, Map<String, Long> deletedRows, boolean completed,
+                               long elapsedMillis) {
+            this.cutoff = cutoff;
+            this.deletedRows = deletedRows;
+            this.completed = completed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public LocalDateTime getCutoff() {
+            return cutoff;
+        }
+
+        public Map<String, Long> getDeletedRows() {
+            return deletedRows;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public long getTotalDeletedRows() {
+            return deletedRows.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis > 0 ? getTotalDeletedRows() * 1000.0 / elapsedMillis : 0.0;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.xiamen.metro.message.service.alert;
+
+import com.xiamen.metro.message.entity.AlertRuleEntity;
+import com.xiamen.metro.message.repository.AlertRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 告警规则内存注册表
+ * <p>
+ * 启动时加载全部活跃规则，按设备ID预先合并出"设备规则 + 全局规则"的有序列表(优先级降序)，
+ * 评估时直接返回不可变列表，不访问数据库也不分配对象。
+ * 定时按 updated_time 水位增量刷新(停用规则的 updated_time 同样会变化，据此移除)，
+ * 水位回看一段时间以覆盖提交晚于时间戳的事务；物理删除由定期整表重载覆盖。
+ * 修改规则的代码可调用 {@link #reload()} 立即生效。
+ * 加载在独立的只读事务(TransactionTemplate)中完成，缓存的是脱离持久化上下文的副本，集合不可修改；
+ * 返回的副本由所有线程共享，调用方不得修改
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+public class AlertRuleRegistry {
+
+    /**
+     * 与 findApplicableRules 的 ORDER BY r.priority DESC 一致：PostgreSQL 降序时空值在前
+     */
+    private static final Comparator<AlertRuleEntity> PRIORITY_ORDER = Comparator
+            .comparing(AlertRuleEntity::getPriority, Comparator.nullsFirst(Comparator.reverseOrder()))
+            .thenComparing(AlertRuleEntity::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final AlertRuleRepository alertRuleRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.alert.rule-registry.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.alert.rule-registry.watermark-overlap-seconds:60}")
+    private long watermarkOverlapSeconds = 60;
+
+    @Value("${app.alert.rule-registry.full-reload-interval-ms:600000}")
+    private long fullReloadIntervalMs = 600000;
+
+    private final Map<Long, AlertRuleEntity> rules = new HashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean loaded;
+    private LocalDateTime watermark;
+    private long lastFullReloadMillis;
+
+    public AlertRuleRegistry(AlertRuleRepository alertRuleRepository, PlatformTransactionManager transactionManager) {
+        this.alertRuleRepository = alertRuleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduledRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.alert.rule-registry.refresh-interval-ms:30000}")
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("刷新告警规则注册表失败", e);
+        }
+    }
+
+    /**
+     * 获取设备适用的活跃规则(设备规则与全局规则，按优先级降序)
+     */
+    public List<AlertRuleEntity> getApplicableRules(String deviceId) {
+        if (!enabled) {
+            return alertRuleRepository.findApplicableRules(deviceId);
+        }
+        if (!loaded) {
+            reload();
+        }
+        Snapshot current = snapshot;
+        List<AlertRuleEntity> applicable = deviceId != null ? current.byDevice.get(deviceId) : null;
+        return applicable != null ? applicable : current.globalRules;
+    }
+
+    /**
+     * 当前注册的活跃规则数
+     */
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * 增量刷新：只加载水位之后变化的规则；到达整表重载间隔时改为整表重载
+     *
+     * @return 本次变化的规则数
+     */
+    public synchronized int refresh() {
+        if (!loaded || watermark == null
+                || System.currentTimeMillis() - lastFullReloadMillis >= fullReloadIntervalMs) {
+            return reload();
+        }
+        LocalDateTime since = watermark.minusSeconds(watermarkOverlapSeconds);
+        LoadedRules loadedRules = transactionTemplate.execute(status -> new LoadedRules(
+                alertRuleRepository.findMaxUpdatedTime(), detach(alertRuleRepository.findUpdatedSince(since))));
+        List<AlertRuleEntity> changed = loadedRules.rules;
+        if (loadedRules.maxUpdated != null && loadedRules.maxUpdated.isAfter(watermark)) {
+            watermark = loadedRules.maxUpdated;
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        for (AlertRuleEntity rule : changed) {
+            if (Boolean.TRUE.equals(rule.getIsActive())) {
+                rules.put(rule.getId(), rule);
+            } else {
+                rules.remove(rule.getId());
+            }
+        }
+        snapshot = Snapshot.of(rules.values());
+        log.debug("告警规则增量刷新: 变化 {} 条，当前 {} 条", changed.size(), snapshot.size);
+        return changed.size();
+    }
+
+    /**
+     * 整表重载全部活跃规则
+     *
+     * @return 活跃规则数
+     */
+    public synchronized int reload() {
+        LoadedRules loadedRules = transactionTemplate.execute(status -> new LoadedRules(
+                alertRuleRepository.findMaxUpdatedTime(), detach(alertRuleRepository.findByIsActiveTrue())));
+        rules.clear();
+        for (AlertRuleEntity rule : loadedRules.rules) {
+            rules.put(rule.getId(), rule);
+        }
+        snapshot = Snapshot.of(rules.values());
+        watermark = loadedRules.maxUpdated;
+        lastFullReloadMillis = System.currentTimeMillis();
+        loaded = true;
+        log.info("告警规则注册表加载完成: {} 条活跃规则，{} 个设备专属", snapshot.size, snapshot.byDevice.size());
+        return snapshot.size;
+    }
+
+    /**
+     * 在加载事务内复制为普通对象：延迟加载的集合在复制时读取，副本不受任何持久化上下文管理，
+     * 外层事务中重载时也不会被脏检查写回
+     */
+    private static List<AlertRuleEntity> detach(List<AlertRuleEntity> loaded) {
+        List<AlertRuleEntity> detached = new ArrayList<>(loaded.size());
+        for (AlertRuleEntity rule : loaded) {
+            AlertRuleEntity copy = new AlertRuleEntity();
+            copy.setId(rule.getId());
+            copy.setRuleName(rule.getRuleName());
+            copy.setDescription(rule.getDescription());
+            copy.setDeviceId(rule.getDeviceId());
+            copy.setRuleType(rule.getRuleType());
+            copy.setAlertLevel(rule.getAlertLevel());
+            copy.setRuleConditions(rule.getRuleConditions());
+            copy.setThresholdConfig(rule.getThresholdConfig());
+            copy.setCheckIntervalMinutes(rule.getCheckIntervalMinutes());
+            copy.setConsecutiveTriggerCount(rule.getConsecutiveTriggerCount());
+            copy.setSuppressionMinutes(rule.getSuppressionMinutes());
+            copy.setIsActive(rule.getIsActive());
+            copy.setNotificationMethods(copyOf(rule.getNotificationMethods()));
+            copy.setEmailRecipients(copyOf(rule.getEmailRecipients()));
+            copy.setSmsRecipients(copyOf(rule.getSmsRecipients()));
+            copy.setCreatedBy(rule.getCreatedBy());
+            copy.setLastTriggeredTime(rule.getLastTriggeredTime());
+            copy.setPriority(rule.getPriority());
+            detached.add(copy);
+        }
+        return detached;
+    }
+
+    private static <T> List<T> copyOf(List<T> list) {
+        return list != null ? Collections.unmodifiableList(new ArrayList<>(list)) : null;
+    }
+
+    /**
+     * 一次加载事务读取的水位与规则
+     */
+    private static class LoadedRules {
+        final LocalDateTime maxUpdated;
+        final List<AlertRuleEntity> rules;
+
+        LoadedRules(LocalDateTime maxUpdated, List<AlertRuleEntity> rules) {
+            this.maxUpdated = maxUpdated;
+            this.rules = rules;
+        }
+    }
+
+    /**
+     * 不可变的规则索引，整体替换发布
+     */
+    private static class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), 0);
+
+        final Map<String, List<AlertRuleEntity>> byDevice;
+        final List<AlertRuleEntity> globalRules;
+        final int size;
+
+        Snapshot(Map<String, List<AlertRuleEntity>> byDevice, List<AlertRuleEntity> globalRules, int size) {
+            this.byDevice = byDevice;
+            this.globalRules = globalRules;
+            this.size = size;
+        }
+
+        static Snapshot of(Iterable<AlertRuleEntity> rules) {
+            List<AlertRuleEntity> global = new ArrayList<>();
+            Map<String, List<AlertRuleEntity>> deviceRules = new HashMap<>();
+            int size = 0;
+            for (AlertRuleEntity rule : rules) {
+                if (rule.getDeviceId() == null) {
+                    global.add(rule);
+                } else {
+                    deviceRules.computeIfAbsent(rule.getDeviceId(), key -> new ArrayList<>()).add(rule);
+                }
+                size++;
+            }
+            global.sort(PRIORITY_ORDER);
+
+            Map<String, List<AlertRuleEntity>> byDevice = new HashMap<>(deviceRules.size() * 2);
+            deviceRules.forEach((deviceId, own) -> {
+                own.addAll(global);
+                own.sort(PRIORITY_ORDER);
+                byDevice.put(deviceId, List.copyOf(own));
+            });
+            return new Snapshot(Map.copyOf(byDevice), List.copyOf(global), size);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.xiamen.metro.message.service.pump;
+
+/**
+ * 按位读取 BitOutput 写入的字节，高位在前
+ *
+ * @author Xiamen Metro System
+ */
+final class BitInput {
+
+    private final byte[] bytes;
+    private int bitPosition;
+
+    BitInput(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    boolean readBit() {
+        boolean bit = (bytes[bitPosition >>> 3] & (0x80 >>> (bitPosition & 7))) != 0;
+        bitPosition++;
+        return bit;
+    }
+
+    /**
+     * 读取 count 位(0~64)，按无符号返回
+     */
+    long readBits(int count) {
+        long value = 0;
+        while (count > 0) {
+            int available = 8 - (bitPosition & 7);
+            int take = Math.min(available, count);
+            int chunk = (bytes[bitPosition >>> 3] >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            bitPosition += take;
+            count -= take;
+        }
+        return value;
+    }
+}
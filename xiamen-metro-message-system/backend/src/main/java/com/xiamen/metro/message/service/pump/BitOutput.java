@@ -0,0 +1,56 @@
+package com.xiamen.metro.message.service.pump;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入的字节缓冲，高位在前
+ *
+ * @author Xiamen Metro System
+ */
+final class BitOutput {
+
+    private byte[] bytes;
+    private int bitPosition;
+
+    BitOutput(int initialBytes) {
+        this.bytes = new byte[Math.max(16, initialBytes)];
+    }
+
+    void writeBit(boolean bit) {
+        ensureCapacity(1);
+        if (bit) {
+            bytes[bitPosition >>> 3] |= (byte) (0x80 >>> (bitPosition & 7));
+        }
+        bitPosition++;
+    }
+
+    /**
+     * 写入 value 的低 count 位(count 为 0~64)
+     */
+    void writeBits(long value, int count) {
+        ensureCapacity(count);
+        while (count > 0) {
+            int free = 8 - (bitPosition & 7);
+            int take = Math.min(free, count);
+            int chunk = (int) (value >>> (count - take)) & ((1 << take) - 1);
+            bytes[bitPosition >>> 3] |= (byte) (chunk << (free - take));
+            bitPosition += take;
+            count -= take;
+        }
+    }
+
+    int bitLength() {
+        return bitPosition;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, (bitPosition + 7) >>> 3);
+    }
+
+    private void ensureCapacity(int bits) {
+        int required = (bitPosition + bits + 7) >>> 3;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 单次水泵分析的阶段依赖图
+ * <p>
+ * 无依赖的阶段立即提交到专用线程池并行执行，有依赖的阶段在依赖全部完成后提交，
+ * 单设备分析的耗时因此接近关键路径上最慢的阶段而不是各阶段之和。
+ * 每个阶段有独立超时(自提交起计时，含排队时间)，失败或超时以降级值代替结果，下游阶段照常执行；
+ * 超时的任务被取消：尚未开始的不再执行，正在执行的线程被中断，以免超时任务继续占用线程池。
+ * 各阶段的状态与耗时按声明顺序写入响应。
+ * 阶段任务只应读取共享的只读数据(如 {@link PumpSeries})，不访问数据库
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+public class PumpAnalysisStageGraph {
+
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    public static final String TIMEOUT = "TIMEOUT";
+
+    private final Executor executor;
+    private final long createdNanos = System.nanoTime();
+    private final List<Stage> stages = new ArrayList<>();
+
+    public PumpAnalysisStageGraph(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 声明无依赖的阶段，立即提交
+     *
+     * @param fallback 失败或超时时由异常得到降级结果
+     */
+    public <T> CompletableFuture<T> stage(String name, long timeoutMs, Supplier<T> task,
+                                          Function<Throwable, T> fallback) {
+        return submit(register(name), timeoutMs, task, fallback);
+    }
+
+    /**
+     * 声明依赖其他阶段的阶段，依赖全部完成后提交；依赖阶段总是正常完成(失败时为降级值)
+     */
+    public <T> CompletableFuture<T> stage(String name, long timeoutMs, List<? extends CompletableFuture<?>> dependencies,
+                                          Supplier<T> task, Function<Throwable, T> fallback) {
+        Stage stage = register(name);
+        return CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> submit(stage, timeoutMs, task, fallback));
+    }
+
+    /**
+     * 各阶段的状态与耗时，未结束的阶段不列出
+     */
+    public List<PumpAnalysisResponseDTO.StageTiming> timings() {
+        List<PumpAnalysisResponseDTO.StageTiming> timings = new ArrayList<>();
+        synchronized (stages) {
+            for (Stage stage : stages) {
+                if (stage.status != null) {
+                    timings.add(PumpAnalysisResponseDTO.StageTiming.builder()
+                            .stage(stage.name)
+                            .status(stage.status)
+                            .startOffsetMs(TimeUnit.NANOSECONDS.toMillis(stage.submittedNanos - createdNanos))
+                            .durationMs(TimeUnit.NANOSECONDS.toMillis(stage.finishedNanos - stage.submittedNanos))
+                            .message(stage.message)
+                            .build());
+                }
+            }
+        }
+        return timings;
+    }
+
+    private Stage register(String name) {
+        Stage stage = new Stage(name);
+        synchronized (stages) {
+            stages.add(stage);
+        }
+        return stage;
+    }
+
+    private <T> CompletableFuture<T> submit(Stage stage, long timeoutMs, Supplier<T> task,
+                                            Function<Throwable, T> fallback) {
+        stage.submittedNanos = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // 经 FutureTask 执行，超时时可取消并中断执行线程
+        FutureTask<Void> running = new FutureTask<>(() -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, null);
+        try {
+            executor.execute(running);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).handle((value, error) -> {
+            if (error == null) {
+                finish(stage, SUCCESS, null);
+                return value;
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof TimeoutException) {
+                running.cancel(true);
+                finish(stage, TIMEOUT, "超过 " + timeoutMs + "ms");
+                log.warn("分析阶段 {} 超时({}ms)，使用降级结果", stage.name, timeoutMs);
+            } else {
+                finish(stage, FAILED, cause.getMessage());
+                log.error("分析阶段 {} 执行失败，使用降级结果", stage.name, cause);
+            }
+            return fallback.apply(cause);
+        });
+    }
+
+    private void finish(Stage stage, String status, String message) {
+        synchronized (stages) {
+            stage.finishedNanos = System.nanoTime();
+            stage.status = status;
+            stage.message = message;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * 阶段记录，状态字段在 stages 锁内写入和读取
+     */
+    private static class Stage {
+        private final String name;
+        private volatile long submittedNanos;
+        private long finishedNanos;
+        private String status;
+        private String message;
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单设备增量分析状态
+ * <p>
+ * 分析窗口按固定时长切分为时间片，每个时间片保存启泵次数、故障/报警计数以及运行时间、能耗的
+ * Welford 累加器和趋势回归的充分统计量。每次只折叠水位线之后的新数据，窗口滑过的时间片整片淘汰，
+ * 窗口统计由各时间片按时间顺序合并得到，与对同一时间范围完整重算的结果一致(浮点误差内)。
+ * 另按已结束的时间片维护各监测量均值的 EWMA 基线，跨重建保留。
+ * 状态可编码为字节数组，由 {@link PumpAnalysisStateStore} 保存到 Redis 与数据库
+ *
+ * @author Xiamen Metro System
+ */
+public class PumpAnalysisState {
+
+    /**
+     * 编码格式版本，结构变化时递增，旧版本的检查点被丢弃后重建
+     */
+    public static final int ENCODING_VERSION = 1;
+
+    /**
+     * 维护 EWMA 基线的监测量
+     */
+    static final PumpDataAggregate.Metric[] BASELINE_METRICS = {
+            PumpDataAggregate.Metric.CURRENT,
+            PumpDataAggregate.Metric.POWER,
+            PumpDataAggregate.Metric.PRESSURE,
+            PumpDataAggregate.Metric.FLOW,
+            PumpDataAggregate.Metric.TEMPERATURE,
+            PumpDataAggregate.Metric.VIBRATION
+    };
+
+    private static final int ENERGY_WINDOW = PumpStreamingStats.ENERGY_WINDOW;
+    private static final int ENERGY_HEAD = PumpStreamingStats.ENERGY_WINDOW_MIN_SAMPLES;
+
+    private final String deviceId;
+    private final long paneMillis;
+    private final int windowPanes;
+
+    /**
+     * 已折叠的最新数据时间，只接收晚于该时间的数据
+     */
+    private long watermark = Long.MIN_VALUE;
+    private long rebuiltAt;
+    private long lastStartEvent = Long.MIN_VALUE;
+
+    /**
+     * 能耗移动平均的滑动窗口：最近4个大于0的能耗值与累计个数
+     */
+    private final double[] recentEnergy = new double[ENERGY_WINDOW - 1];
+    private long energySeen;
+
+    private double baselineAlpha;
+    private long baselinePane = Long.MIN_VALUE;
+    private final long[] baselinePanes = new long[BASELINE_METRICS.length];
+    private final double[] baselineMean = new double[BASELINE_METRICS.length];
+    private final double[] baselineVariance = new double[BASELINE_METRICS.length];
+
+    private final ArrayDeque<Pane> panes = new ArrayDeque<>();
+
+    /**
+     * @param paneMillis       时间片时长
+     * @param windowPanes      分析窗口包含的时间片数
+     * @param baselineHalfLife EWMA 基线半衰期(时间片数)
+     */
+    public PumpAnalysisState(String deviceId, long paneMillis, int windowPanes, double baselineHalfLife) {
+        if (paneMillis <= 0 || windowPanes <= 0) {
+            throw new IllegalArgumentException("时间片时长和窗口时间片数必须大于0");
+        }
+        this.deviceId = deviceId;
+        this.paneMillis = paneMillis;
+        this.windowPanes = windowPanes;
+        this.baselineAlpha = 1 - Math.pow(0.5, 1 / Math.max(baselineHalfLife, 1e-9));
+    }
+
+    /**
+     * 折叠一段按时间升序的数据，不晚于水位线的行被忽略
+     *
+     * @return 实际折叠的行数
+     */
+    public int fold(PumpSeries series) {
+        int folded = 0;
+        for (int i = 0; i < series.size(); i++) {
+            long timestamp = series.timestamp(i);
+            if (timestamp <= watermark) {
+                continue;
+            }
+            watermark = timestamp;
+            paneFor(timestamp).add(series, i);
+            folded++;
+        }
+        return folded;
+    }
+
+    private Pane paneFor(long timestamp) {
+        long start = Math.floorDiv(timestamp, paneMillis) * paneMillis;
+        Pane last = panes.peekLast();
+        if (last != null && last.start == start) {
+            return last;
+        }
+        if (last != null) {
+            // 后续时间片开始，上一时间片结束
+            updateBaseline(last);
+        }
+        Pane pane = new Pane(start);
+        panes.addLast(pane);
+        return pane;
+    }
+
+    /**
+     * 淘汰窗口起点之前的时间片，被淘汰前尚未计入基线的时间片先计入基线
+     *
+     * @return 淘汰的时间片数
+     */
+    public int evict(long endMillis) {
+        long windowStart = windowStart(endMillis);
+        int evicted = 0;
+        while (!panes.isEmpty() && panes.peekFirst().start < windowStart) {
+            updateBaseline(panes.pollFirst());
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * 以 endMillis 为终点的分析窗口起点，对齐到时间片
+     */
+    public long windowStart(long endMillis) {
+        return Math.floorDiv(endMillis - paneMillis * windowPanes, paneMillis) * paneMillis;
+    }
+
+    /**
+     * 沿用重建前状态的 EWMA 基线与最近启泵时间，已计入基线的时间片不会重复计入
+     */
+    public void carryOver(PumpAnalysisState previous) {
+        if (previous == null) {
+            return;
+        }
+        baselinePane = previous.baselinePane;
+        System.arraycopy(previous.baselinePanes, 0, baselinePanes, 0, baselinePanes.length);
+        System.arraycopy(previous.baselineMean, 0, baselineMean, 0, baselineMean.length);
+        System.arraycopy(previous.baselineVariance, 0, baselineVariance, 0, baselineVariance.length);
+        lastStartEvent = Math.max(lastStartEvent, previous.lastStartEvent);
+    }
+
+    private void updateBaseline(Pane pane) {
+        if (pane.start <= baselinePane) {
+            return;
+        }
+        for (int m = 0; m < BASELINE_METRICS.length; m++) {
+            RunningStats stats = pane.metrics[m];
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            double value = stats.getMean();
+            if (baselinePanes[m]++ == 0) {
+                baselineMean[m] = value;
+                baselineVariance[m] = 0;
+            } else {
+                double delta = value - baselineMean[m];
+                baselineMean[m] += baselineAlpha * delta;
+                baselineVariance[m] = (1 - baselineAlpha) * (baselineVariance[m] + baselineAlpha * delta * delta);
+            }
+        }
+        baselinePane = pane.start;
+    }
+
+    /**
+     * 合并窗口内全部时间片，得到与对窗口内数据单遍统计一致的结果
+     */
+    public PumpStreamingStats windowStats() {
+        long rows = 0;
+        long first = 0;
+        long last = 0;
+        long startEvents = 0;
+        RunningStats runtime = new RunningStats();
+        RunningTrend runtimeTrend = new RunningTrend();
+        RunningStats energy = new RunningStats();
+        double[] energyHead = new double[ENERGY_HEAD];
+        int headSize = 0;
+
+        for (Pane pane : panes) {
+            if (pane.rows == 0) {
+                continue;
+            }
+            if (rows == 0) {
+                first = pane.firstTimestamp;
+            }
+            last = pane.lastTimestamp;
+            rows += pane.rows;
+            startEvents += pane.startEvents;
+            runtime.merge(pane.runtime);
+            runtimeTrend.merge(pane.runtimeTrend);
+            energy.merge(pane.energy);
+            int take = Math.min(ENERGY_HEAD - headSize, pane.energyHeadSize());
+            System.arraycopy(pane.energyHead, 0, energyHead, headSize, take);
+            headSize += take;
+        }
+
+        // 时间片内序号不小于4的平滑值只依赖窗口内数据，直接合并；窗口前4个平滑值按窗口内前缀均值重算
+        RunningTrend smoothed = new RunningTrend();
+        long index = 0;
+        for (Pane pane : panes) {
+            long count = pane.energy.getCount();
+            for (int j = 0; j < Math.min(count, ENERGY_WINDOW - 1); j++) {
+                long windowIndex = index + j;
+                smoothed.add(windowIndex < ENERGY_WINDOW - 1 ?
+                        prefixMean(energyHead, (int) windowIndex) : pane.smoothedHead[j]);
+            }
+            smoothed.merge(pane.smoothedBody);
+            index += count;
+        }
+
+        return new PumpStreamingStats(rows, first, last, startEvents, runtime, runtimeTrend, energy,
+                energyHead, smoothed);
+    }
+
+    private static double prefixMean(double[] values, int last) {
+        double sum = 0;
+        for (int i = 0; i <= last; i++) {
+            sum += values[i];
+        }
+        return sum / (last + 1);
+    }
+
+    /**
+     * 窗口统计与基线偏离的快照，与状态后续的推进无关
+     */
+    public WindowSnapshot snapshot() {
+        long faultCount = 0;
+        long alarmCount = 0;
+        for (Pane pane : panes) {
+            faultCount += pane.faultCount;
+            alarmCount += pane.alarmCount;
+        }
+        return new WindowSnapshot(windowStats(), faultCount, alarmCount, baselineDeviations(),
+                getLastStartEvent(), getWatermarkTime());
+    }
+
+    /**
+     * 各监测量最新时间片均值相对 EWMA 基线的偏离，该监测量基线尚未建立或最新时间片无数据时不列出
+     */
+    public List<BaselineDeviation> baselineDeviations() {
+        List<BaselineDeviation> deviations = new ArrayList<>();
+        Pane latest = panes.peekLast();
+        if (latest == null) {
+            return deviations;
+        }
+        for (int m = 0; m < BASELINE_METRICS.length; m++) {
+            RunningStats stats = latest.metrics[m];
+            if (stats.getCount() > 0 && baselinePanes[m] > 0) {
+                deviations.add(new BaselineDeviation(BASELINE_METRICS[m], stats.getMean(),
+                        baselineMean[m], Math.sqrt(baselineVariance[m])));
+            }
+        }
+        return deviations;
+    }
+
+    /**
+     * 编码为字节数组
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + panes.size() * 512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ENCODING_VERSION);
+            out.writeUTF(deviceId);
+            out.writeLong(paneMillis);
+            out.writeInt(windowPanes);
+            out.writeDouble(baselineAlpha);
+            out.writeLong(watermark);
+            out.writeLong(rebuiltAt);
+            out.writeLong(lastStartEvent);
+            out.writeLong(energySeen);
+            for (double value : recentEnergy) {
+                out.writeDouble(value);
+            }
+            out.writeLong(baselinePane);
+            out.writeByte(BASELINE_METRICS.length);
+            for (int m = 0; m < BASELINE_METRICS.length; m++) {
+                out.writeLong(baselinePanes[m]);
+                out.writeDouble(baselineMean[m]);
+                out.writeDouble(baselineVariance[m]);
+            }
+            out.writeInt(panes.size());
+            for (Pane pane : panes) {
+                pane.writeTo(out);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("编码增量分析状态失败: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 从字节数组解码；版本或时间片配置与当前不一致时返回 null，由调用方重建
+     */
+    public static PumpAnalysisState decode(byte[] payload, long paneMillis, int windowPanes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readUnsignedByte() != ENCODING_VERSION) {
+                return null;
+            }
+            String deviceId = in.readUTF();
+            long encodedPaneMillis = in.readLong();
+            int encodedWindowPanes = in.readInt();
+            if (encodedPaneMillis != paneMillis || encodedWindowPanes != windowPanes) {
+                return null;
+            }
+            PumpAnalysisState state = new PumpAnalysisState(deviceId, paneMillis, windowPanes, 1);
+            state.baselineAlpha = in.readDouble();
+            state.watermark = in.readLong();
+            state.rebuiltAt = in.readLong();
+            state.lastStartEvent = in.readLong();
+            state.energySeen = in.readLong();
+            for (int i = 0; i < state.recentEnergy.length; i++) {
+                state.recentEnergy[i] = in.readDouble();
+            }
+            state.baselinePane = in.readLong();
+            if (in.readUnsignedByte() != BASELINE_METRICS.length) {
+                return null;
+            }
+            for (int m = 0; m < BASELINE_METRICS.length; m++) {
+                state.baselinePanes[m] = in.readLong();
+                state.baselineMean[m] = in.readDouble();
+                state.baselineVariance[m] = in.readDouble();
+            }
+            int paneCount = in.readInt();
+            for (int p = 0; p < paneCount; p++) {
+                state.panes.addLast(state.readPane(in));
+            }
+            return state;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("解码增量分析状态失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 基线半衰期变化时重新设置平滑系数，已有基线保留
+     */
+    public void setBaselineHalfLife(double baselineHalfLife) {
+        this.baselineAlpha = 1 - Math.pow(0.5, 1 / Math.max(baselineHalfLife, 1e-9));
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public boolean isEmpty() {
+        return panes.isEmpty();
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public LocalDateTime getWatermarkTime() {
+        return watermark != Long.MIN_VALUE ? new Timestamp(watermark).toLocalDateTime() : null;
+    }
+
+    public long getRebuiltAt() {
+        return rebuiltAt;
+    }
+
+    public void setRebuiltAt(long rebuiltAt) {
+        this.rebuiltAt = rebuiltAt;
+    }
+
+    /**
+     * 最近一次启泵事件的时间，窗口淘汰后仍保留；从未启泵时返回 null
+     */
+    public LocalDateTime getLastStartEvent() {
+        return lastStartEvent != Long.MIN_VALUE ? new Timestamp(lastStartEvent).toLocalDateTime() : null;
+    }
+
+    public int getPaneCount() {
+        return panes.size();
+    }
+
+    /**
+     * 能耗5点移动平均：返回本值与最近4个大于0的能耗值的均值，样本不足5个时按已有样本计算
+     */
+    private double smoothEnergy(double value) {
+        int size = (int) Math.min(energySeen, recentEnergy.length);
+        double sum = value;
+        for (int i = 0; i < size; i++) {
+            sum += recentEnergy[i];
+        }
+        recentEnergy[(int) (energySeen % recentEnergy.length)] = value;
+        energySeen++;
+        return sum / (size + 1);
+    }
+
+    /**
+     * 单个时间片的累加器
+     */
+    private final class Pane {
+        private final long start;
+        private long rows;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long startEvents;
+        private long faultCount;
+        private long alarmCount;
+
+        private final RunningStats runtime;
+        private final RunningTrend runtimeTrend;
+        private final RunningStats energy;
+        /**
+         * 本时间片前 min(n, 15) 个能耗值，供窗口起点处重算平滑值和少样本时的 n/3 窗口
+         */
+        private final double[] energyHead = new double[ENERGY_HEAD];
+        /**
+         * 本时间片前4个能耗样本的平滑值，位于窗口起点附近时被重算
+         */
+        private final double[] smoothedHead = new double[ENERGY_WINDOW - 1];
+        /**
+         * 本时间片第5个能耗样本起的平滑值序列，其5点窗口均在本时间片内
+         */
+        private final RunningTrend smoothedBody;
+        private final RunningStats[] metrics = new RunningStats[BASELINE_METRICS.length];
+
+        Pane(long start) {
+            this(start, new RunningStats(), new RunningTrend(), new RunningStats(), new RunningTrend());
+            for (int m = 0; m < metrics.length; m++) {
+                metrics[m] = new RunningStats();
+            }
+        }
+
+        Pane(long start, RunningStats runtime, RunningTrend runtimeTrend, RunningStats energy,
+             RunningTrend smoothedBody) {
+            this.start = start;
+            this.runtime = runtime;
+            this.runtimeTrend = runtimeTrend;
+            this.energy = energy;
+            this.smoothedBody = smoothedBody;
+        }
+
+        void add(PumpSeries series, int i) {
+            long timestamp = series.timestamp(i);
+            if (rows == 0) {
+                firstTimestamp = timestamp;
+            }
+            lastTimestamp = timestamp;
+            rows++;
+
+            if (series.pumpStatus(i) == 1) {
+                startEvents++;
+                lastStartEvent = Math.max(lastStartEvent, timestamp);
+            }
+            if (series.faultCode(i) != null) {
+                faultCount++;
+            }
+            if (series.alarmLevel(i) > 1) {
+                alarmCount++;
+            }
+
+            double runtimeMinutes = series.value(PumpDataAggregate.Metric.RUNTIME, i);
+            if (runtimeMinutes > 0) {
+                runtime.add(runtimeMinutes);
+                runtimeTrend.add(runtimeMinutes);
+            }
+
+            double energyKwh = series.value(PumpDataAggregate.Metric.ENERGY, i);
+            if (energyKwh > 0) {
+                long index = energy.getCount();
+                energy.add(energyKwh);
+                if (index < ENERGY_HEAD) {
+                    energyHead[(int) index] = energyKwh;
+                }
+                double smoothedValue = smoothEnergy(energyKwh);
+                if (index < smoothedHead.length) {
+                    smoothedHead[(int) index] = smoothedValue;
+                } else {
+                    smoothedBody.add(smoothedValue);
+                }
+            }
+
+            for (int m = 0; m < BASELINE_METRICS.length; m++) {
+                double value = series.value(BASELINE_METRICS[m], i);
+                if (!Double.isNaN(value)) {
+                    metrics[m].add(value);
+                }
+            }
+        }
+
+        int energyHeadSize() {
+            return (int) Math.min(energy.getCount(), ENERGY_HEAD);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(start);
+            out.writeLong(rows);
+            out.writeLong(firstTimestamp);
+            out.writeLong(lastTimestamp);
+            out.writeLong(startEvents);
+            out.writeLong(faultCount);
+            out.writeLong(alarmCount);
+            runtime.writeTo(out);
+            runtimeTrend.writeTo(out);
+            energy.writeTo(out);
+            for (int i = 0; i < energyHeadSize(); i++) {
+                out.writeDouble(energyHead[i]);
+            }
+            for (int i = 0; i < Math.min(energy.getCount(), smoothedHead.length); i++) {
+                out.writeDouble(smoothedHead[i]);
+            }
+            smoothedBody.writeTo(out);
+            for (RunningStats stats : metrics) {
+                stats.writeTo(out);
+            }
+        }
+    }
+
+    private Pane readPane(DataInputStream in) throws IOException {
+        long start = in.readLong();
+        long rows = in.readLong();
+        long firstTimestamp = in.readLong();
+        long lastTimestamp = in.readLong();
+        long startEvents = in.readLong();
+        long faultCount = in.readLong();
+        long alarmCount = in.readLong();
+        Pane pane = new Pane(start, RunningStats.readFrom(in), RunningTrend.readFrom(in), RunningStats.readFrom(in),
+                new RunningTrend());
+        pane.rows = rows;
+        pane.firstTimestamp = firstTimestamp;
+        pane.lastTimestamp = lastTimestamp;
+        pane.startEvents = startEvents;
+        pane.faultCount = faultCount;
+        pane.alarmCount = alarmCount;
+        for (int i = 0; i < pane.energyHeadSize(); i++) {
+            pane.energyHead[i] = in.readDouble();
+        }
+        for (int i = 0; i < Math.min(pane.energy.getCount(), pane.smoothedHead.length); i++) {
+            pane.smoothedHead[i] = in.readDouble();
+        }
+        pane.smoothedBody.merge(RunningTrend.readFrom(in));
+        for (int m = 0; m < pane.metrics.length; m++) {
+            pane.metrics[m] = RunningStats.readFrom(in);
+        }
+        return pane;
+    }
+
+    /**
+     * 窗口快照
+     */
+    public static class WindowSnapshot {
+        private final PumpStreamingStats stats;
+        private final long faultCount;
+        private final long alarmCount;
+        private final List<BaselineDeviation> baselineDeviations;
+        private final LocalDateTime lastStartEvent;
+        private final LocalDateTime watermark;
+
+        public WindowSnapshot(PumpStreamingStats stats, long faultCount, long alarmCount,
+                              List<BaselineDeviation> baselineDeviations,
+                              LocalDateTime lastStartEvent, LocalDateTime watermark) {
+            this.stats = stats;
+            this.faultCount = faultCount;
+            this.alarmCount = alarmCount;
+            this.baselineDeviations = baselineDeviations;
+            this.lastStartEvent = lastStartEvent;
+            this.watermark = watermark;
+        }
+
+        /**
+         * 窗口内数据的单遍统计
+         */
+        public PumpStreamingStats getStats() {
+            return stats;
+        }
+
+        /**
+         * 有故障代码的行数
+         */
+        public long getFaultCount() {
+            return faultCount;
+        }
+
+        /**
+         * 报警级别大于1的行数
+         */
+        public long getAlarmCount() {
+            return alarmCount;
+        }
+
+        public List<BaselineDeviation> getBaselineDeviations() {
+            return baselineDeviations;
+        }
+
+        public LocalDateTime getLastStartEvent() {
+            return lastStartEvent;
+        }
+
+        public LocalDateTime getWatermark() {
+            return watermark;
+        }
+    }
+
+    /**
+     * 监测量相对 EWMA 基线的偏离
+     */
+    public static class BaselineDeviation {
+        private final PumpDataAggregate.Metric metric;
+        private final double current;
+        private final double baseline;
+        private final double baselineStandardDeviation;
+
+        public BaselineDeviation(PumpDataAggregate.Metric metric, double current, double baseline,
+                                 double baselineStandardDeviation) {
+            this.metric = metric;
+            this.current = current;
+            this.baseline = baseline;
+            this.baselineStandardDeviation = baselineStandardDeviation;
+        }
+
+        public PumpDataAggregate.Metric getMetric() {
+            return metric;
+        }
+
+        public double getCurrent() {
+            return current;
+        }
+
+        public double getBaseline() {
+            return baseline;
+        }
+
+        public double getBaselineStandardDeviation() {
+            return baselineStandardDeviation;
+        }
+
+        /**
+         * 偏离百分比，基线为0时返回0
+         */
+        public double getDeviationPercentage() {
+            return baseline != 0 ? (current - baseline) / Math.abs(baseline) * 100 : 0.0;
+        }
+
+        /**
+         * 以基线标准差计的偏离倍数，基线无波动时返回0
+         */
+        public double getZScore() {
+            return baselineStandardDeviation > 0 ? (current - baseline) / baselineStandardDeviation : 0.0;
+        }
+    }
+}
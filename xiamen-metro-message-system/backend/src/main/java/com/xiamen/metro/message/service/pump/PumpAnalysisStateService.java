@@ -0,0 +1,110 @@
+package com.xiamen.metro.message.service.pump;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量分析状态推进
+ * <p>
+ * 每设备在内存中保存一份 {@link PumpAnalysisState}，首次使用时从检查点恢复。每次推进只读取水位线之后到
+ * 终点的数据折叠进状态，淘汰滑出窗口的时间片后写回检查点。水位线之前的迟到数据不会被折叠，
+ * 因此按间隔对整个窗口重新读取重建(保留 EWMA 基线)，检查点缺失或不兼容时也按窗口重建。
+ * 同一设备的推进串行执行
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpAnalysisStateService {
+
+    private final PumpSeriesReader seriesReader;
+    private final PumpHotStore hotStore;
+    private final PumpAnalysisStateStore stateStore;
+
+    @Value("${app.pump-data.incremental.pane-seconds:60}")
+    private long paneSeconds = 60;
+
+    @Value("${app.pump-data.incremental.window-minutes:60}")
+    private int windowMinutes = 60;
+
+    @Value("${app.pump-data.incremental.rebuild-interval-minutes:60}")
+    private long rebuildIntervalMinutes = 60;
+
+    @Value("${app.pump-data.incremental.baseline-half-life-panes:30}")
+    private double baselineHalfLifePanes = 30;
+
+    private final Map<String, PumpAnalysisState> states = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 把设备状态推进到 endTime，返回推进后窗口的快照
+     */
+    public PumpAnalysisState.WindowSnapshot advance(String deviceId, LocalDateTime endTime) {
+        synchronized (locks.computeIfAbsent(deviceId, key -> new Object())) {
+            long end = Timestamp.valueOf(endTime).getTime();
+            PumpAnalysisState state = states.get(deviceId);
+            if (state == null) {
+                state = restore(deviceId);
+            }
+
+            if (state == null || end - state.getRebuiltAt() >= rebuildIntervalMinutes * 60_000L) {
+                state = rebuild(deviceId, state, end, endTime);
+            } else if (end > state.getWatermark()) {
+                long from = Math.max(state.getWatermark() + 1, state.windowStart(end));
+                int folded = state.fold(read(deviceId, new Timestamp(from).toLocalDateTime(), endTime));
+                log.debug("设备 {} 增量折叠 {} 行，水位线: {}", deviceId, folded, state.getWatermarkTime());
+            }
+            state.evict(end);
+
+            states.put(deviceId, state);
+            stateStore.save(state);
+            return state.snapshot();
+        }
+    }
+
+    private PumpAnalysisState restore(String deviceId) {
+        try {
+            PumpAnalysisState state = stateStore.load(deviceId, paneSeconds * 1000, windowPanes());
+            if (state != null) {
+                state.setBaselineHalfLife(baselineHalfLifePanes);
+                log.info("设备 {} 增量分析状态已从检查点恢复，水位线: {}", deviceId, state.getWatermarkTime());
+            }
+            return state;
+        } catch (Exception e) {
+            log.warn("设备 {} 增量分析状态恢复失败，按窗口重建: {}", deviceId, e.getMessage());
+            return null;
+        }
+    }
+
+    private PumpAnalysisState rebuild(String deviceId, PumpAnalysisState previous, long end, LocalDateTime endTime) {
+        PumpAnalysisState state = new PumpAnalysisState(deviceId, paneSeconds * 1000, windowPanes(), baselineHalfLifePanes);
+        state.carryOver(previous);
+        int folded = state.fold(read(deviceId, new Timestamp(state.windowStart(end)).toLocalDateTime(), endTime));
+        state.setRebuiltAt(end);
+        log.debug("设备 {} 增量分析状态按窗口重建，{} 行", deviceId, folded);
+        return state;
+    }
+
+    private int windowPanes() {
+        return (int) Math.max(1, windowMinutes * 60L / paneSeconds);
+    }
+
+    /**
+     * 近期范围优先从热存储读取
+     */
+    private PumpSeries read(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        PumpSeries series = hotStore.read(deviceId, startTime, endTime);
+        if (series == null) {
+            series = seriesReader.read(deviceId, startTime, endTime);
+        }
+        return series;
+    }
+}
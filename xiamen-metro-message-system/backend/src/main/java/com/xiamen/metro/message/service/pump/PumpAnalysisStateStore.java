@@ -0,0 +1,137 @@
+package com.xiamen.metro.message.service.pump;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 增量分析状态检查点
+ * <p>
+ * 每次推进后把 {@link PumpAnalysisState} 的编码写入 Redis(Base64字符串，带过期时间)，供其他实例和重启后接续；
+ * 每设备按间隔写入 pump_analysis_state(V16迁移)，Redis 数据丢失时回退到数据库。
+ * 读取顺序为 Redis、数据库，都没有或版本不兼容时返回 null，由调用方按窗口重建
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpAnalysisStateStore {
+
+    private static final String KEY_PREFIX = "pump:analysis:state:";
+
+    private static final String SELECT_SQL = "SELECT encoding_version, payload FROM pump_analysis_state WHERE device_id = ?";
+
+    /**
+     * 水位线不回退：其他实例已写入更新的检查点时保留对方的数据
+     */
+    private static final String UPSERT_SQL = "INSERT INTO pump_analysis_state AS s " +
+            "(device_id, watermark, encoding_version, payload) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (device_id) DO UPDATE SET " +
+            "watermark = EXCLUDED.watermark, encoding_version = EXCLUDED.encoding_version, " +
+            "payload = EXCLUDED.payload, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE s.watermark <= EXCLUDED.watermark OR s.encoding_version <> EXCLUDED.encoding_version";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final DataSource dataSource;
+
+    @Value("${app.pump-data.incremental.redis-ttl-hours:24}")
+    private long redisTtlHours = 24;
+
+    @Value("${app.pump-data.incremental.db-checkpoint-interval-ms:600000}")
+    private long dbCheckpointIntervalMs = 600000;
+
+    private final Map<String, Long> lastDbCheckpoint = new ConcurrentHashMap<>();
+
+    /**
+     * 读取检查点，时间片配置变化或版本不一致时视为不存在
+     */
+    public PumpAnalysisState load(String deviceId, long paneMillis, int windowPanes) {
+        try {
+            Object cached = redisTemplate.opsForValue().get(KEY_PREFIX + deviceId);
+            if (cached instanceof String) {
+                PumpAnalysisState state = PumpAnalysisState.decode(
+                        Base64.getDecoder().decode((String) cached), paneMillis, windowPanes);
+                if (state != null) {
+                    return state;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("从Redis读取设备 {} 增量分析状态失败，改从数据库读取: {}", deviceId, e.getMessage());
+        }
+        return loadFromDatabase(deviceId, paneMillis, windowPanes);
+    }
+
+    private PumpAnalysisState loadFromDatabase(String deviceId, long paneMillis, int windowPanes) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setString(1, deviceId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getShort(1) != PumpAnalysisState.ENCODING_VERSION) {
+                    return null;
+                }
+                return PumpAnalysisState.decode(resultSet.getBytes(2), paneMillis, windowPanes);
+            }
+        } catch (SQLException e) {
+            log.error("读取增量分析状态失败: {}", e.getMessage(), e);
+            throw new RuntimeException("读取增量分析状态失败: " + e.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 写入检查点：Redis 每次写入，数据库按间隔写入。写入失败只记录日志，内存中的状态不受影响
+     */
+    public void save(PumpAnalysisState state) {
+        byte[] payload = state.encode();
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + state.getDeviceId(),
+                    Base64.getEncoder().encodeToString(payload), redisTtlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("写入设备 {} 增量分析状态到Redis失败: {}", state.getDeviceId(), e.getMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        Long last = lastDbCheckpoint.get(state.getDeviceId());
+        if (last != null && now - last < dbCheckpointIntervalMs) {
+            return;
+        }
+        try {
+            saveToDatabase(state, payload);
+            lastDbCheckpoint.put(state.getDeviceId(), now);
+        } catch (Exception e) {
+            log.warn("写入设备 {} 增量分析状态到数据库失败: {}", state.getDeviceId(), e.getMessage());
+        }
+    }
+
+    private void saveToDatabase(PumpAnalysisState state, byte[] payload) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+            statement.setString(1, state.getDeviceId());
+            statement.setTimestamp(2, new Timestamp(state.getWatermark()));
+            statement.setShort(3, (short) PumpAnalysisState.ENCODING_VERSION);
+            statement.setBytes(4, payload);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.error("写入增量分析状态失败: {}", e.getMessage(), e);
+            throw new RuntimeException("写入增量分析状态失败: " + e.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
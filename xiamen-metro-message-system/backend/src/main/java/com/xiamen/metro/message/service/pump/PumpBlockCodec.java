@@ -0,0 +1,449 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 水泵数据块压缩编码
+ * <p>
+ * 参考 Gorilla 时序压缩：时间戳按二阶差分分桶编码，规律采样时每行只占1位；各数值字段按列对相邻值
+ * 做异或，只写入变化的有效位，缓变信号大部分行只占1~十几位。状态与报警级别只在变化时写入，
+ * 维护标志和故障代码按稀疏方式写入。编码结果可完整还原 PumpSeries(含空值)
+ *
+ * @author Xiamen Metro System
+ */
+public final class PumpBlockCodec {
+
+    /**
+     * 编码格式版本，写在块首字节
+     */
+    public static final int VERSION = 1;
+
+    private static final PumpDataAggregate.Metric[] METRICS = PumpDataAggregate.Metric.values();
+
+    private static final int ALL_NULL = 0;
+    private static final int NO_NULL = 1;
+    private static final int BITMAP = 2;
+
+    private PumpBlockCodec() {
+    }
+
+    /**
+     * 编码整个序列
+     */
+    public static byte[] encode(PumpSeries series) {
+        return encode(series, 0, series.size());
+    }
+
+    /**
+     * 编码序列中 [from, to) 的行
+     */
+    public static byte[] encode(PumpSeries series, int from, int to) {
+        int rows = to - from;
+        BitOutput out = new BitOutput(rows * 4 + 64);
+        out.writeBits(VERSION, 8);
+        out.writeBits(rows, 32);
+        if (rows == 0) {
+            return out.toByteArray();
+        }
+
+        writeTimestamps(out, series, from, to);
+        for (PumpDataAggregate.Metric metric : METRICS) {
+            writeMetric(out, series, metric, from, to);
+        }
+        writeStatus(out, series, from, to, false);
+        writeStatus(out, series, from, to, true);
+        writeMaintenance(out, series, from, to);
+        writeFaultCodes(out, series, from, to);
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码为序列
+     */
+    public static PumpSeries decode(String deviceId, byte[] block) {
+        PumpSeries.Builder builder = PumpSeries.builder(deviceId, Math.max(16, rowCount(block)));
+        decodeInto(block, builder);
+        return builder.build();
+    }
+
+    /**
+     * 块内行数
+     */
+    public static int rowCount(byte[] block) {
+        BitInput in = new BitInput(block);
+        checkVersion(in);
+        return (int) in.readBits(32);
+    }
+
+    /**
+     * 块内是否已有该时间戳，只解码时间戳部分
+     */
+    public static boolean containsTimestamp(byte[] block, long timestamp) {
+        BitInput in = new BitInput(block);
+        checkVersion(in);
+        int rows = (int) in.readBits(32);
+        if (rows == 0) {
+            return false;
+        }
+        long previous = in.readBits(64);
+        long previousDelta = 0;
+        for (int i = 1; i < rows && previous < timestamp; i++) {
+            long delta = previousDelta + readDeltaOfDelta(in);
+            previous += delta;
+            previousDelta = delta;
+        }
+        return previous == timestamp;
+    }
+
+    /**
+     * 解码并追加到 builder，返回追加的行数
+     */
+    public static int decodeInto(byte[] block, PumpSeries.Builder builder) {
+        BitInput in = new BitInput(block);
+        checkVersion(in);
+        int rows = (int) in.readBits(32);
+        if (rows == 0) {
+            return 0;
+        }
+
+        int base = readTimestamps(in, builder, rows);
+        for (PumpDataAggregate.Metric metric : METRICS) {
+            readMetric(in, builder, metric, base, rows);
+        }
+        readStatus(in, builder, base, rows, false);
+        readStatus(in, builder, base, rows, true);
+        readMaintenance(in, builder, base, rows);
+        readFaultCodes(in, builder, base);
+        return rows;
+    }
+
+    private static void checkVersion(BitInput in) {
+        int version = (int) in.readBits(8);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("不支持的数据块版本: " + version);
+        }
+    }
+
+    // ---- 时间戳：首值64位，之后为二阶差分分桶 ----
+
+    private static void writeTimestamps(BitOutput out, PumpSeries series, int from, int to) {
+        long previous = series.timestamp(from);
+        long previousDelta = 0;
+        out.writeBits(previous, 64);
+        for (int i = from + 1; i < to; i++) {
+            long timestamp = series.timestamp(i);
+            long delta = timestamp - previous;
+            writeDeltaOfDelta(out, delta - previousDelta);
+            previous = timestamp;
+            previousDelta = delta;
+        }
+    }
+
+    private static void writeDeltaOfDelta(BitOutput out, long dod) {
+        if (dod == 0) {
+            out.writeBit(false);
+        } else if (dod >= -64 && dod <= 63) {
+            out.writeBits(0b10, 2);
+            out.writeBits(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            out.writeBits(0b110, 3);
+            out.writeBits(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(dod, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(dod, 64);
+        }
+    }
+
+    private static int readTimestamps(BitInput in, PumpSeries.Builder builder, int rows) {
+        long previous = in.readBits(64);
+        long previousDelta = 0;
+        int base = builder.addRow(previous);
+        for (int i = 1; i < rows; i++) {
+            long delta = previousDelta + readDeltaOfDelta(in);
+            previous += delta;
+            previousDelta = delta;
+            builder.addRow(previous);
+        }
+        return base;
+    }
+
+    private static long readDeltaOfDelta(BitInput in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return signExtend(in.readBits(7), 7);
+        }
+        if (!in.readBit()) {
+            return signExtend(in.readBits(9), 9);
+        }
+        if (!in.readBit()) {
+            return signExtend(in.readBits(12), 12);
+        }
+        return in.readBits(64);
+    }
+
+    private static long signExtend(long value, int bits) {
+        int shift = 64 - bits;
+        return (value << shift) >> shift;
+    }
+
+    // ---- 数值字段：空值位图 + 相邻值异或 ----
+
+    private static void writeMetric(BitOutput out, PumpSeries series, PumpDataAggregate.Metric metric,
+                                    int from, int to) {
+        int present = 0;
+        for (int i = from; i < to; i++) {
+            if (!series.isNull(metric, i)) {
+                present++;
+            }
+        }
+        int rows = to - from;
+        if (present == 0) {
+            out.writeBits(ALL_NULL, 2);
+            return;
+        }
+        if (present == rows) {
+            out.writeBits(NO_NULL, 2);
+        } else {
+            out.writeBits(BITMAP, 2);
+            for (int i = from; i < to; i++) {
+                out.writeBit(!series.isNull(metric, i));
+            }
+        }
+
+        XorState state = new XorState();
+        for (int i = from; i < to; i++) {
+            if (!series.isNull(metric, i)) {
+                state.write(out, Double.doubleToRawLongBits(series.value(metric, i)));
+            }
+        }
+    }
+
+    private static void readMetric(BitInput in, PumpSeries.Builder builder, PumpDataAggregate.Metric metric,
+                                   int base, int rows) {
+        int mode = (int) in.readBits(2);
+        if (mode == ALL_NULL) {
+            return;
+        }
+        XorState state = new XorState();
+        if (mode == NO_NULL) {
+            for (int i = 0; i < rows; i++) {
+                builder.value(base + i, metric, Double.longBitsToDouble(state.read(in)));
+            }
+            return;
+        }
+        boolean[] present = new boolean[rows];
+        for (int i = 0; i < rows; i++) {
+            present[i] = in.readBit();
+        }
+        for (int i = 0; i < rows; i++) {
+            if (present[i]) {
+                builder.value(base + i, metric, Double.longBitsToDouble(state.read(in)));
+            }
+        }
+    }
+
+    /**
+     * Gorilla 异或编码状态：相同值1位；有效位落在上一个窗口内时只写有效位；否则写前导零数、长度和有效位
+     */
+    private static final class XorState {
+        private boolean first = true;
+        private long previous;
+        private int leading = -1;
+        private int trailing;
+
+        void write(BitOutput out, long bits) {
+            if (first) {
+                out.writeBits(bits, 64);
+                previous = bits;
+                first = false;
+                return;
+            }
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+            int currentLeading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int currentTrailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= 0 && currentLeading >= leading && currentTrailing >= trailing) {
+                out.writeBit(false);
+                out.writeBits(xor >>> trailing, 64 - leading - trailing);
+                return;
+            }
+            int meaningful = 64 - currentLeading - currentTrailing;
+            out.writeBit(true);
+            out.writeBits(currentLeading, 5);
+            out.writeBits(meaningful - 1, 6);
+            out.writeBits(xor >>> currentTrailing, meaningful);
+            leading = currentLeading;
+            trailing = currentTrailing;
+        }
+
+        long read(BitInput in) {
+            if (first) {
+                previous = in.readBits(64);
+                first = false;
+                return previous;
+            }
+            if (!in.readBit()) {
+                return previous;
+            }
+            if (in.readBit()) {
+                leading = (int) in.readBits(5);
+                int meaningful = (int) in.readBits(6) + 1;
+                trailing = 64 - leading - meaningful;
+            }
+            long xor = in.readBits(64 - leading - trailing) << trailing;
+            previous ^= xor;
+            return previous;
+        }
+    }
+
+    // ---- 状态与报警级别：空值位图 + 变化时写入 ----
+
+    private static void writeStatus(BitOutput out, PumpSeries series, int from, int to, boolean alarm) {
+        int present = 0;
+        for (int i = from; i < to; i++) {
+            if (alarm ? series.hasAlarmLevel(i) : series.hasPumpStatus(i)) {
+                present++;
+            }
+        }
+        if (present == 0) {
+            out.writeBits(ALL_NULL, 2);
+            return;
+        }
+        if (present == to - from) {
+            out.writeBits(NO_NULL, 2);
+        } else {
+            out.writeBits(BITMAP, 2);
+            for (int i = from; i < to; i++) {
+                out.writeBit(alarm ? series.hasAlarmLevel(i) : series.hasPumpStatus(i));
+            }
+        }
+
+        boolean first = true;
+        int previous = 0;
+        for (int i = from; i < to; i++) {
+            if (!(alarm ? series.hasAlarmLevel(i) : series.hasPumpStatus(i))) {
+                continue;
+            }
+            int value = alarm ? series.alarmLevel(i) : series.pumpStatus(i);
+            if (!first && value == previous) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                out.writeBits(value, 32);
+            }
+            first = false;
+            previous = value;
+        }
+    }
+
+    private static void readStatus(BitInput in, PumpSeries.Builder builder, int base, int rows, boolean alarm) {
+        int mode = (int) in.readBits(2);
+        if (mode == ALL_NULL) {
+            return;
+        }
+        boolean[] present = null;
+        if (mode == BITMAP) {
+            present = new boolean[rows];
+            for (int i = 0; i < rows; i++) {
+                present[i] = in.readBit();
+            }
+        }
+        int previous = 0;
+        for (int i = 0; i < rows; i++) {
+            if (present != null && !present[i]) {
+                continue;
+            }
+            if (in.readBit()) {
+                previous = (int) in.readBits(32);
+            }
+            if (alarm) {
+                builder.alarmLevel(base + i, previous);
+            } else {
+                builder.pumpStatus(base + i, previous);
+            }
+        }
+    }
+
+    // ---- 维护标志与故障代码：稀疏写入 ----
+
+    private static void writeMaintenance(BitOutput out, PumpSeries series, int from, int to) {
+        boolean any = false;
+        for (int i = from; i < to && !any; i++) {
+            any = series.isMaintenance(i);
+        }
+        out.writeBit(any);
+        if (any) {
+            for (int i = from; i < to; i++) {
+                out.writeBit(series.isMaintenance(i));
+            }
+        }
+    }
+
+    private static void readMaintenance(BitInput in, PumpSeries.Builder builder, int base, int rows) {
+        if (!in.readBit()) {
+            return;
+        }
+        for (int i = 0; i < rows; i++) {
+            if (in.readBit()) {
+                builder.maintenance(base + i, true);
+            }
+        }
+    }
+
+    private static void writeFaultCodes(BitOutput out, PumpSeries series, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (series.faultCode(i) != null) {
+                count++;
+            }
+        }
+        out.writeBits(count, 32);
+        String previous = null;
+        for (int i = from; i < to; i++) {
+            String faultCode = series.faultCode(i);
+            if (faultCode == null) {
+                continue;
+            }
+            out.writeBits(i - from, 32);
+            if (faultCode.equals(previous)) {
+                out.writeBit(false);
+            } else {
+                byte[] bytes = faultCode.getBytes(StandardCharsets.UTF_8);
+                out.writeBit(true);
+                out.writeBits(bytes.length, 16);
+                for (byte b : bytes) {
+                    out.writeBits(b, 8);
+                }
+                previous = faultCode;
+            }
+        }
+    }
+
+    private static void readFaultCodes(BitInput in, PumpSeries.Builder builder, int base) {
+        int count = (int) in.readBits(32);
+        String previous = null;
+        for (int k = 0; k < count; k++) {
+            int row = (int) in.readBits(32);
+            if (in.readBit()) {
+                byte[] bytes = new byte[(int) in.readBits(16)];
+                for (int b = 0; b < bytes.length; b++) {
+                    bytes[b] = (byte) in.readBits(8);
+                }
+                previous = new String(bytes, StandardCharsets.UTF_8);
+            }
+            builder.faultCode(base + row, previous);
+        }
+    }
+}
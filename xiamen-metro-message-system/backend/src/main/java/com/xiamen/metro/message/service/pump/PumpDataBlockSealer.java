@@ -0,0 +1,120 @@
+package com.xiamen.metro.message.service.pump;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 水泵数据压缩块封存
+ * <p>
+ * 定时把结束超过 seal-delay-minutes 的整点小时从 pump_data 读出，按 PumpBlockCodec 编码写入
+ * pump_data_blocks。以 pump_data_rollup_1h 为待办清单，每轮最多处理 seal-batch-size 个设备小时，
+ * 迟到数据使汇总行数变化或明细被修改删除的小时会被重新封存。每个设备小时在一个事务中加锁、读取、写入，
+ * 与明细修改触发的失效互斥
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpDataBlockSealer {
+
+    private final PumpSeriesReader seriesReader;
+    private final PumpDataBlockStore blockStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.pump-data.blocks.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 整点小时结束多少分钟后封存，留出迟到数据的时间
+     */
+    @Value("${app.pump-data.blocks.seal-delay-minutes:60}")
+    private int sealDelayMinutes = 60;
+
+    /**
+     * 每轮最多封存的设备小时数
+     */
+    @Value("${app.pump-data.blocks.seal-batch-size:500}")
+    private int sealBatchSize = 500;
+
+    private final AtomicLong sealedBlocks = new AtomicLong();
+    private final AtomicLong sealedRows = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong incompleteBlocks = new AtomicLong();
+
+    @Scheduled(fixedDelayString = "${app.pump-data.blocks.seal-interval-ms:300000}")
+    public void scheduledSeal() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int sealed = sealPending(LocalDateTime.now());
+            if (sealed > 0) {
+                log.info("水泵数据压缩块封存完成: {} 个设备小时", sealed);
+            }
+        } catch (Exception e) {
+            log.error("水泵数据压缩块封存失败", e);
+        }
+    }
+
+    /**
+     * 封存 now - seal-delay-minutes 之前已结束的小时
+     *
+     * @return 本轮封存的块数
+     */
+    public synchronized int sealPending(LocalDateTime now) {
+        LocalDateTime before = now.minusMinutes(sealDelayMinutes).minusHours(1);
+        List<PumpDataBlockStore.PendingBlock> pending = blockStore.findPending(before, sealBatchSize);
+        int sealed = 0;
+        for (PumpDataBlockStore.PendingBlock block : pending) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> seal(block)))) {
+                sealed++;
+            }
+        }
+        return sealed;
+    }
+
+    private boolean seal(PumpDataBlockStore.PendingBlock block) {
+        blockStore.lock(block.getDeviceId(), block.getBucketStart());
+        PumpSeries series = seriesReader.readHour(block.getDeviceId(), block.getBucketStart());
+        if (series.isEmpty()) {
+            return false;
+        }
+        if (series.size() != block.getRowCount()) {
+            // 明细已被分区删除或仍在写入，块写入后不参与读取
+            incompleteBlocks.incrementAndGet();
+            log.debug("压缩块行数与小时汇总不一致: 设备={}, 小时={}, 明细={}, 汇总={}", block.getDeviceId(),
+                    block.getBucketStart(), series.size(), block.getRowCount());
+        }
+        compressedBytes.addAndGet(blockStore.save(block.getDeviceId(), block.getBucketStart(), series));
+        sealedRows.addAndGet(series.size());
+        sealedBlocks.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 封存数量与压缩效果
+     */
+    public Map<String, Object> getStats() {
+        long rows = sealedRows.get();
+        long bytes = compressedBytes.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sealedBlocks", sealedBlocks.get());
+        stats.put("sealedRows", rows);
+        stats.put("compressedBytes", bytes);
+        stats.put("incompleteBlocks", incompleteBlocks.get());
+        stats.put("bytesPerRow", rows > 0 ? (double) bytes / rows : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,208 @@
+package com.xiamen.metro.message.service.pump;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 水泵数据压缩块存取
+ * <p>
+ * pump_data_blocks(V13迁移)每设备每小时一个 PumpBlockCodec 压缩块。行数与 pump_data_rollup_1h 相同的块
+ * 视为有效；迟到数据使汇总行数变化后块失效，明细被修改或删除时触发器直接删除块，由 PumpDataBlockSealer
+ * 重新封存。连接通过 DataSourceUtils 获取，在事务中调用时与明细读取共用同一连接
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpDataBlockStore {
+
+    /**
+     * 尚未封存或汇总在封存后又有新数据的小时。块在汇总最后更新之后写入仍不一致时(明细已被分区删除)不再重试
+     */
+    private static final String FIND_PENDING_SQL = "SELECT r.device_id, r.bucket_start, r.row_count " +
+            "FROM pump_data_rollup_1h r LEFT JOIN pump_data_blocks b " +
+            "ON b.device_id = r.device_id AND b.bucket_start = r.bucket_start " +
+            "WHERE r.bucket_start < ? AND r.row_count > 0 " +
+            "AND (b.device_id IS NULL OR (b.row_count <> r.row_count AND b.updated_at < r.updated_at)) " +
+            "ORDER BY r.bucket_start LIMIT ?";
+
+    /**
+     * 明细行数少于已有块时(部分明细已删除)只更新时间，保留原块
+     */
+    private static final String UPSERT_SQL = "INSERT INTO pump_data_blocks AS b " +
+            "(device_id, bucket_start, row_count, first_ts, last_ts, encoding_version, payload) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (device_id, bucket_start) DO UPDATE SET " +
+            "row_count = CASE WHEN EXCLUDED.row_count >= b.row_count THEN EXCLUDED.row_count ELSE b.row_count END, " +
+            "first_ts = CASE WHEN EXCLUDED.row_count >= b.row_count THEN EXCLUDED.first_ts ELSE b.first_ts END, " +
+            "last_ts = CASE WHEN EXCLUDED.row_count >= b.row_count THEN EXCLUDED.last_ts ELSE b.last_ts END, " +
+            "encoding_version = CASE WHEN EXCLUDED.row_count >= b.row_count THEN EXCLUDED.encoding_version ELSE b.encoding_version END, " +
+            "payload = CASE WHEN EXCLUDED.row_count >= b.row_count THEN EXCLUDED.payload ELSE b.payload END, " +
+            "updated_at = CURRENT_TIMESTAMP";
+
+    /**
+     * 完整落在 [start, end] 内且行数与小时汇总一致的块
+     */
+    private static final String FIND_VALID_SQL = "SELECT b.bucket_start, b.payload FROM pump_data_blocks b " +
+            "JOIN pump_data_rollup_1h r ON r.device_id = b.device_id AND r.bucket_start = b.bucket_start " +
+            "AND r.row_count = b.row_count " +
+            "WHERE b.device_id = ? AND b.bucket_start >= ? AND b.bucket_start + INTERVAL '1 hour' <= ? " +
+            "AND b.encoding_version = ? ORDER BY b.bucket_start";
+
+    /**
+     * 与失效触发器互斥的事务级咨询锁
+     */
+    private static final String LOCK_SQL = "SELECT pump_data_blocks_lock(?, ?)";
+
+    private final DataSource dataSource;
+
+    /**
+     * 待封存的小时
+     */
+    public List<PendingBlock> findPending(LocalDateTime before, int limit) {
+        List<PendingBlock> pending = new ArrayList<>();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(FIND_PENDING_SQL)) {
+            statement.setTimestamp(1, Timestamp.valueOf(before));
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    pending.add(new PendingBlock(resultSet.getString(1),
+                            resultSet.getTimestamp(2).toLocalDateTime(), resultSet.getLong(3)));
+                }
+            }
+            return pending;
+        } catch (SQLException e) {
+            log.error("查询待封存压缩块失败: {}", e.getMessage(), e);
+            throw new RuntimeException("查询待封存压缩块失败: " + e.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 锁定设备小时直到当前事务结束，期间修改该小时明细的事务等待。必须在事务中调用
+     */
+    public void lock(String deviceId, LocalDateTime bucketStart) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_SQL)) {
+            statement.setString(1, deviceId);
+            statement.setTimestamp(2, Timestamp.valueOf(bucketStart));
+            statement.execute();
+        } catch (SQLException e) {
+            log.error("锁定压缩块失败: {}", e.getMessage(), e);
+            throw new RuntimeException("锁定压缩块失败: " + e.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 编码并写入一个小时的数据，返回压缩后的字节数
+     */
+    public int save(String deviceId, LocalDateTime bucketStart, PumpSeries series) {
+        byte[] payload = PumpBlockCodec.encode(series);
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+            statement.setString(1, deviceId);
+            statement.setTimestamp(2, Timestamp.valueOf(bucketStart));
+            statement.setLong(3, series.size());
+            statement.setTimestamp(4, new Timestamp(series.timestamp(0)));
+            statement.setTimestamp(5, new Timestamp(series.timestamp(series.size() - 1)));
+            statement.setShort(6, (short) PumpBlockCodec.VERSION);
+            statement.setBytes(7, payload);
+            statement.executeUpdate();
+            return payload.length;
+        } catch (SQLException e) {
+            log.error("写入压缩块失败: {}", e.getMessage(), e);
+            throw new RuntimeException("写入压缩块失败: " + e.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 读取完整落在 [startTime, endTime] 内的有效块，按小时升序
+     */
+    public List<StoredBlock> findValid(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        List<StoredBlock> blocks = new ArrayList<>();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement(FIND_VALID_SQL)) {
+            statement.setString(1, deviceId);
+            statement.setTimestamp(2, Timestamp.valueOf(startTime));
+            statement.setTimestamp(3, Timestamp.valueOf(endTime));
+            statement.setShort(4, (short) PumpBlockCodec.VERSION);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    blocks.add(new StoredBlock(resultSet.getTimestamp(1).toLocalDateTime(), resultSet.getBytes(2)));
+                }
+            }
+            return blocks;
+        } catch (SQLException e) {
+            log.error("读取压缩块失败: {}", e.getMessage(), e);
+            throw new RuntimeException("读取压缩块失败: " + e.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 待封存的设备小时及其汇总行数
+     */
+    public static class PendingBlock {
+        private final String deviceId;
+        private final LocalDateTime bucketStart;
+        private final long rowCount;
+
+        public PendingBlock(String deviceId, LocalDateTime bucketStart, long rowCount) {
+            this.deviceId = deviceId;
+            this.bucketStart = bucketStart;
+            this.rowCount = rowCount;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public LocalDateTime getBucketStart() {
+            return bucketStart;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+    }
+
+    /**
+     * 已存储的压缩块
+     */
+    public static class StoredBlock {
+        private final LocalDateTime bucketStart;
+        private final byte[] payload;
+
+        public StoredBlock(LocalDateTime bucketStart, byte[] payload) {
+            this.bucketStart = bucketStart;
+            this.payload = payload;
+        }
+
+        public LocalDateTime getBucketStart() {
+            return bucketStart;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
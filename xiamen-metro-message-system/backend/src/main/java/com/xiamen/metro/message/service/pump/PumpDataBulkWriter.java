@@ -0,0 +1,229 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * 水泵数据批量写入
+ * <p>
+ * 通过 PostgreSQL COPY 协议把水泵数据流式写入 pump_data，绕开 JPA 逐行 IDENTITY 插入。
+ * 幂等模式下先 COPY 到会话级临时表，再 INSERT ... ON CONFLICT (device_id, timestamp) DO NOTHING，
+ * 重复导入同一文件不会产生重复记录。临时表只有数据列、没有 id 默认值，id 只在写入 pump_data 时分配；
+ * 已存在的记录在写入前滤除，重复导入不消耗序列值
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpDataBulkWriter {
+
+    /**
+     * COPY 写入的列，id、created_at、updated_at 使用表默认值
+     */
+    static final String COLUMNS = "device_id, timestamp, pump_status, runtime_minutes, current_amperage, voltage, " +
+            "power_kw, energy_consumption_kwh, water_pressure_kpa, flow_rate_m3h, water_temperature_celsius, " +
+            "vibration_mm_s, noise_level_db, fault_code, alarm_level, maintenance_flag, raw_message, data_source";
+
+    static final String STAGING_TABLE = "pump_data_staging";
+
+    private static final String CREATE_STAGING_SQL = "CREATE TEMP TABLE IF NOT EXISTS " + STAGING_TABLE + " (" +
+            "device_id VARCHAR(100), timestamp TIMESTAMP, pump_status INTEGER, runtime_minutes DOUBLE PRECISION, " +
+            "current_amperage DOUBLE PRECISION, voltage DOUBLE PRECISION, power_kw DOUBLE PRECISION, " +
+            "energy_consumption_kwh DOUBLE PRECISION, water_pressure_kpa DOUBLE PRECISION, " +
+            "flow_rate_m3h DOUBLE PRECISION, water_temperature_celsius DOUBLE PRECISION, " +
+            "vibration_mm_s DOUBLE PRECISION, noise_level_db DOUBLE PRECISION, fault_code VARCHAR(50), " +
+            "alarm_level INTEGER, maintenance_flag BOOLEAN, raw_message TEXT, data_source VARCHAR(50)" +
+            ") ON COMMIT DELETE ROWS";
+
+    /**
+     * 批内重复只取一条，已存在的记录先滤除，ON CONFLICT 只兜底并发写入
+     */
+    private static final String MERGE_STAGING_SQL = "INSERT INTO pump_data (" + COLUMNS + ") " +
+            "SELECT DISTINCT ON (device_id, timestamp) " + COLUMNS +
+            " FROM " + STAGING_TABLE + " s WHERE NOT EXISTS (SELECT 1 FROM pump_data p" +
+            " WHERE p.device_id = s.device_id AND p.timestamp = s.timestamp)" +
+            " ON CONFLICT (device_id, timestamp) DO NOTHING";
+
+    private final DataSource dataSource;
+
+    /**
+     * 每次COPY提交的最大行数
+     */
+    @Value("${app.ingestion.copy-flush-size:10000}")
+    private int flushSize = 10000;
+
+    /**
+     * 是否经临时表去重写入
+     */
+    @Value("${app.ingestion.idempotent:true}")
+    private boolean idempotent = true;
+
+    /**
+     * 批量写入水泵数据，按 flushSize 分段提交
+     *
+     * @param records 水泵数据
+     * @return 实际写入的行数(幂等模式下不含已存在的记录)
+     */
+    public int write(List<PumpDataEntity> records) {
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        int written = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                int step = Math.max(1, flushSize);
+                for (int from = 0; from < records.size(); from += step) {
+                    List<PumpDataEntity> chunk = records.subList(from, Math.min(records.size(), from + step));
+                    written += idempotent
+                            ? copyThroughStaging(connection, copyManager, chunk)
+                            : (int) copyIn(copyManager, "pump_data", chunk);
+                    connection.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            log.error("批量写入水泵数据失败: {}", e.getMessage(), e);
+            throw new RuntimeException("批量写入水泵数据失败: " + e.getMessage());
+        }
+
+        log.debug("批量写入水泵数据完成: 提交{}条, 写入{}条, 耗时{}ms",
+                records.size(), written, System.currentTimeMillis() - start);
+        return written;
+    }
+
+    private int copyThroughStaging(Connection connection, CopyManager copyManager,
+                                   List<PumpDataEntity> chunk) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_SQL);
+            copyIn(copyManager, STAGING_TABLE, chunk);
+            return statement.executeUpdate(MERGE_STAGING_SQL);
+        }
+    }
+
+    /**
+     * 以CSV文本格式 COPY，记录按需逐行编码，不在内存中拼接整段数据
+     */
+    private static long copyIn(CopyManager copyManager, String table, List<PumpDataEntity> chunk) throws SQLException {
+        String sql = "COPY " + table + " (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+        try {
+            return copyManager.copyIn(sql, new CsvRowReader(chunk));
+        } catch (IOException e) {
+            throw new SQLException("COPY写入失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按需把记录编码为CSV行
+     */
+    static final class CsvRowReader extends Reader {
+
+        private final List<PumpDataEntity> records;
+        private final StringBuilder row = new StringBuilder(512);
+        private int next;
+        private int position;
+
+        CsvRowReader(List<PumpDataEntity> records) {
+            this.records = records;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int count = 0;
+            while (count < length) {
+                if (position == row.length()) {
+                    if (next == records.size()) {
+                        break;
+                    }
+                    row.setLength(0);
+                    position = 0;
+                    appendCsvRow(row, records.get(next++));
+                }
+                int n = Math.min(length - count, row.length() - position);
+                row.getChars(position, position + n, target, offset + count);
+                position += n;
+                count += n;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 按 COLUMNS 顺序追加一行CSV，空值写为未加引号的空字段(即NULL)
+     */
+    static void appendCsvRow(StringBuilder buffer, PumpDataEntity record) {
+        appendText(buffer, record.getDeviceId());
+        appendValue(buffer, record.getTimestamp());
+        appendValue(buffer, record.getPumpStatus());
+        appendValue(buffer, record.getRuntimeMinutes());
+        appendValue(buffer, record.getCurrentAmperage());
+        appendValue(buffer, record.getVoltage());
+        appendValue(buffer, record.getPowerKw());
+        appendValue(buffer, record.getEnergyConsumptionKwh());
+        appendValue(buffer, record.getWaterPressureKpa());
+        appendValue(buffer, record.getFlowRateM3h());
+        appendValue(buffer, record.getWaterTemperatureCelsius());
+        appendValue(buffer, record.getVibrationMmS());
+        appendValue(buffer, record.getNoiseLevelDb());
+        appendText(buffer, record.getFaultCode());
+        appendValue(buffer, record.getAlarmLevel());
+        appendValue(buffer, record.getMaintenanceFlag());
+        appendText(buffer, record.getRawMessage());
+        appendText(buffer, record.getDataSource());
+        buffer.setCharAt(buffer.length() - 1, '\n');
+    }
+
+    private static void appendValue(StringBuilder buffer, Object value) {
+        if (value != null) {
+            buffer.append(value);
+        }
+        buffer.append(',');
+    }
+
+    /**
+     * 文本字段始终加引号，以区分空字符串与NULL
+     */
+    private static void appendText(StringBuilder buffer, String value) {
+        if (value != null) {
+            buffer.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    buffer.append('"');
+                }
+                buffer.append(c);
+            }
+            buffer.append('"');
+        }
+        buffer.append(',');
+    }
+}
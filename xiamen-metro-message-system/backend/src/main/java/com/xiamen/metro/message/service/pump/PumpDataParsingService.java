@@ -8,8 +8,6 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 水泵数据解析服务
@@ -21,55 +19,12 @@ import java.util.regex.Pattern;
 @Service
 public class PumpDataParsingService {
 
-    // 定义水泵相关的正则表达式模式
-    private static final Map<String, Pattern> PUMP_PATTERNS = new HashMap<>();
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    static {
-        // 设备ID模式
-        PUMP_PATTERNS.put("deviceId", Pattern.compile("(?:设备ID|Device|设备)[:：]?\\s*([A-Za-z0-9_\\-]+)", Pattern.CASE_INSENSITIVE));
-
-        // 时间戳模式
-        PUMP_PATTERNS.put("timestamp", Pattern.compile("(?:时间|Time|时间戳)[:：]?\\s*(\\d{4}-\\d{2}-\\d{2}\\s+\\d{2}:\\d{2}:\\d{2})", Pattern.CASE_INSENSITIVE));
-
-        // 水泵状态模式
-        PUMP_PATTERNS.put("pumpStatus", Pattern.compile("(?:水泵状态|运行状态|Status|启停)[:：]?\\s*(启动|停止|运行|关闭|0|1|ON|OFF)", Pattern.CASE_INSENSITIVE));
-
-        // 运行时间模式
-        PUMP_PATTERNS.put("runtimeMinutes", Pattern.compile("(?:运行时间|Runtime|连续运行)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:分钟|min|minutes?)", Pattern.CASE_INSENSITIVE));
-
-        // 电流模式
-        PUMP_PATTERNS.put("currentAmperage", Pattern.compile("(?:电流|Current|I)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*([Aa]安)", Pattern.CASE_INSENSITIVE));
-
-        // 电压模式
-        PUMP_PATTERNS.put("voltage", Pattern.compile("(?:电压|Voltage|U)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*([Vv]伏)", Pattern.CASE_INSENSITIVE));
-
-        // 功率模式
-        PUMP_PATTERNS.put("powerKw", Pattern.compile("(?:功率|Power|P)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:kW|千瓦)", Pattern.CASE_INSENSITIVE));
-
-        // 能耗模式
-        PUMP_PATTERNS.put("energyConsumptionKwh", Pattern.compile("(?:能耗|能量|Energy|电度)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:kWh|度)", Pattern.CASE_INSENSITIVE));
-
-        // 水压模式
-        PUMP_PATTERNS.put("waterPressureKpa", Pattern.compile("(?:水压|压力|Pressure)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:kPa|千帕)", Pattern.CASE_INSENSITIVE));
-
-        // 流量模式
-        PUMP_PATTERNS.put("flowRateM3h", Pattern.compile("(?:流量|Flow|Q)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:m³/h|立方米/小时)", Pattern.CASE_INSENSITIVE));
-
-        // 水温模式
-        PUMP_PATTERNS.put("waterTemperatureCelsius", Pattern.compile("(?:水温|温度|Temperature|T)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:°C|摄氏度|℃)", Pattern.CASE_INSENSITIVE));
-
-        // 振动模式
-        PUMP_PATTERNS.put("vibrationMmS", Pattern.compile("(?:振动|Vibration|Vib)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:mm/s|毫米/秒)", Pattern.CASE_INSENSITIVE));
-
-        // 噪音模式
-        PUMP_PATTERNS.put("noiseLevelDb", Pattern.compile("(?:噪音|噪声|Noise|N)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:dB|分贝)", Pattern.CASE_INSENSITIVE));
-
-        // 故障代码模式
-        PUMP_PATTERNS.put("faultCode", Pattern.compile("(?:故障代码|Fault|Error|报警)[:：]?\\s*([A-Za-z0-9_\\-]+)", Pattern.CASE_INSENSITIVE));
-
-        // 报警级别模式
-        PUMP_PATTERNS.put("alarmLevel", Pattern.compile("(?:报警级别|Alarm|Level|等级)[:：]?\\s*(\\d+)", Pattern.CASE_INSENSITIVE));
-    }
+    /**
+     * 单遍扫描器，一次遍历提取全部字段
+     */
+    private final PumpMessageScanner scanner = PumpMessageScanner.getInstance();
 
     /**
      * 从消息数据中解析水泵数据
@@ -84,18 +39,21 @@ public class PumpDataParsingService {
                 return pumpDataList;
             }
 
+            // 单遍扫描报文
+            PumpMessageScanner.ScanResult scan = scanner.scan(messageContent);
+
             // 解析基础字段
-            String deviceId = extractDeviceId(messageContent, messageData.getDeviceId());
-            LocalDateTime timestamp = extractTimestamp(messageContent, messageData.getTimestamp());
+            String deviceId = extractDeviceId(scan, messageData.getDeviceId());
+            LocalDateTime timestamp = extractTimestamp(scan, messageData.getTimestamp());
 
             // 检查是否为水泵相关数据
-            if (!isPumpRelatedMessage(messageContent)) {
+            if (!scan.isPumpRelated()) {
                 log.debug("非水泵相关消息，跳过解析: {}", messageContent.substring(0, Math.min(100, messageContent.length())));
                 return pumpDataList;
             }
 
             // 解析运行数据
-            PumpDataEntity pumpData = parseOperationalData(messageContent, deviceId, timestamp, messageData);
+            PumpDataEntity pumpData = parseOperationalData(scan, messageContent, deviceId, timestamp);
             if (pumpData != null) {
                 pumpDataList.add(pumpData);
             }
@@ -111,62 +69,48 @@ public class PumpDataParsingService {
 
     /**
      * 检查是否为水泵相关消息
+     * <p>
+     * 给水泵、排水泵、water pump已包含"水泵"或"pump"，无需单独检查
      */
     private boolean isPumpRelatedMessage(String messageContent) {
-        String lowerContent = messageContent.toLowerCase();
-        return lowerContent.contains("pump") || lowerContent.contains("水泵") ||
-               lowerContent.contains("water pump") || lowerContent.contains("给水泵") ||
-               lowerContent.contains("排水泵") || lowerContent.contains("消防泵");
+        if (messageContent == null) {
+            return false;
+        }
+        if (messageContent.contains("水泵") || messageContent.contains("消防泵")) {
+            return true;
+        }
+        for (int i = 0; i + 4 <= messageContent.length(); i++) {
+            if (messageContent.regionMatches(true, i, "pump", 0, 4)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * 解析运行数据
      */
-    private PumpDataEntity parseOperationalData(String messageContent, String deviceId, LocalDateTime timestamp, MessageDataDTO messageData) {
+    private PumpDataEntity parseOperationalData(PumpMessageScanner.ScanResult scan, String messageContent,
+                                                String deviceId, LocalDateTime timestamp) {
         PumpDataEntity pumpData = new PumpDataEntity();
         pumpData.setDeviceId(deviceId);
         pumpData.setTimestamp(timestamp);
         pumpData.setRawMessage(messageContent);
         pumpData.setDataSource("PARSED");
 
-        // 解析水泵状态
-        pumpData.setPumpStatus(extractPumpStatus(messageContent));
-
-        // 解析运行时间
-        pumpData.setRuntimeMinutes(extractDoubleValue(messageContent, PUMP_PATTERNS.get("runtimeMinutes")));
-
-        // 解析电流
-        pumpData.setCurrentAmperage(extractDoubleValue(messageContent, PUMP_PATTERNS.get("currentAmperage")));
-
-        // 解析电压
-        pumpData.setVoltage(extractDoubleValue(messageContent, PUMP_PATTERNS.get("voltage")));
-
-        // 解析功率
-        pumpData.setPowerKw(extractDoubleValue(messageContent, PUMP_PATTERNS.get("powerKw")));
-
-        // 解析能耗
-        pumpData.setEnergyConsumptionKwh(extractDoubleValue(messageContent, PUMP_PATTERNS.get("energyConsumptionKwh")));
-
-        // 解析水压
-        pumpData.setWaterPressureKpa(extractDoubleValue(messageContent, PUMP_PATTERNS.get("waterPressureKpa")));
-
-        // 解析流量
-        pumpData.setFlowRateM3h(extractDoubleValue(messageContent, PUMP_PATTERNS.get("flowRateM3h")));
-
-        // 解析水温
-        pumpData.setWaterTemperatureCelsius(extractDoubleValue(messageContent, PUMP_PATTERNS.get("waterTemperatureCelsius")));
-
-        // 解析振动
-        pumpData.setVibrationMmS(extractDoubleValue(messageContent, PUMP_PATTERNS.get("vibrationMmS")));
-
-        // 解析噪音
-        pumpData.setNoiseLevelDb(extractDoubleValue(messageContent, PUMP_PATTERNS.get("noiseLevelDb")));
-
-        // 解析故障代码
-        pumpData.setFaultCode(extractStringValue(messageContent, PUMP_PATTERNS.get("faultCode")));
-
-        // 解析报警级别
-        pumpData.setAlarmLevel(extractIntegerValue(messageContent, PUMP_PATTERNS.get("alarmLevel")));
+        pumpData.setPumpStatus(toPumpStatus(scan.get(PumpMessageScanner.Field.PUMP_STATUS)));
+        pumpData.setRuntimeMinutes(toDouble(scan.get(PumpMessageScanner.Field.RUNTIME_MINUTES)));
+        pumpData.setCurrentAmperage(toDouble(scan.get(PumpMessageScanner.Field.CURRENT_AMPERAGE)));
+        pumpData.setVoltage(toDouble(scan.get(PumpMessageScanner.Field.VOLTAGE)));
+        pumpData.setPowerKw(toDouble(scan.get(PumpMessageScanner.Field.POWER_KW)));
+        pumpData.setEnergyConsumptionKwh(toDouble(scan.get(PumpMessageScanner.Field.ENERGY_CONSUMPTION_KWH)));
+        pumpData.setWaterPressureKpa(toDouble(scan.get(PumpMessageScanner.Field.WATER_PRESSURE_KPA)));
+        pumpData.setFlowRateM3h(toDouble(scan.get(PumpMessageScanner.Field.FLOW_RATE_M3H)));
+        pumpData.setWaterTemperatureCelsius(toDouble(scan.get(PumpMessageScanner.Field.WATER_TEMPERATURE_CELSIUS)));
+        pumpData.setVibrationMmS(toDouble(scan.get(PumpMessageScanner.Field.VIBRATION_MM_S)));
+        pumpData.setNoiseLevelDb(toDouble(scan.get(PumpMessageScanner.Field.NOISE_LEVEL_DB)));
+        pumpData.setFaultCode(scan.get(PumpMessageScanner.Field.FAULT_CODE));
+        pumpData.setAlarmLevel(toInteger(scan.get(PumpMessageScanner.Field.ALARM_LEVEL)));
 
         // 根据故障代码和报警级别设置维护标志
         if (pumpData.getFaultCode() != null || (pumpData.getAlarmLevel() != null && pumpData.getAlarmLevel() > 1)) {
@@ -179,8 +123,8 @@ public class PumpDataParsingService {
     /**
      * 提取设备ID
      */
-    private String extractDeviceId(String messageContent, String fallbackDeviceId) {
-        String deviceId = extractStringValue(messageContent, PUMP_PATTERNS.get("deviceId"));
+    private String extractDeviceId(PumpMessageScanner.ScanResult scan, String fallbackDeviceId) {
+        String deviceId = scan.get(PumpMessageScanner.Field.DEVICE_ID);
         if (deviceId == null || deviceId.trim().isEmpty()) {
             deviceId = fallbackDeviceId;
         }
@@ -190,11 +134,11 @@ public class PumpDataParsingService {
     /**
      * 提取时间戳
      */
-    private LocalDateTime extractTimestamp(String messageContent, String fallbackTimestamp) {
-        String timestampStr = extractStringValue(messageContent, PUMP_PATTERNS.get("timestamp"));
+    private LocalDateTime extractTimestamp(PumpMessageScanner.ScanResult scan, String fallbackTimestamp) {
+        String timestampStr = scan.get(PumpMessageScanner.Field.TIMESTAMP);
         if (timestampStr != null && !timestampStr.trim().isEmpty()) {
             try {
-                return LocalDateTime.parse(timestampStr, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+                return LocalDateTime.parse(timestampStr, TIMESTAMP_FORMATTER);
             } catch (Exception e) {
                 log.debug("解析时间戳失败: {}", timestampStr);
             }
@@ -203,7 +147,7 @@ public class PumpDataParsingService {
         // 尝试从fallback解析
         if (fallbackTimestamp != null && !fallbackTimestamp.trim().isEmpty()) {
             try {
-                return LocalDateTime.parse(fallbackTimestamp, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+                return LocalDateTime.parse(fallbackTimestamp, TIMESTAMP_FORMATTER);
             } catch (Exception e) {
                 log.debug("解析fallback时间戳失败: {}", fallbackTimestamp);
             }
@@ -216,8 +160,7 @@ public class PumpDataParsingService {
     /**
      * 解析水泵状态
      */
-    private Integer extractPumpStatus(String messageContent) {
-        String statusStr = extractStringValue(messageContent, PUMP_PATTERNS.get("pumpStatus"));
+    private Integer toPumpStatus(String statusStr) {
         if (statusStr == null) {
             return null;
         }
@@ -233,25 +176,9 @@ public class PumpDataParsingService {
     }
 
     /**
-     * 提取字符串值
-     */
-    private String extractStringValue(String content, Pattern pattern) {
-        if (pattern == null) {
-            return null;
-        }
-
-        Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1).trim();
-        }
-        return null;
-    }
-
-    /**
-     * 提取整数值
+     * 转换整数值
      */
-    private Integer extractIntegerValue(String content, Pattern pattern) {
-        String valueStr = extractStringValue(content, pattern);
+    private Integer toInteger(String valueStr) {
         if (valueStr == null) {
             return null;
         }
@@ -265,10 +192,9 @@ public class PumpDataParsingService {
     }
 
     /**
-     * 提取双精度浮点数值
+     * 转换双精度浮点数值
      */
-    private Double extractDoubleValue(String content, Pattern pattern) {
-        String valueStr = extractStringValue(content, pattern);
+    private Double toDouble(String valueStr) {
         if (valueStr == null) {
             return null;
         }
@@ -0,0 +1,358 @@
+package com.xiamen.metro.message.service.pump;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 水泵数据分区维护
+ * <p>
+ * pump_data 按 timestamp 范围分区(V11迁移)。本服务按配置粒度(月/日)提前创建未来分区，
+ * 并按保留期整分区删除过期数据，不做逐行删除。过期分区先 DETACH 再 DROP，
+ * 无默认分区时使用 DETACH CONCURRENTLY，不阻塞父表上的读写
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpDataPartitionService {
+
+    static final String PARENT_TABLE = "pump_data";
+    static final String DEFAULT_PARTITION = "pump_data_default";
+
+    private static final String LIST_PARTITIONS_SQL = "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid), i.inhdetachpending " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = '" + PARENT_TABLE + "'::regclass ORDER BY c.relname";
+
+    /**
+     * 与 PumpDataRepository 按设备和时间范围查询的SQL一致，用于检查分区裁剪
+     */
+    private static final String RANGE_QUERY_SQL = "SELECT * FROM " + PARENT_TABLE +
+            " WHERE device_id = ? AND timestamp BETWEEN ? AND ? ORDER BY timestamp";
+
+    private static final Pattern LOWER_BOUND = Pattern.compile("FROM \\('([^']+)'\\)");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final Pattern SCANNED_PARTITION = Pattern.compile("\\bon (" + PARENT_TABLE + "_\\w+)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DataSource dataSource;
+
+    /**
+     * 是否启用分区维护
+     */
+    @Value("${app.pump-data.partition.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 分区粒度：month 或 day
+     */
+    @Value("${app.pump-data.partition.granularity:month}")
+    private String granularity = "month";
+
+    /**
+     * 提前创建的分区数(不含当前分区)
+     */
+    @Value("${app.pump-data.partition.premake:3}")
+    private int premake = 3;
+
+    /**
+     * 数据保留天数，分区上界早于保留期的整分区删除；0 表示不删除
+     */
+    @Value("${app.pump-data.partition.retention-days:0}")
+    private int retentionDays = 0;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduledMaintain();
+    }
+
+    /**
+     * 每天凌晨1点30分维护分区
+     */
+    @Scheduled(cron = "${app.pump-data.partition.cron:0 30 1 * * ?}")
+    public void scheduledMaintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            maintain(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("水泵数据分区维护失败", e);
+        }
+    }
+
+    /**
+     * 创建当前及未来分区，删除过期分区
+     *
+     * @return 新建与删除的分区
+     */
+    public synchronized MaintenanceResult maintain(LocalDateTime now) {
+        LocalDateTime from = periodStart(now);
+        List<String> created = ensurePartitions(from, nextPeriod(from, premake));
+        List<String> dropped = retentionDays > 0
+                ? dropPartitionsBefore(now.minusDays(retentionDays))
+                : new ArrayList<>();
+        if (!created.isEmpty() || !dropped.isEmpty()) {
+            log.info("水泵数据分区维护完成: 新建={}, 删除={}", created, dropped);
+        }
+        return new MaintenanceResult(created, dropped);
+    }
+
+    /**
+     * 确保 [from, to] 覆盖的每个周期都有分区
+     * <p>
+     * 切换粒度后(如月改为日)，周期范围可能已被另一粒度的分区覆盖，此时不新建分区并记录警告
+     *
+     * @return 本次新建的分区名
+     */
+    public List<String> ensurePartitions(LocalDateTime from, LocalDateTime to) {
+        List<String> created = new ArrayList<>();
+        execute(connection -> {
+            List<PartitionInfo> existing = listPartitions(connection);
+            try (PreparedStatement statement = connection.prepareStatement("SELECT ensure_pump_data_partition(?, ?, ?)")) {
+                for (LocalDateTime start = periodStart(from); !start.isAfter(to); start = nextPeriod(start, 1)) {
+                    String name = partitionName(start);
+                    LocalDateTime end = nextPeriod(start, 1);
+                    if (existing.stream().anyMatch(partition -> partition.name.equals(name))) {
+                        continue;
+                    }
+                    List<String> overlapping = overlappingPartitions(existing, start, end);
+                    if (!overlapping.isEmpty()) {
+                        log.warn("水泵数据分区 {} [{}, {}) 与已有分区 {} 范围重叠，未创建；粒度切换后需等已有分区过期",
+                                name, start, end, overlapping);
+                        continue;
+                    }
+                    statement.setString(1, name);
+                    statement.setTimestamp(2, Timestamp.valueOf(start));
+                    statement.setTimestamp(3, Timestamp.valueOf(end));
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        if (resultSet.next() && resultSet.getBoolean(1)) {
+                            created.add(name);
+                        }
+                    }
+                    connection.commit();
+                }
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 删除上界不晚于 cutoff 的分区，默认分区不删除
+     * <p>
+     * 先从父表分离再删除分离出的表。DETACH CONCURRENTLY 不能在事务块中执行，
+     * 且父表存在默认分区时不可用，此时退回普通 DETACH；上次中断的并发分离先 FINALIZE
+     *
+     * @return 删除的分区名
+     */
+    public List<String> dropPartitionsBefore(LocalDateTime cutoff) {
+        List<String> dropped = new ArrayList<>();
+        execute(true, connection -> {
+            List<PartitionInfo> partitions = listPartitions(connection);
+            boolean hasDefault = partitions.stream().anyMatch(partition -> partition.to == null);
+            for (PartitionInfo partition : partitions) {
+                if (partition.to == null || partition.to.isAfter(cutoff)) {
+                    continue;
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(detachSql(partition.name, partition.detachPending, hasDefault));
+                    statement.execute("DROP TABLE IF EXISTS \"" + partition.name + "\"");
+                }
+                dropped.add(partition.name);
+            }
+        });
+        return dropped;
+    }
+
+    /**
+     * 查看按设备和时间范围查询实际扫描的分区，用于验证分区裁剪
+     *
+     * @return 执行计划中出现的分区名
+     */
+    public Set<String> scannedPartitions(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        Set<String> partitions = new LinkedHashSet<>();
+        execute(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + RANGE_QUERY_SQL)) {
+                statement.setString(1, deviceId);
+                statement.setTimestamp(2, Timestamp.valueOf(startTime));
+                statement.setTimestamp(3, Timestamp.valueOf(endTime));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Matcher matcher = SCANNED_PARTITION.matcher(resultSet.getString(1));
+                        while (matcher.find()) {
+                            partitions.add(matcher.group(1));
+                        }
+                    }
+                }
+            }
+            connection.rollback();
+        });
+        return partitions;
+    }
+
+    private void execute(ConnectionCallback callback) {
+        execute(false, callback);
+    }
+
+    /**
+     * @param autoCommit 为 true 时每条语句单独提交，用于不能在事务块中执行的语句
+     */
+    private void execute(boolean autoCommit, ConnectionCallback callback) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean originalAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(autoCommit);
+            try {
+                callback.doInConnection(connection);
+            } catch (SQLException | RuntimeException e) {
+                if (!autoCommit) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(originalAutoCommit);
+            }
+        } catch (SQLException e) {
+            log.error("水泵数据分区操作失败: {}", e.getMessage(), e);
+            throw new RuntimeException("水泵数据分区操作失败: " + e.getMessage());
+        }
+    }
+
+    private static List<PartitionInfo> listPartitions(Connection connection) throws SQLException {
+        List<PartitionInfo> partitions = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LIST_PARTITIONS_SQL)) {
+            while (resultSet.next()) {
+                String bound = resultSet.getString(2);
+                partitions.add(new PartitionInfo(resultSet.getString(1), parseLowerBound(bound),
+                        parseUpperBound(bound), resultSet.getBoolean(3)));
+            }
+        }
+        return partitions;
+    }
+
+    private static List<String> overlappingPartitions(List<PartitionInfo> partitions, LocalDateTime start, LocalDateTime end) {
+        return partitions.stream()
+                .filter(partition -> partition.overlaps(start, end))
+                .map(partition -> partition.name)
+                .toList();
+    }
+
+    /**
+     * 分离分区的SQL：中断过的并发分离用 FINALIZE 完成，无默认分区时并发分离
+     */
+    static String detachSql(String partition, boolean detachPending, boolean hasDefaultPartition) {
+        String sql = "ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION \"" + partition + "\"";
+        if (detachPending) {
+            return sql + " FINALIZE";
+        }
+        return hasDefaultPartition ? sql : sql + " CONCURRENTLY";
+    }
+
+    private boolean isDaily() {
+        return "day".equalsIgnoreCase(granularity);
+    }
+
+    LocalDateTime periodStart(LocalDateTime time) {
+        LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        return isDaily() ? day : day.withDayOfMonth(1);
+    }
+
+    LocalDateTime nextPeriod(LocalDateTime start, int periods) {
+        return isDaily() ? start.plusDays(periods) : start.plusMonths(periods);
+    }
+
+    /**
+     * 分区名：月分区 pump_data_p202401，日分区 pump_data_p20240115
+     */
+    String partitionName(LocalDateTime start) {
+        return PARENT_TABLE + "_p" + start.format(DateTimeFormatter.ofPattern(isDaily() ? "yyyyMMdd" : "yyyyMM"));
+    }
+
+    /**
+     * 解析分区边界表达式的上界，如 FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')；
+     * 默认分区返回 null
+     */
+    static LocalDateTime parseUpperBound(String boundExpression) {
+        return parseBound(UPPER_BOUND, boundExpression);
+    }
+
+    static LocalDateTime parseLowerBound(String boundExpression) {
+        return parseBound(LOWER_BOUND, boundExpression);
+    }
+
+    private static LocalDateTime parseBound(Pattern pattern, String boundExpression) {
+        if (boundExpression == null) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(boundExpression);
+        if (!matcher.find()) {
+            return null;
+        }
+        String value = matcher.group(1);
+        return LocalDateTime.parse(value.length() > 19 ? value.substring(0, 19) : value, BOUND_FORMAT);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionCallback {
+        void doInConnection(Connection connection) throws SQLException;
+    }
+
+    /**
+     * 已有分区及其范围，默认分区上下界为 null
+     */
+    private static class PartitionInfo {
+        private final String name;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final boolean detachPending;
+
+        PartitionInfo(String name, LocalDateTime from, LocalDateTime to, boolean detachPending) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+            this.detachPending = detachPending;
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return from != null && to != null && from.isBefore(end) && to.isAfter(start);
+        }
+    }
+
+    /**
+     * 分区维护结果
+     */
+    public static class MaintenanceResult {
+        private final List<String> createdPartitions;
+        private final List<String> droppedPartitions;
+
+        public MaintenanceResult(List<String> createdPartitions, List<String> droppedPartitions) {
+            this.createdPartitions = createdPartitions;
+            this.droppedPartitions = droppedPartitions;
+        }
+
+        public List<String> getCreatedPartitions() {
+            return createdPartitions;
+        }
+
+        public List<String> getDroppedPartitions() {
+            return droppedPartitions;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.pump.PumpDeviceStateDTO;
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 水泵设备最新状态
+ * <p>
+ * pump_device_state(V14迁移)由 pump_data 的语句级触发器在插入事务内维护。本服务在内存中保存一份镜像：
+ * 启动时整表加载，入库成功后按本批数据合并，定时整表刷新以合并其他实例写入的数据。
+ * 数值字段连同最近一次非空值的数据时间一起保存，按各自的时间合并。读取全部设备最新状态只遍历镜像，不访问 pump_data
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpDeviceStateService {
+
+    private static final PumpDataAggregate.Metric[] METRICS = PumpDataAggregate.Metric.values();
+
+    private static final String SELECT_ALL_SQL;
+
+    static {
+        StringBuilder columns = new StringBuilder("device_id, last_timestamp, pump_status, alarm_level, maintenance_flag");
+        for (PumpDataAggregate.Metric metric : METRICS) {
+            columns.append(", ").append(metric.getColumn()).append(", ").append(metric.getColumn()).append("_time");
+        }
+        SELECT_ALL_SQL = "SELECT " + columns + ", last_fault_code, last_fault_time, last_fault_alarm_level " +
+                "FROM pump_device_state";
+    }
+
+    private final DataSource dataSource;
+
+    @Value("${app.pump-data.device-state.enabled:true}")
+    private boolean enabled = true;
+
+    private final Map<String, DeviceState> states = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduledRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.pump-data.device-state.refresh-interval-ms:30000}")
+    public void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("刷新设备最新状态失败", e);
+        }
+    }
+
+    /**
+     * 从 pump_device_state 整表加载并合并到镜像
+     *
+     * @return 表中设备数
+     */
+    public int refresh() {
+        int count = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(SELECT_ALL_SQL)) {
+                while (resultSet.next()) {
+                    DeviceState state = readRow(resultSet);
+                    states.merge(state.getState().getDeviceId(), state, PumpDeviceStateService::merge);
+                    count++;
+                }
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            log.error("加载设备最新状态失败: {}", e.getMessage(), e);
+            throw new RuntimeException("加载设备最新状态失败: " + e.getMessage());
+        }
+        loaded = true;
+        return count;
+    }
+
+    /**
+     * 合并已入库的一批数据，与触发器的合并规则一致
+     */
+    public void apply(List<PumpDataEntity> records) {
+        if (!enabled || records.isEmpty()) {
+            return;
+        }
+        Map<String, DeviceState> batch = new HashMap<>();
+        for (PumpDataEntity record : records) {
+            if (record.getDeviceId() == null || record.getTimestamp() == null) {
+                continue;
+            }
+            batch.merge(record.getDeviceId(), fromRecord(record), PumpDeviceStateService::merge);
+        }
+        batch.forEach((deviceId, state) -> states.merge(deviceId, state, PumpDeviceStateService::merge));
+    }
+
+    /**
+     * 全部设备的最新状态，按设备ID排序
+     */
+    public List<PumpDeviceStateDTO> getAll() {
+        ensureLoaded();
+        List<PumpDeviceStateDTO> result = new ArrayList<>(states.size());
+        for (DeviceState state : states.values()) {
+            result.add(state.getState().toBuilder().build());
+        }
+        result.sort(Comparator.comparing(PumpDeviceStateDTO::getDeviceId));
+        return result;
+    }
+
+    /**
+     * 单个设备的最新状态，没有数据时返回 null
+     */
+    public PumpDeviceStateDTO get(String deviceId) {
+        ensureLoaded();
+        DeviceState state = states.get(deviceId);
+        return state != null ? state.getState().toBuilder().build() : null;
+    }
+
+    private void ensureLoaded() {
+        if (enabled && !loaded) {
+            refresh();
+        }
+    }
+
+    /**
+     * 合并两个状态，返回新对象：较新的时间戳决定状态字段，每个数值字段取非空值时间较晚的一方，
+     * 故障快照取较晚的故障。时间相同时保留 current，与入库时重复时间戳被忽略一致
+     */
+    static DeviceState merge(DeviceState current, DeviceState update) {
+        boolean newer = update.getState().getLastTimestamp().isAfter(current.getState().getLastTimestamp());
+        PumpDeviceStateDTO merged = (newer ? update : current).getState().toBuilder().build();
+
+        LocalDateTime[] valueTimes = new LocalDateTime[METRICS.length];
+        for (PumpDataAggregate.Metric metric : METRICS) {
+            int index = metric.ordinal();
+            LocalDateTime updateTime = update.valueTimes[index];
+            LocalDateTime currentTime = current.valueTimes[index];
+            DeviceState source = updateTime != null && (currentTime == null || updateTime.isAfter(currentTime))
+                    ? update : current;
+            setValue(merged, metric, value(source.getState(), metric));
+            valueTimes[index] = source.valueTimes[index];
+        }
+
+        PumpDeviceStateDTO fault = laterFault(current.getState(), update.getState());
+        merged.setLastFaultCode(fault.getLastFaultCode());
+        merged.setLastFaultTime(fault.getLastFaultTime());
+        merged.setLastFaultAlarmLevel(fault.getLastFaultAlarmLevel());
+        return new DeviceState(merged, valueTimes);
+    }
+
+    private static PumpDeviceStateDTO laterFault(PumpDeviceStateDTO current, PumpDeviceStateDTO update) {
+        if (update.getLastFaultTime() == null) {
+            return current;
+        }
+        if (current.getLastFaultTime() == null || update.getLastFaultTime().isAfter(current.getLastFaultTime())) {
+            return update;
+        }
+        return current;
+    }
+
+    private static Double value(PumpDeviceStateDTO state, PumpDataAggregate.Metric metric) {
+        switch (metric) {
+            case RUNTIME:
+                return state.getRuntimeMinutes();
+            case CURRENT:
+                return state.getCurrentAmperage();
+            case VOLTAGE:
+                return state.getVoltage();
+            case POWER:
+                return state.getPowerKw();
+            case ENERGY:
+                return state.getEnergyConsumptionKwh();
+            case PRESSURE:
+                return state.getWaterPressureKpa();
+            case FLOW:
+                return state.getFlowRateM3h();
+            case TEMPERATURE:
+                return state.getWaterTemperatureCelsius();
+            case VIBRATION:
+                return state.getVibrationMmS();
+            case NOISE:
+                return state.getNoiseLevelDb();
+            default:
+                throw new IllegalArgumentException("未知字段: " + metric);
+        }
+    }
+
+    private static void setValue(PumpDeviceStateDTO state, PumpDataAggregate.Metric metric, Double value) {
+        switch (metric) {
+            case RUNTIME:
+                state.setRuntimeMinutes(value);
+                break;
+            case CURRENT:
+                state.setCurrentAmperage(value);
+                break;
+            case VOLTAGE:
+                state.setVoltage(value);
+                break;
+            case POWER:
+                state.setPowerKw(value);
+                break;
+            case ENERGY:
+                state.setEnergyConsumptionKwh(value);
+                break;
+            case PRESSURE:
+                state.setWaterPressureKpa(value);
+                break;
+            case FLOW:
+                state.setFlowRateM3h(value);
+                break;
+            case TEMPERATURE:
+                state.setWaterTemperatureCelsius(value);
+                break;
+            case VIBRATION:
+                state.setVibrationMmS(value);
+                break;
+            case NOISE:
+                state.setNoiseLevelDb(value);
+                break;
+            default:
+                throw new IllegalArgumentException("未知字段: " + metric);
+        }
+    }
+
+    static DeviceState fromRecord(PumpDataEntity record) {
+        boolean fault = record.getFaultCode() != null && !record.getFaultCode().trim().isEmpty();
+        PumpDeviceStateDTO state = PumpDeviceStateDTO.builder()
+                .deviceId(record.getDeviceId())
+                .lastTimestamp(record.getTimestamp())
+                .pumpStatus(record.getPumpStatus())
+                .alarmLevel(record.getAlarmLevel())
+                .maintenanceFlag(record.getMaintenanceFlag())
+                .runtimeMinutes(record.getRuntimeMinutes())
+                .currentAmperage(record.getCurrentAmperage())
+                .voltage(record.getVoltage())
+                .powerKw(record.getPowerKw())
+                .energyConsumptionKwh(record.getEnergyConsumptionKwh())
+                .waterPressureKpa(record.getWaterPressureKpa())
+                .flowRateM3h(record.getFlowRateM3h())
+                .waterTemperatureCelsius(record.getWaterTemperatureCelsius())
+                .vibrationMmS(record.getVibrationMmS())
+                .noiseLevelDb(record.getNoiseLevelDb())
+                .lastFaultCode(fault ? record.getFaultCode() : null)
+                .lastFaultTime(fault ? record.getTimestamp() : null)
+                .lastFaultAlarmLevel(fault ? record.getAlarmLevel() : null)
+                .build();
+        LocalDateTime[] valueTimes = new LocalDateTime[METRICS.length];
+        for (PumpDataAggregate.Metric metric : METRICS) {
+            if (value(state, metric) != null) {
+                valueTimes[metric.ordinal()] = record.getTimestamp();
+            }
+        }
+        return new DeviceState(state, valueTimes);
+    }
+
+    private static DeviceState readRow(ResultSet resultSet) throws SQLException {
+        PumpDeviceStateDTO state = PumpDeviceStateDTO.builder()
+                .deviceId(resultSet.getString("device_id"))
+                .lastTimestamp(resultSet.getTimestamp("last_timestamp").toLocalDateTime())
+                .pumpStatus(resultSet.getObject("pump_status", Integer.class))
+                .alarmLevel(resultSet.getObject("alarm_level", Integer.class))
+                .maintenanceFlag(resultSet.getObject("maintenance_flag", Boolean.class))
+                .runtimeMinutes(resultSet.getObject("runtime_minutes", Double.class))
+                .currentAmperage(resultSet.getObject("current_amperage", Double.class))
+                .voltage(resultSet.getObject("voltage", Double.class))
+                .powerKw(resultSet.getObject("power_kw", Double.class))
+                .energyConsumptionKwh(resultSet.getObject("energy_consumption_kwh", Double.class))
+                .waterPressureKpa(resultSet.getObject("water_pressure_kpa", Double.class))
+                .flowRateM3h(resultSet.getObject("flow_rate_m3h", Double.class))
+                .waterTemperatureCelsius(resultSet.getObject("water_temperature_celsius", Double.class))
+                .vibrationMmS(resultSet.getObject("vibration_mm_s", Double.class))
+                .noiseLevelDb(resultSet.getObject("noise_level_db", Double.class))
+                .lastFaultCode(resultSet.getString("last_fault_code"))
+                .lastFaultTime(toLocalDateTime(resultSet.getTimestamp("last_fault_time")))
+                .lastFaultAlarmLevel(resultSet.getObject("last_fault_alarm_level", Integer.class))
+                .build();
+        LocalDateTime[] valueTimes = new LocalDateTime[METRICS.length];
+        for (PumpDataAggregate.Metric metric : METRICS) {
+            valueTimes[metric.ordinal()] = toLocalDateTime(resultSet.getTimestamp(metric.getColumn() + "_time"));
+        }
+        return new DeviceState(state, valueTimes);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * 镜像中的设备状态，valueTimes 按 Metric 顺序保存各数值字段最近一次非空值的数据时间
+     */
+    static final class DeviceState {
+        private final PumpDeviceStateDTO state;
+        private final LocalDateTime[] valueTimes;
+
+        DeviceState(PumpDeviceStateDTO state, LocalDateTime[] valueTimes) {
+            this.state = state;
+            this.valueTimes = valueTimes;
+        }
+
+        PumpDeviceStateDTO getState() {
+            return state;
+        }
+    }
+}
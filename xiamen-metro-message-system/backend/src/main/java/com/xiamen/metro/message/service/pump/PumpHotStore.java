@@ -0,0 +1,344 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.PumpDataRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 水泵近期数据热存储
+ * <p>
+ * 入库成功后把数据按设备写入堆外环形缓冲，保留最近 retention-hours 小时。分析读取的时间范围落在
+ * 缓冲覆盖范围内时，先用汇总表核对该范围在数据库中的行数：与缓冲内行数一致才直接返回，否则说明有
+ * 数据由其他实例或其他途径入库，回退到数据库读取原始数据。结束超过 seal-delay-minutes 的整点小时压缩
+ * 封存，缓冲写满时提前封存已结束的小时。按数据时间淘汰过期数据，总内存(含压缩块)超过预算时先停止扩容，
+ * 新设备再按最久未写入的顺序整体淘汰。默认关闭
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpHotStore {
+
+    private final PumpDataRepository pumpDataRepository;
+
+    @Value("${app.pump-data.hot-store.enabled:false}")
+    private boolean enabled = false;
+
+    /**
+     * 保留最近多少小时的数据
+     */
+    @Value("${app.pump-data.hot-store.retention-hours:24}")
+    private int retentionHours = 24;
+
+    /**
+     * 堆外内存总预算(MB)
+     */
+    @Value("${app.pump-data.hot-store.memory-budget-mb:256}")
+    private long memoryBudgetMb = 256;
+
+    /**
+     * 单设备初始行数，写满后倍增
+     */
+    @Value("${app.pump-data.hot-store.initial-rows-per-device:1024}")
+    private int initialRowsPerDevice = 1024;
+
+    /**
+     * 单设备最大行数，写满后覆盖最旧的数据
+     */
+    @Value("${app.pump-data.hot-store.max-rows-per-device:131072}")
+    private int maxRowsPerDevice = 131072;
+
+    /**
+     * 整点小时结束多少分钟后压缩封存，留出迟到数据的时间
+     */
+    @Value("${app.pump-data.hot-store.seal-delay-minutes:5}")
+    private int sealDelayMinutes = 5;
+
+    private final Map<String, PumpSampleRing> rings = new ConcurrentHashMap<>();
+    private final Map<String, Integer> faultCodeIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> faultCodes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextFaultCodeId = new AtomicInteger();
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong incompleteReads = new AtomicLong();
+    private final AtomicLong servedRows = new AtomicLong();
+    private final AtomicLong appendedRows = new AtomicLong();
+    private final AtomicLong evictedDevices = new AtomicLong();
+    private final AtomicLong expiredRows = new AtomicLong();
+    private final AtomicLong sealedRows = new AtomicLong();
+
+    /**
+     * 写入已入库的数据，早于设备缓冲覆盖起点的数据忽略
+     */
+    public void append(List<PumpDataEntity> records) {
+        if (!enabled || records.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long cutoff = now - retentionMillis();
+        int appended = 0;
+        for (PumpDataEntity record : records) {
+            if (record.getDeviceId() == null || record.getTimestamp() == null) {
+                continue;
+            }
+            long timestamp = Timestamp.valueOf(record.getTimestamp()).getTime();
+            if (timestamp < cutoff && !rings.containsKey(record.getDeviceId())) {
+                // 历史数据不为其新建缓冲
+                continue;
+            }
+            if (append(record, timestamp, now)) {
+                appended++;
+            }
+        }
+        appendedRows.addAndGet(appended);
+    }
+
+    private boolean append(PumpDataEntity record, long timestamp, long now) {
+        int faultCodeId = faultCodeId(record.getFaultCode());
+        while (true) {
+            PumpSampleRing ring = rings.get(record.getDeviceId());
+            if (ring == null) {
+                ring = createRing(record.getDeviceId(), now);
+                if (ring == null) {
+                    return false;
+                }
+            }
+            synchronized (ring) {
+                if (ring.isReleased()) {
+                    continue;
+                }
+                if (ring.isFull()) {
+                    seal(ring, Math.max(ring.lastTimestamp(), timestamp));
+                }
+                if (ring.isFull() && ring.capacity() < maxRowsPerDevice) {
+                    tryGrow(ring);
+                }
+                return ring.add(timestamp, record, faultCodeId, now);
+            }
+        }
+    }
+
+    /**
+     * 新设备缓冲从当前时刻开始覆盖；超出预算时淘汰最久未写入的设备
+     */
+    private PumpSampleRing createRing(String deviceId, long now) {
+        int capacity = Math.min(initialRowsPerDevice, maxRowsPerDevice);
+        long bytes = PumpSampleRing.bytesFor(capacity);
+        while (!reserve(bytes)) {
+            if (!evictLeastRecentlyWritten()) {
+                log.debug("热存储内存预算不足，设备 {} 不缓存", deviceId);
+                return null;
+            }
+        }
+        PumpSampleRing created = new PumpSampleRing(deviceId, capacity, now);
+        PumpSampleRing existing = rings.putIfAbsent(deviceId, created);
+        if (existing != null) {
+            allocatedBytes.addAndGet(-bytes);
+            return existing;
+        }
+        return created;
+    }
+
+    /**
+     * 倍增扩容；预算不足时保持容量，由环形缓冲覆盖最旧数据
+     */
+    private void tryGrow(PumpSampleRing ring) {
+        int newCapacity = (int) Math.min((long) ring.capacity() * 2, maxRowsPerDevice);
+        long extra = PumpSampleRing.bytesFor(newCapacity) - PumpSampleRing.bytesFor(ring.capacity());
+        if (reserve(extra)) {
+            ring.grow(newCapacity);
+        }
+    }
+
+    /**
+     * 封存 limit 所在小时之前的行；压缩块超出预算时丢弃这些数据，覆盖起点推后到封存界限
+     */
+    private void seal(PumpSampleRing ring, long limit) {
+        long before = ring.blockBytes();
+        int sealed = ring.sealBefore(limit, faultCodes::get);
+        if (sealed == 0) {
+            return;
+        }
+        long delta = ring.blockBytes() - before;
+        if (delta <= 0 || reserve(delta)) {
+            if (delta < 0) {
+                allocatedBytes.addAndGet(delta);
+            }
+            sealedRows.addAndGet(sealed);
+            return;
+        }
+        expiredRows.addAndGet(ring.evictBefore(PumpSampleRing.hourStart(limit)) + sealed);
+        allocatedBytes.addAndGet(ring.blockBytes() - before);
+    }
+
+    private boolean reserve(long bytes) {
+        long budget = memoryBudgetMb * 1024 * 1024;
+        while (true) {
+            long current = allocatedBytes.get();
+            if (current + bytes > budget) {
+                return false;
+            }
+            if (allocatedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean evictLeastRecentlyWritten() {
+        Optional<Map.Entry<String, PumpSampleRing>> victim = rings.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastAppendTime()));
+        if (victim.isEmpty()) {
+            return false;
+        }
+        release(victim.get().getKey(), victim.get().getValue());
+        evictedDevices.incrementAndGet();
+        return true;
+    }
+
+    private void release(String deviceId, PumpSampleRing ring) {
+        if (!rings.remove(deviceId, ring)) {
+            return;
+        }
+        synchronized (ring) {
+            allocatedBytes.addAndGet(-PumpSampleRing.bytesFor(ring.capacity()) - ring.blockBytes());
+            ring.release();
+        }
+    }
+
+    /**
+     * 读取设备在时间范围内的数据
+     *
+     * @return 范围未被完整覆盖或与数据库行数不一致时返回 null，调用方回退到数据库
+     */
+    public PumpSeries read(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        if (!enabled) {
+            return null;
+        }
+        PumpSampleRing ring = rings.get(deviceId);
+        if (ring != null) {
+            PumpSeries.Builder builder = PumpSeries.builder(deviceId);
+            boolean covered;
+            synchronized (ring) {
+                covered = ring.read(Timestamp.valueOf(startTime).getTime(), Timestamp.valueOf(endTime).getTime(),
+                        builder, faultCodes::get);
+            }
+            if (covered) {
+                PumpSeries series = builder.build();
+                if (!isComplete(deviceId, startTime, endTime, series)) {
+                    incompleteReads.incrementAndGet();
+                    misses.incrementAndGet();
+                    return null;
+                }
+                hits.incrementAndGet();
+                servedRows.addAndGet(series.size());
+                return series;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 缓冲与入库的 ON CONFLICT (device_id, timestamp) 一样按时间戳去重，且只写入已入库的行，
+     * 数据库中同一范围的行数相等即说明缓冲包含该范围的全部数据
+     */
+    private boolean isComplete(String deviceId, LocalDateTime startTime, LocalDateTime endTime, PumpSeries series) {
+        try {
+            long stored = pumpDataRepository.aggregate(deviceId, startTime, endTime).getRowCount();
+            if (stored != series.size()) {
+                log.debug("设备 {} 热存储 {} 行，数据库 {} 行，回退到数据库读取", deviceId, series.size(), stored);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("核对设备 {} 热存储覆盖失败，回退到数据库读取: {}", deviceId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按数据时间淘汰过期数据并封存已结束的小时，释放长时间无写入的空设备缓冲
+     */
+    @Scheduled(fixedDelayString = "${app.pump-data.hot-store.evict-interval-ms:60000}")
+    public void evictExpired() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long cutoff = now - retentionMillis();
+        long sealLimit = now - sealDelayMinutes * 60_000L;
+        for (Map.Entry<String, PumpSampleRing> entry : rings.entrySet()) {
+            PumpSampleRing ring = entry.getValue();
+            boolean idle;
+            synchronized (ring) {
+                if (ring.isReleased()) {
+                    continue;
+                }
+                long blockBytes = ring.blockBytes();
+                expiredRows.addAndGet(ring.evictBefore(cutoff));
+                allocatedBytes.addAndGet(ring.blockBytes() - blockBytes);
+                seal(ring, sealLimit);
+                idle = ring.isEmpty() && ring.lastAppendTime() < cutoff;
+            }
+            if (idle) {
+                release(entry.getKey(), ring);
+            }
+        }
+    }
+
+    /**
+     * 命中率与内存占用
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("devices", rings.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("incompleteReads", incompleteReads.get());
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("servedRows", servedRows.get());
+        stats.put("appendedRows", appendedRows.get());
+        stats.put("expiredRows", expiredRows.get());
+        stats.put("sealedRows", sealedRows.get());
+        stats.put("evictedDevices", evictedDevices.get());
+        stats.put("allocatedBytes", allocatedBytes.get());
+        stats.put("memoryBudgetBytes", memoryBudgetMb * 1024 * 1024);
+        return stats;
+    }
+
+    private int faultCodeId(String faultCode) {
+        if (faultCode == null || faultCode.trim().isEmpty()) {
+            return PumpSampleRing.NONE;
+        }
+        return faultCodeIds.computeIfAbsent(faultCode, code -> {
+            int id = nextFaultCodeId.getAndIncrement();
+            faultCodes.put(id, code);
+            return id;
+        });
+    }
+
+    private long retentionMillis() {
+        return retentionHours * 3600_000L;
+    }
+}
@@ -0,0 +1,330 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.MessageDataDTO;
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.service.FileParseService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * 单个文件的水泵数据入库流水线
+ * <p>
+ * 解析线程推送报文批次 → 提取线程执行 parsePumpData/validatePumpData → 入库线程攒批写入。
+ * 各阶段之间为有界队列，下游跟不上时上游阻塞；任一阶段失败时其余阶段随之中止
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+public class PumpIngestionPipeline implements FileParseService.RowSink {
+
+    private static final long OFFER_TIMEOUT_MS = 200;
+
+    /**
+     * 队列结束标记，按引用比较
+     */
+    private static final List<MessageDataDTO> END_OF_MESSAGES = new ArrayList<>();
+    private static final List<PumpDataEntity> END_OF_RECORDS = new ArrayList<>();
+
+    private final PumpDataParsingService pumpDataParsingService;
+    private final ToIntFunction<List<PumpDataEntity>> writer;
+    private final Consumer<Progress> progressListener;
+    private final int persistBatchSize;
+    private final long progressIntervalMs;
+    private final Runnable closeListener;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final BlockingQueue<List<MessageDataDTO>> messageQueue;
+    private final BlockingQueue<List<PumpDataEntity>> recordQueue;
+    private final List<Future<?>> extractors = new ArrayList<>();
+    private final List<Future<?>> persisters = new ArrayList<>();
+
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong pumpRecords = new AtomicLong();
+    private final AtomicLong rejectedRecords = new AtomicLong();
+    private final AtomicLong persistedRecords = new AtomicLong();
+    private final AtomicLong lastReportTime = new AtomicLong(System.currentTimeMillis());
+
+    private volatile Throwable failure;
+
+    public PumpIngestionPipeline(PumpDataParsingService pumpDataParsingService,
+                                 ToIntFunction<List<PumpDataEntity>> writer,
+                                 Consumer<Progress> progressListener,
+                                 ExecutorService executor,
+                                 int extractParallelism,
+                                 int persistParallelism,
+                                 int queueCapacity,
+                                 int persistBatchSize,
+                                 long progressIntervalMs) {
+        this(pumpDataParsingService, writer, progressListener, executor, extractParallelism, persistParallelism,
+                queueCapacity, persistBatchSize, progressIntervalMs, () -> {
+                });
+    }
+
+    /**
+     * @param writer        写入一批记录，返回实际新增的条数(重复导入时不含已存在的记录)
+     * @param closeListener 流水线结束(finish 返回或抛出、abort)时调用一次，用于归还入库并发名额
+     */
+    public PumpIngestionPipeline(PumpDataParsingService pumpDataParsingService,
+                                 ToIntFunction<List<PumpDataEntity>> writer,
+                                 Consumer<Progress> progressListener,
+                                 ExecutorService executor,
+                                 int extractParallelism,
+                                 int persistParallelism,
+                                 int queueCapacity,
+                                 int persistBatchSize,
+                                 long progressIntervalMs,
+                                 Runnable closeListener) {
+        this.closeListener = closeListener;
+        this.pumpDataParsingService = pumpDataParsingService;
+        this.writer = writer;
+        this.progressListener = progressListener;
+        this.persistBatchSize = Math.max(1, persistBatchSize);
+        this.progressIntervalMs = progressIntervalMs;
+        this.messageQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.recordQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+        for (int i = 0; i < Math.max(1, extractParallelism); i++) {
+            extractors.add(executor.submit(() -> runStage(this::extract)));
+        }
+        for (int i = 0; i < Math.max(1, persistParallelism); i++) {
+            persisters.add(executor.submit(() -> runStage(this::persist)));
+        }
+    }
+
+    @Override
+    public void onValid(List<MessageDataDTO> batch) {
+        if (!batch.isEmpty()) {
+            put(messageQueue, batch);
+        }
+    }
+
+    /**
+     * 等待所有阶段处理完毕，返回最终进度；任一阶段失败时在此抛出
+     */
+    public Progress finish() {
+        try {
+            for (int i = 0; i < extractors.size(); i++) {
+                put(messageQueue, END_OF_MESSAGES);
+            }
+            awaitAll(extractors);
+
+            for (int i = 0; i < persisters.size(); i++) {
+                put(recordQueue, END_OF_RECORDS);
+            }
+            awaitAll(persisters);
+        } catch (RuntimeException e) {
+            abort();
+            throw e;
+        }
+
+        try {
+            Progress progress = snapshot();
+            reportProgress(progress);
+            return progress;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 中止流水线，丢弃尚未处理的数据
+     */
+    public void abort() {
+        if (failure == null) {
+            failure = new IllegalStateException("入库流水线已中止");
+        }
+        messageQueue.clear();
+        recordQueue.clear();
+        extractors.forEach(future -> future.cancel(true));
+        persisters.forEach(future -> future.cancel(true));
+        close();
+    }
+
+    private void close() {
+        if (closed.compareAndSet(false, true)) {
+            closeListener.run();
+        }
+    }
+
+    /**
+     * 当前进度
+     */
+    public Progress snapshot() {
+        return new Progress(processedRows.get(), pumpRecords.get(), rejectedRecords.get(), persistedRecords.get());
+    }
+
+    /**
+     * 提取阶段：报文 → 水泵数据，校验不通过的记录只计数
+     */
+    private void extract() throws InterruptedException {
+        while (true) {
+            List<MessageDataDTO> batch = messageQueue.take();
+            if (batch == END_OF_MESSAGES) {
+                return;
+            }
+
+            List<PumpDataEntity> accepted = new ArrayList<>(batch.size());
+            int rejected = 0;
+            for (MessageDataDTO message : batch) {
+                for (PumpDataEntity pumpData : pumpDataParsingService.parsePumpData(message)) {
+                    if (pumpDataParsingService.validatePumpData(pumpData)) {
+                        accepted.add(pumpData);
+                    } else {
+                        rejected++;
+                    }
+                }
+            }
+
+            processedRows.addAndGet(batch.size());
+            pumpRecords.addAndGet(accepted.size() + rejected);
+            rejectedRecords.addAndGet(rejected);
+            if (!accepted.isEmpty()) {
+                put(recordQueue, accepted);
+            }
+        }
+    }
+
+    /**
+     * 入库阶段：攒够一批后写入
+     */
+    private void persist() throws InterruptedException {
+        List<PumpDataEntity> buffer = new ArrayList<>(persistBatchSize);
+        while (true) {
+            List<PumpDataEntity> records = recordQueue.take();
+            if (records == END_OF_RECORDS) {
+                flush(buffer);
+                return;
+            }
+
+            buffer.addAll(records);
+            if (buffer.size() >= persistBatchSize) {
+                flush(buffer);
+                buffer = new ArrayList<>(persistBatchSize);
+            }
+        }
+    }
+
+    private void flush(List<PumpDataEntity> buffer) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        persistedRecords.addAndGet(writer.applyAsInt(buffer));
+
+        long now = System.currentTimeMillis();
+        long last = lastReportTime.get();
+        if (now - last >= progressIntervalMs && lastReportTime.compareAndSet(last, now)) {
+            reportProgress(snapshot());
+        }
+    }
+
+    private void reportProgress(Progress progress) {
+        try {
+            progressListener.accept(progress);
+        } catch (RuntimeException e) {
+            log.warn("更新入库进度失败: {}", e.getMessage());
+        }
+    }
+
+    private void runStage(Stage stage) {
+        try {
+            stage.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            if (failure == null) {
+                log.error("水泵数据入库失败: {}", e.getMessage(), e);
+                failure = e;
+            }
+            messageQueue.clear();
+            recordQueue.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * 放入队列，队列满时阻塞；流水线已失败时不再等待
+     */
+    private <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            while (!queue.offer(item, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待入库队列被中断", e);
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new RuntimeException("水泵数据入库失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待入库完成被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw new RuntimeException("水泵数据入库失败: " + cause.getMessage(), cause);
+            }
+        }
+        checkFailure();
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * 入库进度
+     */
+    public static class Progress {
+        private final long processedRows;
+        private final long pumpRecords;
+        private final long rejectedRecords;
+        private final long persistedRecords;
+
+        public Progress(long processedRows, long pumpRecords, long rejectedRecords, long persistedRecords) {
+            this.processedRows = processedRows;
+            this.pumpRecords = pumpRecords;
+            this.rejectedRecords = rejectedRecords;
+            this.persistedRecords = persistedRecords;
+        }
+
+        public long getProcessedRows() {
+            return processedRows;
+        }
+
+        public long getPumpRecords() {
+            return pumpRecords;
+        }
+
+        public long getRejectedRecords() {
+            return rejectedRecords;
+        }
+
+        public long getPersistedRecords() {
+            return persistedRecords;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 水泵数据入库服务
+ * <p>
+ * 为每个上传文件创建一条入库流水线，把解析出的报文转成水泵数据并批量写入 pump_data
+ * (COPY协议，经临时表去重)，写入成功的数据同步进入近期数据热存储和设备最新状态镜像，入库进度定期回写到文件记录
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpIngestionService {
+
+    private final PumpDataParsingService pumpDataParsingService;
+    private final PumpDataBulkWriter pumpDataBulkWriter;
+    private final FileRepository fileRepository;
+    private final PumpHotStore pumpHotStore;
+    private final PumpDeviceStateService pumpDeviceStateService;
+
+    @Qualifier("pumpIngestionExecutor")
+    private final ThreadPoolTaskExecutor pumpIngestionExecutor;
+
+    /**
+     * 提取阶段线程数
+     */
+    @Value("${app.ingestion.extract-parallelism:2}")
+    private int extractParallelism = 2;
+
+    /**
+     * 入库阶段线程数
+     */
+    @Value("${app.ingestion.persist-parallelism:2}")
+    private int persistParallelism = 2;
+
+    /**
+     * 阶段间队列容量(批)
+     */
+    @Value("${app.ingestion.queue-capacity:16}")
+    private int queueCapacity = 16;
+
+    /**
+     * 单次写入的水泵数据条数
+     */
+    @Value("${app.ingestion.persist-batch-size:1000}")
+    private int persistBatchSize = 1000;
+
+    /**
+     * 进度回写间隔
+     */
+    @Value("${app.ingestion.progress-interval-ms:2000}")
+    private long progressIntervalMs = 2000;
+
+    private Semaphore admission;
+
+    /**
+     * 为文件创建入库流水线，调用方解析完成后需调用 finish，失败时调用 abort
+     * <p>
+     * 入库线程池的核心线程不足以再容纳一条流水线的全部阶段时，在此等待其他文件处理完毕
+     *
+     * @param fileId 文件ID
+     * @return 入库流水线
+     */
+    public PumpIngestionPipeline open(Long fileId) {
+        Semaphore permits = admission();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待入库线程被中断");
+        }
+
+        try {
+            return new PumpIngestionPipeline(
+                    pumpDataParsingService,
+                    this::write,
+                    progress -> updateProgress(fileId, progress),
+                    pumpIngestionExecutor.getThreadPoolExecutor(),
+                    extractParallelism,
+                    persistParallelism,
+                    queueCapacity,
+                    persistBatchSize,
+                    progressIntervalMs,
+                    permits::release);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 批量写入后同步热存储和设备状态，返回实际新增的条数
+     */
+    private int write(List<PumpDataEntity> records) {
+        int written = pumpDataBulkWriter.write(records);
+        pumpHotStore.append(records);
+        pumpDeviceStateService.apply(records);
+        return written;
+    }
+
+    private void updateProgress(Long fileId, PumpIngestionPipeline.Progress progress) {
+        fileRepository.updateIngestionProgress(fileId,
+                (int) progress.getProcessedRows(),
+                (int) progress.getPumpRecords(),
+                (int) progress.getRejectedRecords(),
+                (int) progress.getPersistedRecords());
+        log.debug("文件入库进度: fileId={}, 已处理行数={}, 已入库={}", fileId,
+                progress.getProcessedRows(), progress.getPersistedRecords());
+    }
+
+    /**
+     * 流水线各阶段线程在文件处理期间一直占用，同时运行的流水线数不超过核心线程数能容纳的条数，
+     * 保证阶段任务不会排在其他文件的阶段之后，也不会被拒绝后由调用线程执行
+     */
+    private synchronized Semaphore admission() {
+        if (admission == null) {
+            int stages = Math.max(1, extractParallelism) + Math.max(1, persistParallelism);
+            int corePoolSize = pumpIngestionExecutor.getCorePoolSize();
+            if (corePoolSize < stages) {
+                // 排队的阶段要等本流水线结束才有线程，流水线会互相等待
+                throw new IllegalStateException("入库线程池核心线程数" + corePoolSize + "小于单条流水线阶段数" + stages);
+            }
+            admission = new Semaphore(corePoolSize / stages, true);
+            log.info("入库流水线并发上限: {}", corePoolSize / stages);
+        }
+        return admission;
+    }
+}
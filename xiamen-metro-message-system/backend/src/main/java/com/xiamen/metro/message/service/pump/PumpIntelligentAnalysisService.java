@@ -1,8 +1,7 @@
 package com.xiamen.metro.message.service.pump;
 
-import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.config.ReplicaRead;
 import com.xiamen.metro.message.entity.PumpAnalysisResultEntity;
-import com.xiamen.metro.message.repository.PumpDataRepository;
 import com.xiamen.metro.message.repository.PumpAnalysisResultRepository;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisRequestDTO;
 import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
@@ -10,11 +9,16 @@ import com.xiamen.metro.message.service.glm.MessageAnalysisService;
 import com.xiamen.metro.message.service.alert.AlertManagementService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -28,7 +32,9 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PumpIntelligentAnalysisService {
 
-    private final PumpDataRepository pumpDataRepository;
+    private final PumpSeriesReader seriesReader;
+    private final PumpHotStore hotStore;
+    private final PumpAnalysisStateService analysisStateService;
     private final PumpAnalysisResultRepository analysisResultRepository;
     private final PumpAnomalyDetectionService anomalyDetectionService;
     private final PumpFaultPredictionService faultPredictionService;
@@ -37,6 +43,15 @@ public class PumpIntelligentAnalysisService {
     private final MessageAnalysisService messageAnalysisService;
     private final AlertManagementService alertManagementService;
 
+    @Qualifier("pumpAnalysisStageExecutor")
+    private final Executor pumpAnalysisStageExecutor;
+
+    @Value("${app.pump-data.analysis.parallel-stages:true}")
+    private boolean parallelStages = true;
+
+    @Value("${app.pump-data.analysis.stage-timeout-ms:10000}")
+    private long stageTimeoutMs = 10000;
+
     /**
      * 执行完整的水泵智能分析
      */
@@ -50,27 +65,41 @@ public class PumpIntelligentAnalysisService {
 
         try {
             // 1. 获取历史数据
-            List<PumpDataEntity> pumpData = getPumpData(request.getDeviceId(), request.getStartTime(), request.getEndTime());
+            PumpSeries pumpData = getPumpData(request.getDeviceId(), request.getStartTime(), request.getEndTime());
 
             if (pumpData.isEmpty()) {
                 return createEmptyResponse(analysisId, request.getDeviceId(), "未找到指定设备的历史数据");
             }
 
-            // 2. 执行各类分析
-            List<PumpAnalysisResponseDTO.AnalysisResult> analysisResults = executeAnalyses(request, pumpData);
+            // 2-5. 按依赖图执行：各类分析、性能评估与故障预测只依赖数据，并行执行；维护建议等待三者完成。
+            // 阶段失败或超时时性能评估、故障预测为 null，不参与评分
+            PumpAnalysisStageGraph stages = new PumpAnalysisStageGraph(
+                    parallelStages ? pumpAnalysisStageExecutor : Runnable::run);
 
-            // 3. 性能评估
-            PumpAnalysisResponseDTO.PerformanceMetrics performanceMetrics =
-                    performanceEvaluationService.evaluatePerformance(pumpData, request.getStartTime(), request.getEndTime());
+            CompletableFuture<List<PumpAnalysisResponseDTO.AnalysisResult>> analysesFuture =
+                    executeAnalyses(stages, request, pumpData);
+
+            CompletableFuture<PumpAnalysisResponseDTO.PerformanceMetrics> performanceFuture = stages.stage(
+                    PumpAnalysisRequestDTO.AnalysisType.PERFORMANCE_EVALUATION.name(), stageTimeoutMs,
+                    () -> performanceEvaluationService.evaluatePerformance(pumpData, request.getStartTime(), request.getEndTime()),
+                    error -> null);
 
-            // 4. 故障预测
-            PumpAnalysisResponseDTO.PredictionInfo predictionInfo =
-                    faultPredictionService.predictFaults(pumpData, request.getModelConfig());
+            CompletableFuture<PumpAnalysisResponseDTO.PredictionInfo> predictionFuture = stages.stage(
+                    PumpAnalysisRequestDTO.AnalysisType.FAULT_PREDICTION.name(), stageTimeoutMs,
+                    () -> faultPredictionService.predictFaults(pumpData, request.getModelConfig()),
+                    error -> null);
 
-            // 5. 生成维护建议
-            PumpAnalysisResponseDTO.MaintenanceRecommendations maintenanceRecommendations =
-                    maintenanceRecommendationService.generateMaintenanceRecommendations(
-                            pumpData, analysisResults, predictionInfo, performanceMetrics);
+            CompletableFuture<PumpAnalysisResponseDTO.MaintenanceRecommendations> maintenanceFuture = stages.stage(
+                    "MAINTENANCE_RECOMMENDATION", stageTimeoutMs,
+                    List.of(analysesFuture, performanceFuture, predictionFuture),
+                    () -> generateMaintenanceRecommendations(
+                            pumpData, analysesFuture.join(), predictionFuture.join(), performanceFuture.join()),
+                    error -> createEmptyMaintenanceRecommendations());
+
+            List<PumpAnalysisResponseDTO.AnalysisResult> analysisResults = analysesFuture.join();
+            PumpAnalysisResponseDTO.PerformanceMetrics performanceMetrics = performanceFuture.join();
+            PumpAnalysisResponseDTO.PredictionInfo predictionInfo = predictionFuture.join();
+            PumpAnalysisResponseDTO.MaintenanceRecommendations maintenanceRecommendations = maintenanceFuture.join();
 
             // 6. 计算总体健康评分和风险等级
             double overallHealthScore = calculateOverallHealthScore(analysisResults, performanceMetrics);
@@ -85,13 +114,14 @@ public class PumpIntelligentAnalysisService {
                     .overallHealthScore(overallHealthScore)
                     .riskLevel(riskLevel)
                     .analysisResults(analysisResults)
-                    .performanceMetrics(performanceMetrics)
+                    .performanceMetrics(performanceMetrics != null ? performanceMetrics : createEmptyPerformanceMetrics())
                     .maintenanceRecommendations(maintenanceRecommendations)
-                    .predictionInfo(predictionInfo)
+                    .predictionInfo(predictionInfo != null ? predictionInfo : createEmptyPredictionInfo())
                     .processingTimeMs(System.currentTimeMillis() - startTime)
                     .fromCache(false)
                     .confidenceScore(calculateOverallConfidence(analysisResults, predictionInfo))
                     .modelVersion(request.getModelConfig() != null ? request.getModelConfig().getModelVersion() : "1.0")
+                    .stageTimings(stages.timings())
                     .build();
 
             // 8. 保存分析结果
@@ -121,55 +151,258 @@ public class PumpIntelligentAnalysisService {
     }
 
     /**
-     * 获取水泵数据
+     * 长时间范围分析
+     * <p>
+     * 通过服务端游标分块扫描历史数据，单遍累计启泵频率、运行时间和能耗趋势，内存占用与时间范围无关；
+     * 性能指标来自汇总表。需要完整序列的故障预测、异常分类和GLM分析不在此执行
+     */
+    @Transactional(readOnly = true)
+    public PumpAnalysisResponseDTO performLongRangeAnalysis(PumpAnalysisRequestDTO request) {
+        long startTime = System.currentTimeMillis();
+        String analysisId = UUID.randomUUID().toString();
+
+        log.info("开始水泵长时间范围分析，ID: {}, 设备: {}, 时间范围: {} - {}",
+                analysisId, request.getDeviceId(), request.getStartTime(), request.getEndTime());
+
+        try {
+            // 1. 分块扫描并单遍统计
+            PumpStreamingStats stats = new PumpStreamingStats();
+            long rows = seriesReader.scan(request.getDeviceId(), request.getStartTime(), request.getEndTime(), stats);
+
+            if (rows == 0) {
+                return createEmptyResponse(analysisId, request.getDeviceId(), "未找到指定设备的历史数据");
+            }
+
+            // 2. 执行可单遍计算的分析
+            Set<PumpAnalysisRequestDTO.AnalysisType> analysisTypes = request.getAnalysisTypes() != null ?
+                    new HashSet<>(request.getAnalysisTypes()) :
+                    EnumSet.allOf(PumpAnalysisRequestDTO.AnalysisType.class);
+            PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig = request.getThresholdConfig();
+
+            List<PumpAnalysisResponseDTO.AnalysisResult> analysisResults = new ArrayList<>();
+            if (analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.STARTUP_FREQUENCY)) {
+                analysisResults.add(anomalyDetectionService.detectStartupFrequencyAnomaly(stats, thresholdConfig));
+            }
+            if (analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.RUNTIME_ANALYSIS)) {
+                analysisResults.add(anomalyDetectionService.detectRuntimeAnomaly(stats, thresholdConfig));
+            }
+            if (analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.ENERGY_TREND)) {
+                analysisResults.add(anomalyDetectionService.analyzeEnergyTrend(stats, thresholdConfig));
+            }
+
+            // 3. 性能评估(汇总表)
+            PumpAnalysisResponseDTO.PerformanceMetrics performanceMetrics =
+                    performanceEvaluationService.evaluatePerformance(
+                            request.getDeviceId(), request.getStartTime(), request.getEndTime());
+
+            // 4. 计算总体健康评分和风险等级
+            double overallHealthScore = calculateOverallHealthScore(analysisResults, performanceMetrics);
+            String riskLevel = determineRiskLevel(analysisResults, null);
+
+            PumpAnalysisResponseDTO response = PumpAnalysisResponseDTO.builder()
+                    .analysisId(analysisId)
+                    .deviceId(request.getDeviceId())
+                    .analysisTime(LocalDateTime.now())
+                    .status("SUCCESS")
+                    .overallHealthScore(overallHealthScore)
+                    .riskLevel(riskLevel)
+                    .analysisResults(analysisResults)
+                    .performanceMetrics(performanceMetrics)
+                    .maintenanceRecommendations(createEmptyMaintenanceRecommendations())
+                    .predictionInfo(createEmptyPredictionInfo())
+                    .processingTimeMs(System.currentTimeMillis() - startTime)
+                    .fromCache(false)
+                    .confidenceScore(calculateOverallConfidence(analysisResults, null))
+                    .modelVersion(request.getModelConfig() != null ? request.getModelConfig().getModelVersion() : "1.0")
+                    .build();
+
+            log.info("水泵长时间范围分析完成，ID: {}, 行数: {}, 耗时: {}ms, 健康评分: {}, 风险等级: {}",
+                    analysisId, rows, response.getProcessingTimeMs(), overallHealthScore, riskLevel);
+
+            return response;
+
+        } catch (Exception e) {
+            log.error("水泵长时间范围分析失败，ID: {}", analysisId, e);
+            return createErrorResponse(analysisId, request.getDeviceId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 增量分析
+     * <p>
+     * 按设备保存分析窗口的时间片状态，每次只折叠上次水位线之后的新数据，窗口统计由时间片合并得到。
+     * 窗口起点对齐到时间片(比请求范围最多早一个时间片)，终点为 endTime。支持启泵频率、运行时间、
+     * 能耗趋势与异常分类，异常分类附带各监测量相对 EWMA 基线的偏离；性能指标按请求范围来自汇总表。
+     * 不做需要完整序列的故障预测、维护建议和GLM分析，风险等级只由分析结果得出，
+     * 故障概率、剩余寿命类告警规则不会由增量分析触发。分析结果照常保存，告警由调用方处理
+     */
+    @Transactional
+    public PumpAnalysisResponseDTO performIncrementalAnalysis(PumpAnalysisRequestDTO request) {
+        long startTime = System.currentTimeMillis();
+        String analysisId = UUID.randomUUID().toString();
+
+        try {
+            // 1. 推进设备状态到请求终点
+            PumpAnalysisState.WindowSnapshot window = analysisStateService.advance(request.getDeviceId(), request.getEndTime());
+            PumpStreamingStats stats = window.getStats();
+
+            if (stats.getRowCount() == 0) {
+                return createEmptyResponse(analysisId, request.getDeviceId(), "未找到指定设备的历史数据");
+            }
+
+            // 2. 执行可由窗口状态计算的分析
+            Set<PumpAnalysisRequestDTO.AnalysisType> analysisTypes = request.getAnalysisTypes() != null ?
+                    new HashSet<>(request.getAnalysisTypes()) :
+                    EnumSet.allOf(PumpAnalysisRequestDTO.AnalysisType.class);
+            PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig = request.getThresholdConfig();
+
+            List<PumpAnalysisResponseDTO.AnalysisResult> analysisResults = new ArrayList<>();
+            if (analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.STARTUP_FREQUENCY)) {
+                analysisResults.add(anomalyDetectionService.detectStartupFrequencyAnomaly(stats, thresholdConfig));
+            }
+            if (analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.RUNTIME_ANALYSIS)) {
+                analysisResults.add(anomalyDetectionService.detectRuntimeAnomaly(stats, thresholdConfig));
+            }
+            if (analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.ENERGY_TREND)) {
+                analysisResults.add(anomalyDetectionService.analyzeEnergyTrend(stats, thresholdConfig));
+            }
+            if (analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.ANOMALY_CLASSIFICATION)) {
+                analysisResults.add(anomalyClassificationResult(
+                        window.getFaultCount(), window.getAlarmCount(), stats.getRowCount()));
+                if (!window.getBaselineDeviations().isEmpty()) {
+                    analysisResults.add(baselineDeviationResult(window));
+                }
+            }
+
+            // 3. 性能评估(汇总表)
+            PumpAnalysisResponseDTO.PerformanceMetrics performanceMetrics =
+                    analysisTypes.contains(PumpAnalysisRequestDTO.AnalysisType.PERFORMANCE_EVALUATION) ?
+                            performanceEvaluationService.evaluatePerformance(
+                                    request.getDeviceId(), request.getStartTime(), request.getEndTime()) :
+                            createEmptyPerformanceMetrics();
+
+            // 4. 计算总体健康评分和风险等级
+            double overallHealthScore = calculateOverallHealthScore(analysisResults, performanceMetrics);
+            String riskLevel = determineRiskLevel(analysisResults, null);
+
+            PumpAnalysisResponseDTO response = PumpAnalysisResponseDTO.builder()
+                    .analysisId(analysisId)
+                    .deviceId(request.getDeviceId())
+                    .analysisTime(LocalDateTime.now())
+                    .status("SUCCESS")
+                    .overallHealthScore(overallHealthScore)
+                    .riskLevel(riskLevel)
+                    .analysisResults(analysisResults)
+                    .performanceMetrics(performanceMetrics)
+                    .maintenanceRecommendations(createEmptyMaintenanceRecommendations())
+                    .predictionInfo(createEmptyPredictionInfo())
+                    .processingTimeMs(System.currentTimeMillis() - startTime)
+                    .fromCache(false)
+                    .confidenceScore(calculateOverallConfidence(analysisResults, null))
+                    .modelVersion(request.getModelConfig() != null ? request.getModelConfig().getModelVersion() : "1.0")
+                    .build();
+
+            saveAnalysisResults(request, response);
+
+            log.debug("水泵增量分析完成，ID: {}, 设备: {}, 窗口行数: {}, 水位线: {}, 耗时: {}ms",
+                    analysisId, request.getDeviceId(), stats.getRowCount(), window.getWatermark(),
+                    response.getProcessingTimeMs());
+
+            return response;
+
+        } catch (Exception e) {
+            log.error("水泵增量分析失败，ID: {}", analysisId, e);
+            return createErrorResponse(analysisId, request.getDeviceId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 获取水泵数据：近期范围优先从热存储读取，否则列式读取分析所需字段，不加载原始报文、不进入持久化上下文。
+     * 返回的列式数据由本次分析的各项计算共享，派生视图只计算一次
      */
-    private List<PumpDataEntity> getPumpData(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
-        return pumpDataRepository.findByDeviceIdAndTimestampBetweenOrderByTimestampAsc(deviceId, startTime, endTime);
+    private PumpSeries getPumpData(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        PumpSeries series = hotStore.read(deviceId, startTime, endTime);
+        if (series == null) {
+            series = seriesReader.read(deviceId, startTime, endTime);
+        }
+        return series;
     }
 
     /**
-     * 执行各类分析
+     * 执行各类分析：每种分析为一个阶段并行执行，失败或超时的分析以失败结果代替；
+     * 启用GLM集成时，智能异常分类在全部分析完成后执行
      */
-    private List<PumpAnalysisResponseDTO.AnalysisResult> executeAnalyses(
-            PumpAnalysisRequestDTO request, List<PumpDataEntity> pumpData) {
+    private CompletableFuture<List<PumpAnalysisResponseDTO.AnalysisResult>> executeAnalyses(
+            PumpAnalysisStageGraph stages, PumpAnalysisRequestDTO request, PumpSeries pumpData) {
 
-        List<PumpAnalysisResponseDTO.AnalysisResult> results = new ArrayList<>();
         Set<PumpAnalysisRequestDTO.AnalysisType> analysisTypes = request.getAnalysisTypes() != null ?
                 new HashSet<>(request.getAnalysisTypes()) :
                 EnumSet.allOf(PumpAnalysisRequestDTO.AnalysisType.class);
 
-        // 根据请求的分析类型执行相应分析
+        // 根据请求的分析类型执行相应分析，故障预测和性能评估作为独立阶段执行
+        List<CompletableFuture<PumpAnalysisResponseDTO.AnalysisResult>> futures = new ArrayList<>();
         for (PumpAnalysisRequestDTO.AnalysisType analysisType : analysisTypes) {
-            try {
-                PumpAnalysisResponseDTO.AnalysisResult result = executeSpecificAnalysis(
-                        analysisType, pumpData, request.getThresholdConfig());
-                if (result != null) {
-                    results.add(result);
-                }
-            } catch (Exception e) {
-                log.error("执行 {} 分析失败", analysisType.getDescription(), e);
-                // 创建错误结果
-                results.add(PumpAnalysisResponseDTO.AnalysisResult.builder()
-                        .analysisType(analysisType.getDescription())
-                        .severityLevel(1)
-                        .confidence(0.0)
-                        .description("分析执行失败: " + e.getMessage())
-                        .detectedValue(null)
-                        .expectedValue(null)
-                        .deviationPercentage(null)
-                        .trendDirection("UNKNOWN")
-                        .detailedMetrics(new HashMap<>())
-                        .recommendations(new ArrayList<>())
-                        .build());
+            if (analysisType == PumpAnalysisRequestDTO.AnalysisType.FAULT_PREDICTION
+                    || analysisType == PumpAnalysisRequestDTO.AnalysisType.PERFORMANCE_EVALUATION) {
+                continue;
             }
+            futures.add(stages.stage(analysisType.name(), stageTimeoutMs,
+                    () -> executeSpecificAnalysis(analysisType, pumpData, request.getThresholdConfig()),
+                    error -> createFailedAnalysisResult(analysisType, error)));
         }
 
+        CompletableFuture<List<PumpAnalysisResponseDTO.AnalysisResult>> results = CompletableFuture
+                .allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> futures.stream()
+                        .map(CompletableFuture::join)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+
         // 如果启用了GLM集成，进行智能异常分类
-        if (shouldUseGlmAnalysis(request)) {
-            performGlmIntelligentClassification(results, pumpData, request);
+        if (!shouldUseGlmAnalysis(request)) {
+            return results;
         }
+        return stages.stage("GLM_CLASSIFICATION", stageTimeoutMs, List.of(results),
+                () -> {
+                    performGlmIntelligentClassification(results.join(), pumpData, request);
+                    return results.join();
+                },
+                error -> results.join());
+    }
 
-        return results;
+    /**
+     * 创建分析失败的结果
+     */
+    private PumpAnalysisResponseDTO.AnalysisResult createFailedAnalysisResult(
+            PumpAnalysisRequestDTO.AnalysisType analysisType, Throwable error) {
+        return PumpAnalysisResponseDTO.AnalysisResult.builder()
+                .analysisType(analysisType.getDescription())
+                .severityLevel(1)
+                .confidence(0.0)
+                .description("分析执行失败: " + (error instanceof TimeoutException ? "执行超时" : error.getMessage()))
+                .detectedValue(null)
+                .expectedValue(null)
+                .deviationPercentage(null)
+                .trendDirection("UNKNOWN")
+                .detailedMetrics(new HashMap<>())
+                .recommendations(new ArrayList<>())
+                .build();
+    }
+
+    /**
+     * 生成维护建议，性能评估或故障预测未能完成时不生成
+     */
+    private PumpAnalysisResponseDTO.MaintenanceRecommendations generateMaintenanceRecommendations(
+            PumpSeries pumpData,
+            List<PumpAnalysisResponseDTO.AnalysisResult> analysisResults,
+            PumpAnalysisResponseDTO.PredictionInfo predictionInfo,
+            PumpAnalysisResponseDTO.PerformanceMetrics performanceMetrics) {
+        if (predictionInfo == null || performanceMetrics == null) {
+            log.warn("性能评估或故障预测未完成，跳过维护建议，设备: {}", pumpData.getDeviceId());
+            return createEmptyMaintenanceRecommendations();
+        }
+        return maintenanceRecommendationService.generateMaintenanceRecommendations(
+                pumpData, analysisResults, predictionInfo, performanceMetrics);
     }
 
     /**
@@ -177,7 +410,7 @@ public class PumpIntelligentAnalysisService {
      */
     private PumpAnalysisResponseDTO.AnalysisResult executeSpecificAnalysis(
             PumpAnalysisRequestDTO.AnalysisType analysisType,
-            List<PumpDataEntity> pumpData,
+            PumpSeries pumpData,
             PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
         switch (analysisType) {
@@ -206,22 +439,20 @@ public class PumpIntelligentAnalysisService {
      * 执行异常分类
      */
     private PumpAnalysisResponseDTO.AnalysisResult performAnomalyClassification(
-            List<PumpDataEntity> pumpData, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
+            PumpSeries pumpData, PumpAnalysisRequestDTO.ThresholdConfig thresholdConfig) {
 
         // 统计各类异常
-        long faultCount = pumpData.stream()
-                .filter(data -> data.getFaultCode() != null && !data.getFaultCode().trim().isEmpty())
-                .count();
+        return anomalyClassificationResult(pumpData.faultCodes().size(), pumpData.alarmCount(), pumpData.size());
+    }
 
-        long alarmCount = pumpData.stream()
-                .filter(data -> data.getAlarmLevel() != null && data.getAlarmLevel() > 1)
-                .count();
+    private PumpAnalysisResponseDTO.AnalysisResult anomalyClassificationResult(
+            long faultCount, long alarmCount, long totalRecords) {
 
-        double anomalyRate = (double) (faultCount + alarmCount) / pumpData.size() * 100;
+        double anomalyRate = (double) (faultCount + alarmCount) / totalRecords * 100;
         int severityLevel = anomalyRate > 20 ? 4 : anomalyRate > 10 ? 3 : anomalyRate > 5 ? 2 : 1;
 
         Map<String, Object> detailedMetrics = new HashMap<>();
-        detailedMetrics.put("totalRecords", pumpData.size());
+        detailedMetrics.put("totalRecords", (int) totalRecords);
         detailedMetrics.put("faultCount", faultCount);
         detailedMetrics.put("alarmCount", alarmCount);
         detailedMetrics.put("anomalyRate", anomalyRate);
@@ -248,6 +479,50 @@ public class PumpIntelligentAnalysisService {
                 .build();
     }
 
+    /**
+     * 基线偏离检测：最新时间片各监测量均值与 EWMA 基线比较，按偏离最大的监测量定级
+     */
+    private PumpAnalysisResponseDTO.AnalysisResult baselineDeviationResult(PumpAnalysisState.WindowSnapshot window) {
+        PumpAnalysisState.BaselineDeviation worst = null;
+        Map<String, Object> detailedMetrics = new HashMap<>();
+        for (PumpAnalysisState.BaselineDeviation deviation : window.getBaselineDeviations()) {
+            String prefix = deviation.getMetric().getPrefix();
+            detailedMetrics.put(prefix + "Current", deviation.getCurrent());
+            detailedMetrics.put(prefix + "Baseline", deviation.getBaseline());
+            detailedMetrics.put(prefix + "ZScore", deviation.getZScore());
+            if (worst == null || Math.abs(deviation.getZScore()) > Math.abs(worst.getZScore())) {
+                worst = deviation;
+            }
+        }
+        if (window.getLastStartEvent() != null) {
+            detailedMetrics.put("lastStartEvent", window.getLastStartEvent().toString());
+        }
+
+        double zScore = Math.abs(worst.getZScore());
+        int severityLevel = zScore > 6 ? 4 : zScore > 4 ? 3 : zScore > 3 ? 2 : 1;
+
+        List<String> recommendations = new ArrayList<>();
+        if (severityLevel > 1) {
+            recommendations.add(String.format("%s偏离基线%.1f倍标准差，建议检查运行工况", worst.getMetric().getPrefix(), zScore));
+        }
+
+        return PumpAnalysisResponseDTO.AnalysisResult.builder()
+                .analysisType("基线偏离检测")
+                .severityLevel(severityLevel)
+                .confidence(0.7)
+                .description(String.format("%s当前均值: %.2f, EWMA基线: %.2f, 偏离: %.1f%%",
+                        worst.getMetric().getPrefix(), worst.getCurrent(), worst.getBaseline(),
+                        worst.getDeviationPercentage()))
+                .detectedValue(worst.getCurrent())
+                .expectedValue(worst.getBaseline())
+                .deviationPercentage(worst.getDeviationPercentage())
+                .trendDirection(severityLevel == 1 ? "STABLE" :
+                        worst.getCurrent() > worst.getBaseline() ? "INCREASING" : "DECREASING")
+                .detailedMetrics(detailedMetrics)
+                .recommendations(recommendations)
+                .build();
+    }
+
     /**
      * 判断是否使用GLM分析
      */
@@ -261,7 +536,7 @@ public class PumpIntelligentAnalysisService {
      */
     private void performGlmIntelligentClassification(
             List<PumpAnalysisResponseDTO.AnalysisResult> results,
-            List<PumpDataEntity> pumpData,
+            PumpSeries pumpData,
             PumpAnalysisRequestDTO request) {
 
         try {
@@ -484,6 +759,8 @@ public class PumpIntelligentAnalysisService {
     /**
      * 获取设备健康状态摘要
      */
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public Map<String, Object> getDeviceHealthSummary(String deviceId, LocalDateTime since) {
         List<PumpAnalysisResultEntity> recentResults = analysisResultRepository.findByDeviceIdAndAnalysisTimestampBetweenOrderByAnalysisTimestampDesc(
                 deviceId, since, LocalDateTime.now());
@@ -0,0 +1,413 @@
+package com.xiamen.metro.message.service.pump;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 水泵报文单遍扫描器
+ * <p>
+ * 用全部字段标签构建Aho-Corasick自动机，对报文只遍历一次：每命中一个标签，
+ * 就地读取其后的冒号、空白、数值和单位。每个字段取起始位置最靠前的匹配，
+ * 同一位置按标签声明顺序取第一个成功者，与逐字段正则 find() 的结果一致。
+ * 标签与单位仅对ASCII字母忽略大小写，同 Pattern.CASE_INSENSITIVE
+ *
+ * @author Xiamen Metro System
+ */
+public final class PumpMessageScanner {
+
+    /**
+     * 报文字段定义，标签与单位顺序即正则中的分支顺序
+     * <p>
+     * 电流、电压单位沿用原正则 [Aa]安、[Vv]伏 的含义，即字母后紧跟中文单位
+     */
+    public enum Field {
+        DEVICE_ID(ValueType.IDENTIFIER, new String[]{"设备ID", "Device", "设备"}),
+        TIMESTAMP(ValueType.TIMESTAMP, new String[]{"时间", "Time", "时间戳"}),
+        PUMP_STATUS(ValueType.STATUS, new String[]{"水泵状态", "运行状态", "Status", "启停"}),
+        RUNTIME_MINUTES(ValueType.DECIMAL, new String[]{"运行时间", "Runtime", "连续运行"}, "分钟", "min"),
+        CURRENT_AMPERAGE(ValueType.DECIMAL, new String[]{"电流", "Current", "I"}, "A安"),
+        VOLTAGE(ValueType.DECIMAL, new String[]{"电压", "Voltage", "U"}, "V伏"),
+        POWER_KW(ValueType.DECIMAL, new String[]{"功率", "Power", "P"}, "kW", "千瓦"),
+        ENERGY_CONSUMPTION_KWH(ValueType.DECIMAL, new String[]{"能耗", "能量", "Energy", "电度"}, "kWh", "度"),
+        WATER_PRESSURE_KPA(ValueType.DECIMAL, new String[]{"水压", "压力", "Pressure"}, "kPa", "千帕"),
+        FLOW_RATE_M3H(ValueType.DECIMAL, new String[]{"流量", "Flow", "Q"}, "m³/h", "立方米/小时"),
+        WATER_TEMPERATURE_CELSIUS(ValueType.DECIMAL, new String[]{"水温", "温度", "Temperature", "T"}, "°C", "摄氏度", "℃"),
+        VIBRATION_MM_S(ValueType.DECIMAL, new String[]{"振动", "Vibration", "Vib"}, "mm/s", "毫米/秒"),
+        NOISE_LEVEL_DB(ValueType.DECIMAL, new String[]{"噪音", "噪声", "Noise", "N"}, "dB", "分贝"),
+        FAULT_CODE(ValueType.IDENTIFIER, new String[]{"故障代码", "Fault", "Error", "报警"}),
+        ALARM_LEVEL(ValueType.INTEGER, new String[]{"报警级别", "Alarm", "Level", "等级"});
+
+        private final ValueType valueType;
+        private final String[] labels;
+        private final String[] units;
+
+        Field(ValueType valueType, String[] labels, String... units) {
+            this.valueType = valueType;
+            this.labels = labels;
+            this.units = units;
+        }
+    }
+
+    private enum ValueType {
+        IDENTIFIER, TIMESTAMP, STATUS, DECIMAL, INTEGER
+    }
+
+    /**
+     * 水泵状态取值，顺序同正则分支
+     */
+    private static final String[] STATUS_VALUES = {"启动", "停止", "运行", "关闭", "0", "1", "ON", "OFF"};
+
+    /**
+     * 判定水泵相关报文的关键字，给水泵、排水泵、water pump已被前两者覆盖
+     */
+    private static final String[] PUMP_KEYWORDS = {"pump", "水泵", "消防泵"};
+
+    private static final int KEYWORD_FIELD = -1;
+
+    private static final Field[] FIELDS = Field.values();
+
+    private static final PumpMessageScanner INSTANCE = new PumpMessageScanner();
+
+    // 自动机：每个状态的出边按字符排序存放，输出为命中的标签(已合并后缀链接)
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    private final int[][] outputs;
+
+    /**
+     * 标签元数据，下标即标签编号
+     */
+    private final int[] labelField;
+    private final int[] labelOrder;
+    private final int[] labelLength;
+
+    public static PumpMessageScanner getInstance() {
+        return INSTANCE;
+    }
+
+    private PumpMessageScanner() {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        trie.add(new HashMap<>());
+        terminal.add(new ArrayList<>());
+
+        List<int[]> labels = new ArrayList<>();
+        for (Field field : FIELDS) {
+            for (int order = 0; order < field.labels.length; order++) {
+                labels.add(new int[]{field.ordinal(), order, field.labels[order].length()});
+                insert(trie, terminal, field.labels[order], labels.size() - 1);
+            }
+        }
+        for (String keyword : PUMP_KEYWORDS) {
+            labels.add(new int[]{KEYWORD_FIELD, 0, keyword.length()});
+            insert(trie, terminal, keyword, labels.size() - 1);
+        }
+
+        labelField = new int[labels.size()];
+        labelOrder = new int[labels.size()];
+        labelLength = new int[labels.size()];
+        for (int i = 0; i < labels.size(); i++) {
+            labelField[i] = labels.get(i)[0];
+            labelOrder[i] = labels.get(i)[1];
+            labelLength[i] = labels.get(i)[2];
+        }
+
+        int size = trie.size();
+        edgeChars = new char[size][];
+        edgeTargets = new int[size][];
+        for (int state = 0; state < size; state++) {
+            Character[] keys = trie.get(state).keySet().toArray(new Character[0]);
+            Arrays.sort(keys);
+            edgeChars[state] = new char[keys.length];
+            edgeTargets[state] = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                edgeChars[state][i] = keys[i];
+                edgeTargets[state][i] = trie.get(state).get(keys[i]);
+            }
+        }
+
+        // 广度优先计算失败链接并合并输出
+        failure = new int[size];
+        List<List<Integer>> merged = new ArrayList<>();
+        for (int state = 0; state < size; state++) {
+            merged.add(new ArrayList<>(terminal.get(state)));
+        }
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int child : edgeTargets[0]) {
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                char c = edgeChars[state][i];
+                int child = edgeTargets[state][i];
+                int fallback = failure[state];
+                while (fallback != 0 && edge(fallback, c) < 0) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = Math.max(edge(fallback, c), 0);
+                merged.get(child).addAll(merged.get(failure[child]));
+                queue[tail++] = child;
+            }
+        }
+
+        outputs = new int[size][];
+        for (int state = 0; state < size; state++) {
+            outputs[state] = merged.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static void insert(List<Map<Character, Integer>> trie, List<List<Integer>> terminal, String label, int labelId) {
+        int state = 0;
+        for (int i = 0; i < label.length(); i++) {
+            char c = fold(label.charAt(i));
+            Integer next = trie.get(state).get(c);
+            if (next == null) {
+                next = trie.size();
+                trie.add(new HashMap<>());
+                terminal.add(new ArrayList<>());
+                trie.get(state).put(c, next);
+            }
+            state = next;
+        }
+        terminal.get(state).add(labelId);
+    }
+
+    /**
+     * 扫描报文
+     *
+     * @param content 报文内容
+     * @return 扫描结果
+     */
+    public ScanResult scan(String content) {
+        ScanResult result = new ScanResult();
+        if (content == null) {
+            return result;
+        }
+
+        int length = content.length();
+        int state = 0;
+        for (int pos = 0; pos < length; pos++) {
+            char c = fold(content.charAt(pos));
+            int next = edge(state, c);
+            while (next < 0 && state != 0) {
+                state = failure[state];
+                next = edge(state, c);
+            }
+            state = next < 0 ? 0 : next;
+
+            int[] hits = outputs[state];
+            for (int hit : hits) {
+                int fieldIndex = labelField[hit];
+                if (fieldIndex == KEYWORD_FIELD) {
+                    result.pumpRelated = true;
+                    continue;
+                }
+
+                int start = pos - labelLength[hit] + 1;
+                if (result.values[fieldIndex] != null) {
+                    int foundStart = result.starts[fieldIndex];
+                    if (foundStart < start || (foundStart == start && result.orders[fieldIndex] <= labelOrder[hit])) {
+                        continue;
+                    }
+                }
+
+                String value = readValue(FIELDS[fieldIndex], content, pos + 1);
+                if (value != null) {
+                    result.values[fieldIndex] = value;
+                    result.starts[fieldIndex] = start;
+                    result.orders[fieldIndex] = labelOrder[hit];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 读取标签之后的值：[:：]?\s* 再按字段类型读取值和单位
+     */
+    private static String readValue(Field field, String content, int pos) {
+        int length = content.length();
+        if (pos < length && (content.charAt(pos) == ':' || content.charAt(pos) == '：')) {
+            pos++;
+        }
+        pos = skipWhitespace(content, pos);
+
+        int start = pos;
+        switch (field.valueType) {
+            case IDENTIFIER:
+                while (pos < length && isIdentifierChar(content.charAt(pos))) {
+                    pos++;
+                }
+                return pos > start ? content.substring(start, pos) : null;
+
+            case INTEGER:
+                pos = skipDigits(content, pos);
+                return pos > start ? content.substring(start, pos) : null;
+
+            case DECIMAL:
+                pos = skipDigits(content, pos);
+                if (pos == start) {
+                    return null;
+                }
+                if (pos + 1 < length && content.charAt(pos) == '.' && isDigit(content.charAt(pos + 1))) {
+                    pos = skipDigits(content, pos + 1);
+                }
+                int end = pos;
+                pos = skipWhitespace(content, pos);
+                for (String unit : field.units) {
+                    if (regionMatchesFolded(content, pos, unit)) {
+                        return content.substring(start, end);
+                    }
+                }
+                return null;
+
+            case STATUS:
+                for (String status : STATUS_VALUES) {
+                    if (regionMatchesFolded(content, pos, status)) {
+                        return content.substring(pos, pos + status.length());
+                    }
+                }
+                return null;
+
+            case TIMESTAMP:
+                return readTimestamp(content, pos);
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 读取 \d{4}-\d{2}-\d{2}\s+\d{2}:\d{2}:\d{2}
+     */
+    private static String readTimestamp(String content, int start) {
+        int pos = start;
+        pos = expectDigits(content, pos, 4);
+        pos = expectChar(content, pos, '-');
+        pos = expectDigits(content, pos, 2);
+        pos = expectChar(content, pos, '-');
+        pos = expectDigits(content, pos, 2);
+        if (pos < 0 || pos >= content.length() || !isWhitespace(content.charAt(pos))) {
+            return null;
+        }
+        pos = skipWhitespace(content, pos);
+        pos = expectDigits(content, pos, 2);
+        pos = expectChar(content, pos, ':');
+        pos = expectDigits(content, pos, 2);
+        pos = expectChar(content, pos, ':');
+        pos = expectDigits(content, pos, 2);
+        return pos < 0 ? null : content.substring(start, pos);
+    }
+
+    private static int expectDigits(String content, int pos, int count) {
+        if (pos < 0 || pos + count > content.length()) {
+            return -1;
+        }
+        for (int i = pos; i < pos + count; i++) {
+            if (!isDigit(content.charAt(i))) {
+                return -1;
+            }
+        }
+        return pos + count;
+    }
+
+    private static int expectChar(String content, int pos, char expected) {
+        return pos >= 0 && pos < content.length() && content.charAt(pos) == expected ? pos + 1 : -1;
+    }
+
+    private int edge(int state, char c) {
+        char[] chars = edgeChars[state];
+        int low = 0;
+        int high = chars.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (chars[mid] < c) {
+                low = mid + 1;
+            } else if (chars[mid] > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[state][mid];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatchesFolded(String content, int pos, String expected) {
+        if (pos + expected.length() > content.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (fold(content.charAt(pos + i)) != fold(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipDigits(String content, int pos) {
+        while (pos < content.length() && isDigit(content.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWhitespace(String content, int pos) {
+        while (pos < content.length() && isWhitespace(content.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 仅折叠ASCII大写字母
+     */
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 与正则 \s 相同的空白字符
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * 扫描结果
+     */
+    public static final class ScanResult {
+        private final String[] values = new String[FIELDS.length];
+        private final int[] starts = new int[FIELDS.length];
+        private final int[] orders = new int[FIELDS.length];
+        private boolean pumpRelated;
+
+        /**
+         * 字段原始文本，未匹配时为null
+         */
+        public String get(Field field) {
+            return values[field.ordinal()];
+        }
+
+        /**
+         * 是否包含水泵关键字
+         */
+        public boolean isPumpRelated() {
+            return pumpRelated;
+        }
+    }
+}
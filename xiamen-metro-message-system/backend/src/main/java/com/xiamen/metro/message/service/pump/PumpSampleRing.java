@@ -0,0 +1,403 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * 单设备堆外环形缓冲
+ * <p>
+ * 每行定长 ROW_BYTES 字节，存放在 ByteBuffer.allocateDirect 分配的堆外内存中，按时间戳升序排列。
+ * 已结束的整点小时封存为 PumpBlockCodec 压缩块(堆内 byte[])，腾出环形缓冲给当前小时；封存后迟到的行
+ * 仍写入环形缓冲，下次封存时与原块合并。coveredFrom 之后的数据全部在压缩块或缓冲内，读取范围早于该时间时
+ * 视为未命中。非线程安全，由 PumpHotStore 加锁
+ *
+ * @author Xiamen Metro System
+ */
+final class PumpSampleRing {
+
+    private static final PumpDataAggregate.Metric[] METRICS = PumpDataAggregate.Metric.values();
+
+    private static final int TIMESTAMP = 0;
+    private static final int PUMP_STATUS = 8;
+    private static final int ALARM_LEVEL = 12;
+    private static final int FAULT_CODE = 16;
+    private static final int NULL_MASK = 20;
+    private static final int MAINTENANCE = 22;
+    private static final int VALUES = 24;
+
+    static final int ROW_BYTES = VALUES + METRICS.length * Double.BYTES;
+
+    /**
+     * int 字段的空值
+     */
+    static final int NONE = Integer.MIN_VALUE;
+
+    static final long HOUR_MILLIS = 3600_000L;
+
+    private final String deviceId;
+    private final TreeMap<Long, byte[]> blocks = new TreeMap<>();
+    private long blockBytes;
+    private ByteBuffer buffer;
+    private int capacity;
+    private int head;
+    private int size;
+    private long coveredFrom;
+    private volatile long lastAppendTime;
+    private boolean released;
+
+    PumpSampleRing(String deviceId, int capacity, long coveredFrom) {
+        this.deviceId = deviceId;
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(capacity * ROW_BYTES);
+        this.coveredFrom = coveredFrom;
+        this.lastAppendTime = coveredFrom;
+    }
+
+    static long bytesFor(int capacity) {
+        return (long) capacity * ROW_BYTES;
+    }
+
+    static long hourStart(long timestamp) {
+        return Math.floorDiv(timestamp, HOUR_MILLIS) * HOUR_MILLIS;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * 压缩块占用的字节数
+     */
+    long blockBytes() {
+        return blockBytes;
+    }
+
+    int blockCount() {
+        return blocks.size();
+    }
+
+    boolean isEmpty() {
+        return size == 0 && blocks.isEmpty();
+    }
+
+    /**
+     * 缓冲内最新一行的时间戳，缓冲为空时返回 Long.MIN_VALUE
+     */
+    long lastTimestamp() {
+        return size > 0 ? timestamp(size - 1) : Long.MIN_VALUE;
+    }
+
+    long coveredFrom() {
+        return coveredFrom;
+    }
+
+    long lastAppendTime() {
+        return lastAppendTime;
+    }
+
+    boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * 释放后不再读写，堆外内存随缓冲对象回收
+     */
+    void release() {
+        released = true;
+        buffer = null;
+        size = 0;
+        blocks.clear();
+        blockBytes = 0;
+    }
+
+    /**
+     * 扩容到新容量，按逻辑顺序复制到新缓冲
+     */
+    void grow(int newCapacity) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity * ROW_BYTES);
+        for (int i = 0; i < size; i++) {
+            grown.put(i * ROW_BYTES, buffer, offset(i), ROW_BYTES);
+        }
+        buffer = grown;
+        capacity = newCapacity;
+        head = 0;
+    }
+
+    /**
+     * 按时间顺序插入一行；时间戳早于覆盖起点或已存在时忽略(与入库的 ON CONFLICT DO NOTHING 一致)。
+     * 缓冲已满时丢弃最旧的一行并推后覆盖起点
+     *
+     * @return 是否写入
+     */
+    boolean add(long timestamp, PumpDataEntity data, int faultCodeId, long now) {
+        if (timestamp < coveredFrom) {
+            return false;
+        }
+        int position = upperBound(timestamp);
+        if (position > 0 && timestamp(position - 1) == timestamp) {
+            return false;
+        }
+        byte[] sealed = blocks.get(hourStart(timestamp));
+        if (sealed != null && PumpBlockCodec.containsTimestamp(sealed, timestamp)) {
+            return false;
+        }
+        if (isFull()) {
+            if (position == 0) {
+                // 比缓冲内所有数据都旧，写入后会立即被覆盖
+                coveredFrom = Math.max(coveredFrom, timestamp + 1);
+                return false;
+            }
+            dropOldest();
+            position--;
+        }
+
+        for (int i = size; i > position; i--) {
+            buffer.put(offset(i), buffer, offset(i - 1), ROW_BYTES);
+        }
+        size++;
+        write(offset(position), timestamp, data, faultCodeId);
+        lastAppendTime = now;
+        return true;
+    }
+
+    /**
+     * 把 limit 所在小时之前的行按小时封存为压缩块，已有同一小时的块时合并后重新编码
+     *
+     * @return 封存的行数
+     */
+    int sealBefore(long limit, IntFunction<String> faultCodes) {
+        long sealLimit = hourStart(limit);
+        int sealed = 0;
+        while (size > 0 && timestamp(0) < sealLimit) {
+            long hourStart = hourStart(timestamp(0));
+            int count = lowerBound(hourStart + HOUR_MILLIS);
+            byte[] existing = blocks.get(hourStart);
+            PumpSeries.Builder builder = PumpSeries.builder(deviceId,
+                    count + (existing != null ? PumpBlockCodec.rowCount(existing) : 0));
+            if (existing == null) {
+                for (int i = 0; i < count; i++) {
+                    copyRow(i, builder, faultCodes);
+                }
+            } else {
+                PumpSeries previous = PumpBlockCodec.decode(deviceId, existing);
+                merge(previous, 0, previous.size(), 0, count, builder, faultCodes);
+            }
+            byte[] block = PumpBlockCodec.encode(builder.build());
+            blocks.put(hourStart, block);
+            blockBytes += block.length - (existing != null ? existing.length : 0);
+
+            head = (head + count) % capacity;
+            size -= count;
+            sealed += count;
+        }
+        return sealed;
+    }
+
+    /**
+     * 淘汰 cutoff 之前的数据(含整块早于 cutoff 的压缩块)，覆盖起点推后到 cutoff
+     */
+    int evictBefore(long cutoff) {
+        Iterator<Map.Entry<Long, byte[]>> iterator = blocks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, byte[]> block = iterator.next();
+            if (block.getKey() + HOUR_MILLIS > cutoff) {
+                break;
+            }
+            blockBytes -= block.getValue().length;
+            iterator.remove();
+        }
+        int evicted = 0;
+        while (size > 0 && timestamp(0) < cutoff) {
+            head = (head + 1) % capacity;
+            size--;
+            evicted++;
+        }
+        coveredFrom = Math.max(coveredFrom, cutoff);
+        return evicted;
+    }
+
+    /**
+     * 读取 [start, end] 内的数据
+     *
+     * @return 覆盖起点晚于 start 时返回 false，不写入 builder
+     */
+    boolean read(long start, long end, PumpSeries.Builder builder, IntFunction<String> faultCodes) {
+        if (released || start < coveredFrom) {
+            return false;
+        }
+        int from = lowerBound(start);
+        int to = upperBound(end);
+        Map<Long, byte[]> overlapping = blocks.subMap(hourStart(start), true, end, true);
+        if (overlapping.isEmpty()) {
+            for (int i = from; i < to; i++) {
+                copyRow(i, builder, faultCodes);
+            }
+            return true;
+        }
+
+        PumpSeries.Builder decoded = PumpSeries.builder(deviceId);
+        for (byte[] block : overlapping.values()) {
+            PumpBlockCodec.decodeInto(block, decoded);
+        }
+        PumpSeries sealed = decoded.build();
+        int sealedFrom = 0;
+        while (sealedFrom < sealed.size() && sealed.timestamp(sealedFrom) < start) {
+            sealedFrom++;
+        }
+        int sealedTo = sealedFrom;
+        while (sealedTo < sealed.size() && sealed.timestamp(sealedTo) <= end) {
+            sealedTo++;
+        }
+        merge(sealed, sealedFrom, sealedTo, from, to, builder, faultCodes);
+        return true;
+    }
+
+    /**
+     * 按时间戳合并压缩块解码出的行与缓冲内的行，两者时间戳不重复
+     */
+    private void merge(PumpSeries sealed, int sealedFrom, int sealedTo, int from, int to,
+                       PumpSeries.Builder builder, IntFunction<String> faultCodes) {
+        int s = sealedFrom;
+        int r = from;
+        while (s < sealedTo || r < to) {
+            if (r == to || (s < sealedTo && sealed.timestamp(s) < timestamp(r))) {
+                builder.copyRow(sealed, s++);
+            } else {
+                copyRow(r++, builder, faultCodes);
+            }
+        }
+    }
+
+    private void copyRow(int i, PumpSeries.Builder builder, IntFunction<String> faultCodes) {
+        int offset = offset(i);
+        long timestamp = buffer.getLong(offset + TIMESTAMP);
+        int row = builder.addRow(timestamp);
+        int status = buffer.getInt(offset + PUMP_STATUS);
+        if (status != NONE) {
+            builder.pumpStatus(row, status);
+        }
+        short nullMask = buffer.getShort(offset + NULL_MASK);
+        for (int m = 0; m < METRICS.length; m++) {
+            if ((nullMask & (1 << m)) == 0) {
+                builder.value(row, METRICS[m], buffer.getDouble(offset + VALUES + m * Double.BYTES));
+            }
+        }
+        int alarmLevel = buffer.getInt(offset + ALARM_LEVEL);
+        if (alarmLevel != NONE) {
+            builder.alarmLevel(row, alarmLevel);
+        }
+        int faultCodeId = buffer.getInt(offset + FAULT_CODE);
+        if (faultCodeId != NONE) {
+            builder.faultCode(row, faultCodes.apply(faultCodeId));
+        }
+        builder.maintenance(row, buffer.get(offset + MAINTENANCE) != 0);
+    }
+
+    private void write(int offset, long timestamp, PumpDataEntity data, int faultCodeId) {
+        buffer.putLong(offset + TIMESTAMP, timestamp);
+        buffer.putInt(offset + PUMP_STATUS, data.getPumpStatus() != null ? data.getPumpStatus() : NONE);
+        buffer.putInt(offset + ALARM_LEVEL, data.getAlarmLevel() != null ? data.getAlarmLevel() : NONE);
+        buffer.putInt(offset + FAULT_CODE, faultCodeId);
+        buffer.put(offset + MAINTENANCE, (byte) (Boolean.TRUE.equals(data.getMaintenanceFlag()) ? 1 : 0));
+
+        short nullMask = 0;
+        for (int m = 0; m < METRICS.length; m++) {
+            Double value = metricValue(data, METRICS[m]);
+            if (value == null) {
+                nullMask |= (short) (1 << m);
+                value = 0.0;
+            }
+            buffer.putDouble(offset + VALUES + m * Double.BYTES, value);
+        }
+        buffer.putShort(offset + NULL_MASK, nullMask);
+    }
+
+    private void dropOldest() {
+        coveredFrom = Math.max(coveredFrom, timestamp(0) + 1);
+        head = (head + 1) % capacity;
+        size--;
+    }
+
+    private long timestamp(int i) {
+        return buffer.getLong(offset(i) + TIMESTAMP);
+    }
+
+    private int offset(int i) {
+        return ((head + i) % capacity) * ROW_BYTES;
+    }
+
+    /**
+     * 第一个时间戳不小于 timestamp 的位置
+     */
+    private int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 第一个时间戳大于 timestamp 的位置
+     */
+    private int upperBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp(mid) <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Double metricValue(PumpDataEntity data, PumpDataAggregate.Metric metric) {
+        switch (metric) {
+            case RUNTIME:
+                return data.getRuntimeMinutes();
+            case CURRENT:
+                return data.getCurrentAmperage();
+            case VOLTAGE:
+                return data.getVoltage();
+            case POWER:
+                return data.getPowerKw();
+            case ENERGY:
+                return data.getEnergyConsumptionKwh();
+            case PRESSURE:
+                return data.getWaterPressureKpa();
+            case FLOW:
+                return data.getFlowRateM3h();
+            case TEMPERATURE:
+                return data.getWaterTemperatureCelsius();
+            case VIBRATION:
+                return data.getVibrationMmS();
+            case NOISE:
+                return data.getNoiseLevelDb();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按列存放的单设备水泵数据
+ * <p>
+ * 时间戳为 long[] 毫秒值，每个数值字段一个 double[] 加空值位图，状态与报警级别为 int[] 加空值位图，
+ * 故障代码只保留非空白值。不含原始报文，按时间升序排列，供各水泵分析服务只读使用。
+ * <p>
+ * 一次分析中各服务共享同一实例：非空值列、正值列、排序副本、汇总统计和启泵事件等派生视图在首次使用时计算并缓存，
+ * 可被多个线程并发读取；返回的数组为共享视图，调用方不得修改
+ *
+ * @author Xiamen Metro System
+ */
+public final class PumpSeries {
+
+    private static final PumpDataAggregate.Metric[] METRICS = PumpDataAggregate.Metric.values();
+
+    private static final int NON_NULL = 0;
+    private static final int POSITIVE = 1;
+    private static final int SORTED = 2;
+    private static final int SORTED_POSITIVE = 3;
+    private static final int SUMMARY = 4;
+    private static final int POSITIVE_SUMMARY = 5;
+    private static final int VIEW_KINDS = 6;
+    private static final int EVENTS_SLOT = METRICS.length * VIEW_KINDS;
+
+    private final String deviceId;
+    private final int size;
+    private final long[] timestamps;
+    private final double[][] values;
+    private final BitSet[] nulls;
+    private final int[] pumpStatus;
+    private final BitSet pumpStatusNulls;
+    private final int[] alarmLevels;
+    private final BitSet alarmLevelNulls;
+    private final BitSet maintenanceFlags;
+    private final String[] faultCodes;
+    private final AtomicReferenceArray<Object> views = new AtomicReferenceArray<>(EVENTS_SLOT + 1);
+
+    private PumpSeries(Builder builder) {
+        this.deviceId = builder.deviceId;
+        this.size = builder.size;
+        this.timestamps = Arrays.copyOf(builder.timestamps, size);
+        this.values = new double[METRICS.length][];
+        for (int m = 0; m < METRICS.length; m++) {
+            this.values[m] = Arrays.copyOf(builder.values[m], size);
+        }
+        this.nulls = new BitSet[METRICS.length];
+        for (int m = 0; m < METRICS.length; m++) {
+            this.nulls[m] = (BitSet) builder.nulls[m].clone();
+        }
+        this.pumpStatus = Arrays.copyOf(builder.pumpStatus, size);
+        this.pumpStatusNulls = (BitSet) builder.pumpStatusNulls.clone();
+        this.alarmLevels = Arrays.copyOf(builder.alarmLevels, size);
+        this.alarmLevelNulls = (BitSet) builder.alarmLevelNulls.clone();
+        this.maintenanceFlags = (BitSet) builder.maintenanceFlags.clone();
+        this.faultCodes = Arrays.copyOf(builder.faultCodes, size);
+    }
+
+    public static Builder builder(String deviceId) {
+        return new Builder(deviceId, 1024);
+    }
+
+    public static Builder builder(String deviceId, int expectedSize) {
+        return new Builder(deviceId, Math.max(16, expectedSize));
+    }
+
+    /**
+     * 由实体列表构建，实体需按时间升序
+     */
+    public static PumpSeries of(String deviceId, List<PumpDataEntity> pumpData) {
+        Builder builder = builder(deviceId, pumpData.size());
+        for (PumpDataEntity data : pumpData) {
+            builder.add(data);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 由实体列表构建，设备ID取第一条记录
+     */
+    public static PumpSeries of(List<PumpDataEntity> pumpData) {
+        return of(pumpData.isEmpty() ? null : pumpData.get(0).getDeviceId(), pumpData);
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 第 i 条记录的时间戳(毫秒)
+     */
+    public long timestamp(int i) {
+        return timestamps[i];
+    }
+
+    public LocalDateTime time(int i) {
+        return new Timestamp(timestamps[i]).toLocalDateTime();
+    }
+
+    public boolean isNull(PumpDataAggregate.Metric metric, int i) {
+        return nulls[metric.ordinal()].get(i);
+    }
+
+    /**
+     * 第 i 条记录的字段值，空值返回 NaN
+     */
+    public double value(PumpDataAggregate.Metric metric, int i) {
+        return isNull(metric, i) ? Double.NaN : values[metric.ordinal()][i];
+    }
+
+    /**
+     * 字段非空值的个数
+     */
+    public int count(PumpDataAggregate.Metric metric) {
+        return size - nulls[metric.ordinal()].cardinality();
+    }
+
+    /**
+     * 按时间顺序返回字段的全部非空值(新数组)
+     */
+    public double[] values(PumpDataAggregate.Metric metric) {
+        double[] column = values[metric.ordinal()];
+        BitSet columnNulls = nulls[metric.ordinal()];
+        if (columnNulls.isEmpty()) {
+            return column.clone();
+        }
+        double[] result = new double[count(metric)];
+        int n = 0;
+        for (int i = columnNulls.nextClearBit(0); i < size; i = columnNulls.nextClearBit(i + 1)) {
+            result[n++] = column[i];
+        }
+        return result;
+    }
+
+    /**
+     * 字段非空值(按时间顺序，缓存共享)
+     */
+    public double[] column(PumpDataAggregate.Metric metric) {
+        return (double[]) view(metric, NON_NULL);
+    }
+
+    /**
+     * 字段大于0的值(按时间顺序，缓存共享)
+     */
+    public double[] positiveColumn(PumpDataAggregate.Metric metric) {
+        return (double[]) view(metric, POSITIVE);
+    }
+
+    /**
+     * 字段非空值的升序副本(缓存共享)
+     */
+    public double[] sortedColumn(PumpDataAggregate.Metric metric) {
+        return (double[]) view(metric, SORTED);
+    }
+
+    /**
+     * 字段大于0的值的升序副本(缓存共享)
+     */
+    public double[] sortedPositiveColumn(PumpDataAggregate.Metric metric) {
+        return (double[]) view(metric, SORTED_POSITIVE);
+    }
+
+    /**
+     * 字段非空值的汇总统计
+     */
+    public Summary summary(PumpDataAggregate.Metric metric) {
+        return (Summary) view(metric, SUMMARY);
+    }
+
+    /**
+     * 字段大于0的值的汇总统计
+     */
+    public Summary positiveSummary(PumpDataAggregate.Metric metric) {
+        return (Summary) view(metric, POSITIVE_SUMMARY);
+    }
+
+    /**
+     * 水泵状态为1的记录时间戳(毫秒，升序)
+     */
+    public long[] startEventTimestamps() {
+        return events().startTimestamps;
+    }
+
+    /**
+     * 非空白故障代码(按时间顺序)
+     */
+    public List<String> faultCodes() {
+        return events().faultCodes;
+    }
+
+    /**
+     * 报警级别大于1的记录数
+     */
+    public int alarmCount() {
+        return events().alarmCount;
+    }
+
+    public boolean hasMaintenance() {
+        return !maintenanceFlags.isEmpty();
+    }
+
+    private Object view(PumpDataAggregate.Metric metric, int kind) {
+        int slot = metric.ordinal() * VIEW_KINDS + kind;
+        Object view = views.get(slot);
+        if (view == null) {
+            view = computeView(metric, kind);
+            if (!views.compareAndSet(slot, null, view)) {
+                view = views.get(slot);
+            }
+        }
+        return view;
+    }
+
+    private Object computeView(PumpDataAggregate.Metric metric, int kind) {
+        switch (kind) {
+            case NON_NULL:
+                return values(metric);
+            case POSITIVE:
+                return positive(column(metric));
+            case SORTED:
+                return sortedCopy(column(metric));
+            case SORTED_POSITIVE:
+                return sortedCopy(positiveColumn(metric));
+            case SUMMARY:
+                return new Summary(column(metric));
+            case POSITIVE_SUMMARY:
+                return new Summary(positiveColumn(metric));
+            default:
+                throw new IllegalArgumentException("未知的视图类型: " + kind);
+        }
+    }
+
+    private Events events() {
+        Object view = views.get(EVENTS_SLOT);
+        if (view == null) {
+            view = new Events(this);
+            if (!views.compareAndSet(EVENTS_SLOT, null, view)) {
+                view = views.get(EVENTS_SLOT);
+            }
+        }
+        return (Events) view;
+    }
+
+    private static double[] positive(double[] column) {
+        int n = 0;
+        for (double value : column) {
+            if (value > 0) {
+                n++;
+            }
+        }
+        if (n == column.length) {
+            return column;
+        }
+        double[] result = new double[n];
+        n = 0;
+        for (double value : column) {
+            if (value > 0) {
+                result[n++] = value;
+            }
+        }
+        return result;
+    }
+
+    private static double[] sortedCopy(double[] column) {
+        double[] sorted = column.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public boolean hasPumpStatus(int i) {
+        return !pumpStatusNulls.get(i);
+    }
+
+    /**
+     * 水泵状态，空值返回 -1
+     */
+    public int pumpStatus(int i) {
+        return hasPumpStatus(i) ? pumpStatus[i] : -1;
+    }
+
+    public boolean hasAlarmLevel(int i) {
+        return !alarmLevelNulls.get(i);
+    }
+
+    /**
+     * 报警级别，空值返回 -1
+     */
+    public int alarmLevel(int i) {
+        return hasAlarmLevel(i) ? alarmLevels[i] : -1;
+    }
+
+    public boolean isMaintenance(int i) {
+        return maintenanceFlags.get(i);
+    }
+
+    /**
+     * 故障代码，空值或空白返回 null
+     */
+    public String faultCode(int i) {
+        return faultCodes[i];
+    }
+
+    /**
+     * 转换为不受持久化上下文管理的实体列表(不含原始报文)，用于仍接收实体列表的分析方法
+     */
+    public List<PumpDataEntity> toEntities() {
+        List<PumpDataEntity> entities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            PumpDataEntity data = new PumpDataEntity();
+            data.setDeviceId(deviceId);
+            data.setTimestamp(time(i));
+            data.setPumpStatus(hasPumpStatus(i) ? pumpStatus[i] : null);
+            data.setRuntimeMinutes(boxed(PumpDataAggregate.Metric.RUNTIME, i));
+            data.setCurrentAmperage(boxed(PumpDataAggregate.Metric.CURRENT, i));
+            data.setVoltage(boxed(PumpDataAggregate.Metric.VOLTAGE, i));
+            data.setPowerKw(boxed(PumpDataAggregate.Metric.POWER, i));
+            data.setEnergyConsumptionKwh(boxed(PumpDataAggregate.Metric.ENERGY, i));
+            data.setWaterPressureKpa(boxed(PumpDataAggregate.Metric.PRESSURE, i));
+            data.setFlowRateM3h(boxed(PumpDataAggregate.Metric.FLOW, i));
+            data.setWaterTemperatureCelsius(boxed(PumpDataAggregate.Metric.TEMPERATURE, i));
+            data.setVibrationMmS(boxed(PumpDataAggregate.Metric.VIBRATION, i));
+            data.setNoiseLevelDb(boxed(PumpDataAggregate.Metric.NOISE, i));
+            data.setFaultCode(faultCodes[i]);
+            data.setAlarmLevel(hasAlarmLevel(i) ? alarmLevels[i] : null);
+            data.setMaintenanceFlag(maintenanceFlags.get(i));
+            entities.add(data);
+        }
+        return entities;
+    }
+
+    private Double boxed(PumpDataAggregate.Metric metric, int i) {
+        return isNull(metric, i) ? null : values[metric.ordinal()][i];
+    }
+
+    /**
+     * 一列数值的汇总统计，均值与标准差的计算方式与 TimeSeriesAnalyzer 一致；无数据时均值、标准差为0，最小、最大值为 NaN
+     */
+    public static final class Summary {
+        private final int count;
+        private final double total;
+        private final double mean;
+        private final double standardDeviation;
+        private final double min;
+        private final double max;
+
+        Summary(double[] values) {
+            this.count = values.length;
+            this.total = Arrays.stream(values).sum();
+            this.mean = TimeSeriesAnalyzer.mean(values);
+            this.standardDeviation = TimeSeriesAnalyzer.standardDeviation(values);
+            this.min = TimeSeriesAnalyzer.min(values);
+            this.max = TimeSeriesAnalyzer.max(values);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * 补偿求和的总和，与 DoubleStream.sum 一致
+         */
+        public double getTotal() {
+            return total;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * 样本标准差(n-1)
+         */
+        public double getStandardDeviation() {
+            return standardDeviation;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+    }
+
+    /**
+     * 启泵事件、故障代码与报警计数，单次遍历得到
+     */
+    private static final class Events {
+        private final long[] startTimestamps;
+        private final List<String> faultCodes;
+        private final int alarmCount;
+
+        Events(PumpSeries series) {
+            long[] starts = new long[series.size];
+            int startCount = 0;
+            List<String> codes = new ArrayList<>();
+            int alarms = 0;
+            for (int i = 0; i < series.size; i++) {
+                if (series.pumpStatus(i) == 1) {
+                    starts[startCount++] = series.timestamps[i];
+                }
+                if (series.faultCodes[i] != null) {
+                    codes.add(series.faultCodes[i]);
+                }
+                if (series.alarmLevel(i) > 1) {
+                    alarms++;
+                }
+            }
+            this.startTimestamps = Arrays.copyOf(starts, startCount);
+            Arrays.sort(this.startTimestamps);
+            this.faultCodes = Collections.unmodifiableList(codes);
+            this.alarmCount = alarms;
+        }
+    }
+
+    /**
+     * 逐行追加构建，数组按需倍增
+     */
+    public static final class Builder {
+        private final String deviceId;
+        private int size;
+        private long[] timestamps;
+        private final double[][] values = new double[METRICS.length][];
+        private final BitSet[] nulls = new BitSet[METRICS.length];
+        private int[] pumpStatus;
+        private final BitSet pumpStatusNulls = new BitSet();
+        private int[] alarmLevels;
+        private final BitSet alarmLevelNulls = new BitSet();
+        private final BitSet maintenanceFlags = new BitSet();
+        private String[] faultCodes;
+
+        private Builder(String deviceId, int capacity) {
+            this.deviceId = deviceId;
+            this.timestamps = new long[capacity];
+            for (int m = 0; m < METRICS.length; m++) {
+                values[m] = new double[capacity];
+                nulls[m] = new BitSet();
+            }
+            this.pumpStatus = new int[capacity];
+            this.alarmLevels = new int[capacity];
+            this.faultCodes = new String[capacity];
+        }
+
+        /**
+         * 开始新的一行，返回行号；各字段默认为空
+         */
+        public int addRow(long timestamp) {
+            if (size == timestamps.length) {
+                grow();
+            }
+            int row = size++;
+            timestamps[row] = timestamp;
+            for (BitSet columnNulls : nulls) {
+                columnNulls.set(row);
+            }
+            pumpStatusNulls.set(row);
+            alarmLevelNulls.set(row);
+            return row;
+        }
+
+        public Builder value(int row, PumpDataAggregate.Metric metric, double value) {
+            values[metric.ordinal()][row] = value;
+            nulls[metric.ordinal()].clear(row);
+            return this;
+        }
+
+        public Builder pumpStatus(int row, int status) {
+            pumpStatus[row] = status;
+            pumpStatusNulls.clear(row);
+            return this;
+        }
+
+        public Builder alarmLevel(int row, int level) {
+            alarmLevels[row] = level;
+            alarmLevelNulls.clear(row);
+            return this;
+        }
+
+        public Builder maintenance(int row, boolean flag) {
+            maintenanceFlags.set(row, flag);
+            return this;
+        }
+
+        public Builder faultCode(int row, String faultCode) {
+            faultCodes[row] = faultCode != null && !faultCode.trim().isEmpty() ? faultCode : null;
+            return this;
+        }
+
+        public Builder add(PumpDataEntity data) {
+            int row = addRow(Timestamp.valueOf(data.getTimestamp()).getTime());
+            if (data.getPumpStatus() != null) {
+                pumpStatus(row, data.getPumpStatus());
+            }
+            setIfPresent(row, PumpDataAggregate.Metric.RUNTIME, data.getRuntimeMinutes());
+            setIfPresent(row, PumpDataAggregate.Metric.CURRENT, data.getCurrentAmperage());
+            setIfPresent(row, PumpDataAggregate.Metric.VOLTAGE, data.getVoltage());
+            setIfPresent(row, PumpDataAggregate.Metric.POWER, data.getPowerKw());
+            setIfPresent(row, PumpDataAggregate.Metric.ENERGY, data.getEnergyConsumptionKwh());
+            setIfPresent(row, PumpDataAggregate.Metric.PRESSURE, data.getWaterPressureKpa());
+            setIfPresent(row, PumpDataAggregate.Metric.FLOW, data.getFlowRateM3h());
+            setIfPresent(row, PumpDataAggregate.Metric.TEMPERATURE, data.getWaterTemperatureCelsius());
+            setIfPresent(row, PumpDataAggregate.Metric.VIBRATION, data.getVibrationMmS());
+            setIfPresent(row, PumpDataAggregate.Metric.NOISE, data.getNoiseLevelDb());
+            if (data.getAlarmLevel() != null) {
+                alarmLevel(row, data.getAlarmLevel());
+            }
+            maintenance(row, Boolean.TRUE.equals(data.getMaintenanceFlag()));
+            return faultCode(row, data.getFaultCode());
+        }
+
+        /**
+         * 复制另一序列的第 i 行，用于按时间合并多个来源
+         */
+        public int copyRow(PumpSeries source, int i) {
+            int row = addRow(source.timestamp(i));
+            for (PumpDataAggregate.Metric metric : METRICS) {
+                if (!source.isNull(metric, i)) {
+                    value(row, metric, source.values[metric.ordinal()][i]);
+                }
+            }
+            if (source.hasPumpStatus(i)) {
+                pumpStatus(row, source.pumpStatus[i]);
+            }
+            if (source.hasAlarmLevel(i)) {
+                alarmLevel(row, source.alarmLevels[i]);
+            }
+            maintenance(row, source.isMaintenance(i));
+            faultCode(row, source.faultCodes[i]);
+            return row;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PumpSeries build() {
+            return new PumpSeries(this);
+        }
+
+        private void setIfPresent(int row, PumpDataAggregate.Metric metric, Double value) {
+            if (value != null) {
+                value(row, metric, value);
+            }
+        }
+
+        private void grow() {
+            int capacity = timestamps.length * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            for (int m = 0; m < METRICS.length; m++) {
+                values[m] = Arrays.copyOf(values[m], capacity);
+            }
+            pumpStatus = Arrays.copyOf(pumpStatus, capacity);
+            alarmLevels = Arrays.copyOf(alarmLevels, capacity);
+            faultCodes = Arrays.copyOf(faultCodes, capacity);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 水泵数据列式读取
+ * <p>
+ * 只查询分析需要的列(不含原始报文)，按较大的 fetch size 分批拉取，逐行直接解码到 PumpSeries 的
+ * 基本类型数组，不创建实体也不经过持久化上下文。连接通过 DataSourceUtils 获取，
+ * 在事务中调用时与 JPA 共用同一连接。长时间范围使用 scan 按块回调，内存占用与范围无关。
+ * 启用压缩块时，read 对已封存且有效的整小时直接解码 pump_data_blocks，只查询其余时间段的明细
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PumpSeriesReader {
+
+    private static final String SELECT_COLUMNS;
+
+    static {
+        StringBuilder columns = new StringBuilder("timestamp, pump_status");
+        for (PumpDataAggregate.Metric metric : PumpDataAggregate.Metric.values()) {
+            columns.append(", ").append(metric.getColumn());
+        }
+        SELECT_COLUMNS = columns.append(", fault_code, alarm_level, maintenance_flag").toString();
+    }
+
+    private static final String RANGE_QUERY_SQL = "SELECT " + SELECT_COLUMNS + " FROM pump_data " +
+            "WHERE device_id = ? AND timestamp BETWEEN ? AND ? ORDER BY timestamp";
+
+    /**
+     * 压缩块之间的明细，右边界不含
+     */
+    private static final String GAP_QUERY_SQL = "SELECT " + SELECT_COLUMNS + " FROM pump_data " +
+            "WHERE device_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp";
+
+    private final DataSource dataSource;
+    private final PumpDataBlockStore blockStore;
+
+    /**
+     * 是否读取已封存的压缩块
+     */
+    @Value("${app.pump-data.blocks.enabled:true}")
+    private boolean blocksEnabled = true;
+
+    /**
+     * 每次从数据库拉取的行数
+     */
+    @Value("${app.pump-data.series.fetch-size:10000}")
+    private int fetchSize = 10000;
+
+    /**
+     * 读取设备在时间范围内的数据，与 findByDeviceIdAndTimestampBetweenOrderByTimestampAsc 范围一致
+     */
+    public PumpSeries read(String deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        long start = System.currentTimeMillis();
+        List<PumpDataBlockStore.StoredBlock> blocks = blocksEnabled
+                ? blockStore.findValid(deviceId, startTime, endTime)
+                : List.of();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        boolean restoreAutoCommit = false;
+        try {
+            restoreAutoCommit = disableAutoCommit(connection);
+            PumpSeries.Builder builder = PumpSeries.builder(deviceId);
+            LocalDateTime gapStart = startTime;
+            int blockRows = 0;
+            for (PumpDataBlockStore.StoredBlock block : blocks) {
+                if (gapStart.isBefore(block.getBucketStart())) {
+                    readRange(connection, GAP_QUERY_SQL, deviceId, gapStart, block.getBucketStart(), builder);
+                }
+                blockRows += PumpBlockCodec.decodeInto(block.getPayload(), builder);
+                gapStart = block.getBucketStart().plusHours(1);
+            }
+            readRange(connection, RANGE_QUERY_SQL, deviceId, gapStart, endTime, builder);
+
+            PumpSeries series = builder.build();
+            log.debug("列式读取水泵数据: 设备={}, 行数={}, 压缩块={}({}行), 耗时={}ms", deviceId, series.size(),
+                    blocks.size(), blockRows, System.currentTimeMillis() - start);
+            return series;
+        } catch (SQLException e) {
+            log.error("读取水泵数据失败: {}", e.getMessage(), e);
+            throw new RuntimeException("读取水泵数据失败: " + e.getMessage());
+        } finally {
+            restoreAutoCommit(connection, restoreAutoCommit);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 读取一个整点小时 [hourStart, hourStart + 1小时) 的明细，不经过压缩块，用于封存
+     */
+    public PumpSeries readHour(String deviceId, LocalDateTime hourStart) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        boolean restoreAutoCommit = false;
+        try {
+            restoreAutoCommit = disableAutoCommit(connection);
+            PumpSeries.Builder builder = PumpSeries.builder(deviceId);
+            readRange(connection, GAP_QUERY_SQL, deviceId, hourStart, hourStart.plusHours(1), builder);
+            return builder.build();
+        } catch (SQLException e) {
+            log.error("读取水泵数据失败: {}", e.getMessage(), e);
+            throw new RuntimeException("读取水泵数据失败: " + e.getMessage());
+        } finally {
+            restoreAutoCommit(connection, restoreAutoCommit);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void readRange(Connection connection, String sql, String deviceId, LocalDateTime from,
+                           LocalDateTime to, PumpSeries.Builder builder) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(fetchSize);
+            statement.setString(1, deviceId);
+            statement.setTimestamp(2, Timestamp.valueOf(from));
+            statement.setTimestamp(3, Timestamp.valueOf(to));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    readRow(resultSet, builder);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按块扫描设备在时间范围内的数据，每块最多 fetch size 行，按时间升序依次交给 consumer，
+     * 返回总行数
+     */
+    public long scan(String deviceId, LocalDateTime startTime, LocalDateTime endTime,
+                     Consumer<PumpSeries> consumer) {
+        long start = System.currentTimeMillis();
+        long total = 0;
+        int chunks = 0;
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        boolean restoreAutoCommit = false;
+        try {
+            restoreAutoCommit = disableAutoCommit(connection);
+            try (PreparedStatement statement = connection.prepareStatement(RANGE_QUERY_SQL)) {
+                statement.setFetchSize(fetchSize);
+                statement.setString(1, deviceId);
+                statement.setTimestamp(2, Timestamp.valueOf(startTime));
+                statement.setTimestamp(3, Timestamp.valueOf(endTime));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    PumpSeries.Builder builder = PumpSeries.builder(deviceId, fetchSize);
+                    int rows = 0;
+                    while (resultSet.next()) {
+                        readRow(resultSet, builder);
+                        if (++rows == fetchSize) {
+                            consumer.accept(builder.build());
+                            total += rows;
+                            chunks++;
+                            builder = PumpSeries.builder(deviceId, fetchSize);
+                            rows = 0;
+                        }
+                    }
+                    if (rows > 0) {
+                        consumer.accept(builder.build());
+                        total += rows;
+                        chunks++;
+                    }
+                }
+            }
+            log.debug("分块扫描水泵数据: 设备={}, 行数={}, 块数={}, 耗时={}ms", deviceId, total, chunks,
+                    System.currentTimeMillis() - start);
+            return total;
+        } catch (SQLException e) {
+            log.error("扫描水泵数据失败: {}", e.getMessage(), e);
+            throw new RuntimeException("扫描水泵数据失败: " + e.getMessage());
+        } finally {
+            restoreAutoCommit(connection, restoreAutoCommit);
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * PostgreSQL 仅在非自动提交时按 fetch size 分批拉取，否则一次性加载整个结果集。
+     * 不在事务中时临时关闭自动提交，返回是否需要恢复
+     */
+    private static boolean disableAutoCommit(Connection connection) throws SQLException {
+        if (connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+            return true;
+        }
+        return false;
+    }
+
+    private static void restoreAutoCommit(Connection connection, boolean restore) {
+        if (restore) {
+            try {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.warn("恢复连接自动提交失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按 SELECT_COLUMNS 的列顺序解码一行
+     */
+    static void readRow(ResultSet resultSet, PumpSeries.Builder builder) throws SQLException {
+        int row = builder.addRow(resultSet.getTimestamp(1).getTime());
+        int status = resultSet.getInt(2);
+        if (!resultSet.wasNull()) {
+            builder.pumpStatus(row, status);
+        }
+
+        int column = 3;
+        for (PumpDataAggregate.Metric metric : PumpDataAggregate.Metric.values()) {
+            double value = resultSet.getDouble(column++);
+            if (!resultSet.wasNull()) {
+                builder.value(row, metric, value);
+            }
+        }
+
+        builder.faultCode(row, resultSet.getString(column++));
+        int alarmLevel = resultSet.getInt(column++);
+        if (!resultSet.wasNull()) {
+            builder.alarmLevel(row, alarmLevel);
+        }
+        builder.maintenance(row, resultSet.getBoolean(column));
+    }
+}
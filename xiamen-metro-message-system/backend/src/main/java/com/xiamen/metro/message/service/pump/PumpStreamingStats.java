@@ -0,0 +1,169 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * 水泵数据单遍统计
+ * <p>
+ * 逐块接收按时间升序的 PumpSeries，累计启泵次数、运行时间与能耗的统计量和趋势，
+ * 内存占用与数据量无关。结果与 PumpAnomalyDetectionService 对完整列表的计算一致
+ *
+ * @author Xiamen Metro System
+ */
+public class PumpStreamingStats implements Consumer<PumpSeries> {
+
+    /**
+     * 能耗平滑窗口：与逐条计算的 min(5, n/3) 一致，样本数达到该值前先缓存
+     */
+    static final int ENERGY_WINDOW = 5;
+    static final int ENERGY_WINDOW_MIN_SAMPLES = ENERGY_WINDOW * 3;
+
+    private long rowCount;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long startEvents;
+
+    private final RunningStats runtime;
+    private final RunningTrend runtimeTrend;
+
+    private final RunningStats energy;
+    private final double[] energyHead;
+    private final double[] energyWindow = new double[ENERGY_WINDOW];
+    private final RunningTrend smoothedEnergyTrend;
+
+    public PumpStreamingStats() {
+        this(0, 0, 0, 0, new RunningStats(), new RunningTrend(), new RunningStats(),
+                new double[ENERGY_WINDOW_MIN_SAMPLES], new RunningTrend());
+    }
+
+    /**
+     * 由已合并的统计量构造，供增量分析按时间窗汇总后复用各项检测
+     *
+     * @param energyHead          窗口内前 min(n, 15) 个大于0的能耗值
+     * @param smoothedEnergyTrend 窗口内能耗5点移动平均序列的趋势(样本不少于15个时使用)
+     */
+    PumpStreamingStats(long rowCount, long firstTimestamp, long lastTimestamp, long startEvents,
+                       RunningStats runtime, RunningTrend runtimeTrend, RunningStats energy,
+                       double[] energyHead, RunningTrend smoothedEnergyTrend) {
+        this.rowCount = rowCount;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.startEvents = startEvents;
+        this.runtime = runtime;
+        this.runtimeTrend = runtimeTrend;
+        this.energy = energy;
+        this.energyHead = energyHead;
+        this.smoothedEnergyTrend = smoothedEnergyTrend;
+    }
+
+    @Override
+    public void accept(PumpSeries chunk) {
+        for (int i = 0; i < chunk.size(); i++) {
+            if (rowCount == 0) {
+                firstTimestamp = chunk.timestamp(i);
+            }
+            lastTimestamp = chunk.timestamp(i);
+            rowCount++;
+
+            if (chunk.pumpStatus(i) == 1) {
+                startEvents++;
+            }
+
+            double runtimeMinutes = chunk.value(PumpDataAggregate.Metric.RUNTIME, i);
+            if (runtimeMinutes > 0) {
+                runtime.add(runtimeMinutes);
+                runtimeTrend.add(runtimeMinutes);
+            }
+
+            double energyKwh = chunk.value(PumpDataAggregate.Metric.ENERGY, i);
+            if (energyKwh > 0) {
+                addEnergy(energyKwh);
+            }
+        }
+    }
+
+    private void addEnergy(double value) {
+        long n = energy.getCount();
+        energy.add(value);
+        if (n < ENERGY_WINDOW_MIN_SAMPLES) {
+            energyHead[(int) n] = value;
+            if (n + 1 == ENERGY_WINDOW_MIN_SAMPLES) {
+                // 样本数已确定窗口为5，回放缓存的前段数据
+                for (int i = 0; i < ENERGY_WINDOW_MIN_SAMPLES; i++) {
+                    addSmoothed(energyHead[i], i, ENERGY_WINDOW, smoothedEnergyTrend);
+                }
+            }
+        } else {
+            addSmoothed(value, n, ENERGY_WINDOW, smoothedEnergyTrend);
+        }
+    }
+
+    /**
+     * 尾随移动平均：第 index 个样本的平滑值为最近 window 个样本的均值
+     */
+    private void addSmoothed(double value, long index, int window, RunningTrend trend) {
+        energyWindow[(int) (index % window)] = value;
+        int size = (int) Math.min(index + 1, window);
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += energyWindow[i];
+        }
+        trend.add(sum / size);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getStartEvents() {
+        return startEvents;
+    }
+
+    public LocalDateTime getFirstTime() {
+        return rowCount > 0 ? new Timestamp(firstTimestamp).toLocalDateTime() : null;
+    }
+
+    public LocalDateTime getLastTime() {
+        return rowCount > 0 ? new Timestamp(lastTimestamp).toLocalDateTime() : null;
+    }
+
+    /**
+     * 大于0的运行时间统计
+     */
+    public RunningStats getRuntime() {
+        return runtime;
+    }
+
+    public TimeSeriesAnalyzer.TrendAnalysisResult getRuntimeTrend() {
+        return runtimeTrend.toTrendResult();
+    }
+
+    /**
+     * 大于0的能耗统计
+     */
+    public RunningStats getEnergy() {
+        return energy;
+    }
+
+    /**
+     * 能耗移动平均序列的趋势；样本不足15个时按 n/3 的窗口对缓存数据计算
+     */
+    public RunningTrend getSmoothedEnergyTrend() {
+        long n = energy.getCount();
+        if (n >= ENERGY_WINDOW_MIN_SAMPLES) {
+            return smoothedEnergyTrend;
+        }
+        RunningTrend trend = new RunningTrend();
+        int window = (int) (n / 3);
+        if (window > 0) {
+            for (int i = 0; i < n; i++) {
+                addSmoothed(energyHead[i], i, window, trend);
+            }
+        }
+        return trend;
+    }
+}
@@ -0,0 +1,119 @@
+package com.xiamen.metro.message.service.pump;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 单遍统计累加器
+ * <p>
+ * Welford 算法累计均值与离差平方和，同时记录计数、求和、最小、最大值，内存占用固定。
+ * 两个累加器可按 Chan 公式合并，结果与对两段数据连续累计一致
+ *
+ * @author Xiamen Metro System
+ */
+public class RunningStats {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double sum;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        sum += value;
+        if (count == 1 || value < min) {
+            min = value;
+        }
+        if (count == 1 || value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * 合并另一段数据的统计量
+     */
+    public void merge(RunningStats other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            sum = other.sum;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        count = total;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        out.writeDouble(sum);
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+
+    static RunningStats readFrom(DataInput in) throws IOException {
+        RunningStats stats = new RunningStats();
+        stats.count = in.readLong();
+        stats.mean = in.readDouble();
+        stats.m2 = in.readDouble();
+        stats.sum = in.readDouble();
+        stats.min = in.readDouble();
+        stats.max = in.readDouble();
+        return stats;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * 均值，无数据返回 0
+     */
+    public double getMean() {
+        return count > 0 ? mean : 0.0;
+    }
+
+    /**
+     * 样本标准差(n-1)，与 TimeSeriesAnalyzer.standardDeviation 一致
+     */
+    public double getStandardDeviation() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+    }
+
+    /**
+     * 最小值，无数据返回 NaN
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * 最大值，无数据返回 NaN
+     */
+    public double getMax() {
+        return max;
+    }
+}
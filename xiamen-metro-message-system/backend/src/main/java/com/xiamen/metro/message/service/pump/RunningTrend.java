@@ -0,0 +1,114 @@
+package com.xiamen.metro.message.service.pump;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 单遍趋势累加器
+ * <p>
+ * 以序号 0,1,2... 为自变量累计线性回归的中心化协方差，结果与 TimeSeriesAnalyzer.analyzeTrend
+ * 对同一序列的结果一致，内存占用固定。后一段序列的累加器可合并到前一段之后，序号顺延
+ *
+ * @author Xiamen Metro System
+ */
+public class RunningTrend {
+
+    private long count;
+    private double meanX;
+    private double meanY;
+    private double m2X;
+    private double m2Y;
+    private double coMoment;
+
+    public void add(double value) {
+        double x = count;
+        count++;
+        double deltaX = x - meanX;
+        double deltaY = value - meanY;
+        meanX += deltaX / count;
+        meanY += deltaY / count;
+        m2X += deltaX * (x - meanX);
+        m2Y += deltaY * (value - meanY);
+        coMoment += deltaX * (value - meanY);
+    }
+
+    /**
+     * 把紧接在本序列之后的另一段序列合并进来：对方的序号整体后移 count，中心化量按二元 Chan 公式合并
+     */
+    public void merge(RunningTrend other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double deltaX = other.meanX + count - meanX;
+        double deltaY = other.meanY - meanY;
+        double weight = (double) count * other.count / total;
+        meanX += deltaX * other.count / total;
+        meanY += deltaY * other.count / total;
+        m2X += other.m2X + deltaX * deltaX * weight;
+        m2Y += other.m2Y + deltaY * deltaY * weight;
+        coMoment += other.coMoment + deltaX * deltaY * weight;
+        count = total;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeDouble(meanX);
+        out.writeDouble(meanY);
+        out.writeDouble(m2X);
+        out.writeDouble(m2Y);
+        out.writeDouble(coMoment);
+    }
+
+    static RunningTrend readFrom(DataInput in) throws IOException {
+        RunningTrend trend = new RunningTrend();
+        trend.count = in.readLong();
+        trend.meanX = in.readDouble();
+        trend.meanY = in.readDouble();
+        trend.m2X = in.readDouble();
+        trend.m2Y = in.readDouble();
+        trend.coMoment = in.readDouble();
+        return trend;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 序列均值，无数据返回 0
+     */
+    public double getMean() {
+        return count > 0 ? meanY : 0.0;
+    }
+
+    public double getSlope() {
+        return m2X > 0 ? coMoment / m2X : 0.0;
+    }
+
+    public double getRSquared() {
+        return m2X > 0 && m2Y > 0 ? coMoment * coMoment / (m2X * m2Y) : 0.0;
+    }
+
+    /**
+     * 按 analyzeTrend 的规则判断趋势方向与强度
+     */
+    public TimeSeriesAnalyzer.TrendAnalysisResult toTrendResult() {
+        if (count < 2) {
+            return new TimeSeriesAnalyzer.TrendAnalysisResult(TimeSeriesAnalyzer.TrendDirection.STABLE, 0, 0);
+        }
+
+        double slope = getSlope();
+        double threshold = count > 10 ? 0.01 : 0.05;
+        TimeSeriesAnalyzer.TrendDirection direction;
+        if (Math.abs(slope) < threshold) {
+            direction = TimeSeriesAnalyzer.TrendDirection.STABLE;
+        } else if (slope > 0) {
+            direction = TimeSeriesAnalyzer.TrendDirection.INCREASING;
+        } else {
+            direction = TimeSeriesAnalyzer.TrendDirection.DECREASING;
+        }
+        return new TimeSeriesAnalyzer.TrendAnalysisResult(direction, slope, getRSquared());
+    }
+}
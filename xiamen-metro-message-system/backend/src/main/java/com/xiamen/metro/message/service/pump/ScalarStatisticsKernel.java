@@ -0,0 +1,160 @@
+package com.xiamen.metro.message.service.pump;
+
+/**
+ * 统计内核的标量实现：逐元素循环，作为参考实现和不支持向量模块时的回退
+ *
+ * @author Xiamen Metro System
+ */
+public class ScalarStatisticsKernel implements StatisticsKernel {
+
+    /**
+     * 方差分块累计的块长度(8KB)
+     */
+    static final int VARIANCE_BLOCK = 1024;
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public double mean(double[] data, int from, int to) {
+        double sum = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            double value = data[i];
+            if (!Double.isNaN(value)) {
+                sum += value;
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : 0;
+    }
+
+    /**
+     * 按块累计：块内数据在缓存中两遍求均值与离差平方和，块间按 Welford/Chan 合并公式合并，
+     * 只需一次遍历内存，且避免逐点除法
+     */
+    @Override
+    public double variance(double[] data) {
+        long count = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (int from = 0; from < data.length; from += VARIANCE_BLOCK) {
+            int to = Math.min(data.length, from + VARIANCE_BLOCK);
+            double blockSum = 0;
+            int blockCount = 0;
+            for (int i = from; i < to; i++) {
+                double value = data[i];
+                if (!Double.isNaN(value)) {
+                    blockSum += value;
+                    blockCount++;
+                }
+            }
+            if (blockCount == 0) {
+                continue;
+            }
+            double blockMean = blockSum / blockCount;
+            double blockM2 = 0;
+            for (int i = from; i < to; i++) {
+                double value = data[i];
+                if (!Double.isNaN(value)) {
+                    double deviation = value - blockMean;
+                    blockM2 += deviation * deviation;
+                }
+            }
+
+            long total = count + blockCount;
+            double delta = blockMean - mean;
+            mean += delta * blockCount / total;
+            m2 += blockM2 + delta * delta * ((double) count * blockCount / total);
+            count = total;
+        }
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    @Override
+    public double min(double[] data) {
+        double min = Double.NaN;
+        for (double value : data) {
+            if (value < min || Double.isNaN(min)) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public double max(double[] data) {
+        double max = Double.NaN;
+        for (double value : data) {
+            if (value > max || Double.isNaN(max)) {
+                max = value;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public double correlation(double[] x, double[] y) {
+        if (x.length != y.length || x.length == 0) {
+            return 0.0;
+        }
+
+        double meanX = mean(x, 0, x.length);
+        double meanY = mean(y, 0, y.length);
+
+        double numerator = 0.0;
+        double sumXSquared = 0.0;
+        double sumYSquared = 0.0;
+
+        for (int i = 0; i < x.length; i++) {
+            double diffX = x[i] - meanX;
+            double diffY = y[i] - meanY;
+            numerator += diffX * diffY;
+            sumXSquared += diffX * diffX;
+            sumYSquared += diffY * diffY;
+        }
+
+        double denominator = Math.sqrt(sumXSquared * sumYSquared);
+        return denominator == 0 ? 0.0 : numerator / denominator;
+    }
+
+    @Override
+    public TimeSeriesAnalyzer.LinearRegressionResult linearRegression(double[] y, int from, int to) {
+        int n = to - from;
+        if (n <= 0) {
+            return new TimeSeriesAnalyzer.LinearRegressionResult(0, 0, 0);
+        }
+
+        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
+        for (int i = 0; i < n; i++) {
+            double x = i;
+            double value = y[from + i];
+            sumX += x;
+            sumY += value;
+            sumXY += x * value;
+            sumX2 += x * x;
+        }
+
+        double denominator = n * sumX2 - sumX * sumX;
+        if (Math.abs(denominator) < 1e-10) {
+            return new TimeSeriesAnalyzer.LinearRegressionResult(0, 0, 0);
+        }
+
+        double slope = (n * sumXY - sumX * sumY) / denominator;
+        double intercept = (sumY - slope * sumX) / n;
+
+        double meanY = sumY / n;
+        double totalSumSquares = 0, residualSumSquares = 0;
+        for (int i = 0; i < n; i++) {
+            double value = y[from + i];
+            double predicted = slope * i + intercept;
+            totalSumSquares += (value - meanY) * (value - meanY);
+            residualSumSquares += (value - predicted) * (value - predicted);
+        }
+
+        double rSquared = totalSumSquares > 0 ? 1 - (residualSumSquares / totalSumSquares) : 0;
+        return new TimeSeriesAnalyzer.LinearRegressionResult(slope, intercept, rSquared);
+    }
+}
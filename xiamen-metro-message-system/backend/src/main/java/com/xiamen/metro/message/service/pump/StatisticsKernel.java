@@ -0,0 +1,49 @@
+package com.xiamen.metro.message.service.pump;
+
+/**
+ * 泵指标统计归约内核
+ * <p>
+ * 均值、方差、最值、相关系数与线性回归的 double[] 实现。
+ * {@link ScalarStatisticsKernel} 为逐元素循环的参考实现，
+ * {@link VectorStatisticsKernel} 基于 jdk.incubator.vector 做 SIMD 归约，
+ * 由 {@link StatisticsKernels} 在启动时选择。两者结果只在浮点求和顺序上有差异
+ *
+ * @author Xiamen Metro System
+ */
+public interface StatisticsKernel {
+
+    /**
+     * 内核名称，用于日志
+     */
+    String name();
+
+    /**
+     * [from, to) 区间非空(非 NaN)值的平均值，无非空值返回 0
+     */
+    double mean(double[] data, int from, int to);
+
+    /**
+     * 非空值的样本方差(n-1)，不足两个非空值返回 0
+     */
+    double variance(double[] data);
+
+    /**
+     * 非空值的最小值，无非空值返回 NaN
+     */
+    double min(double[] data);
+
+    /**
+     * 非空值的最大值，无非空值返回 NaN
+     */
+    double max(double[] data);
+
+    /**
+     * 两个等长序列的皮尔逊相关系数，序列不应含 NaN；长度不一致、为空或方差为零时返回 0
+     */
+    double correlation(double[] x, double[] y);
+
+    /**
+     * 以序号 0,1,2... 为自变量对 [from, to) 区间做线性回归，区间内不应含 NaN
+     */
+    TimeSeriesAnalyzer.LinearRegressionResult linearRegression(double[] y, int from, int to);
+}
@@ -0,0 +1,68 @@
+package com.xiamen.metro.message.service.pump;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 统计内核选择
+ * <p>
+ * 首次使用时选定并固定：JVM 以 --add-modules jdk.incubator.vector 启动且平台支持 double 向量时
+ * 使用 {@link VectorStatisticsKernel}，否则回退 {@link ScalarStatisticsKernel}。
+ * 向量实现按类名反射加载，模块缺失时只会在这里链接失败，不影响其余代码。
+ * 可用系统属性 -Dpump.statistics.vector=false 强制使用标量实现
+ *
+ * @author Xiamen Metro System
+ */
+@Slf4j
+public final class StatisticsKernels {
+
+    static final String VECTOR_PROPERTY = "pump.statistics.vector";
+
+    private static final String VECTOR_KERNEL_CLASS = "com.xiamen.metro.message.service.pump.VectorStatisticsKernel";
+
+    private static final StatisticsKernel SCALAR = new ScalarStatisticsKernel();
+
+    private static final StatisticsKernel CURRENT = select();
+
+    private StatisticsKernels() {
+    }
+
+    /**
+     * 当前选用的内核
+     */
+    public static StatisticsKernel current() {
+        return CURRENT;
+    }
+
+    /**
+     * 标量参考实现
+     */
+    public static StatisticsKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * 加载向量实现，模块不可用或平台不支持时返回 null
+     */
+    public static StatisticsKernel loadVector() {
+        try {
+            return (StatisticsKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            log.debug("向量统计内核不可用: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static StatisticsKernel select() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+            log.info("统计内核: {} (已通过 {} 关闭向量实现)", SCALAR.name(), VECTOR_PROPERTY);
+            return SCALAR;
+        }
+        StatisticsKernel vector = loadVector();
+        if (vector == null) {
+            log.info("统计内核: {} (jdk.incubator.vector 不可用)", SCALAR.name());
+            return SCALAR;
+        }
+        log.info("统计内核: {}", vector.name());
+        return vector;
+    }
+}
@@ -4,10 +4,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 时间序列分析工具类
+ * <p>
+ * 计算核心基于 double[]，NaN 表示空值并在统计时跳过：移动平均为滑动窗口求和，方差为分块 Welford 合并，
+ * 中位数与百分位数为快速选择，突变点检测为前缀和求窗口统计量，均为 O(n) 且不装箱。
+ * 均值、方差、最值、相关系数与线性回归等归约委托给启动时选定的 {@link StatisticsKernel}(有向量模块时为 SIMD 实现)。
+ * 接收 List&lt;Double&gt; 的方法把 null 转为 NaN 后调用对应的数组方法
  *
  * @author Xiamen Metro System
  */
@@ -15,6 +19,11 @@ import java.util.stream.Collectors;
 @Component
 public class TimeSeriesAnalyzer {
 
+    /**
+     * 快速选择在区间不超过该长度时改为插入排序
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
     /**
      * 移动平均
      */
@@ -22,25 +31,7 @@ public class TimeSeriesAnalyzer {
         if (data == null || data.isEmpty() || windowSize <= 0) {
             return new ArrayList<>();
         }
-
-        List<Double> result = new ArrayList<>();
-        for (int i = 0; i < data.size(); i++) {
-            int start = Math.max(0, i - windowSize + 1);
-            int end = i + 1;
-
-            double sum = 0;
-            int count = 0;
-            for (int j = start; j < end; j++) {
-                if (data.get(j) != null) {
-                    sum += data.get(j);
-                    count++;
-                }
-            }
-
-            result.add(count > 0 ? sum / count : null);
-        }
-
-        return result;
+        return toList(movingAverage(toArray(data), windowSize));
     }
 
     /**
@@ -50,19 +41,7 @@ public class TimeSeriesAnalyzer {
         if (data == null || data.isEmpty()) {
             return 0;
         }
-
-        double mean = mean(data);
-        double sumSquaredDeviations = 0;
-        int validCount = 0;
-
-        for (Double value : data) {
-            if (value != null) {
-                sumSquaredDeviations += Math.pow(value - mean, 2);
-                validCount++;
-            }
-        }
-
-        return validCount > 1 ? Math.sqrt(sumSquaredDeviations / (validCount - 1)) : 0;
+        return standardDeviation(toArray(data));
     }
 
     /**
@@ -72,17 +51,7 @@ public class TimeSeriesAnalyzer {
         if (data == null || data.isEmpty()) {
             return 0;
         }
-
-        double sum = 0;
-        int count = 0;
-        for (Double value : data) {
-            if (value != null) {
-                sum += value;
-                count++;
-            }
-        }
-
-        return count > 0 ? sum / count : 0;
+        return mean(toArray(data));
     }
 
     /**
@@ -92,58 +61,17 @@ public class TimeSeriesAnalyzer {
         if (data == null || data.isEmpty()) {
             return 0;
         }
-
-        List<Double> sortedData = data.stream()
-                .filter(Objects::nonNull)
-                .sorted()
-                .collect(Collectors.toList());
-
-        if (sortedData.isEmpty()) {
-            return 0;
-        }
-
-        int size = sortedData.size();
-        if (size % 2 == 0) {
-            return (sortedData.get(size / 2 - 1) + sortedData.get(size / 2)) / 2;
-        } else {
-            return sortedData.get(size / 2);
-        }
+        return median(toArray(data));
     }
 
     /**
      * 检测异常值（IQR方法）
      */
     public static List<Integer> detectOutliers(List<Double> data) {
-        List<Integer> outlierIndices = new ArrayList<>();
-
         if (data == null || data.size() < 4) {
-            return outlierIndices;
-        }
-
-        List<Double> sortedData = data.stream()
-                .filter(Objects::nonNull)
-                .sorted()
-                .collect(Collectors.toList());
-
-        if (sortedData.size() < 4) {
-            return outlierIndices;
-        }
-
-        double q1 = percentile(sortedData, 25);
-        double q3 = percentile(sortedData, 75);
-        double iqr = q3 - q1;
-
-        double lowerBound = q1 - 1.5 * iqr;
-        double upperBound = q3 + 1.5 * iqr;
-
-        for (int i = 0; i < data.size(); i++) {
-            Double value = data.get(i);
-            if (value != null && (value < lowerBound || value > upperBound)) {
-                outlierIndices.add(i);
-            }
+            return new ArrayList<>();
         }
-
-        return outlierIndices;
+        return toIndexList(detectOutliers(toArray(data)));
     }
 
     /**
@@ -153,17 +81,7 @@ public class TimeSeriesAnalyzer {
         if (sortedData == null || sortedData.isEmpty()) {
             return 0;
         }
-
-        double index = (percentile / 100) * (sortedData.size() - 1);
-        int lowerIndex = (int) Math.floor(index);
-        int upperIndex = (int) Math.ceil(index);
-
-        if (lowerIndex == upperIndex) {
-            return sortedData.get(lowerIndex);
-        }
-
-        double weight = index - lowerIndex;
-        return sortedData.get(lowerIndex) * (1 - weight) + sortedData.get(upperIndex) * weight;
+        return percentileOfSorted(toArray(sortedData), percentile);
     }
 
     /**
@@ -218,29 +136,275 @@ public class TimeSeriesAnalyzer {
         if (data == null || data.size() < 2) {
             return new TrendAnalysisResult(TrendDirection.STABLE, 0, 0);
         }
+        return analyzeTrend(toArray(data));
+    }
 
-        // 过滤空值
-        List<Double> cleanData = data.stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    /**
+     * 检测突变点
+     */
+    public static List<Integer> detectChangePoints(List<Double> data, double threshold) {
+        if (data == null || data.size() < 3) {
+            return new ArrayList<>();
+        }
+        return toIndexList(detectChangePoints(toArray(data), threshold));
+    }
 
-        if (cleanData.size() < 2) {
-            return new TrendAnalysisResult(TrendDirection.STABLE, 0, 0);
+    /**
+     * 移动平均(double[])：窗口内非空值的平均，窗口内全为空值时为 NaN。
+     * 滑动窗口维护和与计数，每个点 O(1)
+     */
+    public static double[] movingAverage(double[] data, int windowSize) {
+        if (data.length == 0 || windowSize <= 0) {
+            return new double[0];
         }
 
-        // 创建时间索引
-        List<Double> timeIndices = new ArrayList<>();
-        for (int i = 0; i < cleanData.size(); i++) {
-            timeIndices.add((double) i);
+        double[] result = new double[data.length];
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < data.length; i++) {
+            double value = data[i];
+            if (!Double.isNaN(value)) {
+                sum += value;
+                count++;
+            }
+            if (i >= windowSize) {
+                double expired = data[i - windowSize];
+                if (!Double.isNaN(expired)) {
+                    sum -= expired;
+                    count--;
+                }
+            }
+            if (count == 0) {
+                // 窗口清空时丢弃累计的舍入误差
+                sum = 0;
+                result[i] = Double.NaN;
+            } else {
+                result[i] = sum / count;
+            }
         }
+        return result;
+    }
 
-        // 线性回归分析趋势
-        LinearRegressionResult regression = linearRegression(timeIndices, cleanData);
+    /**
+     * 计算平均值(double[])，无非空值返回 0
+     */
+    public static double mean(double[] data) {
+        return mean(data, 0, data.length);
+    }
 
-        // 判断趋势方向
-        TrendDirection direction;
-        double threshold = cleanData.size() > 10 ? 0.01 : 0.05;
+    /**
+     * 计算 [from, to) 区间非空值的平均值，无非空值返回 0
+     */
+    public static double mean(double[] data, int from, int to) {
+        return StatisticsKernels.current().mean(data, from, to);
+    }
+
+    /**
+     * 样本方差(n-1)，不足两个非空值返回 0
+     * <p>
+     * 按块累计：块内两遍求均值与离差平方和，块间按 Welford/Chan 合并公式合并，只需一次遍历内存
+     */
+    public static double variance(double[] data) {
+        return StatisticsKernels.current().variance(data);
+    }
+
+    /**
+     * 非空值的最小值，无非空值返回 NaN
+     */
+    public static double min(double[] data) {
+        return StatisticsKernels.current().min(data);
+    }
+
+    /**
+     * 非空值的最大值，无非空值返回 NaN
+     */
+    public static double max(double[] data) {
+        return StatisticsKernels.current().max(data);
+    }
+
+    /**
+     * 两个等长序列的皮尔逊相关系数，序列不应含 NaN；长度不一致、为空或方差为零时返回 0
+     */
+    public static double correlation(double[] x, double[] y) {
+        return StatisticsKernels.current().correlation(x, y);
+    }
+
+    /**
+     * 计算标准差(double[])，样本标准差(n-1)
+     */
+    public static double standardDeviation(double[] data) {
+        return Math.sqrt(variance(data));
+    }
+
+    /**
+     * 中位数(double[]，无需有序)，在非空值的副本上快速选择，无非空值返回 0
+     */
+    public static double median(double[] data) {
+        return percentile(data, 50);
+    }
+
+    /**
+     * 百分位数(double[]，无需有序)，插值规则与 {@link #percentileOfSorted} 一致，无非空值返回 0
+     */
+    public static double percentile(double[] data, double percentile) {
+        double[] scratch = compact(data);
+        return percentileInPlace(scratch, scratch.length, percentile);
+    }
+
+    /**
+     * 已升序数组的中位数
+     */
+    public static double medianOfSorted(double[] sortedData) {
+        int size = sortedData.length;
+        if (size == 0) {
+            return 0;
+        }
+        return size % 2 == 0 ? (sortedData[size / 2 - 1] + sortedData[size / 2]) / 2 : sortedData[size / 2];
+    }
+
+    /**
+     * 已升序数组的百分位数
+     */
+    public static double percentileOfSorted(double[] sortedData, double percentile) {
+        if (sortedData.length == 0) {
+            return 0;
+        }
+
+        double index = (percentile / 100) * (sortedData.length - 1);
+        int lowerIndex = (int) Math.floor(index);
+        int upperIndex = (int) Math.ceil(index);
+
+        if (lowerIndex == upperIndex) {
+            return sortedData[lowerIndex];
+        }
+
+        double weight = index - lowerIndex;
+        return sortedData[lowerIndex] * (1 - weight) + sortedData[upperIndex] * weight;
+    }
+
+    /**
+     * 检测异常值（IQR方法，double[]），返回异常值下标；非空值少于4个时返回空数组
+     */
+    public static int[] detectOutliers(double[] data) {
+        double[] scratch = compact(data);
+        if (scratch.length < 4) {
+            return new int[0];
+        }
+
+        double q1 = percentileInPlace(scratch, scratch.length, 25);
+        double q3 = percentileInPlace(scratch, scratch.length, 75);
+        double iqr = q3 - q1;
+        double lowerBound = q1 - 1.5 * iqr;
+        double upperBound = q3 + 1.5 * iqr;
+
+        int[] indices = new int[data.length];
+        int count = 0;
+        for (int i = 0; i < data.length; i++) {
+            double value = data[i];
+            if (value < lowerBound || value > upperBound) {
+                indices[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * 统计异常值个数（IQR方法），sortedData 为 data 的升序副本
+     */
+    public static int countOutliers(double[] data, double[] sortedData) {
+        if (data.length < 4) {
+            return 0;
+        }
+
+        double q1 = percentileOfSorted(sortedData, 25);
+        double q3 = percentileOfSorted(sortedData, 75);
+        double iqr = q3 - q1;
+        double lowerBound = q1 - 1.5 * iqr;
+        double upperBound = q3 + 1.5 * iqr;
+
+        int count = 0;
+        for (double value : data) {
+            if (value < lowerBound || value > upperBound) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 检测突变点(double[])，返回突变点下标
+     * <p>
+     * 点 i 与前后相邻点差值的均值超过局部标准差的 threshold 倍即为突变点，局部窗口为 i 前后各 min(5, i) 个点。
+     * 窗口统计量由非空值个数、和、平方和的前缀和得到，每个点 O(1)；数值先减去均值以减小相减误差
+     */
+    public static int[] detectChangePoints(double[] data, double threshold) {
+        int n = data.length;
+        if (n < 3) {
+            return new int[0];
+        }
 
+        double shift = mean(data);
+        int[] prefixCount = new int[n + 1];
+        double[] prefixSum = new double[n + 1];
+        double[] prefixSquares = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            double value = data[i];
+            boolean present = !Double.isNaN(value);
+            double centered = present ? value - shift : 0;
+            prefixCount[i + 1] = prefixCount[i] + (present ? 1 : 0);
+            prefixSum[i + 1] = prefixSum[i] + centered;
+            prefixSquares[i + 1] = prefixSquares[i] + centered * centered;
+        }
+
+        int[] changePoints = new int[n];
+        int found = 0;
+        for (int i = 1; i < n - 1; i++) {
+            double previous = data[i - 1];
+            double current = data[i];
+            double next = data[i + 1];
+            if (Double.isNaN(previous) || Double.isNaN(current) || Double.isNaN(next)) {
+                continue;
+            }
+
+            double avgDiff = (Math.abs(current - previous) + Math.abs(next - current)) / 2;
+
+            int windowSize = Math.min(5, i);
+            int from = i - windowSize;
+            int to = Math.min(n - 1, i + windowSize) + 1;
+            int count = prefixCount[to] - prefixCount[from];
+            if (count > 2) {
+                double sum = prefixSum[to] - prefixSum[from];
+                double squares = prefixSquares[to] - prefixSquares[from];
+                double variance = Math.max(0, (squares - sum * sum / count) / (count - 1));
+                double localStd = Math.sqrt(variance);
+                if (localStd > 0 && avgDiff / localStd > threshold) {
+                    changePoints[found++] = i;
+                }
+            }
+        }
+        return Arrays.copyOf(changePoints, found);
+    }
+
+    /**
+     * 以序号 0,1,2... 为自变量对 [from, to) 区间做线性回归，区间内不应含 NaN
+     */
+    public static LinearRegressionResult linearRegression(double[] y, int from, int to) {
+        return StatisticsKernels.current().linearRegression(y, from, to);
+    }
+
+    /**
+     * 趋势分析(double[])，空值先剔除再按序号回归
+     */
+    public static TrendAnalysisResult analyzeTrend(double[] data) {
+        double[] clean = containsNaN(data) ? compact(data) : data;
+        if (clean.length < 2) {
+            return new TrendAnalysisResult(TrendDirection.STABLE, 0, 0);
+        }
+
+        LinearRegressionResult regression = linearRegression(clean, 0, clean.length);
+
+        TrendDirection direction;
+        double threshold = clean.length > 10 ? 0.01 : 0.05;
         if (Math.abs(regression.getSlope()) < threshold) {
             direction = TrendDirection.STABLE;
         } else if (regression.getSlope() > 0) {
@@ -249,50 +413,151 @@ public class TimeSeriesAnalyzer {
             direction = TrendDirection.DECREASING;
         }
 
-        // 计算趋势强度（基于R²）
-        double strength = Math.abs(regression.getRSquared());
+        return new TrendAnalysisResult(direction, regression.getSlope(), Math.abs(regression.getRSquared()));
+    }
 
-        return new TrendAnalysisResult(direction, regression.getSlope(), strength);
+    /**
+     * 快速选择：重排 data 的 [from, to) 区间，使下标 k 处为区间内第 k - from 小的值，
+     * 其左侧不大于它、右侧不小于它。期望 O(n)，区间内不应含 NaN
+     */
+    public static void select(double[] data, int from, int to, int k) {
+        int left = from;
+        int right = to - 1;
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            // 三数取中作为枢轴，放到 left 处
+            int middle = (left + right) >>> 1;
+            if (data[middle] < data[left]) {
+                swap(data, middle, left);
+            }
+            if (data[right] < data[left]) {
+                swap(data, right, left);
+            }
+            if (data[right] < data[middle]) {
+                swap(data, right, middle);
+            }
+            swap(data, left, middle);
+            double pivot = data[left];
+
+            // Hoare 划分，重复值平均分到两侧
+            int i = left;
+            int j = right + 1;
+            while (true) {
+                do {
+                    i++;
+                } while (data[i] < pivot);
+                do {
+                    j--;
+                } while (data[j] > pivot);
+                if (i >= j) {
+                    break;
+                }
+                swap(data, i, j);
+            }
+            swap(data, left, j);
+
+            if (j == k) {
+                return;
+            } else if (k < j) {
+                right = j - 1;
+            } else {
+                left = j + 1;
+            }
+        }
+        for (int i = left + 1; i <= right; i++) {
+            double value = data[i];
+            int j = i - 1;
+            while (j >= left && data[j] > value) {
+                data[j + 1] = data[j];
+                j--;
+            }
+            data[j + 1] = value;
+        }
     }
 
     /**
-     * 检测突变点
+     * 在 scratch 的前 size 个值上求百分位数，会重排 scratch
      */
-    public static List<Integer> detectChangePoints(List<Double> data, double threshold) {
-        List<Integer> changePoints = new ArrayList<>();
+    private static double percentileInPlace(double[] scratch, int size, double percentile) {
+        if (size == 0) {
+            return 0;
+        }
 
-        if (data == null || data.size() < 3) {
-            return changePoints;
+        double index = (percentile / 100) * (size - 1);
+        int lowerIndex = (int) Math.floor(index);
+        int upperIndex = (int) Math.ceil(index);
+
+        select(scratch, 0, size, lowerIndex);
+        double lower = scratch[lowerIndex];
+        if (lowerIndex == upperIndex) {
+            return lower;
         }
 
-        // 使用简单的差分方法检测突变点
-        for (int i = 1; i < data.size() - 1; i++) {
-            if (data.get(i) == null || data.get(i - 1) == null || data.get(i + 1) == null) {
-                continue;
+        // 选择后右侧均不小于 lower，其中的最小值即第 upperIndex 小的值
+        double upper = scratch[upperIndex];
+        for (int i = upperIndex + 1; i < size; i++) {
+            if (scratch[i] < upper) {
+                upper = scratch[i];
             }
+        }
+        double weight = index - lowerIndex;
+        return lower * (1 - weight) + upper * weight;
+    }
 
-            double prevDiff = Math.abs(data.get(i) - data.get(i - 1));
-            double nextDiff = Math.abs(data.get(i + 1) - data.get(i));
-            double avgDiff = (prevDiff + nextDiff) / 2;
+    private static void swap(double[] data, int i, int j) {
+        double value = data[i];
+        data[i] = data[j];
+        data[j] = value;
+    }
 
-            // 计算局部标准差
-            int windowSize = Math.min(5, i);
-            List<Double> window = new ArrayList<>();
-            for (int j = Math.max(0, i - windowSize); j <= Math.min(data.size() - 1, i + windowSize); j++) {
-                if (data.get(j) != null) {
-                    window.add(data.get(j));
-                }
+    private static boolean containsNaN(double[] data) {
+        for (double value : data) {
+            if (Double.isNaN(value)) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            if (window.size() > 2) {
-                double localStd = standardDeviation(window);
-                if (localStd > 0 && avgDiff / localStd > threshold) {
-                    changePoints.add(i);
-                }
+    /**
+     * 非空值的副本
+     */
+    private static double[] compact(double[] data) {
+        double[] result = new double[data.length];
+        int count = 0;
+        for (double value : data) {
+            if (!Double.isNaN(value)) {
+                result[count++] = value;
             }
         }
+        return count == data.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 转为 double[]，null 记为 NaN
+     */
+    private static double[] toArray(List<Double> data) {
+        double[] result = new double[data.size()];
+        int i = 0;
+        for (Double value : data) {
+            result[i++] = value != null ? value : Double.NaN;
+        }
+        return result;
+    }
 
-        return changePoints;
+    private static List<Double> toList(double[] data) {
+        List<Double> result = new ArrayList<>(data.length);
+        for (double value : data) {
+            result.add(Double.isNaN(value) ? null : value);
+        }
+        return result;
+    }
+
+    private static List<Integer> toIndexList(int[] indices) {
+        List<Integer> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(index);
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,291 @@
+package com.xiamen.metro.message.service.pump;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 统计内核的 SIMD 实现，基于 jdk.incubator.vector
+ * <p>
+ * 按平台首选宽度(AVX2 为 4 路、AVX-512 为 8 路)整段装载，逐通道累加后再归约，尾部不足一段的元素走标量循环。
+ * 空值用掩码剔除(NaN 与自身不相等)。运行时需要 --add-modules jdk.incubator.vector，
+ * 模块缺失时本类无法链接，由 {@link StatisticsKernels} 回退到 {@link ScalarStatisticsKernel}
+ *
+ * @author Xiamen Metro System
+ */
+public class VectorStatisticsKernel implements StatisticsKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private static final int LANES = SPECIES.length();
+
+    /**
+     * 各通道的序号偏移 0,1,...,LANES-1，线性回归用来生成自变量
+     */
+    private static final DoubleVector LANE_INDEX = DoubleVector.fromArray(SPECIES, laneIndex(), 0);
+
+    private static final int VARIANCE_BLOCK = ScalarStatisticsKernel.VARIANCE_BLOCK;
+
+    public VectorStatisticsKernel() {
+        if (LANES < 2) {
+            throw new UnsupportedOperationException("平台不支持 double 向量运算，首选宽度: " + SPECIES.vectorBitSize());
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + LANES + "x" + Double.SIZE;
+    }
+
+    @Override
+    public double mean(double[] data, int from, int to) {
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        DoubleVector count = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, data, i);
+            VectorMask<Double> valid = v.eq(v);
+            sum = sum.add(v, valid);
+            count = count.add(1.0, valid);
+        }
+        double total = sum.reduceLanes(VectorOperators.ADD);
+        long valid = (long) count.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            double value = data[i];
+            if (!Double.isNaN(value)) {
+                total += value;
+                valid++;
+            }
+        }
+        return valid > 0 ? total / valid : 0;
+    }
+
+    /**
+     * 与标量实现相同的分块合并，块内两遍均为向量归约
+     */
+    @Override
+    public double variance(double[] data) {
+        long count = 0;
+        double mean = 0;
+        double m2 = 0;
+        for (int from = 0; from < data.length; from += VARIANCE_BLOCK) {
+            int to = Math.min(data.length, from + VARIANCE_BLOCK);
+            int bound = from + SPECIES.loopBound(to - from);
+
+            DoubleVector sumVector = DoubleVector.zero(SPECIES);
+            DoubleVector countVector = DoubleVector.zero(SPECIES);
+            for (int i = from; i < bound; i += LANES) {
+                DoubleVector v = DoubleVector.fromArray(SPECIES, data, i);
+                VectorMask<Double> valid = v.eq(v);
+                sumVector = sumVector.add(v, valid);
+                countVector = countVector.add(1.0, valid);
+            }
+            double blockSum = sumVector.reduceLanes(VectorOperators.ADD);
+            int blockCount = (int) countVector.reduceLanes(VectorOperators.ADD);
+            for (int i = bound; i < to; i++) {
+                double value = data[i];
+                if (!Double.isNaN(value)) {
+                    blockSum += value;
+                    blockCount++;
+                }
+            }
+            if (blockCount == 0) {
+                continue;
+            }
+            double blockMean = blockSum / blockCount;
+
+            DoubleVector m2Vector = DoubleVector.zero(SPECIES);
+            for (int i = from; i < bound; i += LANES) {
+                DoubleVector v = DoubleVector.fromArray(SPECIES, data, i);
+                DoubleVector deviation = v.sub(blockMean);
+                m2Vector = m2Vector.add(deviation.mul(deviation), v.eq(v));
+            }
+            double blockM2 = m2Vector.reduceLanes(VectorOperators.ADD);
+            for (int i = bound; i < to; i++) {
+                double value = data[i];
+                if (!Double.isNaN(value)) {
+                    double deviation = value - blockMean;
+                    blockM2 += deviation * deviation;
+                }
+            }
+
+            long total = count + blockCount;
+            double delta = blockMean - mean;
+            mean += delta * blockCount / total;
+            m2 += blockM2 + delta * delta * ((double) count * blockCount / total);
+            count = total;
+        }
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    /**
+     * 空值通道以 +∞ 代替；结果为 +∞ 时再确认是否全为空
+     */
+    @Override
+    public double min(double[] data) {
+        DoubleVector acc = DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(data.length); i < bound; i += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, data, i);
+            acc = acc.min(v.blend(Double.POSITIVE_INFINITY, v.test(VectorOperators.IS_NAN)));
+        }
+        double min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < data.length; i++) {
+            if (data[i] < min) {
+                min = data[i];
+            }
+        }
+        return min == Double.POSITIVE_INFINITY && allNaN(data) ? Double.NaN : min;
+    }
+
+    /**
+     * 空值通道以 -∞ 代替；结果为 -∞ 时再确认是否全为空
+     */
+    @Override
+    public double max(double[] data) {
+        DoubleVector acc = DoubleVector.broadcast(SPECIES, Double.NEGATIVE_INFINITY);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(data.length); i < bound; i += LANES) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, data, i);
+            acc = acc.max(v.blend(Double.NEGATIVE_INFINITY, v.test(VectorOperators.IS_NAN)));
+        }
+        double max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < data.length; i++) {
+            if (data[i] > max) {
+                max = data[i];
+            }
+        }
+        return max == Double.NEGATIVE_INFINITY && allNaN(data) ? Double.NaN : max;
+    }
+
+    private static boolean allNaN(double[] data) {
+        for (double value : data) {
+            if (!Double.isNaN(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public double correlation(double[] x, double[] y) {
+        if (x.length != y.length || x.length == 0) {
+            return 0.0;
+        }
+        int n = x.length;
+        int bound = SPECIES.loopBound(n);
+
+        DoubleVector sumXVector = DoubleVector.zero(SPECIES);
+        DoubleVector sumYVector = DoubleVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += LANES) {
+            sumXVector = sumXVector.add(DoubleVector.fromArray(SPECIES, x, i));
+            sumYVector = sumYVector.add(DoubleVector.fromArray(SPECIES, y, i));
+        }
+        double sumX = sumXVector.reduceLanes(VectorOperators.ADD);
+        double sumY = sumYVector.reduceLanes(VectorOperators.ADD);
+        for (int i = bound; i < n; i++) {
+            sumX += x[i];
+            sumY += y[i];
+        }
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+
+        DoubleVector numeratorVector = DoubleVector.zero(SPECIES);
+        DoubleVector xSquaredVector = DoubleVector.zero(SPECIES);
+        DoubleVector ySquaredVector = DoubleVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += LANES) {
+            DoubleVector diffX = DoubleVector.fromArray(SPECIES, x, i).sub(meanX);
+            DoubleVector diffY = DoubleVector.fromArray(SPECIES, y, i).sub(meanY);
+            numeratorVector = diffX.fma(diffY, numeratorVector);
+            xSquaredVector = diffX.fma(diffX, xSquaredVector);
+            ySquaredVector = diffY.fma(diffY, ySquaredVector);
+        }
+        double numerator = numeratorVector.reduceLanes(VectorOperators.ADD);
+        double sumXSquared = xSquaredVector.reduceLanes(VectorOperators.ADD);
+        double sumYSquared = ySquaredVector.reduceLanes(VectorOperators.ADD);
+        for (int i = bound; i < n; i++) {
+            double diffX = x[i] - meanX;
+            double diffY = y[i] - meanY;
+            numerator += diffX * diffY;
+            sumXSquared += diffX * diffX;
+            sumYSquared += diffY * diffY;
+        }
+
+        double denominator = Math.sqrt(sumXSquared * sumYSquared);
+        return denominator == 0 ? 0.0 : numerator / denominator;
+    }
+
+    @Override
+    public TimeSeriesAnalyzer.LinearRegressionResult linearRegression(double[] y, int from, int to) {
+        int n = to - from;
+        if (n <= 0) {
+            return new TimeSeriesAnalyzer.LinearRegressionResult(0, 0, 0);
+        }
+        int bound = SPECIES.loopBound(n);
+
+        DoubleVector sumXVector = DoubleVector.zero(SPECIES);
+        DoubleVector sumYVector = DoubleVector.zero(SPECIES);
+        DoubleVector sumXYVector = DoubleVector.zero(SPECIES);
+        DoubleVector sumX2Vector = DoubleVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += LANES) {
+            DoubleVector x = LANE_INDEX.add(i);
+            DoubleVector value = DoubleVector.fromArray(SPECIES, y, from + i);
+            sumXVector = sumXVector.add(x);
+            sumYVector = sumYVector.add(value);
+            sumXYVector = x.fma(value, sumXYVector);
+            sumX2Vector = x.fma(x, sumX2Vector);
+        }
+        double sumX = sumXVector.reduceLanes(VectorOperators.ADD);
+        double sumY = sumYVector.reduceLanes(VectorOperators.ADD);
+        double sumXY = sumXYVector.reduceLanes(VectorOperators.ADD);
+        double sumX2 = sumX2Vector.reduceLanes(VectorOperators.ADD);
+        for (int i = bound; i < n; i++) {
+            double x = i;
+            double value = y[from + i];
+            sumX += x;
+            sumY += value;
+            sumXY += x * value;
+            sumX2 += x * x;
+        }
+
+        double denominator = n * sumX2 - sumX * sumX;
+        if (Math.abs(denominator) < 1e-10) {
+            return new TimeSeriesAnalyzer.LinearRegressionResult(0, 0, 0);
+        }
+
+        double slope = (n * sumXY - sumX * sumY) / denominator;
+        double intercept = (sumY - slope * sumX) / n;
+
+        double meanY = sumY / n;
+        DoubleVector totalVector = DoubleVector.zero(SPECIES);
+        DoubleVector residualVector = DoubleVector.zero(SPECIES);
+        for (int i = 0; i < bound; i += LANES) {
+            DoubleVector value = DoubleVector.fromArray(SPECIES, y, from + i);
+            DoubleVector predicted = LANE_INDEX.add(i).fma(slope, intercept);
+            DoubleVector deviation = value.sub(meanY);
+            DoubleVector residual = value.sub(predicted);
+            totalVector = deviation.fma(deviation, totalVector);
+            residualVector = residual.fma(residual, residualVector);
+        }
+        double totalSumSquares = totalVector.reduceLanes(VectorOperators.ADD);
+        double residualSumSquares = residualVector.reduceLanes(VectorOperators.ADD);
+        for (int i = bound; i < n; i++) {
+            double value = y[from + i];
+            double predicted = slope * i + intercept;
+            totalSumSquares += (value - meanY) * (value - meanY);
+            residualSumSquares += (value - predicted) * (value - predicted);
+        }
+
+        double rSquared = totalSumSquares > 0 ? 1 - (residualSumSquares / totalSumSquares) : 0;
+        return new TimeSeriesAnalyzer.LinearRegressionResult(slope, intercept, rSquared);
+    }
+
+    private static double[] laneIndex() {
+        double[] index = new double[LANES];
+        for (int i = 0; i < LANES; i++) {
+            index[i] = i;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,3 @@
+-- 告警数据保留期清理按 (时间, id) 键集分页删除，需要与排序一致的复合索引
+CREATE INDEX IF NOT EXISTS idx_alert_time_id ON alert_records(alert_time, id);
+CREATE INDEX IF NOT EXISTS idx_notification_time_id ON alert_notifications(notification_time, id);
@@ -0,0 +1,10 @@
+-- 文件入库进度字段
+ALTER TABLE files ADD COLUMN IF NOT EXISTS processed_row_count INTEGER;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS pump_record_count INTEGER;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS rejected_record_count INTEGER;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS persisted_record_count INTEGER;
+
+COMMENT ON COLUMN files.processed_row_count IS '已入库处理的报文行数';
+COMMENT ON COLUMN files.pump_record_count IS '提取出的水泵数据条数';
+COMMENT ON COLUMN files.rejected_record_count IS '校验未通过的水泵数据条数';
+COMMENT ON COLUMN files.persisted_record_count IS '已写入的水泵数据条数';
@@ -0,0 +1,102 @@
+package com.xiamen.metro.message.benchmark;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.service.pump.PumpBlockCodec;
+import com.xiamen.metro.message.service.pump.PumpSeries;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 水泵数据块压缩编码基准：整块编码/解码吞吐(块/毫秒，乘以行数即行/毫秒)与压缩率
+ * <p>
+ * 数据为每秒一条、数值按传感器精度量化的缓变信号；noisy 为功率与电流带随机噪声，接近压缩率下限。
+ * 压缩率在 Setup 中打印(原始大小按热存储每行104字节计)。纯内存运行，不需要数据库。
+ * 运行方式: 在IDE中执行main方法，或 mvn test-compile 后以测试classpath启动
+ *
+ * @author Xiamen Metro System
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PumpBlockCodecBenchmark {
+
+    private static final int RAW_ROW_BYTES = 104;
+
+    @Param({"3600", "86400"})
+    private int rows;
+
+    @Param({"quantized", "noisy"})
+    private String signal;
+
+    private PumpSeries series;
+    private byte[] block;
+
+    @Setup
+    public void setUp() {
+        series = PumpSeries.of("PUMP_001", generate(rows, "noisy".equals(signal)));
+        block = PumpBlockCodec.encode(series);
+        System.out.printf("%n行数=%d, 信号=%s, 压缩后=%d字节(%.2f字节/行), 压缩率=%.1fx%n", rows, signal,
+                block.length, (double) block.length / rows, (double) rows * RAW_ROW_BYTES / block.length);
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        blackhole.consume(PumpBlockCodec.encode(series));
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        blackhole.consume(PumpBlockCodec.decode("PUMP_001", block));
+    }
+
+    private static List<PumpDataEntity> generate(int rows, boolean noisy) {
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 0, 0);
+        Random random = new Random(11);
+        List<PumpDataEntity> records = new ArrayList<>(rows);
+        double pressure = 320;
+        double temperature = 18.5;
+        for (int i = 0; i < rows; i++) {
+            if (random.nextInt(20) == 0) {
+                pressure += random.nextBoolean() ? 0.5 : -0.5;
+            }
+            if (random.nextInt(120) == 0) {
+                temperature += random.nextBoolean() ? 0.1 : -0.1;
+            }
+            boolean running = (i / 900) % 2 == 0;
+            PumpDataEntity record = new PumpDataEntity();
+            record.setDeviceId("PUMP_001");
+            record.setTimestamp(base.plusSeconds(i));
+            record.setPumpStatus(running ? 1 : 0);
+            record.setRuntimeMinutes(running ? Math.floor((i % 900) / 60.0) : 0.0);
+            record.setCurrentAmperage(running ? (noisy ? 52 + random.nextGaussian() : 52.0) : 0.0);
+            record.setVoltage(380.0);
+            record.setPowerKw(running ? (noisy ? 30 + random.nextGaussian() : 30.0) : 0.0);
+            record.setEnergyConsumptionKwh(Math.floor(i / 120.0));
+            record.setWaterPressureKpa(running ? pressure : 0.0);
+            record.setFlowRateM3h(running ? 120.0 : 0.0);
+            record.setWaterTemperatureCelsius(Math.round(temperature * 10) / 10.0);
+            record.setVibrationMmS(running ? 2.1 : 0.0);
+            record.setNoiseLevelDb(running ? 65.0 : 40.0);
+            record.setAlarmLevel(0);
+            records.add(record);
+        }
+        return records;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PumpBlockCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
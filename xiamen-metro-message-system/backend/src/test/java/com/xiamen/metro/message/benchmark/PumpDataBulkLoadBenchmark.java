@@ -0,0 +1,143 @@
+package com.xiamen.metro.message.benchmark;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.service.pump.PumpDataBulkWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 水泵数据写入基准：JPA IDENTITY 逐行插入 vs COPY 直写 vs COPY + 临时表去重
+ * <p>
+ * 需要本地测试库(已执行迁移脚本)，连接参数通过系统属性指定：
+ * -Dbench.db.url=jdbc:postgresql://localhost:5432/xiamen_metro_message_test -Dbench.db.user=metro_user -Dbench.db.password=metro_password
+ * <p>
+ * 每轮迭代前清空 pump_data，请勿指向生产库
+ *
+ * @author Xiamen Metro System
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PumpDataBulkLoadBenchmark {
+
+    /**
+     * 与 Hibernate 在 GenerationType.IDENTITY 下发出的语句一致：逐行执行并取回生成主键
+     */
+    private static final String IDENTITY_INSERT_SQL = "INSERT INTO pump_data (device_id, timestamp, pump_status, " +
+            "current_amperage, voltage, vibration_mm_s, raw_message, data_source, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Param({"10000"})
+    private int rows;
+
+    private PGSimpleDataSource dataSource;
+    private PumpDataBulkWriter directWriter;
+    private PumpDataBulkWriter idempotentWriter;
+    private List<PumpDataEntity> records;
+    private long round;
+
+    @Setup
+    public void setUp() {
+        dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/xiamen_metro_message_test"));
+        dataSource.setUser(System.getProperty("bench.db.user", "metro_user"));
+        dataSource.setPassword(System.getProperty("bench.db.password", "metro_password"));
+
+        directWriter = new PumpDataBulkWriter(dataSource);
+        ReflectionTestUtils.setField(directWriter, "idempotent", false);
+        idempotentWriter = new PumpDataBulkWriter(dataSource);
+
+        records = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            PumpDataEntity record = new PumpDataEntity();
+            record.setDeviceId("BENCH_PUMP_" + (i % 32));
+            record.setPumpStatus(1);
+            record.setCurrentAmperage(10 + (i % 50) / 10.0);
+            record.setVoltage(380.0);
+            record.setVibrationMmS(2.0 + (i % 10) / 10.0);
+            record.setRawMessage("水泵 电流:" + record.getCurrentAmperage() + "A 振动:" + record.getVibrationMmS() + "mm/s");
+            record.setDataSource("BENCHMARK");
+            records.add(record);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE pump_data");
+        }
+    }
+
+    /**
+     * 每次调用使用新的时间段，避免唯一键冲突
+     */
+    @Setup(Level.Invocation)
+    public void nextRound() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(round++);
+        for (int i = 0; i < records.size(); i++) {
+            records.get(i).setTimestamp(base.plusSeconds(i / 32));
+        }
+    }
+
+    @Benchmark
+    public int jpaIdentityInsert() throws Exception {
+        int inserted = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(IDENTITY_INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                for (PumpDataEntity record : records) {
+                    statement.setString(1, record.getDeviceId());
+                    statement.setTimestamp(2, Timestamp.valueOf(record.getTimestamp()));
+                    statement.setInt(3, record.getPumpStatus());
+                    statement.setDouble(4, record.getCurrentAmperage());
+                    statement.setDouble(5, record.getVoltage());
+                    statement.setDouble(6, record.getVibrationMmS());
+                    statement.setString(7, record.getRawMessage());
+                    statement.setString(8, record.getDataSource());
+                    statement.setTimestamp(9, now);
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            inserted++;
+                        }
+                    }
+                }
+            }
+            connection.commit();
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public int copyDirect() {
+        return directWriter.write(records);
+    }
+
+    @Benchmark
+    public int copyIdempotent() {
+        return idempotentWriter.write(records);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PumpDataBulkLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
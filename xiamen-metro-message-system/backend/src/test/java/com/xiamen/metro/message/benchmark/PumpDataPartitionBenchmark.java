@@ -0,0 +1,132 @@
+package com.xiamen.metro.message.benchmark;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.service.pump.PumpDataBulkWriter;
+import com.xiamen.metro.message.service.pump.PumpDataPartitionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 水泵数据分区查询基准：历史数据从1个月增长到36个月时，单设备单日范围查询的耗时
+ * <p>
+ * 分区裁剪生效时查询只访问一个分区，耗时应基本不随历史长度增长。
+ * 需要本地测试库(已执行迁移脚本)，连接参数通过系统属性指定：
+ * -Dbench.db.url=jdbc:postgresql://localhost:5432/xiamen_metro_message_test -Dbench.db.user=metro_user -Dbench.db.password=metro_password
+ * <p>
+ * 每轮试验前清空 pump_data 并删除历史分区，请勿指向生产库
+ *
+ * @author Xiamen Metro System
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PumpDataPartitionBenchmark {
+
+    private static final String RANGE_QUERY_SQL = "SELECT * FROM pump_data " +
+            "WHERE device_id = ? AND timestamp BETWEEN ? AND ? ORDER BY timestamp";
+
+    private static final int DEVICES = 16;
+    private static final int SAMPLE_MINUTES = 15;
+
+    @Param({"1", "12", "36"})
+    private int historyMonths;
+
+    private PGSimpleDataSource dataSource;
+    private LocalDateTime queryStart;
+    private LocalDateTime queryEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/xiamen_metro_message_test"));
+        dataSource.setUser(System.getProperty("bench.db.user", "metro_user"));
+        dataSource.setPassword(System.getProperty("bench.db.password", "metro_password"));
+
+        PumpDataPartitionService partitionService = new PumpDataPartitionService(dataSource);
+        PumpDataBulkWriter writer = new PumpDataBulkWriter(dataSource);
+        ReflectionTestUtils.setField(writer, "idempotent", false);
+
+        LocalDateTime end = LocalDateTime.now().withDayOfMonth(1).toLocalDate().atStartOfDay().plusMonths(1);
+        LocalDateTime start = end.minusMonths(historyMonths);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE pump_data");
+        }
+        partitionService.dropPartitionsBefore(start);
+        partitionService.ensurePartitions(start, end.minusDays(1));
+
+        // 按月生成并写入，避免一次性占用过多内存
+        for (LocalDateTime month = start; month.isBefore(end); month = month.plusMonths(1)) {
+            writer.write(generate(month, month.plusMonths(1)));
+        }
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE pump_data");
+        }
+
+        queryStart = end.minusDays(10);
+        queryEnd = queryStart.plusDays(1);
+        Set<String> scanned = partitionService.scannedPartitions("BENCH_PUMP_3", queryStart, queryEnd);
+        if (scanned.size() != 1) {
+            throw new IllegalStateException("范围查询未裁剪到单个分区: " + scanned);
+        }
+    }
+
+    private List<PumpDataEntity> generate(LocalDateTime from, LocalDateTime to) {
+        List<PumpDataEntity> records = new ArrayList<>();
+        int i = 0;
+        for (LocalDateTime time = from; time.isBefore(to); time = time.plusMinutes(SAMPLE_MINUTES)) {
+            for (int device = 0; device < DEVICES; device++) {
+                PumpDataEntity record = new PumpDataEntity();
+                record.setDeviceId("BENCH_PUMP_" + device);
+                record.setTimestamp(time);
+                record.setPumpStatus(1);
+                record.setCurrentAmperage(10 + (i % 50) / 10.0);
+                record.setVoltage(380.0);
+                record.setVibrationMmS(2.0 + (i % 10) / 10.0);
+                record.setDataSource("BENCHMARK");
+                records.add(record);
+                i++;
+            }
+        }
+        return records;
+    }
+
+    @Benchmark
+    public int deviceDayRangeQuery() throws Exception {
+        int rows = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(RANGE_QUERY_SQL)) {
+            statement.setString(1, "BENCH_PUMP_3");
+            statement.setTimestamp(2, Timestamp.valueOf(queryStart));
+            statement.setTimestamp(3, Timestamp.valueOf(queryEnd));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PumpDataPartitionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
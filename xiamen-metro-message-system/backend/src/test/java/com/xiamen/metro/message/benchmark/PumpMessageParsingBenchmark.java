@@ -0,0 +1,77 @@
+package com.xiamen.metro.message.benchmark;
+
+import com.xiamen.metro.message.service.pump.PumpMessageScanner;
+import com.xiamen.metro.message.service.pump.RegexPumpFieldExtractor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 水泵报文字段提取基准：逐字段正则 vs 单遍扫描
+ * <p>
+ * 运行方式: 在IDE中执行main方法，或 mvn test-compile 后以测试classpath启动
+ *
+ * @author Xiamen Metro System
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PumpMessageParsingBenchmark {
+
+    @Param({"full", "sparse", "nonPump"})
+    private String messageKind;
+
+    private String[] messages;
+    private RegexPumpFieldExtractor regex;
+    private PumpMessageScanner scanner;
+
+    @Setup
+    public void setUp() {
+        regex = new RegexPumpFieldExtractor();
+        scanner = PumpMessageScanner.getInstance();
+        messages = new String[256];
+        for (int i = 0; i < messages.length; i++) {
+            switch (messageKind) {
+                case "full":
+                    messages[i] = "水泵设备ID:PUMP_" + (i % 16) + " 时间：2024-01-15 10:" + (10 + i % 50) + ":00 运行状态:启动 " +
+                            "电流:" + (10 + i % 7) + ".5A 电压 380V 功率: 7.5kW 能耗:120.5kWh 水压:350kPa " +
+                            "流量:45.2m³/h 水温:25.5℃ 振动:2.1mm/s 噪音:65dB 报警级别:1 运行时间:" + i + "分钟";
+                    break;
+                case "sparse":
+                    messages[i] = "Pump station report, device PUMP_" + (i % 16) + " current " + (10 + i % 7) +
+                            "A, vibration 2." + (i % 10) + " mm/s, temperature within normal range";
+                    break;
+                default:
+                    messages[i] = "Escalator E" + (i % 16) + " door sensor heartbeat at 2024-01-15 10:00:00, status normal";
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void regexPerField(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(regex.isPumpRelated(message));
+            blackhole.consume(regex.extract(message));
+        }
+    }
+
+    @Benchmark
+    public void singlePassScanner(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(scanner.scan(message));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PumpMessageParsingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.xiamen.metro.message.benchmark;
+
+import com.xiamen.metro.message.service.pump.StatisticsKernel;
+import com.xiamen.metro.message.service.pump.StatisticsKernels;
+import com.xiamen.metro.message.service.pump.TimeSeriesAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计内核基准：标量循环与 jdk.incubator.vector SIMD 实现对比
+ * <p>
+ * kernel 参数选择实现，覆盖均值、方差、最值、压力-流量相关系数与按序号线性回归。
+ * 基准 JVM 以 --add-modules jdk.incubator.vector 启动，向量模块不可用时 vector 组直接失败。
+ * 纯内存运行，不需要数据库。运行方式: 在IDE中执行main方法，或 mvn test-compile 后以测试classpath启动
+ *
+ * @author Xiamen Metro System
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class StatisticsKernelBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int points;
+
+    @Param({"scalar", "vector"})
+    private String kernel;
+
+    private StatisticsKernel statistics;
+    private double[] pressures;
+    private double[] flowRates;
+
+    @Setup
+    public void setUp() {
+        statistics = "vector".equals(kernel) ? StatisticsKernels.loadVector() : StatisticsKernels.scalar();
+        if (statistics == null) {
+            throw new IllegalStateException("jdk.incubator.vector 不可用");
+        }
+        Random random = new Random(23);
+        pressures = new double[points];
+        flowRates = new double[points];
+        for (int i = 0; i < points; i++) {
+            pressures[i] = 0.4 + random.nextGaussian() * 0.05;
+            flowRates[i] = 120 - pressures[i] * 80 + random.nextGaussian() * 2;
+        }
+    }
+
+    @Benchmark
+    public double mean() {
+        return statistics.mean(pressures, 0, points);
+    }
+
+    @Benchmark
+    public double variance() {
+        return statistics.variance(pressures);
+    }
+
+    @Benchmark
+    public double minMax() {
+        return statistics.max(flowRates) - statistics.min(flowRates);
+    }
+
+    @Benchmark
+    public double correlation() {
+        return statistics.correlation(pressures, flowRates);
+    }
+
+    @Benchmark
+    public TimeSeriesAnalyzer.LinearRegressionResult linearRegression() {
+        return statistics.linearRegression(flowRates, 0, points);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(StatisticsKernelBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,227 @@
+package com.xiamen.metro.message.benchmark;
+
+import com.xiamen.metro.message.service.pump.TimeSeriesAnalyzer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 时间序列分析内核基准：原装箱实现(逐窗口重算、排序装箱副本)与 double[] O(n) 内核对比
+ * <p>
+ * boxed* 为改造前 List&lt;Double&gt; 算法的原样副本，作为对照；primitive* 直接调用 double[] 方法。
+ * 移动平均窗口为60点(每秒一条时即1分钟)。纯内存运行，不需要数据库。
+ * 运行方式: 在IDE中执行main方法，或 mvn test-compile 后以测试classpath启动
+ *
+ * @author Xiamen Metro System
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimeSeriesAnalyzerBenchmark {
+
+    private static final int WINDOW = 60;
+
+    @Param({"10000", "100000", "1000000"})
+    private int points;
+
+    private double[] values;
+    private List<Double> boxed;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(17);
+        values = new double[points];
+        boxed = new ArrayList<>(points);
+        double level = 30;
+        for (int i = 0; i < points; i++) {
+            if (random.nextInt(500) == 0) {
+                level += random.nextGaussian() * 5;
+            }
+            values[i] = level + random.nextGaussian();
+            boxed.add(values[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Double> boxedMovingAverage() {
+        return BoxedKernels.movingAverage(boxed, WINDOW);
+    }
+
+    @Benchmark
+    public double[] primitiveMovingAverage() {
+        return TimeSeriesAnalyzer.movingAverage(values, WINDOW);
+    }
+
+    @Benchmark
+    public double boxedStandardDeviation() {
+        return BoxedKernels.standardDeviation(boxed);
+    }
+
+    @Benchmark
+    public double primitiveStandardDeviation() {
+        return TimeSeriesAnalyzer.standardDeviation(values);
+    }
+
+    @Benchmark
+    public double boxedMedian() {
+        return BoxedKernels.median(boxed);
+    }
+
+    @Benchmark
+    public double primitiveMedian() {
+        return TimeSeriesAnalyzer.median(values);
+    }
+
+    @Benchmark
+    public List<Integer> boxedOutliers() {
+        return BoxedKernels.detectOutliers(boxed);
+    }
+
+    @Benchmark
+    public int[] primitiveOutliers() {
+        return TimeSeriesAnalyzer.detectOutliers(values);
+    }
+
+    @Benchmark
+    public void boxedChangePoints(Blackhole blackhole) {
+        blackhole.consume(BoxedKernels.detectChangePoints(boxed, 2.0));
+    }
+
+    @Benchmark
+    public void primitiveChangePoints(Blackhole blackhole) {
+        blackhole.consume(TimeSeriesAnalyzer.detectChangePoints(values, 2.0));
+    }
+
+    /**
+     * 改造前的 List&lt;Double&gt; 实现
+     */
+    static final class BoxedKernels {
+
+        static List<Double> movingAverage(List<Double> data, int windowSize) {
+            List<Double> result = new ArrayList<>();
+            for (int i = 0; i < data.size(); i++) {
+                int start = Math.max(0, i - windowSize + 1);
+                double sum = 0;
+                int count = 0;
+                for (int j = start; j < i + 1; j++) {
+                    if (data.get(j) != null) {
+                        sum += data.get(j);
+                        count++;
+                    }
+                }
+                result.add(count > 0 ? sum / count : null);
+            }
+            return result;
+        }
+
+        static double mean(List<Double> data) {
+            double sum = 0;
+            int count = 0;
+            for (Double value : data) {
+                if (value != null) {
+                    sum += value;
+                    count++;
+                }
+            }
+            return count > 0 ? sum / count : 0;
+        }
+
+        static double standardDeviation(List<Double> data) {
+            double mean = mean(data);
+            double sumSquaredDeviations = 0;
+            int validCount = 0;
+            for (Double value : data) {
+                if (value != null) {
+                    sumSquaredDeviations += Math.pow(value - mean, 2);
+                    validCount++;
+                }
+            }
+            return validCount > 1 ? Math.sqrt(sumSquaredDeviations / (validCount - 1)) : 0;
+        }
+
+        static double median(List<Double> data) {
+            List<Double> sortedData = data.stream()
+                    .filter(Objects::nonNull)
+                    .sorted()
+                    .collect(Collectors.toList());
+            int size = sortedData.size();
+            if (size == 0) {
+                return 0;
+            }
+            return size % 2 == 0 ? (sortedData.get(size / 2 - 1) + sortedData.get(size / 2)) / 2 : sortedData.get(size / 2);
+        }
+
+        static double percentile(List<Double> sortedData, double percentile) {
+            double index = (percentile / 100) * (sortedData.size() - 1);
+            int lowerIndex = (int) Math.floor(index);
+            int upperIndex = (int) Math.ceil(index);
+            if (lowerIndex == upperIndex) {
+                return sortedData.get(lowerIndex);
+            }
+            double weight = index - lowerIndex;
+            return sortedData.get(lowerIndex) * (1 - weight) + sortedData.get(upperIndex) * weight;
+        }
+
+        static List<Integer> detectOutliers(List<Double> data) {
+            List<Double> sortedData = data.stream()
+                    .filter(Objects::nonNull)
+                    .sorted()
+                    .collect(Collectors.toList());
+            double q1 = percentile(sortedData, 25);
+            double q3 = percentile(sortedData, 75);
+            double iqr = q3 - q1;
+            List<Integer> outlierIndices = new ArrayList<>();
+            for (int i = 0; i < data.size(); i++) {
+                Double value = data.get(i);
+                if (value != null && (value < q1 - 1.5 * iqr || value > q3 + 1.5 * iqr)) {
+                    outlierIndices.add(i);
+                }
+            }
+            return outlierIndices;
+        }
+
+        static List<Integer> detectChangePoints(List<Double> data, double threshold) {
+            List<Integer> changePoints = new ArrayList<>();
+            for (int i = 1; i < data.size() - 1; i++) {
+                if (data.get(i) == null || data.get(i - 1) == null || data.get(i + 1) == null) {
+                    continue;
+                }
+                double prevDiff = Math.abs(data.get(i) - data.get(i - 1));
+                double nextDiff = Math.abs(data.get(i + 1) - data.get(i));
+                double avgDiff = (prevDiff + nextDiff) / 2;
+
+                int windowSize = Math.min(5, i);
+                List<Double> window = new ArrayList<>();
+                for (int j = Math.max(0, i - windowSize); j <= Math.min(data.size() - 1, i + windowSize); j++) {
+                    if (data.get(j) != null) {
+                        window.add(data.get(j));
+                    }
+                }
+                if (window.size() > 2) {
+                    double localStd = standardDeviation(window);
+                    if (localStd > 0 && avgDiff / localStd > threshold) {
+                        changePoints.add(i);
+                    }
+                }
+            }
+            return changePoints;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(TimeSeriesAnalyzerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,125 @@
+package com.xiamen.metro.message.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 读写分离路由测试
+ *
+ * @author Xiamen Metro System
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource writeDataSource;
+    private DataSource readDataSource;
+    private Connection writeConnection;
+    private Connection readConnection;
+    private ReplicaLagMonitor lagMonitor;
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        writeDataSource = mock(DataSource.class);
+        readDataSource = mock(DataSource.class);
+        writeConnection = mock(Connection.class);
+        readConnection = mock(Connection.class);
+        when(writeDataSource.getConnection()).thenReturn(writeConnection);
+        when(readDataSource.getConnection()).thenReturn(readConnection);
+
+        lagMonitor = new ReplicaLagMonitor(readDataSource, 5000, true);
+        routingDataSource = new ReadWriteRoutingDataSource(writeDataSource, readDataSource, lagMonitor, true);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    /**
+     * 在 @ReplicaRead 切面内获取连接
+     */
+    private Connection connectionInReplicaRead(ReadWriteRoutingDataSource dataSource) throws Throwable {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.proceed()).thenAnswer(invocation -> dataSource.getConnection());
+        return (Connection) new ReplicaReadAspect().markReplicaRead(joinPoint);
+    }
+
+    @Test
+    @DisplayName("@ReplicaRead 只读事务走副本，读写事务走主库")
+    void testRouteByReadOnlyFlag() throws Throwable {
+        assertSame(writeConnection, connectionInReplicaRead(routingDataSource));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(readConnection, connectionInReplicaRead(routingDataSource));
+        assertFalse(ReplicaReadAspect.isReplicaRead());
+
+        Map<String, Object> metrics = routingDataSource.getMetrics();
+        assertEquals(1L, metrics.get("primaryRoutes"));
+        assertEquals(1L, metrics.get("replicaRoutes"));
+    }
+
+    @Test
+    @DisplayName("未标记 @ReplicaRead 的只读事务(如仓库默认读方法)走主库")
+    void testUnmarkedReadOnlyTransactionUsesPrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(writeConnection, routingDataSource.getConnection());
+        verify(readDataSource, never()).getConnection();
+    }
+
+    @Test
+    @DisplayName("副本延迟超过阈值时回退主库，追平后切回")
+    void testFallbackOnReplicaLag() throws Throwable {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        lagMonitor.updateLag(8000);
+        assertFalse(lagMonitor.isAvailable());
+        assertSame(writeConnection, connectionInReplicaRead(routingDataSource));
+
+        lagMonitor.updateLag(100);
+        assertTrue(lagMonitor.isAvailable());
+        assertSame(readConnection, connectionInReplicaRead(routingDataSource));
+
+        assertEquals(1L, routingDataSource.getMetrics().get("replicaFallbacks"));
+    }
+
+    @Test
+    @DisplayName("副本获取连接失败时回退主库并标记不可用")
+    void testFallbackOnReplicaConnectionFailure() throws Throwable {
+        when(readDataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(writeConnection, connectionInReplicaRead(routingDataSource));
+        assertFalse(lagMonitor.isAvailable());
+
+        lagMonitor.checkLag();
+        assertFalse(lagMonitor.isAvailable());
+    }
+
+    @Test
+    @DisplayName("关闭路由时全部走主库")
+    void testRoutingDisabled() throws Throwable {
+        ReplicaLagMonitor disabledMonitor = new ReplicaLagMonitor(readDataSource, 5000, false);
+        ReadWriteRoutingDataSource disabled =
+                new ReadWriteRoutingDataSource(writeDataSource, readDataSource, disabledMonitor, false);
+        disabled.afterPropertiesSet();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(writeConnection, connectionInReplicaRead(disabled));
+        disabledMonitor.checkLag();
+        verify(readDataSource, never()).getConnection();
+    }
+}
@@ -0,0 +1,129 @@
+package com.xiamen.metro.message.repository;
+
+import com.xiamen.metro.message.service.pump.TimeSeriesAnalyzer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 水泵数据汇总查询测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpDataRollupRepositoryImplTest {
+
+    @Test
+    @DisplayName("对齐的90天范围只读取天汇总，结束时刻单独读取原始数据")
+    void testAlignedWindowUsesDailyRollup() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = start.plusDays(90);
+
+        List<PumpDataRollupRepositoryImpl.Segment> segments = PumpDataRollupRepositoryImpl.decompose(start, end);
+
+        assertEquals(2, segments.size());
+        assertEquals(PumpDataRollupRepository.Bucket.DAY, segments.get(0).bucket);
+        assertEquals(start, segments.get(0).from);
+        assertEquals(end, segments.get(0).to);
+        assertNull(segments.get(1).bucket);
+        assertEquals(end, segments.get(1).from);
+        assertTrue(segments.get(1).inclusive);
+    }
+
+    @Test
+    @DisplayName("未对齐范围按天/小时/分钟逐级拆分，各段首尾相接且覆盖整个范围")
+    void testUnalignedWindowDecomposition() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 15, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 3, 30, 7, 42, 5);
+
+        List<PumpDataRollupRepositoryImpl.Segment> segments = PumpDataRollupRepositoryImpl.decompose(start, end);
+
+        assertEquals("[RAW[2024-01-01T10:15:30, 2024-01-01T10:16), MINUTE[2024-01-01T10:16, 2024-01-01T11:00), " +
+                "HOUR[2024-01-01T11:00, 2024-01-02T00:00), DAY[2024-01-02T00:00, 2024-03-30T00:00), " +
+                "HOUR[2024-03-30T00:00, 2024-03-30T07:00), MINUTE[2024-03-30T07:00, 2024-03-30T07:42), " +
+                "RAW[2024-03-30T07:42, 2024-03-30T07:42:05]]", segments.toString());
+
+        LocalDateTime cursor = start;
+        for (PumpDataRollupRepositoryImpl.Segment segment : segments) {
+            assertEquals(cursor, segment.from);
+            cursor = segment.to;
+        }
+        assertEquals(end, cursor);
+        assertTrue(segments.get(segments.size() - 1).inclusive);
+    }
+
+    @Test
+    @DisplayName("短于一分钟的范围全部读取原始数据")
+    void testSubMinuteWindow() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 15, 10);
+        LocalDateTime end = start.plusSeconds(20);
+
+        List<PumpDataRollupRepositoryImpl.Segment> segments = PumpDataRollupRepositoryImpl.decompose(start, end);
+
+        assertEquals(1, segments.size());
+        assertNull(segments.get(0).bucket);
+        assertTrue(segments.get(0).inclusive);
+        assertEquals(1, PumpDataRollupRepositoryImpl.decompose(start, start).size());
+    }
+
+    @Test
+    @DisplayName("合并时间桶后的均值与标准差与逐条计算一致")
+    void testMergedStatisticsMatchDirectComputation() {
+        List<Double> values = Arrays.asList(3.2, 0.0, 4.8, -1.0, 7.5, 2.25, 6.0);
+
+        PumpDataAggregate total = new PumpDataAggregate();
+        for (int i = 0; i < values.size(); i += 3) {
+            total.merge(bucketOf(values.subList(i, Math.min(values.size(), i + 3))));
+        }
+
+        PumpDataAggregate.MetricStats stats = total.get(PumpDataAggregate.Metric.VIBRATION);
+        assertEquals(values.size(), stats.getCount());
+        assertEquals(TimeSeriesAnalyzer.mean(values), stats.getMean(), 1e-9);
+        assertEquals(TimeSeriesAnalyzer.standardDeviation(values), stats.getStdDev(), 1e-9);
+        assertEquals(-1.0, stats.getMin());
+        assertEquals(7.5, stats.getMax());
+        assertEquals(5, stats.getPositiveCount());
+        assertEquals((3.2 + 4.8 + 7.5 + 2.25 + 6.0) / 5, stats.getPositiveMean(), 1e-9);
+        assertEquals(3, total.getRowCount());
+    }
+
+    @Test
+    @DisplayName("解析聚合行：数据库返回的数值类型与空值")
+    void testReadAggregateRow() {
+        int columns = 5 + 7 * PumpDataAggregate.Metric.values().length;
+        Object[] row = new Object[columns + 1];
+        row[1] = BigDecimal.valueOf(12);
+        row[2] = 3L;
+        int power = 6 + 7 * PumpDataAggregate.Metric.POWER.ordinal();
+        row[power] = BigDecimal.valueOf(2);
+        row[power + 1] = 30.0;
+        row[power + 2] = 10.0;
+        row[power + 3] = 20.0;
+        row[power + 4] = 500.0;
+
+        PumpDataAggregate aggregate = PumpDataRollupRepositoryImpl.readAggregate(null, row, 1);
+
+        assertEquals(12, aggregate.getRowCount());
+        assertEquals(3, aggregate.getStartCount());
+        assertEquals(15.0, aggregate.get(PumpDataAggregate.Metric.POWER).getMean());
+        assertEquals(20.0, aggregate.get(PumpDataAggregate.Metric.POWER).getMax());
+        assertNull(aggregate.get(PumpDataAggregate.Metric.VIBRATION).getMean());
+        assertNull(aggregate.get(PumpDataAggregate.Metric.VIBRATION).getMax());
+    }
+
+    private PumpDataAggregate bucketOf(List<Double> values) {
+        PumpDataAggregate bucket = new PumpDataAggregate();
+        bucket.addCounts(1, 0, 0, 0, 0);
+        PumpDataAggregate.MetricStats stats = bucket.get(PumpDataAggregate.Metric.VIBRATION);
+        for (double value : values) {
+            stats.merge(new PumpDataAggregate.MetricStats(1, value, value, value, value * value,
+                    value > 0 ? 1 : 0, value > 0 ? value : 0));
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,92 @@
+package com.xiamen.metro.message.scheduler;
+
+import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.entity.AlertRuleEntity;
+import com.xiamen.metro.message.repository.AlertRecordRepository;
+import com.xiamen.metro.message.service.alert.AlertEvaluationService;
+import com.xiamen.metro.message.service.alert.AlertManagementService;
+import com.xiamen.metro.message.service.alert.AlertNotificationService;
+import com.xiamen.metro.message.service.alert.AlertRetentionService;
+import com.xiamen.metro.message.service.alert.AlertRuleEngine;
+import com.xiamen.metro.message.service.alert.AlertRuleRegistry;
+import com.xiamen.metro.message.service.pump.PumpIntelligentAnalysisService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 告警定时任务测试
+ *
+ * @author Xiamen Metro System
+ */
+class AlertSchedulerTest {
+
+    private PumpIntelligentAnalysisService pumpIntelligentAnalysisService;
+    private AlertRecordRepository alertRecordRepository;
+    private AlertScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        pumpIntelligentAnalysisService = mock(PumpIntelligentAnalysisService.class);
+        alertRecordRepository = mock(AlertRecordRepository.class);
+        AlertNotificationService alertNotificationService = mock(AlertNotificationService.class);
+        AlertRuleRegistry alertRuleRegistry = mock(AlertRuleRegistry.class);
+        when(alertRuleRegistry.getApplicableRules(anyString())).thenReturn(List.of(failureProbabilityRule()));
+
+        AlertManagementService alertManagementService = new AlertManagementService(alertRecordRepository,
+                alertNotificationService, new AlertRuleEngine(mock(AlertEvaluationService.class)), alertRuleRegistry);
+        scheduler = new AlertScheduler(alertManagementService, alertNotificationService,
+                pumpIntelligentAnalysisService, mock(AlertRetentionService.class));
+    }
+
+    @Test
+    @DisplayName("默认配置下定时检查执行完整分析，故障概率规则触发告警")
+    void testFailureProbabilityRuleFires() {
+        when(pumpIntelligentAnalysisService.performIntelligentAnalysis(any())).thenReturn(analysisResponse(0.85));
+
+        scheduler.checkAlertRules();
+
+        verify(alertRecordRepository, timeout(5000).times(3)).save(argThat(record ->
+                record.getTriggeredValue() != null && record.getTriggeredValue() == 0.85));
+        verify(pumpIntelligentAnalysisService, never()).performIncrementalAnalysis(any());
+    }
+
+    private AlertRuleEntity failureProbabilityRule() {
+        AlertRuleEntity rule = new AlertRuleEntity();
+        rule.setRuleName("故障概率告警");
+        rule.setRuleType(AlertRuleEntity.RuleType.FAULT_PREDICTION);
+        rule.setAlertLevel(AlertRuleEntity.AlertLevel.CRITICAL);
+        rule.setIsActive(true);
+        return rule;
+    }
+
+    private PumpAnalysisResponseDTO analysisResponse(double failureProbability) {
+        return PumpAnalysisResponseDTO.builder()
+                .analysisId("ANALYSIS_001")
+                .deviceId("PUMP_001")
+                .analysisTime(LocalDateTime.now())
+                .status("SUCCESS")
+                .overallHealthScore(55.0)
+                .riskLevel("HIGH")
+                .analysisResults(new ArrayList<>())
+                .predictionInfo(PumpAnalysisResponseDTO.PredictionInfo.builder()
+                        .failureProbability(failureProbability)
+                        .remainingUsefulLifeDays(12)
+                        .keyMetricsPrediction(new HashMap<>())
+                        .confidenceIntervals(new HashMap<>())
+                        .build())
+                .confidenceScore(0.8)
+                .modelVersion("1.0")
+                .build();
+    }
+}
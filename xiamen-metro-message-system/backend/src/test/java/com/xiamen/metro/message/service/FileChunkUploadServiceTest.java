@@ -0,0 +1,284 @@
+package com.xiamen.metro.message.service;
+
+import com.xiamen.metro.message.entity.FileEntity;
+import com.xiamen.metro.message.repository.FileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文件分片上传服务测试
+ *
+ * @author Xiamen Metro System
+ */
+class FileChunkUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    @TempDir
+    Path uploadDir;
+
+    private FileChunkUploadService fileChunkUploadService;
+    private MinioService minioService;
+    private FileRepository fileRepository;
+    private ChunkUploadSessionStore sessionStore;
+    private FileManagementService fileManagementService;
+
+    @BeforeEach
+    void setUp() {
+        minioService = mock(MinioService.class);
+        fileRepository = mock(FileRepository.class);
+        when(fileRepository.findByFileHash(anyString())).thenReturn(Optional.empty());
+        sessionStore = new InMemoryChunkUploadSessionStore();
+        fileManagementService = mock(FileManagementService.class);
+        fileChunkUploadService = newNode();
+    }
+
+    private FileChunkUploadService newNode() {
+        FileChunkUploadService service = new FileChunkUploadService(Runnable::run, minioService, fileRepository, sessionStore,
+                fileManagementService);
+        ReflectionTestUtils.setField(service, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        return service;
+    }
+
+    @Test
+    void testUploadChunk_OutOfOrderWritesFinalFile() throws Exception {
+        byte[] content = new byte[CHUNK_SIZE * 5 + 123];
+        new Random(7).nextBytes(content);
+
+        FileChunkUploadService.ChunkUploadSession session =
+                fileChunkUploadService.initUploadSession("F1", "data.csv", content.length, "u1");
+        assertEquals(6, session.getTotalChunks());
+
+        List<Integer> order = new ArrayList<>(List.of(0, 1, 2, 3, 4, 5));
+        Collections.shuffle(order, new Random(3));
+        FileChunkUploadService.ChunkUploadResult last = null;
+        for (int index : order) {
+            last = fileChunkUploadService.uploadChunk(session.getSessionId(), index, chunk(content, index)).join();
+            assertTrue(last.isSuccess(), last.getMessage());
+        }
+
+        assertEquals("文件上传完成", last.getMessage());
+        assertEquals(md5(content), last.getFileHash());
+        assertArrayEquals(content, Files.readAllBytes(uploadDir.resolve("F1_data.csv")));
+        assertFalse(Files.exists(uploadDir.resolve("chunks").resolve("F1_data.csv.part")));
+    }
+
+    @Test
+    void testUploadChunk_LocalMergedFileRegisteredAndParsedInPlace() throws Exception {
+        byte[] content = new byte[CHUNK_SIZE * 2 + 7];
+        new Random(13).nextBytes(content);
+        FileEntity registered = new FileEntity();
+        registered.setStoragePath("http://minio/metro-files/cas/ab/abc.csv");
+        when(fileManagementService.registerMergedFile(eq("data.csv"), eq((long) content.length), eq(md5(content)),
+                any(Path.class), isNull(), isNull())).thenReturn(Optional.of(registered));
+
+        FileChunkUploadService.ChunkUploadSession session =
+                fileChunkUploadService.initUploadSession("F9", "data.csv", content.length, "u1");
+        FileChunkUploadService.ChunkUploadResult last = null;
+        for (int index = 0; index < session.getTotalChunks(); index++) {
+            last = fileChunkUploadService.uploadChunk(session.getSessionId(), index, chunk(content, index)).join();
+        }
+
+        Path merged = uploadDir.resolve("F9_data.csv");
+        assertEquals(merged.toString(), last.getLocalPath());
+        assertEquals("http://minio/metro-files/cas/ab/abc.csv", last.getStoragePath());
+        verify(fileManagementService).registerMergedFile("data.csv", content.length, md5(content), merged, null, null);
+        verify(fileManagementService).processFileAsync(registered, merged);
+    }
+
+    @Test
+    void testUploadChunk_VerifiesChunkHash() throws Exception {
+        byte[] content = new byte[CHUNK_SIZE * 2];
+        new Random(11).nextBytes(content);
+        FileChunkUploadService.ChunkUploadSession session =
+                fileChunkUploadService.initUploadSession("F5", "data.csv", content.length, "u1");
+
+        FileChunkUploadService.ChunkUploadResult corrupted = fileChunkUploadService.uploadChunk(session.getSessionId(), 0,
+                chunk(content, 0), md5(chunk(content, 1).getBytes())).join();
+        assertFalse(corrupted.isSuccess());
+        assertTrue(session.getChunks().isEmpty());
+
+        String hash0 = md5(chunk(content, 0).getBytes());
+        assertTrue(fileChunkUploadService.uploadChunk(session.getSessionId(), 0, chunk(content, 0), hash0).join().isSuccess());
+        assertEquals(hash0, session.getChunks().get(0).getDigest());
+        assertEquals(0, session.getChunks().get(0).getOffset());
+
+        FileChunkUploadService.ChunkUploadResult last =
+                fileChunkUploadService.uploadChunk(session.getSessionId(), 1, chunk(content, 1)).join();
+        assertEquals(md5(content), last.getFileHash());
+    }
+
+    @Test
+    void testUploadChunk_AnyNodeAcceptsChunksAndCompletesOnce() throws Exception {
+        byte[] content = new byte[CHUNK_SIZE * 6 + 7];
+        new Random(13).nextBytes(content);
+        FileChunkUploadService[] nodes = {fileChunkUploadService, newNode(), newNode()};
+
+        FileChunkUploadService.ChunkUploadSession session =
+                nodes[0].initUploadSession("F8", "data.csv", content.length, "u1");
+
+        int completions = 0;
+        FileChunkUploadService.ChunkUploadResult completed = null;
+        int[] order = {3, 0, 6, 1, 5, 2, 4};
+        for (int i = 0; i < order.length; i++) {
+            FileChunkUploadService.ChunkUploadResult result =
+                    nodes[i % nodes.length].uploadChunk(session.getSessionId(), order[i], chunk(content, order[i])).join();
+            assertTrue(result.isSuccess(), result.getMessage());
+            if ("文件上传完成".equals(result.getMessage())) {
+                completions++;
+                completed = result;
+            }
+        }
+        // 重复提交最后一个分片不会再次触发合并
+        FileChunkUploadService.ChunkUploadResult retry =
+                nodes[1].uploadChunk(session.getSessionId(), 4, chunk(content, 4)).join();
+        assertFalse(retry.isSuccess());
+
+        assertEquals(1, completions);
+        assertEquals(md5(content), completed.getFileHash());
+        assertArrayEquals(content, Files.readAllBytes(uploadDir.resolve("F8_data.csv")));
+        assertTrue(sessionStore.list().isEmpty());
+    }
+
+    @Test
+    void testUploadSession_DuplicateContentShortCircuits() throws Exception {
+        byte[] content = new byte[CHUNK_SIZE * 3];
+        new Random(5).nextBytes(content);
+        FileEntity existing = new FileEntity();
+        existing.setFileName("existing.csv");
+        existing.setStoragePath("http://minio/metro-files/existing.csv");
+        when(fileRepository.findByFileHash(md5(content))).thenReturn(Optional.of(existing));
+
+        // 初始化时声明哈希，无需上传分片
+        FileChunkUploadService.ChunkUploadSession declared =
+                fileChunkUploadService.initUploadSession("F6", "data.csv", content.length, "u1", md5(content));
+        assertEquals("DUPLICATE", declared.getStatus());
+        assertEquals("http://minio/metro-files/existing.csv", declared.getStoragePath());
+        assertNull(fileChunkUploadService.getUploadSession(declared.getSessionId()));
+        assertFalse(Files.exists(uploadDir.resolve("chunks").resolve("F6_data.csv.part")));
+
+        // 未声明哈希时在完成阶段识别重复，丢弃已上传数据
+        FileChunkUploadService.ChunkUploadSession session =
+                fileChunkUploadService.initUploadSession("F7", "data.csv", content.length, "u1");
+        FileChunkUploadService.ChunkUploadResult last = null;
+        for (int index : new int[]{1, 2, 0}) {
+            last = fileChunkUploadService.uploadChunk(session.getSessionId(), index, chunk(content, index)).join();
+        }
+        assertEquals("文件已存在", last.getMessage());
+        assertEquals("http://minio/metro-files/existing.csv", last.getStoragePath());
+        assertFalse(Files.exists(uploadDir.resolve("F7_data.csv")));
+        assertFalse(Files.exists(uploadDir.resolve("chunks").resolve("F7_data.csv.part")));
+    }
+
+    @Test
+    void testUploadChunk_RejectsWrongSizeAndDuplicate() throws Exception {
+        byte[] content = new byte[CHUNK_SIZE * 2 + 10];
+        FileChunkUploadService.ChunkUploadSession session =
+                fileChunkUploadService.initUploadSession("F2", "data.csv", content.length, "u1");
+
+        FileChunkUploadService.ChunkUploadResult wrongSize = fileChunkUploadService.uploadChunk(session.getSessionId(), 1,
+                new MockMultipartFile("file", new byte[CHUNK_SIZE - 1])).join();
+        assertFalse(wrongSize.isSuccess());
+
+        assertTrue(fileChunkUploadService.uploadChunk(session.getSessionId(), 0, chunk(content, 0)).join().isSuccess());
+        FileChunkUploadService.ChunkUploadResult duplicate =
+                fileChunkUploadService.uploadChunk(session.getSessionId(), 0, chunk(content, 0)).join();
+        assertEquals("分片已存在", duplicate.getMessage());
+        assertEquals(CHUNK_SIZE, fileChunkUploadService.getUploadSession(session.getSessionId()).getUploadedSize());
+
+        assertTrue(fileChunkUploadService.cancelUploadSession(session.getSessionId()));
+        assertFalse(Files.exists(uploadDir.resolve("chunks").resolve("F2_data.csv.part")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUploadChunk_MinioModeComposesPartsWithoutLocalFile() throws Exception {
+        int partSize = 5 * 1024 * 1024;
+        ReflectionTestUtils.setField(fileChunkUploadService, "chunkSize", partSize);
+        ReflectionTestUtils.setField(fileChunkUploadService, "chunkStorage", "minio");
+        when(minioService.generateObjectName(anyString(), anyString())).thenReturn("metro-files/2024-01-01/abc/abc.csv");
+        when(minioService.composeObject(anyString(), anyList(), any())).thenReturn("http://minio/metro-files/abc.csv");
+        Map<String, byte[]> storedParts = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            storedParts.put(invocation.getArgument(1), ((InputStream) invocation.getArgument(0)).readAllBytes());
+            return null;
+        }).when(minioService).uploadPart(any(InputStream.class), anyString(), anyLong());
+        when(minioService.downloadFile(anyString()))
+                .thenAnswer(invocation -> new ByteArrayInputStream(storedParts.get(invocation.getArgument(0))));
+
+        byte[] content = new byte[partSize * 2 + 100];
+        new Random(9).nextBytes(content);
+        FileChunkUploadService.ChunkUploadSession session =
+                fileChunkUploadService.initUploadSession("F3", "big.csv", content.length, "u1");
+        assertEquals("MINIO", session.getStorage());
+
+        FileChunkUploadService.ChunkUploadResult last = null;
+        for (int index : new int[]{2, 0, 1}) {
+            last = fileChunkUploadService.uploadChunk(session.getSessionId(), index, chunk(content, index, partSize)).join();
+            assertTrue(last.isSuccess(), last.getMessage());
+        }
+
+        assertEquals("http://minio/metro-files/abc.csv", last.getStoragePath());
+        assertEquals(md5(content), last.getFileHash());
+        // 只有先于前序分片到达的分片2需要回读
+        verify(minioService).downloadFile(endsWith("/00002"));
+        verify(minioService, times(3)).uploadPart(any(InputStream.class), anyString(), anyLong());
+
+        ArgumentCaptor<List<String>> parts = ArgumentCaptor.forClass(List.class);
+        verify(minioService).composeObject(eq("metro-files/2024-01-01/abc/abc.csv"), parts.capture(), isNull());
+        assertEquals(3, parts.getValue().size());
+        assertTrue(parts.getValue().get(0).endsWith("/00000"));
+        assertTrue(parts.getValue().get(2).endsWith("/00002"));
+        verify(minioService).deleteFiles(parts.getValue());
+        assertFalse(Files.exists(uploadDir.resolve("chunks")));
+    }
+
+    @Test
+    void testInitUploadSession_SmallChunksFallBackToLocal() {
+        ReflectionTestUtils.setField(fileChunkUploadService, "chunkStorage", "minio");
+
+        FileChunkUploadService.ChunkUploadSession session =
+                fileChunkUploadService.initUploadSession("F4", "data.csv", CHUNK_SIZE * 3, "u1");
+
+        assertEquals("LOCAL", session.getStorage());
+        verifyNoInteractions(minioService);
+    }
+
+    private static String md5(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+    }
+
+    private MockMultipartFile chunk(byte[] content, int index) {
+        return chunk(content, index, CHUNK_SIZE);
+    }
+
+    private MockMultipartFile chunk(byte[] content, int index, int chunkSize) {
+        int from = index * chunkSize;
+        int to = Math.min(content.length, from + chunkSize);
+        return new MockMultipartFile("file", Arrays.copyOfRange(content, from, to));
+    }
+}
@@ -2,16 +2,24 @@ package com.xiamen.metro.message.service;
 
 import com.xiamen.metro.message.entity.FileEntity;
 import com.xiamen.metro.message.repository.FileRepository;
+import com.xiamen.metro.message.service.pump.PumpIngestionPipeline;
+import com.xiamen.metro.message.service.pump.PumpIngestionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +44,15 @@ class FileManagementServiceTest {
     @Mock
     private FileParseService fileParseService;
 
+    @Mock
+    private PumpIngestionService pumpIngestionService;
+
+    @Mock
+    private PumpIngestionPipeline pumpIngestionPipeline;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private FileManagementService fileManagementService;
 
@@ -93,7 +110,9 @@ class FileManagementServiceTest {
         assertNotNull(result);
         assertEquals(testFileEntity.getId(), result.getId());
         verify(fileRepository, never()).save(any(FileEntity.class));
-        verify(minioService, never()).uploadFile(any(), anyString(), anyString(), anyLong());
+        // 单次读取上传后才得到哈希，重复文件的临时对象被删除
+        verify(minioService, never()).moveObject(anyString(), anyString());
+        verify(minioService).deleteFile(anyString());
     }
 
     @Test
@@ -195,9 +214,11 @@ class FileManagementServiceTest {
 
         when(fileRepository.findById(1L)).thenReturn(Optional.of(processingFile));
         when(minioService.downloadFile(anyString())).thenReturn(new ByteArrayInputStream("test".getBytes()));
-        when(fileParseService.parseExcel(any(), anyString())).thenReturn(
-                new FileParseService.ParseResult(java.util.List.of(), java.util.List.of(), 100)
+        when(fileParseService.parseExcel(any(InputStream.class), anyString(), any())).thenReturn(
+                new FileParseService.ParseSummary(100, 0, 0)
         );
+        when(pumpIngestionService.open(1L)).thenReturn(pumpIngestionPipeline);
+        when(pumpIngestionPipeline.finish()).thenReturn(new PumpIngestionPipeline.Progress(100, 80, 5, 75));
 
         // When
         fileManagementService.processFileAsync(processingFile);
@@ -206,6 +227,64 @@ class FileManagementServiceTest {
         verify(fileRepository, atLeastOnce()).save(any(FileEntity.class));
         assertEquals(FileEntity.ProcessStatus.COMPLETED, processingFile.getProcessStatus());
         assertEquals(100, processingFile.getDataRowCount());
+        assertEquals(75, processingFile.getPersistedRecordCount());
+    }
+
+    @Test
+    void testProcessFileAsync_LocalMergedFile(@TempDir Path tempDir) throws Exception {
+        // Given
+        FileEntity processingFile = new FileEntity();
+        processingFile.setId(1L);
+        processingFile.setFileName("test.xlsx");
+        processingFile.setOriginalFileName("test.xlsx");
+        processingFile.setFileType(FileEntity.FileType.EXCEL);
+        processingFile.setStoragePath("http://minio.test/path");
+        processingFile.setProcessStatus(FileEntity.ProcessStatus.PENDING);
+        Path merged = Files.write(tempDir.resolve("merged.xlsx"), "test".getBytes());
+
+        when(fileParseService.parseExcel(eq(merged), anyString(), any())).thenReturn(
+                new FileParseService.ParseSummary(100, 0, 0)
+        );
+        when(pumpIngestionService.open(1L)).thenReturn(pumpIngestionPipeline);
+        when(pumpIngestionPipeline.finish()).thenReturn(new PumpIngestionPipeline.Progress(100, 80, 5, 75));
+
+        // When
+        fileManagementService.processFileAsync(processingFile, merged);
+
+        // Then
+        assertEquals(FileEntity.ProcessStatus.COMPLETED, processingFile.getProcessStatus());
+        verify(minioService, never()).downloadFile(anyString());
+    }
+
+    @Test
+    void testProcessFileAsync_StatusSavedInShortTransactions(@TempDir Path tempDir) throws Exception {
+        // Given
+        FileEntity processingFile = new FileEntity();
+        processingFile.setId(1L);
+        processingFile.setFileName("test.xlsx");
+        processingFile.setOriginalFileName("test.xlsx");
+        processingFile.setFileType(FileEntity.FileType.EXCEL);
+        processingFile.setStoragePath("http://minio.test/path");
+        Path merged = Files.write(tempDir.resolve("merged.xlsx"), "test".getBytes());
+
+        when(fileParseService.parseExcel(eq(merged), anyString(), any())).thenAnswer(invocation -> {
+            // PROCESSING 状态在解析开始前已提交，解析期间没有未结束的事务
+            verify(transactionManager, times(1)).getTransaction(any());
+            verify(transactionManager, times(1)).commit(any());
+            return new FileParseService.ParseSummary(100, 0, 0);
+        });
+        when(pumpIngestionService.open(1L)).thenReturn(pumpIngestionPipeline);
+        when(pumpIngestionPipeline.finish()).thenReturn(new PumpIngestionPipeline.Progress(100, 80, 5, 75));
+
+        // When
+        fileManagementService.processFileAsync(processingFile, merged);
+
+        // Then
+        assertEquals(FileEntity.ProcessStatus.COMPLETED, processingFile.getProcessStatus());
+        verify(transactionManager, times(2)).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        verify(transactionManager, times(2)).commit(any());
+        verify(fileRepository, times(2)).save(processingFile);
     }
 
     @Test
@@ -221,8 +300,9 @@ class FileManagementServiceTest {
 
         when(fileRepository.findById(1L)).thenReturn(Optional.of(processingFile));
         when(minioService.downloadFile(anyString())).thenReturn(new ByteArrayInputStream("test".getBytes()));
-        when(fileParseService.parseExcel(any(), anyString()))
+        when(fileParseService.parseExcel(any(InputStream.class), anyString(), any()))
                 .thenThrow(new RuntimeException("Parse error"));
+        when(pumpIngestionService.open(1L)).thenReturn(pumpIngestionPipeline);
 
         // When
         fileManagementService.processFileAsync(processingFile);
@@ -231,5 +311,6 @@ class FileManagementServiceTest {
         verify(fileRepository, atLeastOnce()).save(any(FileEntity.class));
         assertEquals(FileEntity.ProcessStatus.FAILED, processingFile.getProcessStatus());
         assertTrue(processingFile.getErrorMessage().contains("处理失败"));
+        verify(pumpIngestionPipeline).abort();
     }
 }
\ No newline at end of file
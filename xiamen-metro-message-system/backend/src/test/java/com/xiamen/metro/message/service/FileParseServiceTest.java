@@ -0,0 +1,307 @@
+package com.xiamen.metro.message.service;
+
+import com.xiamen.metro.message.dto.MessageDataDTO;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 文件解析服务测试
+ *
+ * @author Xiamen Metro System
+ */
+class FileParseServiceTest {
+
+    private FileParseService fileParseService;
+
+    @BeforeEach
+    void setUp() {
+        fileParseService = new FileParseService();
+        ReflectionTestUtils.setField(fileParseService, "parseBatchSize", 2);
+    }
+
+    @Test
+    void testParseCSV_StreamsBatches() {
+        String csv = "device_id,timestamp,message_type,message_content\n" +
+                "PUMP_001,2024-01-01 10:00:00,PUMP,current:12.5A\n" +
+                "PUMP_001,2024-01-01 10:01:00,PUMP,current:12.6A\n" +
+                ",2024-01-01 10:02:00,PUMP,current:12.7A\n" +
+                "PUMP_002,2024-01-01 10:03:00,PUMP,current:11.0A\n";
+
+        List<Integer> validBatchSizes = new ArrayList<>();
+        List<MessageDataDTO> invalid = new ArrayList<>();
+        int[] completedRows = {-1};
+
+        FileParseService.ParseSummary summary = fileParseService.parseCSV(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "test.csv",
+                new FileParseService.RowSink() {
+                    @Override
+                    public void onValid(List<MessageDataDTO> batch) {
+                        validBatchSizes.add(batch.size());
+                    }
+
+                    @Override
+                    public void onInvalid(List<MessageDataDTO> batch) {
+                        invalid.addAll(batch);
+                    }
+
+                    @Override
+                    public void onComplete(int totalRows) {
+                        completedRows[0] = totalRows;
+                    }
+                });
+
+        assertEquals(4, summary.getTotalRows());
+        assertEquals(3, summary.getValidCount());
+        assertEquals(1, summary.getInvalidCount());
+        assertEquals(List.of(2, 1), validBatchSizes);
+        assertEquals("设备ID不能为空", invalid.get(0).getErrorMessage());
+        assertEquals(4, completedRows[0]);
+    }
+
+    @Test
+    void testParseExcel_XlsxStreaming() throws Exception {
+        byte[] xlsx = buildWorkbook(5);
+
+        FileParseService.ParseResult result = fileParseService.parseExcel(new ByteArrayInputStream(xlsx), "test.xlsx");
+
+        assertEquals(5, result.getTotalRows());
+        assertEquals(5, result.getValidMessages().size());
+        assertEquals("PUMP_3", result.getValidMessages().get(2).getDeviceId());
+        assertEquals("2024-01-01 10:00:03", result.getValidMessages().get(2).getTimestamp());
+    }
+
+    @Test
+    void testParseExcel_LocalXlsxFile(@TempDir Path tempDir) throws Exception {
+        Path xlsx = tempDir.resolve("merged.xlsx");
+        Files.write(xlsx, buildWorkbook(3));
+        List<MessageDataDTO> received = new ArrayList<>();
+
+        FileParseService.ParseSummary summary = fileParseService.parseExcel(xlsx, "merged.xlsx", received::addAll);
+
+        assertEquals(3, summary.getValidCount());
+        assertEquals("PUMP_3", received.get(2).getDeviceId());
+        assertTrue(Files.exists(xlsx));
+    }
+
+    @Test
+    void testParseExcel_NumericAndDateCellText() throws Exception {
+        for (Workbook workbook : List.of(new XSSFWorkbook(), new HSSFWorkbook())) {
+            String fileName = workbook instanceof XSSFWorkbook ? "typed.xlsx" : "typed.xls";
+            byte[] content = buildTypedWorkbook(workbook);
+
+            FileParseService.ParseResult result = fileParseService.parseExcel(new ByteArrayInputStream(content), fileName);
+
+            assertEquals(1, result.getValidMessages().size(), fileName);
+            MessageDataDTO message = result.getValidMessages().get(0);
+            // 千分位格式的整数按原值输出，日期按报文时间戳格式输出，两位小数格式不补零
+            assertEquals("1001", message.getDeviceId(), fileName);
+            assertEquals("2024-01-01 10:00:03", message.getTimestamp(), fileName);
+            assertEquals("1234567", message.getMessageType(), fileName);
+            assertEquals("12.5", message.getMessageContent(), fileName);
+        }
+    }
+
+    @Test
+    void testParseExcel_QueuedSinkOverlapsDownstream() throws Exception {
+        byte[] xlsx = buildWorkbook(9);
+        List<MessageDataDTO> received = new ArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            QueuedRowSink sink = new QueuedRowSink(received::addAll, 1, executor);
+            FileParseService.ParseSummary summary =
+                    fileParseService.parseExcel(new ByteArrayInputStream(xlsx), "test.xlsx", sink);
+            sink.await();
+
+            assertEquals(9, summary.getValidCount());
+            assertEquals(9, received.size());
+            assertEquals("PUMP_9", received.get(8).getDeviceId());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testParseCSV_ParallelMappedMatchesSequential(@TempDir Path tempDir) throws Exception {
+        ReflectionTestUtils.setField(fileParseService, "csvParallelism", 4);
+        ReflectionTestUtils.setField(fileParseService, "csvSplitBytes", 1024L);
+
+        StringBuilder csv = new StringBuilder("device_id,timestamp,message_type,message_content\r\n");
+        for (int i = 0; i < 3000; i++) {
+            String content = i % 7 == 0
+                    ? "\"水泵状态:运行,\n电流:" + i + "A安 \"\"备注\"\"\""
+                    : i % 11 == 0
+                    ? "\"路径:D:\\export\\pump\\\"\",振动:" + (i % 10) + ".5mm/s\""
+                    : "振动:" + (i % 10) + ".5mm/s";
+            String deviceId = i % 97 == 0 ? "" : "PUMP_" + (i % 16);
+            csv.append(deviceId).append(",2024-01-01 10:00:00,PUMP,").append(content).append("\r\n");
+        }
+        Path file = tempDir.resolve("large.csv");
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<MessageDataDTO> expected = new ArrayList<>();
+        FileParseService.ParseSummary sequential = fileParseService.parseCSV(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), "large.csv",
+                new FileParseService.RowSink() {
+                    @Override
+                    public void onValid(List<MessageDataDTO> batch) {
+                        expected.addAll(batch);
+                    }
+
+                    @Override
+                    public void onInvalid(List<MessageDataDTO> batch) {
+                        expected.addAll(batch);
+                    }
+                });
+
+        List<MessageDataDTO> actual = new ArrayList<>();
+        FileParseService.ParseSummary parallel = fileParseService.parseCSV(file, "large.csv",
+                new FileParseService.RowSink() {
+                    @Override
+                    public void onValid(List<MessageDataDTO> batch) {
+                        actual.addAll(batch);
+                    }
+
+                    @Override
+                    public void onInvalid(List<MessageDataDTO> batch) {
+                        actual.addAll(batch);
+                    }
+                });
+        fileParseService.shutdown();
+
+        assertEquals(3000, parallel.getTotalRows());
+        assertEquals(sequential.getValidCount(), parallel.getValidCount());
+        assertEquals(sequential.getInvalidCount(), parallel.getInvalidCount());
+        assertEquals(expected, actual);
+        assertTrue(actual.stream().anyMatch(m -> m.getMessageContent().equals("水泵状态:运行,\n电流:7A安 \"备注\"")));
+        // 反斜杠按普通字符保留，不转义其后的引号
+        assertTrue(actual.stream().anyMatch(m -> m.getMessageContent().equals("路径:D:\\export\\pump\\\",振动:1.5mm/s")));
+    }
+
+    @Test
+    void testParseCSV_RowLimitAppliesToStreamingAndParallel(@TempDir Path tempDir) throws Exception {
+        ReflectionTestUtils.setField(fileParseService, "csvParallelism", 2);
+        ReflectionTestUtils.setField(fileParseService, "csvSplitBytes", 1024L);
+        ReflectionTestUtils.setField(fileParseService, "csvMaxRows", 100);
+
+        StringBuilder csv = new StringBuilder("device_id,timestamp,message_type,message_content\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append("PUMP_001,2024-01-01 10:00:00,PUMP,振动:").append(i).append("mm/s\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = tempDir.resolve("limit.csv");
+        Files.write(file, bytes);
+        FileParseService.RowSink ignore = new FileParseService.RowSink() {
+            @Override
+            public void onValid(List<MessageDataDTO> batch) {
+            }
+
+            @Override
+            public void onInvalid(List<MessageDataDTO> batch) {
+            }
+        };
+
+        RuntimeException streaming = assertThrows(RuntimeException.class,
+                () -> fileParseService.parseCSV(new ByteArrayInputStream(bytes), "limit.csv", ignore));
+        RuntimeException parallel = assertThrows(RuntimeException.class,
+                () -> fileParseService.parseCSV(file, "limit.csv", ignore));
+        fileParseService.shutdown();
+
+        assertTrue(streaming.getMessage().contains("CSV文件行数超过限制: 100"));
+        assertTrue(parallel.getMessage().contains("CSV文件行数超过限制: 100"));
+    }
+
+    @Test
+    void testQueuedSink_DownstreamFailureStopsParsing() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            QueuedRowSink sink = new QueuedRowSink(batch -> {
+                throw new IllegalStateException("db down");
+            }, 1, executor);
+
+            assertThrows(RuntimeException.class, () -> {
+                for (int i = 0; i < 10; i++) {
+                    sink.onValid(List.of(new MessageDataDTO()));
+                }
+            });
+            assertThrows(RuntimeException.class, sink::await);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private byte[] buildTypedWorkbook(Workbook workbook) throws Exception {
+        try (workbook; ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("报文");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("设备ID");
+            header.createCell(1).setCellValue("时间戳");
+            header.createCell(2).setCellValue("消息类型");
+            header.createCell(3).setCellValue("消息内容");
+
+            CellStyle grouped = workbook.createCellStyle();
+            grouped.setDataFormat(workbook.createDataFormat().getFormat("#,##0"));
+            CellStyle date = workbook.createCellStyle();
+            date.setDataFormat(workbook.createDataFormat().getFormat("yyyy/m/d h:mm"));
+            CellStyle decimal = workbook.createCellStyle();
+            decimal.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue(1001);
+            row.getCell(0).setCellStyle(grouped);
+            row.createCell(1).setCellValue(LocalDateTime.of(2024, 1, 1, 10, 0, 3));
+            row.getCell(1).setCellStyle(date);
+            row.createCell(2).setCellValue(1234567);
+            row.getCell(2).setCellStyle(grouped);
+            row.createCell(3).setCellValue(12.5);
+            row.getCell(3).setCellStyle(decimal);
+
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private byte[] buildWorkbook(int rows) throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("报文");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("设备ID");
+            header.createCell(1).setCellValue("时间戳");
+            header.createCell(2).setCellValue("消息类型");
+            header.createCell(3).setCellValue("消息内容");
+
+            for (int i = 1; i <= rows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("PUMP_" + i);
+                row.createCell(1).setCellValue("2024-01-01 10:00:0" + (i % 10));
+                row.createCell(2).setCellValue("PUMP");
+                row.createCell(3).setCellValue("current:" + (10 + i) + "A");
+            }
+
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+}
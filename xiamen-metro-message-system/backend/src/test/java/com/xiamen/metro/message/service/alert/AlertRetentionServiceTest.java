@@ -0,0 +1,63 @@
+package com.xiamen.metro.message.service.alert;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 告警数据保留期清理测试
+ *
+ * @author Xiamen Metro System
+ */
+class AlertRetentionServiceTest {
+
+    @Test
+    @DisplayName("按 (时间, id) 键集分页，不归档时只取键列")
+    void testChunkSql() {
+        AlertRetentionService.RetentionTable table =
+                new AlertRetentionService.RetentionTable("alert_records", "alert_time");
+
+        assertEquals("SELECT id, alert_time FROM alert_records WHERE alert_time < ? " +
+                "ORDER BY alert_time, id LIMIT ?", AlertRetentionService.chunkSql(table, false, false));
+        assertEquals("SELECT * FROM alert_records WHERE alert_time < ? AND (alert_time, id) > (?, ?) " +
+                "ORDER BY alert_time, id LIMIT ?", AlertRetentionService.chunkSql(table, true, true));
+    }
+
+    @Test
+    @DisplayName("归档CSV：空值为NULL，文本列加引号转义，gzip可还原")
+    void testArchiveCsv() throws SQLException, IOException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnLabel(2)).thenReturn("alert_title");
+        when(metaData.getColumnLabel(3)).thenReturn("triggered_value");
+        when(metaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(metaData.getColumnType(3)).thenReturn(Types.NUMERIC);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getString(1)).thenReturn("42");
+        when(resultSet.getString(2)).thenReturn("振动\"超限\",请检查");
+        when(resultSet.getString(3)).thenReturn(null);
+
+        StringBuilder csv = new StringBuilder();
+        AlertRetentionService.appendCsvHeader(csv, metaData);
+        AlertRetentionService.appendCsvRow(csv, resultSet, metaData);
+        assertEquals("id,alert_title,triggered_value\n42,\"振动\"\"超限\"\",请检查\",\n", csv.toString());
+
+        byte[] compressed = AlertRetentionService.gzip(csv);
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(csv.toString(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.xiamen.metro.message.service.alert;
+
+import com.xiamen.metro.message.entity.AlertRuleEntity;
+import com.xiamen.metro.message.repository.AlertRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 告警规则内存注册表测试
+ *
+ * @author Xiamen Metro System
+ */
+@ExtendWith(MockitoExtension.class)
+class AlertRuleRegistryTest {
+
+    @Mock
+    private AlertRuleRepository alertRuleRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AlertRuleRegistry registry;
+    private final LocalDateTime base = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @BeforeEach
+    void setUp() {
+        registry = new AlertRuleRegistry(alertRuleRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("按设备合并全局规则并按优先级降序，查询不访问数据库")
+    void testApplicableRules() {
+        AlertRuleEntity global = rule(1L, null, 1, true);
+        AlertRuleEntity highGlobal = rule(2L, null, 9, true);
+        AlertRuleEntity device = rule(3L, "PUMP_001", 5, true);
+        when(alertRuleRepository.findMaxUpdatedTime()).thenReturn(base);
+        when(alertRuleRepository.findByIsActiveTrue()).thenReturn(List.of(global, highGlobal, device));
+
+        assertEquals(3, registry.reload());
+
+        List<AlertRuleEntity> rules = registry.getApplicableRules("PUMP_001");
+        assertEquals(List.of(highGlobal, device, global), rules);
+        assertSame(rules, registry.getApplicableRules("PUMP_001"));
+        assertEquals(List.of(highGlobal, global), registry.getApplicableRules("PUMP_404"));
+        assertEquals(List.of(highGlobal, global), registry.getApplicableRules(null));
+        assertThrows(UnsupportedOperationException.class, () -> rules.add(global));
+        verify(alertRuleRepository, never()).findApplicableRules(any());
+    }
+
+    @Test
+    @DisplayName("增量刷新按水位合并新增和修改的规则，停用的规则被移除")
+    void testIncrementalRefresh() {
+        AlertRuleEntity global = rule(1L, null, 1, true);
+        AlertRuleEntity device = rule(2L, "PUMP_001", 5, true);
+        when(alertRuleRepository.findMaxUpdatedTime()).thenReturn(base);
+        when(alertRuleRepository.findByIsActiveTrue()).thenReturn(List.of(global, device));
+        registry.reload();
+
+        AlertRuleEntity added = rule(3L, "PUMP_002", 3, true);
+        AlertRuleEntity deactivated = rule(2L, "PUMP_001", 5, false);
+        when(alertRuleRepository.findMaxUpdatedTime()).thenReturn(base.plusMinutes(1));
+        when(alertRuleRepository.findUpdatedSince(base.minusSeconds(60))).thenReturn(List.of(added, deactivated));
+
+        assertEquals(2, registry.refresh());
+        assertEquals(2, registry.size());
+        assertEquals(List.of(global), registry.getApplicableRules("PUMP_001"));
+        assertEquals(List.of(added, global), registry.getApplicableRules("PUMP_002"));
+
+        // 水位推进后从新水位回看
+        when(alertRuleRepository.findUpdatedSince(base.plusMinutes(1).minusSeconds(60))).thenReturn(List.of());
+        assertEquals(0, registry.refresh());
+        verify(alertRuleRepository, times(1)).findByIsActiveTrue();
+    }
+
+    @Test
+    @DisplayName("在只读事务中加载，缓存与加载实体分离的副本；空优先级排在最前，与数据库降序一致")
+    void testLoadsDetachedCopiesInReadOnlyTransaction() {
+        AlertRuleEntity global = rule(1L, null, 1, true);
+        AlertRuleEntity unprioritized = rule(2L, null, 1, true);
+        unprioritized.setPriority(null);
+        global.setEmailRecipients(new ArrayList<>(List.of("ops@example.com")));
+        when(alertRuleRepository.findMaxUpdatedTime()).thenReturn(base);
+        when(alertRuleRepository.findByIsActiveTrue()).thenReturn(List.of(global, unprioritized));
+
+        registry.getApplicableRules("PUMP_001");
+
+        verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()));
+        List<AlertRuleEntity> rules = registry.getApplicableRules("PUMP_001");
+        assertEquals(List.of(2L, 1L), rules.stream().map(AlertRuleEntity::getId).toList());
+        assertNotSame(global, rules.get(1));
+        assertEquals(List.of("ops@example.com"), rules.get(1).getEmailRecipients());
+        assertThrows(UnsupportedOperationException.class, () -> rules.get(1).getEmailRecipients().add("x"));
+    }
+
+    private AlertRuleEntity rule(Long id, String deviceId, int priority, boolean active) {
+        AlertRuleEntity rule = new AlertRuleEntity();
+        rule.setId(id);
+        rule.setRuleName("规则" + id);
+        rule.setDeviceId(deviceId);
+        rule.setPriority(priority);
+        rule.setIsActive(active);
+        return rule;
+    }
+}
@@ -0,0 +1,145 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分析阶段依赖图测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpAnalysisStageGraphTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("无依赖阶段并行执行，依赖阶段在依赖完成后执行，耗时按声明顺序记录")
+    void testParallelStagesAndDependencies() {
+        PumpAnalysisStageGraph graph = new PumpAnalysisStageGraph(executor);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        // 两个阶段互相等待对方开始，顺序执行会超时
+        CompletableFuture<String> first = graph.stage("A", 5000, () -> awaitPeer(bothRunning, "a"), error -> "fallback");
+        CompletableFuture<String> second = graph.stage("B", 5000, () -> awaitPeer(bothRunning, "b"), error -> "fallback");
+        CompletableFuture<String> joined = graph.stage("C", 5000, List.of(first, second),
+                () -> first.join() + second.join(), error -> "fallback");
+
+        assertEquals("ab", joined.join());
+        List<PumpAnalysisResponseDTO.StageTiming> timings = graph.timings();
+        assertEquals(List.of("A", "B", "C"), names(timings));
+        assertTrue(timings.stream().allMatch(timing -> PumpAnalysisStageGraph.SUCCESS.equals(timing.getStatus())));
+        assertTrue(timings.get(2).getStartOffsetMs() >= timings.get(0).getStartOffsetMs());
+    }
+
+    @Test
+    @DisplayName("失败或超时的阶段以降级值代替，下游阶段照常执行")
+    void testFailureAndTimeoutFallback() {
+        PumpAnalysisStageGraph graph = new PumpAnalysisStageGraph(executor);
+        CountDownLatch never = new CountDownLatch(1);
+        Function<Throwable, String> fallback = error -> error instanceof TimeoutException ? "timeout" : "failed";
+
+        CompletableFuture<String> slow = graph.stage("SLOW", 100, () -> {
+            awaitQuietly(never);
+            return "slow";
+        }, fallback);
+        CompletableFuture<String> broken = graph.stage("BROKEN", 5000, () -> {
+            throw new IllegalStateException("数据不足");
+        }, fallback);
+        CompletableFuture<String> downstream = graph.stage("DOWNSTREAM", 5000, List.of(slow, broken),
+                () -> slow.join() + "," + broken.join(), error -> "fallback");
+
+        assertEquals("timeout,failed", downstream.join());
+        List<PumpAnalysisResponseDTO.StageTiming> timings = graph.timings();
+        assertEquals(PumpAnalysisStageGraph.TIMEOUT, timings.get(0).getStatus());
+        assertTrue(timings.get(0).getDurationMs() >= 100);
+        assertEquals(PumpAnalysisStageGraph.FAILED, timings.get(1).getStatus());
+        assertEquals("数据不足", timings.get(1).getMessage());
+        assertEquals(PumpAnalysisStageGraph.SUCCESS, timings.get(2).getStatus());
+        never.countDown();
+    }
+
+    @Test
+    @DisplayName("超时的阶段被取消，执行线程收到中断后释放")
+    void testTimeoutInterruptsTask() throws InterruptedException {
+        PumpAnalysisStageGraph graph = new PumpAnalysisStageGraph(executor);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> slow = graph.stage("SLOW", 100, () -> {
+            try {
+                Thread.sleep(10_000);
+                return "slow";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return "interrupted";
+            }
+        }, error -> "timeout");
+
+        assertEquals("timeout", slow.join());
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+        assertEquals(PumpAnalysisStageGraph.TIMEOUT, graph.timings().get(0).getStatus());
+    }
+
+    @Test
+    @DisplayName("调用线程执行器下各阶段顺序执行，结果与并行一致")
+    void testCallerRunsExecutor() {
+        PumpAnalysisStageGraph graph = new PumpAnalysisStageGraph(Runnable::run);
+        Thread caller = Thread.currentThread();
+
+        CompletableFuture<Boolean> onCaller = graph.stage("A", 1000, () -> Thread.currentThread() == caller, error -> false);
+        CompletableFuture<Integer> dependent = graph.stage("B", 1000, List.of(onCaller), () -> 42, error -> -1);
+
+        assertTrue(onCaller.isDone());
+        assertTrue(onCaller.join());
+        assertEquals(42, dependent.join());
+        assertEquals(List.of("A", "B"), names(graph.timings()));
+    }
+
+    private String awaitPeer(CountDownLatch latch, String value) {
+        latch.countDown();
+        try {
+            if (!latch.await(2, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("阶段未并行执行");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<String> names(List<PumpAnalysisResponseDTO.StageTiming> timings) {
+        return timings.stream().map(PumpAnalysisResponseDTO.StageTiming::getStage).collect(Collectors.toList());
+    }
+}
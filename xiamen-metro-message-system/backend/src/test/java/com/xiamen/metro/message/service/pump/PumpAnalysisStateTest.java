@@ -0,0 +1,290 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量分析状态测试：按随机间隔折叠新数据，窗口结果与对同一范围完整重算一致
+ *
+ * @author Xiamen Metro System
+ */
+class PumpAnalysisStateTest {
+
+    private static final double TOLERANCE = 1e-6;
+    private static final long PANE_MILLIS = 60_000;
+    private static final int WINDOW_PANES = 60;
+    private static final double HALF_LIFE = 10;
+    private static final long BASE = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0)).getTime();
+
+    private final PumpAnomalyDetectionService anomalyDetectionService = new PumpAnomalyDetectionService();
+
+    @Test
+    @DisplayName("增量折叠的窗口结果与完整重算一致(含能耗样本少于15个)")
+    void testIncrementalMatchesFullRecomputation() {
+        for (double energyProbability : new double[]{0.7, 0.03}) {
+            PumpSeries data = generateData(900, energyProbability, 7);
+            PumpAnalysisState state = new PumpAnalysisState("PUMP_001", PANE_MILLIS, WINDOW_PANES, HALF_LIFE);
+            Random random = new Random(11);
+
+            long end = data.timestamp(0) - 1;
+            long last = data.timestamp(data.size() - 1);
+            while (end < last) {
+                long previous = end;
+                end += 30_000 + random.nextInt(150_000);
+                state.fold(slice(data, previous + 1, end));
+                state.evict(end);
+
+                PumpSeries full = slice(data, state.windowStart(end), end);
+                if (full.isEmpty()) {
+                    continue;
+                }
+                PumpAnalysisState.WindowSnapshot window = state.snapshot();
+                PumpStreamingStats stats = window.getStats();
+
+                assertEquals(full.size(), stats.getRowCount());
+                assertEquals(full.time(0), stats.getFirstTime());
+                assertEquals(full.faultCodes().size(), window.getFaultCount());
+                assertEquals(full.alarmCount(), window.getAlarmCount());
+                assertSameResult(anomalyDetectionService.detectStartupFrequencyAnomaly(full, null),
+                        anomalyDetectionService.detectStartupFrequencyAnomaly(stats, null));
+                assertSameResult(anomalyDetectionService.detectRuntimeAnomaly(full, null),
+                        anomalyDetectionService.detectRuntimeAnomaly(stats, null));
+                assertSameResult(anomalyDetectionService.analyzeEnergyTrend(full, null),
+                        anomalyDetectionService.analyzeEnergyTrend(stats, null));
+                assertBaselineMatches(slice(data, Long.MIN_VALUE, end), window.getBaselineDeviations());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("检查点编解码后继续折叠，结果与未中断一致；时间片配置变化时不恢复")
+    void testCheckpointRoundTrip() {
+        PumpSeries data = generateData(600, 0.6, 3);
+        long middle = data.timestamp(350);
+        long end = data.timestamp(data.size() - 1);
+
+        PumpAnalysisState original = new PumpAnalysisState("PUMP_002", PANE_MILLIS, WINDOW_PANES, HALF_LIFE);
+        original.fold(slice(data, Long.MIN_VALUE, middle));
+        original.evict(middle);
+
+        PumpAnalysisState restored = PumpAnalysisState.decode(original.encode(), PANE_MILLIS, WINDOW_PANES);
+        assertNotNull(restored);
+        assertEquals(original.getWatermark(), restored.getWatermark());
+        assertNull(PumpAnalysisState.decode(original.encode(), PANE_MILLIS * 5, WINDOW_PANES));
+
+        for (PumpAnalysisState state : List.of(original, restored)) {
+            state.fold(slice(data, middle + 1, end));
+            state.evict(end);
+        }
+        assertSameSnapshot(original.snapshot(), restored.snapshot());
+    }
+
+    @Test
+    @DisplayName("按窗口重建后窗口结果不变，EWMA 基线沿用且不重复计入")
+    void testRebuildKeepsBaseline() {
+        PumpSeries data = generateData(600, 0.6, 5);
+        long end = data.timestamp(data.size() - 1);
+
+        PumpAnalysisState incremental = new PumpAnalysisState("PUMP_003", PANE_MILLIS, WINDOW_PANES, HALF_LIFE);
+        for (int from = 0; from < data.size(); from += 17) {
+            long chunkEnd = data.timestamp(Math.min(data.size(), from + 17) - 1);
+            incremental.fold(slice(data, data.timestamp(from), chunkEnd));
+            incremental.evict(chunkEnd);
+        }
+
+        PumpAnalysisState rebuilt = new PumpAnalysisState("PUMP_003", PANE_MILLIS, WINDOW_PANES, HALF_LIFE);
+        rebuilt.carryOver(incremental);
+        rebuilt.fold(slice(data, rebuilt.windowStart(end), end));
+        rebuilt.evict(end);
+
+        // 迟到数据(不晚于水位线)不被折叠
+        assertEquals(0, rebuilt.fold(slice(data, Long.MIN_VALUE, end)));
+        assertSameSnapshot(incremental.snapshot(), rebuilt.snapshot());
+    }
+
+    @Test
+    @DisplayName("累加器合并与连续累计一致")
+    void testAccumulatorMerge() {
+        Random random = new Random(19);
+        RunningStats whole = new RunningStats();
+        RunningTrend wholeTrend = new RunningTrend();
+        RunningStats merged = new RunningStats();
+        RunningTrend mergedTrend = new RunningTrend();
+        for (int part = 0; part < 6; part++) {
+            RunningStats stats = new RunningStats();
+            RunningTrend trend = new RunningTrend();
+            int size = part == 2 ? 0 : 1 + random.nextInt(40);
+            for (int i = 0; i < size; i++) {
+                double value = 100 + part * 3 + random.nextGaussian() * 5;
+                whole.add(value);
+                wholeTrend.add(value);
+                stats.add(value);
+                trend.add(value);
+            }
+            merged.merge(stats);
+            mergedTrend.merge(trend);
+        }
+
+        assertEquals(whole.getCount(), merged.getCount());
+        assertEquals(whole.getMean(), merged.getMean(), TOLERANCE);
+        assertEquals(whole.getStandardDeviation(), merged.getStandardDeviation(), TOLERANCE);
+        assertEquals(whole.getSum(), merged.getSum(), TOLERANCE);
+        assertEquals(whole.getMin(), merged.getMin());
+        assertEquals(whole.getMax(), merged.getMax());
+        assertEquals(wholeTrend.getCount(), mergedTrend.getCount());
+        assertEquals(wholeTrend.getMean(), mergedTrend.getMean(), TOLERANCE);
+        assertEquals(wholeTrend.getSlope(), mergedTrend.getSlope(), TOLERANCE);
+        assertEquals(wholeTrend.getRSquared(), mergedTrend.getRSquared(), TOLERANCE);
+    }
+
+    /**
+     * 按完整数据重算 EWMA 基线：除最后一个时间片外，每个有数据的时间片按顺序计入
+     */
+    private void assertBaselineMatches(PumpSeries data, List<PumpAnalysisState.BaselineDeviation> deviations) {
+        long lastPane = Math.floorDiv(data.timestamp(data.size() - 1), PANE_MILLIS) * PANE_MILLIS;
+        double alpha = 1 - Math.pow(0.5, 1 / HALF_LIFE);
+
+        for (PumpAnalysisState.BaselineDeviation deviation : deviations) {
+            PumpDataAggregate.Metric metric = deviation.getMetric();
+            long panes = 0;
+            double mean = 0;
+            double variance = 0;
+            double current = Double.NaN;
+            int i = 0;
+            while (i < data.size()) {
+                long pane = Math.floorDiv(data.timestamp(i), PANE_MILLIS) * PANE_MILLIS;
+                RunningStats stats = new RunningStats();
+                for (; i < data.size() && data.timestamp(i) < pane + PANE_MILLIS; i++) {
+                    if (!data.isNull(metric, i)) {
+                        stats.add(data.value(metric, i));
+                    }
+                }
+                if (stats.getCount() == 0) {
+                    continue;
+                }
+                if (pane == lastPane) {
+                    current = stats.getMean();
+                } else if (panes++ == 0) {
+                    mean = stats.getMean();
+                } else {
+                    double delta = stats.getMean() - mean;
+                    mean += alpha * delta;
+                    variance = (1 - alpha) * (variance + alpha * delta * delta);
+                }
+            }
+            assertEquals(current, deviation.getCurrent(), TOLERANCE, metric.name());
+            assertEquals(mean, deviation.getBaseline(), TOLERANCE, metric.name());
+            assertEquals(Math.sqrt(variance), deviation.getBaselineStandardDeviation(), TOLERANCE, metric.name());
+        }
+    }
+
+    private void assertSameSnapshot(PumpAnalysisState.WindowSnapshot expected, PumpAnalysisState.WindowSnapshot actual) {
+        assertEquals(expected.getStats().getRowCount(), actual.getStats().getRowCount());
+        assertEquals(expected.getFaultCount(), actual.getFaultCount());
+        assertEquals(expected.getAlarmCount(), actual.getAlarmCount());
+        assertEquals(expected.getLastStartEvent(), actual.getLastStartEvent());
+        assertSameResult(anomalyDetectionService.detectStartupFrequencyAnomaly(expected.getStats(), null),
+                anomalyDetectionService.detectStartupFrequencyAnomaly(actual.getStats(), null));
+        assertSameResult(anomalyDetectionService.detectRuntimeAnomaly(expected.getStats(), null),
+                anomalyDetectionService.detectRuntimeAnomaly(actual.getStats(), null));
+        assertSameResult(anomalyDetectionService.analyzeEnergyTrend(expected.getStats(), null),
+                anomalyDetectionService.analyzeEnergyTrend(actual.getStats(), null));
+
+        assertEquals(expected.getBaselineDeviations().size(), actual.getBaselineDeviations().size());
+        for (int i = 0; i < expected.getBaselineDeviations().size(); i++) {
+            PumpAnalysisState.BaselineDeviation left = expected.getBaselineDeviations().get(i);
+            PumpAnalysisState.BaselineDeviation right = actual.getBaselineDeviations().get(i);
+            assertEquals(left.getMetric(), right.getMetric());
+            assertEquals(left.getCurrent(), right.getCurrent(), TOLERANCE);
+            assertEquals(left.getBaseline(), right.getBaseline(), TOLERANCE);
+            assertEquals(left.getBaselineStandardDeviation(), right.getBaselineStandardDeviation(), TOLERANCE);
+        }
+    }
+
+    /**
+     * 时间戳在 [from, to] 内的行
+     */
+    private PumpSeries slice(PumpSeries data, long from, long to) {
+        PumpSeries.Builder builder = PumpSeries.builder(data.getDeviceId());
+        for (int i = 0; i < data.size(); i++) {
+            if (data.timestamp(i) >= from && data.timestamp(i) <= to) {
+                builder.copyRow(data, i);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 约20秒一行，时间片内行数与能耗样本数不固定；中间有一段超过窗口时长的中断
+     */
+    private PumpSeries generateData(int size, double energyProbability, long seed) {
+        Random random = new Random(seed);
+        PumpSeries.Builder builder = PumpSeries.builder("PUMP_001");
+        long timestamp = BASE;
+        for (int i = 0; i < size; i++) {
+            timestamp += 5_000 + random.nextInt(30_000);
+            if (i == size / 2) {
+                timestamp += 75 * 60_000L;
+            }
+            int row = builder.addRow(timestamp);
+            if (random.nextInt(8) != 0) {
+                builder.pumpStatus(row, random.nextInt(5) == 0 ? 1 : 0);
+            }
+            builder.alarmLevel(row, random.nextInt(10) == 0 ? 2 : 1);
+            if (random.nextInt(25) == 0) {
+                builder.faultCode(row, "E0" + random.nextInt(5));
+            }
+            if (random.nextInt(3) != 0) {
+                builder.value(row, PumpDataAggregate.Metric.RUNTIME, 400 + i * 0.05 + random.nextGaussian() * 30);
+            }
+            if (random.nextDouble() < energyProbability) {
+                builder.value(row, PumpDataAggregate.Metric.ENERGY, 20 + i * 0.01 + random.nextDouble() * 5);
+            }
+            builder.value(row, PumpDataAggregate.Metric.POWER, 15 + Math.sin(i / 40.0) * 2 + random.nextGaussian());
+            if (random.nextInt(4) != 0) {
+                builder.value(row, PumpDataAggregate.Metric.VIBRATION, 2.5 + random.nextGaussian() * 0.3);
+            }
+            if (i > size / 4) {
+                builder.value(row, PumpDataAggregate.Metric.TEMPERATURE, 25 + random.nextGaussian());
+            }
+        }
+        return builder.build();
+    }
+
+    private void assertSameResult(PumpAnalysisResponseDTO.AnalysisResult expected,
+                                  PumpAnalysisResponseDTO.AnalysisResult actual) {
+        assertEquals(expected.getAnalysisType(), actual.getAnalysisType());
+        assertEquals(expected.getSeverityLevel(), actual.getSeverityLevel());
+        assertEquals(expected.getConfidence(), actual.getConfidence(), TOLERANCE);
+        assertEquals(expected.getTrendDirection(), actual.getTrendDirection());
+        assertEquals(expected.getRecommendations(), actual.getRecommendations());
+        assertNullableEquals(expected.getDetectedValue(), actual.getDetectedValue());
+        assertNullableEquals(expected.getDeviationPercentage(), actual.getDeviationPercentage());
+        assertEquals(expected.getDetailedMetrics().keySet(), actual.getDetailedMetrics().keySet());
+        expected.getDetailedMetrics().forEach((key, value) -> {
+            Object other = actual.getDetailedMetrics().get(key);
+            if (value instanceof Double) {
+                assertEquals((Double) value, ((Number) other).doubleValue(), TOLERANCE * Math.max(1, Math.abs((Double) value)), key);
+            } else {
+                assertEquals(value, other, key);
+            }
+        });
+    }
+
+    private void assertNullableEquals(Double expected, Double actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 水泵数据块压缩编码测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpBlockCodecTest {
+
+    @Test
+    @DisplayName("编码后完整还原：空值、特殊浮点值、状态、维护标志与故障代码")
+    void testRoundTrip() {
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 10, 0);
+        Random random = new Random(7);
+        List<PumpDataEntity> records = new ArrayList<>();
+        for (int i = 0; i < 3600; i++) {
+            PumpDataEntity record = new PumpDataEntity();
+            record.setDeviceId("PUMP_001");
+            // 采样间隔带抖动，偶尔出现长间隔
+            record.setTimestamp(base.plusNanos((i * 1000L + random.nextInt(40) + (i > 1800 ? 600_000 : 0)) * 1_000_000L));
+            record.setPumpStatus(i % 11 == 0 ? null : (i / 300) % 2);
+            record.setPowerKw(i % 5 == 0 ? null : 40 + random.nextGaussian());
+            record.setVoltage(380.0);
+            record.setCurrentAmperage(i == 3 ? Double.NaN : (i == 4 ? Double.NEGATIVE_INFINITY : (i == 5 ? -0.0 : 12.5)));
+            record.setVibrationMmS(Double.MIN_VALUE * i);
+            record.setAlarmLevel(i % 97 == 0 ? i % 4 : null);
+            record.setMaintenanceFlag(i == 1000 ? Boolean.TRUE : null);
+            record.setFaultCode(i % 500 == 0 ? (i % 1000 == 0 ? "E01" : "故障-02") : null);
+            records.add(record);
+        }
+        PumpSeries series = PumpSeries.of("PUMP_001", records);
+
+        byte[] block = PumpBlockCodec.encode(series);
+        PumpSeries decoded = PumpBlockCodec.decode("PUMP_001", block);
+
+        assertEquals(series.size(), PumpBlockCodec.rowCount(block));
+        assertSeriesEquals(series, decoded, 0);
+
+        // 编码子区间
+        PumpSeries part = PumpBlockCodec.decode("PUMP_001", PumpBlockCodec.encode(series, 1000, 1500));
+        assertEquals(500, part.size());
+        assertEquals(series.timestamp(1000), part.timestamp(0));
+        assertTrue(part.isMaintenance(0));
+        assertEquals("E01", part.faultCode(0));
+
+        assertEquals(0, PumpBlockCodec.decode("PUMP_001", PumpBlockCodec.encode(PumpSeries.builder("PUMP_001").build())).size());
+    }
+
+    @Test
+    @DisplayName("缓变信号压缩后不超过逐行存储的十分之一")
+    void testCompressionRatio() {
+        PumpSeries series = PumpSeries.of("PUMP_001", slowlyChanging(3600));
+
+        byte[] block = PumpBlockCodec.encode(series);
+        long rawBytes = (long) series.size() * PumpSampleRing.ROW_BYTES;
+
+        assertTrue(rawBytes >= block.length * 10L,
+                "压缩后 " + block.length + " 字节，原始 " + rawBytes + " 字节");
+        assertSeriesEquals(series, PumpBlockCodec.decode("PUMP_001", block), 0);
+    }
+
+    /**
+     * 每秒一条，数值按传感器精度量化，缓慢变化
+     */
+    static List<PumpDataEntity> slowlyChanging(int rows) {
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 10, 0);
+        Random random = new Random(11);
+        List<PumpDataEntity> records = new ArrayList<>();
+        double pressure = 320;
+        double temperature = 18.5;
+        for (int i = 0; i < rows; i++) {
+            if (random.nextInt(20) == 0) {
+                pressure += random.nextBoolean() ? 0.5 : -0.5;
+            }
+            if (random.nextInt(120) == 0) {
+                temperature += 0.1;
+            }
+            boolean running = (i / 900) % 2 == 0;
+            PumpDataEntity record = new PumpDataEntity();
+            record.setDeviceId("PUMP_001");
+            record.setTimestamp(base.plusSeconds(i));
+            record.setPumpStatus(running ? 1 : 0);
+            record.setRuntimeMinutes(running ? Math.floor((i % 900) / 60.0) : 0.0);
+            record.setCurrentAmperage(running ? 52.0 : 0.0);
+            record.setVoltage(380.0);
+            record.setPowerKw(running ? 30.0 : 0.0);
+            record.setEnergyConsumptionKwh(Math.floor(i / 120.0));
+            record.setWaterPressureKpa(running ? pressure : 0.0);
+            record.setFlowRateM3h(running ? 120.0 : 0.0);
+            record.setWaterTemperatureCelsius(Math.round(temperature * 10) / 10.0);
+            record.setVibrationMmS(running ? 2.1 : 0.0);
+            record.setNoiseLevelDb(running ? 65.0 : 40.0);
+            record.setAlarmLevel(0);
+            records.add(record);
+        }
+        return records;
+    }
+
+    static void assertSeriesEquals(PumpSeries expected, PumpSeries actual, int offset) {
+        for (int i = 0; i < expected.size(); i++) {
+            int j = i + offset;
+            assertEquals(expected.timestamp(i), actual.timestamp(j), "timestamp@" + i);
+            for (PumpDataAggregate.Metric metric : PumpDataAggregate.Metric.values()) {
+                assertEquals(expected.isNull(metric, i), actual.isNull(metric, j), metric + "@" + i);
+                assertEquals(Double.doubleToRawLongBits(expected.value(metric, i)),
+                        Double.doubleToRawLongBits(actual.value(metric, j)), metric + "@" + i);
+            }
+            assertEquals(expected.hasPumpStatus(i), actual.hasPumpStatus(j));
+            assertEquals(expected.pumpStatus(i), actual.pumpStatus(j));
+            assertEquals(expected.hasAlarmLevel(i), actual.hasAlarmLevel(j));
+            assertEquals(expected.alarmLevel(i), actual.alarmLevel(j));
+            assertEquals(expected.isMaintenance(i), actual.isMaintenance(j));
+            assertEquals(expected.faultCode(i), actual.faultCode(j));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 水泵数据压缩块封存测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpDataBlockSealerTest {
+
+    private PumpSeriesReader seriesReader;
+    private PumpDataBlockStore blockStore;
+    private TransactionTemplate transactionTemplate;
+    private PumpDataBlockSealer sealer;
+    private final LocalDateTime hour = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        seriesReader = mock(PumpSeriesReader.class);
+        blockStore = mock(PumpDataBlockStore.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        sealer = new PumpDataBlockSealer(seriesReader, blockStore, transactionTemplate);
+    }
+
+    @Test
+    @DisplayName("每个设备小时在事务中先加锁再读取明细并写入块")
+    void testSealLocksBeforeReading() {
+        when(blockStore.findPending(any(), anyInt())).thenReturn(List.of(
+                new PumpDataBlockStore.PendingBlock("PUMP_001", hour, 2),
+                new PumpDataBlockStore.PendingBlock("PUMP_002", hour, 1)));
+        PumpSeries series = PumpSeries.of("PUMP_001", List.of(record(hour), record(hour.plusMinutes(30))));
+        when(seriesReader.readHour("PUMP_001", hour)).thenReturn(series);
+        when(seriesReader.readHour("PUMP_002", hour)).thenReturn(PumpSeries.builder("PUMP_002").build());
+        when(blockStore.save(any(), any(), any())).thenReturn(64);
+
+        assertEquals(1, sealer.sealPending(hour.plusHours(3)));
+
+        InOrder inOrder = inOrder(transactionTemplate, blockStore, seriesReader);
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(blockStore).lock("PUMP_001", hour);
+        inOrder.verify(seriesReader).readHour("PUMP_001", hour);
+        inOrder.verify(blockStore).save("PUMP_001", hour, series);
+        verify(blockStore, never()).save(eq("PUMP_002"), any(), any());
+        assertEquals(2L, sealer.getStats().get("sealedRows"));
+    }
+
+    private PumpDataEntity record(LocalDateTime timestamp) {
+        PumpDataEntity record = new PumpDataEntity();
+        record.setDeviceId("PUMP_001");
+        record.setTimestamp(timestamp);
+        record.setPowerKw(10.0);
+        return record;
+    }
+}
@@ -0,0 +1,132 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import javax.sql.DataSource;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 水泵数据批量写入测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpDataBulkWriterTest {
+
+    @Test
+    @DisplayName("COPY行编码：空值为NULL，文本加引号转义")
+    void testAppendCsvRow() {
+        PumpDataEntity record = new PumpDataEntity();
+        record.setDeviceId("PUMP_001");
+        record.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30, 5));
+        record.setPumpStatus(1);
+        record.setCurrentAmperage(12.5);
+        record.setVibrationMmS(2.1);
+        record.setFaultCode("");
+        record.setMaintenanceFlag(false);
+        record.setRawMessage("水泵 电流:12.5A, 备注\"测试\"\n第二行");
+        record.setDataSource("PARSED");
+
+        StringBuilder buffer = new StringBuilder();
+        PumpDataBulkWriter.appendCsvRow(buffer, record);
+
+        assertEquals("\"PUMP_001\",2024-01-15T10:30:05,1,,12.5,,,,,,,2.1,,\"\",,false," +
+                "\"水泵 电流:12.5A, 备注\"\"测试\"\"\n第二行\",\"PARSED\"\n", buffer.toString());
+    }
+
+    @Test
+    @DisplayName("COPY行字段数与列清单一致")
+    void testAppendCsvRow_ColumnCount() {
+        PumpDataEntity record = new PumpDataEntity();
+        record.setDeviceId("PUMP_002");
+        record.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30));
+
+        StringBuilder buffer = new StringBuilder();
+        PumpDataBulkWriter.appendCsvRow(buffer, record);
+
+        int columns = PumpDataBulkWriter.COLUMNS.split(",").length;
+        assertEquals(columns, buffer.toString().trim().split(",", -1).length);
+        assertTrue(buffer.toString().endsWith("\n"));
+    }
+
+    @Test
+    @DisplayName("COPY输入按需逐行编码，跨行分块读取结果与整段编码一致")
+    void testCsvRowReader() throws Exception {
+        PumpDataEntity first = new PumpDataEntity();
+        first.setDeviceId("PUMP_001");
+        first.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30));
+        first.setRawMessage("电流:12.5A");
+        PumpDataEntity second = new PumpDataEntity();
+        second.setDeviceId("PUMP_002");
+        second.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 31));
+
+        StringBuilder expected = new StringBuilder();
+        PumpDataBulkWriter.appendCsvRow(expected, first);
+        PumpDataBulkWriter.appendCsvRow(expected, second);
+
+        StringWriter actual = new StringWriter();
+        char[] buffer = new char[7];
+        try (PumpDataBulkWriter.CsvRowReader reader = new PumpDataBulkWriter.CsvRowReader(List.of(first, second))) {
+            int n;
+            while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+                actual.write(buffer, 0, n);
+            }
+        }
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    @DisplayName("幂等写入：COPY到无id列的临时表，已存在的记录滤除后再写入pump_data")
+    void testWriteThroughStaging() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        Statement statement = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(connection.createStatement()).thenReturn(statement);
+        when(copyManager.copyIn(anyString(), any(Reader.class))).thenReturn(2L);
+        when(statement.executeUpdate(anyString())).thenReturn(1);
+
+        PumpDataEntity record = new PumpDataEntity();
+        record.setDeviceId("PUMP_001");
+        record.setTimestamp(LocalDateTime.of(2024, 1, 15, 10, 30));
+        int written = new PumpDataBulkWriter(dataSource).write(List.of(record, record));
+
+        assertEquals(1, written);
+        ArgumentCaptor<String> ddl = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> merge = ArgumentCaptor.forClass(String.class);
+        InOrder inOrder = inOrder(statement, copyManager, connection);
+        inOrder.verify(statement).execute(ddl.capture());
+        inOrder.verify(copyManager).copyIn(
+                eq("COPY " + PumpDataBulkWriter.STAGING_TABLE + " (" + PumpDataBulkWriter.COLUMNS + ") FROM STDIN WITH (FORMAT csv)"),
+                any(Reader.class));
+        inOrder.verify(statement).executeUpdate(merge.capture());
+        inOrder.verify(connection).commit();
+        assertFalse(ddl.getValue().contains("LIKE pump_data"));
+        assertFalse(ddl.getValue().contains(" id "));
+        assertTrue(merge.getValue().startsWith("INSERT INTO pump_data (" + PumpDataBulkWriter.COLUMNS + ")"));
+        assertTrue(merge.getValue().contains("WHERE NOT EXISTS"));
+        verify(connection).setAutoCommit(true);
+    }
+}
@@ -0,0 +1,138 @@
+package com.xiamen.metro.message.service.pump;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 水泵数据分区维护测试
+ *
+ * @author Xiamen Metro System
+ */
+@ExtendWith(OutputCaptureExtension.class)
+class PumpDataPartitionServiceTest {
+
+    @Test
+    @DisplayName("按月/日粒度计算分区起点与名称")
+    void testPartitionPeriods() {
+        PumpDataPartitionService service = new PumpDataPartitionService(null);
+        LocalDateTime time = LocalDateTime.of(2024, 2, 29, 13, 45, 10);
+
+        LocalDateTime month = service.periodStart(time);
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), month);
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), service.nextPeriod(month, 1));
+        assertEquals("pump_data_p202402", service.partitionName(month));
+
+        ReflectionTestUtils.setField(service, "granularity", "day");
+        LocalDateTime day = service.periodStart(time);
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), day);
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), service.nextPeriod(day, 1));
+        assertEquals("pump_data_p20240229", service.partitionName(day));
+    }
+
+    @Test
+    @DisplayName("解析分区上界，默认分区无上界")
+    void testParseUpperBound() {
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), PumpDataPartitionService.parseUpperBound(
+                "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')"));
+        assertEquals(LocalDateTime.of(2024, 1, 16, 0, 0), PumpDataPartitionService.parseUpperBound(
+                "FOR VALUES FROM ('2024-01-15 00:00:00') TO ('2024-01-16 00:00:00.000000')"));
+        assertNull(PumpDataPartitionService.parseUpperBound("DEFAULT"));
+    }
+
+    @Test
+    @DisplayName("月分区切换为日分区时，已被月分区覆盖的日期不建分区并记录警告")
+    void testEnsurePartitions_WarnsOnGranularityOverlap(CapturedOutput output) throws Exception {
+        Connection connection = mockPartitions(
+                new String[]{"pump_data_default", "DEFAULT"},
+                new String[]{"pump_data_p202401", "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')"});
+        PreparedStatement ensure = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(ensure);
+        ResultSet ensured = mock(ResultSet.class);
+        when(ensured.next()).thenReturn(true);
+        when(ensured.getBoolean(1)).thenReturn(true);
+        when(ensure.executeQuery()).thenReturn(ensured);
+
+        PumpDataPartitionService service = new PumpDataPartitionService(dataSource(connection));
+        ReflectionTestUtils.setField(service, "granularity", "day");
+
+        List<String> created = service.ensurePartitions(
+                LocalDateTime.of(2024, 1, 31, 8, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+
+        assertEquals(List.of("pump_data_p20240201"), created);
+        verify(ensure).setString(1, "pump_data_p20240201");
+        verify(ensure, never()).setString(1, "pump_data_p20240131");
+        assertTrue(output.getOut().contains("pump_data_p20240131"));
+        assertTrue(output.getOut().contains("[pump_data_p202401]"));
+    }
+
+    @Test
+    @DisplayName("过期分区先分离再删除，存在默认分区时不使用并发分离")
+    void testDropPartitionsBefore_DetachesThenDrops() throws Exception {
+        Connection connection = mockPartitions(
+                new String[]{"pump_data_default", "DEFAULT"},
+                new String[]{"pump_data_p202401", "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')"},
+                new String[]{"pump_data_p202402", "FOR VALUES FROM ('2024-02-01 00:00:00') TO ('2024-03-01 00:00:00')"});
+        Statement statement = connection.createStatement();
+
+        List<String> dropped = new PumpDataPartitionService(dataSource(connection))
+                .dropPartitionsBefore(LocalDateTime.of(2024, 2, 15, 0, 0));
+
+        assertEquals(List.of("pump_data_p202401"), dropped);
+        InOrder inOrder = inOrder(connection, statement);
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(statement).execute("ALTER TABLE pump_data DETACH PARTITION \"pump_data_p202401\"");
+        inOrder.verify(statement).execute("DROP TABLE IF EXISTS \"pump_data_p202401\"");
+        verify(statement, never()).execute(contains("pump_data_p202402"));
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    @DisplayName("无默认分区时并发分离，中断过的分离用FINALIZE完成")
+    void testDetachSql() {
+        assertEquals("ALTER TABLE pump_data DETACH PARTITION \"pump_data_p202401\" CONCURRENTLY",
+                PumpDataPartitionService.detachSql("pump_data_p202401", false, false));
+        assertEquals("ALTER TABLE pump_data DETACH PARTITION \"pump_data_p202401\"",
+                PumpDataPartitionService.detachSql("pump_data_p202401", false, true));
+        assertEquals("ALTER TABLE pump_data DETACH PARTITION \"pump_data_p202401\" FINALIZE",
+                PumpDataPartitionService.detachSql("pump_data_p202401", true, false));
+    }
+
+    /**
+     * 模拟分区列表查询，每行为 {分区名, 分区边界}
+     */
+    private Connection mockPartitions(String[]... partitions) throws Exception {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        int[] row = {-1};
+        when(resultSet.next()).thenAnswer(invocation -> ++row[0] < partitions.length);
+        when(resultSet.getString(1)).thenAnswer(invocation -> partitions[row[0]][0]);
+        when(resultSet.getString(2)).thenAnswer(invocation -> partitions[row[0]][1]);
+        return connection;
+    }
+
+    private DataSource dataSource(Connection connection) throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
@@ -0,0 +1,102 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.pump.PumpDeviceStateDTO;
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 水泵设备最新状态测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpDeviceStateServiceTest {
+
+    private PumpDeviceStateService stateService;
+    private final LocalDateTime base = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @BeforeEach
+    void setUp() {
+        stateService = new PumpDeviceStateService(null);
+        ReflectionTestUtils.setField(stateService, "loaded", true);
+    }
+
+    @Test
+    @DisplayName("最新时间戳决定状态，数值字段保留最近的非空值，故障快照取最晚的故障")
+    void testApplyKeepsLatestValues() {
+        stateService.apply(List.of(
+                record("PUMP_001", base, 1, 30.0, 52.0, "E01", 3),
+                record("PUMP_001", base.plusMinutes(2), 0, null, 0.0, null, 1),
+                record("PUMP_002", base, 1, 12.0, 20.0, null, null)));
+        // 乱序到达的旧数据不覆盖状态；数值字段按各自非空值的时间合并，较晚的故障仍会更新快照
+        stateService.apply(List.of(record("PUMP_001", base.plusMinutes(1), 1, 28.0, 50.0, "E02", 2),
+                record("PUMP_001", base.plusSeconds(30), null, null, null, null, null)));
+
+        PumpDeviceStateDTO state = stateService.get("PUMP_001");
+        assertEquals(base.plusMinutes(2), state.getLastTimestamp());
+        assertEquals(0, state.getPumpStatus());
+        assertEquals(1, state.getAlarmLevel());
+        assertEquals(0.0, state.getCurrentAmperage());
+        // 最近一次非空功率在 base+1 分钟
+        assertEquals(28.0, state.getPowerKw());
+        assertNull(state.getVoltage());
+        assertEquals("E02", state.getLastFaultCode());
+        assertEquals(base.plusMinutes(1), state.getLastFaultTime());
+        assertEquals(2, state.getLastFaultAlarmLevel());
+
+        List<PumpDeviceStateDTO> all = stateService.getAll();
+        assertEquals(2, all.size());
+        assertEquals("PUMP_002", all.get(1).getDeviceId());
+        assertNull(all.get(1).getLastFaultCode());
+        assertNull(stateService.get("PUMP_404"));
+    }
+
+    @Test
+    @DisplayName("较新的一批数据中较旧的非空值不覆盖已有的较晚非空值")
+    void testOlderNonNullValueDoesNotOverwriteNewer() {
+        stateService.apply(List.of(record("PUMP_001", base.plusMinutes(5), 1, 40.0, 52.0, null, null)));
+        // 本批最新时间更晚，但功率的非空值早于已有的功率
+        stateService.apply(List.of(record("PUMP_001", base, 1, 10.0, null, null, null),
+                record("PUMP_001", base.plusMinutes(10), 0, null, 48.0, null, null)));
+
+        PumpDeviceStateDTO state = stateService.get("PUMP_001");
+        assertEquals(base.plusMinutes(10), state.getLastTimestamp());
+        assertEquals(0, state.getPumpStatus());
+        assertEquals(40.0, state.getPowerKw());
+        assertEquals(48.0, state.getCurrentAmperage());
+    }
+
+    @Test
+    @DisplayName("相同时间戳的重复数据不改变状态，返回副本不影响镜像")
+    void testDuplicateTimestampIgnored() {
+        stateService.apply(List.of(record("PUMP_001", base, 1, 30.0, 52.0, null, null)));
+        stateService.apply(List.of(record("PUMP_001", base, 0, 99.0, 99.0, null, null)));
+
+        PumpDeviceStateDTO state = stateService.get("PUMP_001");
+        assertEquals(1, state.getPumpStatus());
+        assertEquals(30.0, state.getPowerKw());
+
+        state.setPowerKw(1.0);
+        assertEquals(30.0, stateService.get("PUMP_001").getPowerKw());
+    }
+
+    private PumpDataEntity record(String deviceId, LocalDateTime timestamp, Integer status, Double power,
+                                  Double current, String faultCode, Integer alarmLevel) {
+        PumpDataEntity record = new PumpDataEntity();
+        record.setDeviceId(deviceId);
+        record.setTimestamp(timestamp);
+        record.setPumpStatus(status);
+        record.setPowerKw(power);
+        record.setCurrentAmperage(current);
+        record.setFaultCode(faultCode);
+        record.setAlarmLevel(alarmLevel);
+        return record;
+    }
+}
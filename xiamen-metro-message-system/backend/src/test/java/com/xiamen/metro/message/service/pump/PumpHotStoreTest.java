@@ -0,0 +1,210 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+import com.xiamen.metro.message.repository.PumpDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 水泵近期数据热存储测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpHotStoreTest {
+
+    private PumpHotStore hotStore;
+    private LocalDateTime base;
+
+    /**
+     * 数据库中的 (设备, 时间戳)，按唯一键去重
+     */
+    private final Set<String> storedKeys = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        PumpDataRepository pumpDataRepository = mock(PumpDataRepository.class);
+        when(pumpDataRepository.aggregate(anyString(), any(), any())).thenAnswer(invocation -> {
+            String deviceId = invocation.getArgument(0);
+            LocalDateTime start = invocation.getArgument(1);
+            LocalDateTime end = invocation.getArgument(2);
+            long rows = storedKeys.stream()
+                    .filter(key -> key.startsWith(deviceId + "|"))
+                    .map(key -> LocalDateTime.parse(key.substring(deviceId.length() + 1)))
+                    .filter(time -> !time.isBefore(start) && !time.isAfter(end))
+                    .count();
+            PumpDataAggregate aggregate = new PumpDataAggregate();
+            aggregate.addCounts(rows, 0, 0, 0, 0);
+            return aggregate;
+        });
+        hotStore = new PumpHotStore(pumpDataRepository);
+        ReflectionTestUtils.setField(hotStore, "enabled", true);
+        ReflectionTestUtils.setField(hotStore, "initialRowsPerDevice", 4);
+        // 覆盖起点为首次写入时刻，测试数据使用其后的时间
+        base = LocalDateTime.now().plusMinutes(1).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("覆盖范围内命中并按时间升序返回，重复时间戳忽略，乱序数据按序插入")
+    void testReadWithinCoverage() {
+        List<PumpDataEntity> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(record("PUMP_001", base.plusSeconds(i * 2L), i));
+        }
+        ingest(records);
+        ingest(List.of(record("PUMP_001", base.plusSeconds(4), 99),
+                record("PUMP_001", base.plusSeconds(5), 55)));
+
+        PumpSeries series = hotStore.read("PUMP_001", base.plusSeconds(2), base.plusSeconds(8));
+
+        assertNotNull(series);
+        assertEquals(5, series.size());
+        assertEquals(base.plusSeconds(2), series.time(0));
+        assertEquals(base.plusSeconds(5), series.time(2));
+        assertEquals(55.0, series.value(PumpDataAggregate.Metric.POWER, 2));
+        // 已存在的时间戳保持首次写入的值
+        assertEquals(2.0, series.value(PumpDataAggregate.Metric.POWER, 1));
+        assertTrue(series.isNull(PumpDataAggregate.Metric.NOISE, 0));
+        assertEquals(1, series.pumpStatus(0));
+        assertEquals("E01", series.faultCode(1));
+        assertNull(series.faultCode(0));
+        assertFalse(series.hasAlarmLevel(0));
+
+        assertEquals(1L, hotStore.getStats().get("hits"));
+        assertEquals(11L, hotStore.getStats().get("appendedRows"));
+    }
+
+    @Test
+    @DisplayName("早于覆盖起点或未知设备未命中")
+    void testMissOutsideCoverage() {
+        ingest(List.of(record("PUMP_001", base, 1)));
+
+        assertNull(hotStore.read("PUMP_001", LocalDateTime.now().minusHours(1), base.plusMinutes(1)));
+        assertNull(hotStore.read("PUMP_404", base, base.plusMinutes(1)));
+        assertEquals(2L, hotStore.getStats().get("misses"));
+    }
+
+    @Test
+    @DisplayName("达到单设备上限后覆盖最旧数据并推后覆盖起点")
+    void testRingOverwritesOldest() {
+        ReflectionTestUtils.setField(hotStore, "maxRowsPerDevice", 8);
+        // 同一小时内的数据无法提前封存
+        base = base.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        List<PumpDataEntity> records = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            records.add(record("PUMP_001", base.plusSeconds(i), i));
+        }
+        ingest(records);
+
+        assertNull(hotStore.read("PUMP_001", base, base.plusSeconds(20)));
+        PumpSeries series = hotStore.read("PUMP_001", base.plusSeconds(4), base.plusSeconds(20));
+        assertNotNull(series);
+        assertEquals(8, series.size());
+        assertEquals(4.0, series.value(PumpDataAggregate.Metric.POWER, 0));
+        assertEquals(11.0, series.value(PumpDataAggregate.Metric.POWER, 7));
+    }
+
+    @Test
+    @DisplayName("缓冲写满时封存已结束的小时，迟到数据去重并与压缩块合并读取")
+    void testSealCompletedHours() {
+        ReflectionTestUtils.setField(hotStore, "maxRowsPerDevice", 8);
+        LocalDateTime hour = base.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        List<PumpDataEntity> records = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            records.add(record("PUMP_001", hour.plusMinutes(i * 15L), i));
+        }
+        ingest(records);
+        ingest(List.of(record("PUMP_001", hour.plusMinutes(15), 99),
+                record("PUMP_001", hour.plusMinutes(20), 2)));
+
+        PumpSeries series = hotStore.read("PUMP_001", hour, hour.plusHours(3));
+
+        assertNotNull(series);
+        assertEquals(13, series.size());
+        assertEquals(1.0, series.value(PumpDataAggregate.Metric.POWER, 1));
+        assertEquals(hour.plusMinutes(20), series.time(2));
+        assertEquals("E01", series.faultCode(2));
+        assertEquals(11.0, series.value(PumpDataAggregate.Metric.POWER, 12));
+        assertTrue((Long) hotStore.getStats().get("sealedRows") >= 4);
+
+        PumpSeries part = hotStore.read("PUMP_001", hour.plusMinutes(20), hour.plusMinutes(75));
+        assertEquals(5, part.size());
+        assertEquals(hour.plusMinutes(75), part.time(4));
+    }
+
+    @Test
+    @DisplayName("内存预算不足时淘汰最久未写入的设备")
+    void testMemoryBudgetEvictsLeastRecentlyWritten() throws InterruptedException {
+        ReflectionTestUtils.setField(hotStore, "initialRowsPerDevice", 6000);
+        ReflectionTestUtils.setField(hotStore, "maxRowsPerDevice", 6000);
+        ReflectionTestUtils.setField(hotStore, "memoryBudgetMb", 1L);
+
+        ingest(List.of(record("PUMP_001", base, 1)));
+        Thread.sleep(5);
+        ingest(List.of(record("PUMP_002", base, 2)));
+
+        assertNull(hotStore.read("PUMP_001", base, base));
+        assertNotNull(hotStore.read("PUMP_002", base, base));
+        assertEquals(1L, hotStore.getStats().get("evictedDevices"));
+        assertEquals((long) PumpSampleRing.ROW_BYTES * 6000, hotStore.getStats().get("allocatedBytes"));
+    }
+
+    @Test
+    @DisplayName("数据库中有其他实例入库的行时回退到数据库")
+    void testFallbackWhenDatabaseHasMoreRows() {
+        ingest(List.of(record("PUMP_001", base, 1), record("PUMP_001", base.plusSeconds(4), 3)));
+        assertNotNull(hotStore.read("PUMP_001", base, base.plusSeconds(4)));
+
+        // 其他实例入库的数据只在数据库中
+        storedKeys.add("PUMP_001|" + base.plusSeconds(2));
+
+        assertNull(hotStore.read("PUMP_001", base, base.plusSeconds(4)));
+        assertNotNull(hotStore.read("PUMP_001", base.plusSeconds(3), base.plusSeconds(4)));
+        assertEquals(1L, hotStore.getStats().get("incompleteReads"));
+    }
+
+    @Test
+    @DisplayName("默认关闭时不缓存也不命中")
+    void testDisabledByDefault() {
+        PumpHotStore disabled = new PumpHotStore(mock(PumpDataRepository.class));
+        disabled.append(List.of(record("PUMP_001", base, 1)));
+
+        assertNull(disabled.read("PUMP_001", base, base));
+        assertEquals(0L, disabled.getStats().get("appendedRows"));
+    }
+
+    /**
+     * 模拟入库：先写数据库再写热存储
+     */
+    private void ingest(List<PumpDataEntity> records) {
+        for (PumpDataEntity record : records) {
+            storedKeys.add(record.getDeviceId() + "|" + record.getTimestamp());
+        }
+        hotStore.append(records);
+    }
+
+    private PumpDataEntity record(String deviceId, LocalDateTime timestamp, double power) {
+        PumpDataEntity record = new PumpDataEntity();
+        record.setDeviceId(deviceId);
+        record.setTimestamp(timestamp);
+        record.setPumpStatus(1);
+        record.setPowerKw(power);
+        record.setFaultCode(power == 2 ? "E01" : null);
+        return record;
+    }
+}
@@ -0,0 +1,149 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.MessageDataDTO;
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 水泵数据入库流水线测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpIngestionPipelineTest {
+
+    private final PumpDataParsingService pumpDataParsingService = new PumpDataParsingService();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("报文经提取、校验后分批入库，进度计数准确")
+    void testPipeline_ExtractsValidatesAndPersists() {
+        List<PumpDataEntity> persisted = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> writeSizes = Collections.synchronizedList(new ArrayList<>());
+        List<PumpIngestionPipeline.Progress> reports = Collections.synchronizedList(new ArrayList<>());
+
+        PumpIngestionPipeline pipeline = new PumpIngestionPipeline(pumpDataParsingService,
+                records -> {
+                    writeSizes.add(records.size());
+                    persisted.addAll(records);
+                    return records.size();
+                },
+                reports::add, executor, 3, 2, 2, 64, 0);
+
+        int total = 2000;
+        int expectedPump = 0;
+        int expectedRejected = 0;
+        List<MessageDataDTO> batch = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            String content;
+            if (i % 7 == 0) {
+                content = "信号机状态正常";
+            } else if (i % 10 == 0) {
+                content = "水泵 电流:12.5A 振动:150mm/s";
+                expectedPump++;
+                expectedRejected++;
+            } else {
+                content = "水泵 电流:" + (i % 50) + ".5A 振动:2.1mm/s";
+                expectedPump++;
+            }
+            batch.add(message("PUMP_" + (i % 8), content));
+            if (batch.size() == 50) {
+                pipeline.onValid(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        pipeline.onValid(batch);
+
+        PumpIngestionPipeline.Progress progress = pipeline.finish();
+
+        assertEquals(total, progress.getProcessedRows());
+        assertEquals(expectedPump, progress.getPumpRecords());
+        assertEquals(expectedRejected, progress.getRejectedRecords());
+        assertEquals(expectedPump - expectedRejected, progress.getPersistedRecords());
+        assertEquals(expectedPump - expectedRejected, persisted.size());
+        assertTrue(persisted.stream().allMatch(p -> p.getVibrationMmS() == 2.1));
+        assertTrue(writeSizes.stream().allMatch(size -> size <= 64 + 50));
+        assertEquals(progress.getPersistedRecords(), reports.get(reports.size() - 1).getPersistedRecords());
+    }
+
+    @Test
+    @DisplayName("入库失败时上游停止并在finish抛出")
+    void testPipeline_WriterFailurePropagates() {
+        PumpIngestionPipeline pipeline = new PumpIngestionPipeline(pumpDataParsingService,
+                records -> {
+                    throw new IllegalStateException("db down");
+                },
+                progress -> {
+                }, executor, 1, 1, 1, 1, 0);
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> {
+            for (int i = 0; i < 1000; i++) {
+                pipeline.onValid(List.of(message("PUMP_1", "水泵 电流:10A")));
+            }
+            pipeline.finish();
+        });
+        assertTrue(error.getMessage().contains("db down"));
+        pipeline.abort();
+    }
+
+    @Test
+    @DisplayName("入库条数取写入方返回的实际新增条数")
+    void testPipeline_PersistedCountsWrittenRows() {
+        PumpIngestionPipeline pipeline = new PumpIngestionPipeline(pumpDataParsingService,
+                records -> 0,
+                progress -> {
+                }, executor, 1, 1, 1, 10, 0);
+
+        pipeline.onValid(List.of(message("PUMP_1", "水泵 电流:10A"), message("PUMP_2", "水泵 电流:11A")));
+        PumpIngestionPipeline.Progress progress = pipeline.finish();
+
+        assertEquals(2, progress.getPumpRecords());
+        assertEquals(0, progress.getPersistedRecords());
+    }
+
+    @Test
+    @DisplayName("finish与abort只回调一次结束通知")
+    void testPipeline_CloseListenerRunsOnce() {
+        AtomicInteger closed = new AtomicInteger();
+        PumpIngestionPipeline pipeline = new PumpIngestionPipeline(pumpDataParsingService,
+                records -> records.size(),
+                progress -> {
+                }, executor, 1, 1, 1, 1, 0, closed::incrementAndGet);
+
+        pipeline.onValid(List.of(message("PUMP_1", "水泵 电流:10A")));
+        pipeline.finish();
+        pipeline.abort();
+
+        assertEquals(1, closed.get());
+    }
+
+    private MessageDataDTO message(String deviceId, String content) {
+        MessageDataDTO message = new MessageDataDTO();
+        message.setDeviceId(deviceId);
+        message.setTimestamp("2024-01-01 10:00:00");
+        message.setMessageType("PUMP");
+        message.setMessageContent(content);
+        return message;
+    }
+}
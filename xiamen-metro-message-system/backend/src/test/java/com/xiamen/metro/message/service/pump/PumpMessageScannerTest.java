@@ -0,0 +1,121 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.MessageDataDTO;
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 水泵报文单遍扫描器测试，逐字段与原正则实现对照
+ *
+ * @author Xiamen Metro System
+ */
+class PumpMessageScannerTest {
+
+    private static final String[] TOKENS = {
+            "设备ID", "Device", "设备", "deviceId", "时间", "Time", "时间戳", "水泵状态", "运行状态", "Status", "启停",
+            "运行时间", "Runtime", "连续运行", "电流", "Current", "I", "电压", "Voltage", "U", "功率", "Power", "P",
+            "能耗", "能量", "Energy", "电度", "水压", "压力", "Pressure", "流量", "Flow", "Q", "水温", "温度",
+            "Temperature", "T", "振动", "Vibration", "Vib", "噪音", "噪声", "Noise", "N", "故障代码", "Fault",
+            "Error", "报警", "报警级别", "Alarm", "Level", "等级",
+            "启动", "停止", "运行", "关闭", "ON", "off", "on", "0", "1", "12", "3.5", "220.0", "1.", ".5", "007",
+            "A", "a", "安", "A安", "a安", "V", "伏", "v伏", "kW", "KW", "千瓦", "kWh", "度", "kPa", "千帕", "m³/h", "立方米/小时",
+            "°C", "摄氏度", "℃", "mm/s", "毫米/秒", "dB", "分贝", "分钟", "min", "minutes",
+            "2024-01-15 10:30:00", "2024-01-15  10:30", "PUMP_001", "E-101", "水泵", "pump", "Water Pump", "消防泵",
+            ":", "：", " ", "  ", "\t", ",", ";", "-", "_", "/", "数据", "正常", "x", "Z"
+    };
+
+    private final PumpMessageScanner scanner = PumpMessageScanner.getInstance();
+    private final RegexPumpFieldExtractor regex = new RegexPumpFieldExtractor();
+
+    @Test
+    @DisplayName("典型报文字段提取")
+    void testTypicalMessage() {
+        String content = "水泵设备ID:PUMP_001 时间：2024-01-15 10:30:00 运行状态:启动 电流:12.5A 电压 380V " +
+                "功率: 7.5kW 能耗:120.5kWh 水压:350kPa 流量:45.2m³/h 水温:25.5℃ 振动:2.1mm/s 噪音:65dB " +
+                "故障代码:E101 报警级别:2 运行时间:120分钟";
+
+        assertScanMatchesRegex(content);
+
+        PumpMessageScanner.ScanResult scan = scanner.scan(content);
+        assertTrue(scan.isPumpRelated());
+        assertEquals("PUMP_001", scan.get(PumpMessageScanner.Field.DEVICE_ID));
+        assertEquals("2024-01-15 10:30:00", scan.get(PumpMessageScanner.Field.TIMESTAMP));
+        assertNull(scan.get(PumpMessageScanner.Field.CURRENT_AMPERAGE));
+        assertEquals("45.2", scan.get(PumpMessageScanner.Field.FLOW_RATE_M3H));
+        assertEquals("E101", scan.get(PumpMessageScanner.Field.FAULT_CODE));
+        assertEquals("2", scan.get(PumpMessageScanner.Field.ALARM_LEVEL));
+    }
+
+    @Test
+    @DisplayName("标签重叠与回溯情形与正则一致")
+    void testOverlappingLabels() {
+        List<String> contents = List.of(
+                "时间戳: 2024-01-15 10:30:00",
+                "设备ID: ",
+                "deviceId: P1",
+                "报警级别:3 报警:E1",
+                "Input 12A Pipe T 30℃",
+                "电流: 1.5.3A 电流 2a",
+                "Power 12 kWh",
+                "STATUS:ONLINE",
+                "Temperature: 40 °c Vib 3 MM/S",
+                "Level 99999999999 Alarm 1"
+        );
+        contents.forEach(this::assertScanMatchesRegex);
+    }
+
+    @Test
+    @DisplayName("随机报文与正则结果一致")
+    void testRandomMessagesMatchRegex() {
+        Random random = new Random(20240115L);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int tokens = 1 + random.nextInt(24);
+            for (int j = 0; j < tokens; j++) {
+                builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            assertScanMatchesRegex(builder.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("解析服务输出水泵数据")
+    void testParsePumpData() {
+        MessageDataDTO message = new MessageDataDTO();
+        message.setDeviceId("PUMP_FALLBACK");
+        message.setTimestamp("2024-01-15 09:00:00");
+        message.setMessageContent("给水泵 状态:运行 电流:15A安 报警级别:2");
+
+        List<PumpDataEntity> result = new PumpDataParsingService().parsePumpData(message);
+
+        assertEquals(1, result.size());
+        PumpDataEntity pumpData = result.get(0);
+        assertEquals("PUMP_FALLBACK", pumpData.getDeviceId());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 9, 0), pumpData.getTimestamp());
+        assertEquals(15.0, pumpData.getCurrentAmperage());
+        assertEquals(2, pumpData.getAlarmLevel());
+        assertTrue(pumpData.getMaintenanceFlag());
+    }
+
+    private void assertScanMatchesRegex(String content) {
+        PumpMessageScanner.ScanResult scan = scanner.scan(content);
+        Map<PumpMessageScanner.Field, String> actual = new EnumMap<>(PumpMessageScanner.Field.class);
+        for (PumpMessageScanner.Field field : PumpMessageScanner.Field.values()) {
+            if (scan.get(field) != null) {
+                actual.put(field, scan.get(field));
+            }
+        }
+
+        assertEquals(regex.extract(content), actual, () -> "报文: " + content);
+        assertEquals(regex.isPumpRelated(content), scan.isPumpRelated(), () -> "报文: " + content);
+    }
+}
@@ -0,0 +1,172 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import com.xiamen.metro.message.repository.PumpDataAggregate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * 水泵数据列式存储测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpSeriesTest {
+
+    @Test
+    @DisplayName("按列读取：空值位图、非空值压缩与实体互转")
+    void testColumnsAndNulls() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 15, 8, 0);
+        List<PumpDataEntity> records = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            PumpDataEntity record = new PumpDataEntity();
+            record.setDeviceId("PUMP_001");
+            record.setTimestamp(base.plusSeconds(i));
+            record.setPumpStatus(i % 2);
+            record.setPowerKw(i % 3 == 0 ? null : i * 0.5);
+            record.setVibrationMmS(2.0);
+            record.setFaultCode(i == 10 ? "E01" : (i == 11 ? " " : null));
+            record.setAlarmLevel(i == 20 ? 3 : null);
+            record.setMaintenanceFlag(i == 30 ? true : null);
+            records.add(record);
+        }
+
+        PumpSeries series = PumpSeries.of("PUMP_001", records);
+
+        assertEquals(3000, series.size());
+        assertEquals(base.plusSeconds(5), series.time(5));
+        assertEquals(Timestamp.valueOf(base).getTime() + 5000, series.timestamp(5));
+        assertTrue(series.isNull(PumpDataAggregate.Metric.POWER, 0));
+        assertTrue(Double.isNaN(series.value(PumpDataAggregate.Metric.POWER, 3)));
+        assertEquals(0.5, series.value(PumpDataAggregate.Metric.POWER, 1));
+        assertEquals(2000, series.count(PumpDataAggregate.Metric.POWER));
+        assertEquals(0, series.count(PumpDataAggregate.Metric.NOISE));
+
+        double[] powers = series.values(PumpDataAggregate.Metric.POWER);
+        assertEquals(2000, powers.length);
+        assertEquals(0.5, powers[0]);
+        assertEquals(1.0, powers[1]);
+        assertEquals(3000, series.values(PumpDataAggregate.Metric.VIBRATION).length);
+
+        assertEquals(1, series.pumpStatus(1));
+        assertEquals("E01", series.faultCode(10));
+        assertNull(series.faultCode(11));
+        assertEquals(3, series.alarmLevel(20));
+        assertFalse(series.hasAlarmLevel(21));
+        assertTrue(series.isMaintenance(30));
+        assertFalse(series.isMaintenance(31));
+
+        List<PumpDataEntity> entities = series.toEntities();
+        assertEquals(records.get(4).getTimestamp(), entities.get(4).getTimestamp());
+        assertEquals(records.get(4).getPowerKw(), entities.get(4).getPowerKw());
+        assertNull(entities.get(3).getPowerKw());
+        assertNull(entities.get(3).getNoiseLevelDb());
+        assertEquals(Integer.valueOf(3), entities.get(20).getAlarmLevel());
+        assertNull(entities.get(0).getRawMessage());
+    }
+
+    @Test
+    @DisplayName("派生视图：非空列、正值列、排序副本与汇总统计只计算一次并与列表算法一致")
+    void testDerivedViews() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 15, 8, 0);
+        List<PumpDataEntity> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            PumpDataEntity record = new PumpDataEntity();
+            record.setDeviceId("PUMP_001");
+            record.setTimestamp(base.plusMinutes(50 - i));
+            record.setPumpStatus(i % 5 == 0 ? 1 : 0);
+            record.setPowerKw(i % 4 == 0 ? null : (i % 7 == 0 ? 0.0 : 40 + (i * 37 % 11)));
+            record.setFaultCode(i == 3 ? "C01" : null);
+            record.setAlarmLevel(i % 10 == 1 ? 2 : 1);
+            records.add(record);
+        }
+        PumpSeries series = PumpSeries.of(records);
+        assertEquals("PUMP_001", series.getDeviceId());
+
+        List<Double> nonNull = new ArrayList<>();
+        List<Double> positive = new ArrayList<>();
+        for (PumpDataEntity record : records) {
+            if (record.getPowerKw() != null) {
+                nonNull.add(record.getPowerKw());
+                if (record.getPowerKw() > 0) {
+                    positive.add(record.getPowerKw());
+                }
+            }
+        }
+
+        double[] column = series.column(PumpDataAggregate.Metric.POWER);
+        double[] positiveColumn = series.positiveColumn(PumpDataAggregate.Metric.POWER);
+        assertEquals(nonNull.size(), column.length);
+        assertEquals(positive.size(), positiveColumn.length);
+        assertEquals(positive.get(positive.size() - 1), positiveColumn[positiveColumn.length - 1]);
+        assertSame(column, series.column(PumpDataAggregate.Metric.POWER));
+        assertSame(positiveColumn, series.positiveColumn(PumpDataAggregate.Metric.POWER));
+        assertEquals(TimeSeriesAnalyzer.median(positive),
+                TimeSeriesAnalyzer.medianOfSorted(series.sortedPositiveColumn(PumpDataAggregate.Metric.POWER)));
+
+        PumpSeries.Summary summary = series.positiveSummary(PumpDataAggregate.Metric.POWER);
+        assertSame(summary, series.positiveSummary(PumpDataAggregate.Metric.POWER));
+        assertEquals(positive.size(), summary.getCount());
+        assertEquals(TimeSeriesAnalyzer.mean(positive), summary.getMean(), 1e-12);
+        assertEquals(TimeSeriesAnalyzer.standardDeviation(positive), summary.getStandardDeviation(), 1e-12);
+        assertEquals(positive.stream().mapToDouble(Double::doubleValue).sum(), summary.getTotal());
+        assertEquals(40.0, summary.getMin());
+        assertEquals(50.0, summary.getMax());
+        assertTrue(series.summary(PumpDataAggregate.Metric.NOISE).isEmpty());
+        assertTrue(Double.isNaN(series.summary(PumpDataAggregate.Metric.NOISE).getMax()));
+        assertEquals(TimeSeriesAnalyzer.analyzeTrend(nonNull).getSlope(),
+                TimeSeriesAnalyzer.analyzeTrend(column).getSlope(), 1e-12);
+
+        long[] starts = series.startEventTimestamps();
+        assertEquals(10, starts.length);
+        assertEquals(Timestamp.valueOf(base.plusMinutes(5)).getTime(), starts[0]);
+        assertEquals(List.of("C01"), series.faultCodes());
+        assertEquals(5, series.alarmCount());
+        assertFalse(series.hasMaintenance());
+    }
+
+    @Test
+    @DisplayName("结果集逐行解码：wasNull 对应的列记为空值")
+    void testReadRow() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2024, 1, 15, 8, 0);
+        int metrics = PumpDataAggregate.Metric.values().length;
+        int powerColumn = 3 + PumpDataAggregate.Metric.POWER.ordinal();
+
+        ResultSet resultSet = mock(ResultSet.class);
+        final int[] lastColumn = new int[1];
+        when(resultSet.getTimestamp(1)).thenReturn(Timestamp.valueOf(time));
+        when(resultSet.getInt(anyInt())).thenAnswer(invocation -> {
+            lastColumn[0] = invocation.getArgument(0);
+            return lastColumn[0] == 2 ? 1 : 0;
+        });
+        when(resultSet.getDouble(anyInt())).thenAnswer(invocation -> {
+            lastColumn[0] = invocation.getArgument(0);
+            return lastColumn[0] == powerColumn ? 45.5 : 0.0;
+        });
+        when(resultSet.getString(3 + metrics)).thenReturn("E02");
+        when(resultSet.getBoolean(5 + metrics)).thenReturn(true);
+        when(resultSet.wasNull()).thenAnswer(invocation -> lastColumn[0] != 2 && lastColumn[0] != powerColumn);
+
+        PumpSeries.Builder builder = PumpSeries.builder("PUMP_002");
+        PumpSeriesReader.readRow(resultSet, builder);
+        PumpSeries series = builder.build();
+
+        assertEquals(1, series.size());
+        assertEquals(time, series.time(0));
+        assertEquals(1, series.pumpStatus(0));
+        assertEquals(45.5, series.value(PumpDataAggregate.Metric.POWER, 0));
+        assertTrue(series.isNull(PumpDataAggregate.Metric.VIBRATION, 0));
+        assertEquals("E02", series.faultCode(0));
+        assertFalse(series.hasAlarmLevel(0));
+        assertTrue(series.isMaintenance(0));
+    }
+}
@@ -0,0 +1,109 @@
+package com.xiamen.metro.message.service.pump;
+
+import com.xiamen.metro.message.dto.pump.PumpAnalysisResponseDTO;
+import com.xiamen.metro.message.entity.PumpDataEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 水泵数据单遍统计测试
+ *
+ * @author Xiamen Metro System
+ */
+class PumpStreamingStatsTest {
+
+    private static final double TOLERANCE = 1e-6;
+
+    private final PumpAnomalyDetectionService anomalyDetectionService = new PumpAnomalyDetectionService();
+
+    @Test
+    @DisplayName("分块单遍统计与完整列表计算结果一致")
+    void testStreamingMatchesFullList() {
+        List<PumpDataEntity> records = generateData(5000, 5000);
+
+        PumpStreamingStats stats = stream(records, 37);
+
+        assertEquals(records.size(), stats.getRowCount());
+        assertEquals(records.get(0).getTimestamp(), stats.getFirstTime());
+        assertEquals(records.get(records.size() - 1).getTimestamp(), stats.getLastTime());
+
+        assertSameResult(anomalyDetectionService.detectStartupFrequencyAnomaly(records, null),
+                anomalyDetectionService.detectStartupFrequencyAnomaly(stats, null));
+        assertSameResult(anomalyDetectionService.detectRuntimeAnomaly(records, null),
+                anomalyDetectionService.detectRuntimeAnomaly(stats, null));
+        assertSameResult(anomalyDetectionService.analyzeEnergyTrend(records, null),
+                anomalyDetectionService.analyzeEnergyTrend(stats, null));
+    }
+
+    @Test
+    @DisplayName("能耗样本少于15个时平滑窗口按 n/3 计算")
+    void testSmallEnergySample() {
+        for (int energySamples = 0; energySamples <= 16; energySamples++) {
+            List<PumpDataEntity> records = generateData(40, energySamples);
+            PumpStreamingStats stats = stream(records, 4);
+
+            assertSameResult(anomalyDetectionService.analyzeEnergyTrend(records, null),
+                    anomalyDetectionService.analyzeEnergyTrend(stats, null));
+        }
+    }
+
+    private PumpStreamingStats stream(List<PumpDataEntity> records, int chunkSize) {
+        PumpStreamingStats stats = new PumpStreamingStats();
+        for (int from = 0; from < records.size(); from += chunkSize) {
+            List<PumpDataEntity> chunk = records.subList(from, Math.min(records.size(), from + chunkSize));
+            stats.accept(PumpSeries.of("PUMP_001", chunk));
+        }
+        return stats;
+    }
+
+    private List<PumpDataEntity> generateData(int size, int energySamples) {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<PumpDataEntity> records = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            PumpDataEntity record = new PumpDataEntity();
+            record.setDeviceId("PUMP_001");
+            record.setTimestamp(base.plusMinutes(i * 5L));
+            record.setPumpStatus(i % 7 == 0 ? null : Integer.valueOf(random.nextInt(4) == 0 ? 1 : 0));
+            record.setRuntimeMinutes(i % 3 == 0 ? null : 400 + i * 0.02 + random.nextGaussian() * 30);
+            record.setEnergyConsumptionKwh(i < energySamples ? 20 + i * 0.01 + random.nextDouble() * 5 : null);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private void assertSameResult(PumpAnalysisResponseDTO.AnalysisResult expected,
+                                  PumpAnalysisResponseDTO.AnalysisResult actual) {
+        assertEquals(expected.getAnalysisType(), actual.getAnalysisType());
+        assertEquals(expected.getSeverityLevel(), actual.getSeverityLevel());
+        assertEquals(expected.getConfidence(), actual.getConfidence(), TOLERANCE);
+        assertEquals(expected.getTrendDirection(), actual.getTrendDirection());
+        assertEquals(expected.getRecommendations(), actual.getRecommendations());
+        assertNullableEquals(expected.getDetectedValue(), actual.getDetectedValue());
+        assertNullableEquals(expected.getDeviationPercentage(), actual.getDeviationPercentage());
+        assertEquals(expected.getDetailedMetrics().keySet(), actual.getDetailedMetrics().keySet());
+        expected.getDetailedMetrics().forEach((key, value) -> {
+            Object other = actual.getDetailedMetrics().get(key);
+            if (value instanceof Double) {
+                assertEquals((Double) value, ((Number) other).doubleValue(), TOLERANCE * Math.max(1, Math.abs((Double) value)), key);
+            } else {
+                assertEquals(value, other, key);
+            }
+        });
+    }
+
+    private void assertNullableEquals(Double expected, Double actual) {
+        if (expected == null) {
+            assertNull(actual);
+        } else {
+            assertEquals(expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.xiamen.metro.message.service.pump;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 逐字段正则提取(原解析实现)，作为单遍扫描器的对照基准
+ *
+ * @author Xiamen Metro System
+ */
+public class RegexPumpFieldExtractor {
+
+    private static final Map<PumpMessageScanner.Field, Pattern> PUMP_PATTERNS = new EnumMap<>(PumpMessageScanner.Field.class);
+
+    static {
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.DEVICE_ID, Pattern.compile("(?:设备ID|Device|设备)[:：]?\\s*([A-Za-z0-9_\\-]+)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.TIMESTAMP, Pattern.compile("(?:时间|Time|时间戳)[:：]?\\s*(\\d{4}-\\d{2}-\\d{2}\\s+\\d{2}:\\d{2}:\\d{2})", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.PUMP_STATUS, Pattern.compile("(?:水泵状态|运行状态|Status|启停)[:：]?\\s*(启动|停止|运行|关闭|0|1|ON|OFF)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.RUNTIME_MINUTES, Pattern.compile("(?:运行时间|Runtime|连续运行)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:分钟|min|minutes?)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.CURRENT_AMPERAGE, Pattern.compile("(?:电流|Current|I)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*([Aa]安)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.VOLTAGE, Pattern.compile("(?:电压|Voltage|U)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*([Vv]伏)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.POWER_KW, Pattern.compile("(?:功率|Power|P)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:kW|千瓦)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.ENERGY_CONSUMPTION_KWH, Pattern.compile("(?:能耗|能量|Energy|电度)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:kWh|度)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.WATER_PRESSURE_KPA, Pattern.compile("(?:水压|压力|Pressure)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:kPa|千帕)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.FLOW_RATE_M3H, Pattern.compile("(?:流量|Flow|Q)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:m³/h|立方米/小时)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.WATER_TEMPERATURE_CELSIUS, Pattern.compile("(?:水温|温度|Temperature|T)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:°C|摄氏度|℃)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.VIBRATION_MM_S, Pattern.compile("(?:振动|Vibration|Vib)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:mm/s|毫米/秒)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.NOISE_LEVEL_DB, Pattern.compile("(?:噪音|噪声|Noise|N)[:：]?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:dB|分贝)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.FAULT_CODE, Pattern.compile("(?:故障代码|Fault|Error|报警)[:：]?\\s*([A-Za-z0-9_\\-]+)", Pattern.CASE_INSENSITIVE));
+        PUMP_PATTERNS.put(PumpMessageScanner.Field.ALARM_LEVEL, Pattern.compile("(?:报警级别|Alarm|Level|等级)[:：]?\\s*(\\d+)", Pattern.CASE_INSENSITIVE));
+    }
+
+    /**
+     * 提取全部字段，未匹配的字段不放入结果
+     */
+    public Map<PumpMessageScanner.Field, String> extract(String content) {
+        Map<PumpMessageScanner.Field, String> values = new EnumMap<>(PumpMessageScanner.Field.class);
+        for (Map.Entry<PumpMessageScanner.Field, Pattern> entry : PUMP_PATTERNS.entrySet()) {
+            Matcher matcher = entry.getValue().matcher(content);
+            if (matcher.find()) {
+                values.put(entry.getKey(), matcher.group(1).trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 原水泵关键字判断
+     */
+    public boolean isPumpRelated(String content) {
+        String lowerContent = content.toLowerCase();
+        return lowerContent.contains("pump") || lowerContent.contains("水泵") ||
+               lowerContent.contains("water pump") || lowerContent.contains("给水泵") ||
+               lowerContent.contains("排水泵") || lowerContent.contains("消防泵");
+    }
+}
@@ -0,0 +1,115 @@
+package com.xiamen.metro.message.service.pump;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * SIMD 统计内核测试：与标量参考实现比对，覆盖不足一段的尾部、空值和退化输入
+ * <p>
+ * 需要以 --add-modules jdk.incubator.vector 运行(pom 已配置)，模块不可用时跳过
+ *
+ * @author Xiamen Metro System
+ */
+class StatisticsKernelTest {
+
+    private static final int[] SIZES = {0, 1, 3, 7, 8, 1023, 1024, 1025, 4099, 100003};
+
+    private final StatisticsKernel scalar = StatisticsKernels.scalar();
+    private StatisticsKernel vector;
+
+    @BeforeEach
+    void setUp() {
+        vector = StatisticsKernels.loadVector();
+        assumeTrue(vector != null, "jdk.incubator.vector 不可用");
+    }
+
+    @Test
+    @DisplayName("均值、方差、最值与标量实现一致，空值被跳过")
+    void testMoments() {
+        for (int size : SIZES) {
+            double[] data = generate(size, size, 1e6);
+            for (int i = 5; i < size; i += 97) {
+                data[i] = Double.NaN;
+            }
+            String message = "size " + size;
+
+            assertClose(scalar.mean(data, 0, size), vector.mean(data, 0, size), message);
+            if (size > 10) {
+                assertClose(scalar.mean(data, 3, size - 5), vector.mean(data, 3, size - 5), message);
+            }
+            assertClose(scalar.variance(data), vector.variance(data), message);
+            assertEquals(scalar.min(data), vector.min(data), message);
+            assertEquals(scalar.max(data), vector.max(data), message);
+        }
+
+        double[] empty = {Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+        assertEquals(0.0, vector.mean(empty, 0, empty.length));
+        assertEquals(0.0, vector.variance(empty));
+        assertTrue(Double.isNaN(vector.min(empty)));
+        assertTrue(Double.isNaN(vector.max(empty)));
+        assertEquals(-3.0, vector.min(new double[]{5, Double.NaN, 1, 2, 9, -3, 4, 4, Double.NaN}));
+    }
+
+    @Test
+    @DisplayName("相关系数与线性回归与标量实现一致")
+    void testCorrelationAndRegression() {
+        for (int size : SIZES) {
+            double[] x = generate(size, 31L * size, 50);
+            double[] y = new double[size];
+            Random random = new Random(size);
+            for (int i = 0; i < size; i++) {
+                y[i] = 0.8 * x[i] + random.nextGaussian() * 3;
+            }
+            String message = "size " + size;
+
+            assertClose(scalar.correlation(x, y), vector.correlation(x, y), message);
+
+            TimeSeriesAnalyzer.LinearRegressionResult expected = scalar.linearRegression(x, 0, size);
+            TimeSeriesAnalyzer.LinearRegressionResult actual = vector.linearRegression(x, 0, size);
+            assertClose(expected.getSlope(), actual.getSlope(), message);
+            assertClose(expected.getIntercept(), actual.getIntercept(), message);
+            assertClose(expected.getRSquared(), actual.getRSquared(), message);
+            if (size > 20) {
+                TimeSeriesAnalyzer.LinearRegressionResult window = vector.linearRegression(x, 7, size - 3);
+                assertClose(scalar.linearRegression(x, 7, size - 3).getSlope(), window.getSlope(), message);
+            }
+        }
+
+        assertEquals(0.0, vector.correlation(new double[]{1, 2, 3}, new double[]{1, 2}));
+        assertEquals(0.0, vector.correlation(new double[]{4, 4, 4, 4, 4}, new double[]{1, 2, 3, 4, 5}));
+        assertEquals(1.0, vector.correlation(new double[]{1, 2, 3, 4, 5}, new double[]{2, 4, 6, 8, 10}), 1e-12);
+        double[] line = new double[37];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = 2.5 * i - 4;
+        }
+        TimeSeriesAnalyzer.LinearRegressionResult fit = vector.linearRegression(line, 0, line.length);
+        assertEquals(2.5, fit.getSlope(), 1e-12);
+        assertEquals(-4.0, fit.getIntercept(), 1e-9);
+        assertEquals(1.0, fit.getRSquared(), 1e-12);
+    }
+
+    /**
+     * 求和顺序不同，按相对误差比较
+     */
+    private void assertClose(double expected, double actual, String message) {
+        assertEquals(expected, actual, 1e-9 * Math.max(1.0, Math.abs(expected)), message);
+    }
+
+    private double[] generate(int size, long seed, double level) {
+        Random random = new Random(seed);
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(300) == 0) {
+                level += random.nextGaussian() * 5;
+            }
+            data[i] = level + random.nextGaussian() + 0.001 * i;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,177 @@
+package com.xiamen.metro.message.service.pump;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间序列分析 O(n) 内核测试：与逐窗口重算、排序等直接算法的结果比对
+ *
+ * @author Xiamen Metro System
+ */
+class TimeSeriesAnalyzerTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    @DisplayName("滑动窗口移动平均与逐窗口求平均一致，空值跳过、全空窗口为 null")
+    void testMovingAverage() {
+        double[] data = generate(2000, 3);
+        data[10] = Double.NaN;
+        data[11] = Double.NaN;
+        data[12] = Double.NaN;
+        int window = 3;
+
+        double[] averages = TimeSeriesAnalyzer.movingAverage(data, window);
+        for (int i = 0; i < data.length; i++) {
+            double sum = 0;
+            int count = 0;
+            for (int j = Math.max(0, i - window + 1); j <= i; j++) {
+                if (!Double.isNaN(data[j])) {
+                    sum += data[j];
+                    count++;
+                }
+            }
+            if (count == 0) {
+                assertTrue(Double.isNaN(averages[i]), "index " + i);
+            } else {
+                assertEquals(sum / count, averages[i], TOLERANCE, "index " + i);
+            }
+        }
+
+        List<Double> listAverages = TimeSeriesAnalyzer.movingAverage(toList(data), window);
+        assertEquals(data.length, listAverages.size());
+        assertNull(listAverages.get(12));
+        assertEquals(averages[100], listAverages.get(100));
+    }
+
+    @Test
+    @DisplayName("分块合并的方差与两遍算法一致，大偏移量下不损失精度")
+    void testVariance() {
+        double[] data = generate(10000, 0);
+        for (int i = 0; i < data.length; i++) {
+            data[i] += 1e6;
+        }
+        double mean = Arrays.stream(data).average().orElse(0);
+        double squares = 0;
+        for (double value : data) {
+            squares += (value - mean) * (value - mean);
+        }
+
+        assertEquals(mean, TimeSeriesAnalyzer.mean(data), 1e-6);
+        assertEquals(squares / (data.length - 1), TimeSeriesAnalyzer.variance(data), 1e-6);
+        assertEquals(Math.sqrt(squares / (data.length - 1)), TimeSeriesAnalyzer.standardDeviation(data), 1e-6);
+        assertEquals(0.0, TimeSeriesAnalyzer.standardDeviation(new double[]{5.0}));
+        assertEquals(0.0, TimeSeriesAnalyzer.standardDeviation(Arrays.asList(null, 5.0, null)));
+    }
+
+    @Test
+    @DisplayName("快速选择求中位数和百分位数与排序后取值一致，含大量重复值")
+    void testPercentiles() {
+        Random random = new Random(5);
+        for (int size : new int[]{1, 2, 7, 16, 17, 1000, 1001}) {
+            double[] data = new double[size];
+            for (int i = 0; i < size; i++) {
+                data[i] = random.nextInt(size < 20 ? 100 : 20);
+            }
+            double[] original = data.clone();
+            double[] sorted = data.clone();
+            Arrays.sort(sorted);
+
+            assertEquals(TimeSeriesAnalyzer.medianOfSorted(sorted), TimeSeriesAnalyzer.median(data), "size " + size);
+            for (double p : new double[]{0, 10, 25, 50, 75, 90, 99.9, 100}) {
+                assertEquals(TimeSeriesAnalyzer.percentileOfSorted(sorted, p),
+                        TimeSeriesAnalyzer.percentile(data, p), TOLERANCE, "size " + size + ", p " + p);
+            }
+            assertArrayEquals(original, data);
+        }
+
+        assertEquals(0.0, TimeSeriesAnalyzer.median(new double[0]));
+        assertEquals(11.0, TimeSeriesAnalyzer.median(Arrays.asList(10.0, null, 12.0, 11.0)));
+    }
+
+    @Test
+    @DisplayName("异常值与突变点检测与逐点重算的结果一致")
+    void testOutliersAndChangePoints() {
+        double[] data = generate(3000, 7);
+        data[500] = 80;
+        data[1500] = -40;
+        data[2000] = Double.NaN;
+
+        double[] clean = Arrays.stream(data).filter(value -> !Double.isNaN(value)).sorted().toArray();
+        double q1 = TimeSeriesAnalyzer.percentileOfSorted(clean, 25);
+        double q3 = TimeSeriesAnalyzer.percentileOfSorted(clean, 75);
+        List<Integer> expectedOutliers = new ArrayList<>();
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] < q1 - 1.5 * (q3 - q1) || data[i] > q3 + 1.5 * (q3 - q1)) {
+                expectedOutliers.add(i);
+            }
+        }
+        List<Integer> outliers = TimeSeriesAnalyzer.detectOutliers(toList(data));
+        assertEquals(expectedOutliers, outliers);
+        assertTrue(outliers.contains(500));
+        assertTrue(outliers.contains(1500));
+
+        for (double threshold : new double[]{0.5, 1.0, 2.0}) {
+            List<Integer> changePoints = TimeSeriesAnalyzer.detectChangePoints(toList(data), threshold);
+            assertEquals(naiveChangePoints(data, threshold), changePoints, "threshold " + threshold);
+        }
+        assertTrue(TimeSeriesAnalyzer.detectChangePoints(toList(data), 1.0).contains(500));
+    }
+
+    /**
+     * 逐点截取窗口、两遍算法求标准差
+     */
+    private List<Integer> naiveChangePoints(double[] data, double threshold) {
+        List<Integer> changePoints = new ArrayList<>();
+        for (int i = 1; i < data.length - 1; i++) {
+            if (Double.isNaN(data[i]) || Double.isNaN(data[i - 1]) || Double.isNaN(data[i + 1])) {
+                continue;
+            }
+            double avgDiff = (Math.abs(data[i] - data[i - 1]) + Math.abs(data[i + 1] - data[i])) / 2;
+            int windowSize = Math.min(5, i);
+            List<Double> window = new ArrayList<>();
+            for (int j = i - windowSize; j <= Math.min(data.length - 1, i + windowSize); j++) {
+                if (!Double.isNaN(data[j])) {
+                    window.add(data[j]);
+                }
+            }
+            if (window.size() > 2) {
+                double mean = window.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+                double squares = window.stream().mapToDouble(value -> (value - mean) * (value - mean)).sum();
+                double localStd = Math.sqrt(squares / (window.size() - 1));
+                if (localStd > 0 && avgDiff / localStd > threshold) {
+                    changePoints.add(i);
+                }
+            }
+        }
+        return changePoints;
+    }
+
+    private double[] generate(int size, long seed) {
+        Random random = new Random(seed);
+        double[] data = new double[size];
+        double level = 30;
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(200) == 0) {
+                level += random.nextGaussian() * 5;
+            }
+            data[i] = level + random.nextGaussian();
+        }
+        return data;
+    }
+
+    private List<Double> toList(double[] data) {
+        List<Double> result = new ArrayList<>(data.length);
+        for (double value : data) {
+            result.add(Double.isNaN(value) ? null : value);
+        }
+        return result;
+    }
+}
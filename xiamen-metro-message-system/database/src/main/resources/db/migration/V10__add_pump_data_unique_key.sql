@@ -0,0 +1,14 @@
+-- 水泵数据按 (device_id, timestamp) 去重，供批量导入 ON CONFLICT DO NOTHING 使用
+
+-- 清理历史重复数据，保留最早写入的一条
+DELETE FROM pump_data a
+USING pump_data b
+WHERE a.device_id = b.device_id
+  AND a.timestamp = b.timestamp
+  AND a.id > b.id;
+
+-- 唯一索引替代原普通索引
+CREATE UNIQUE INDEX IF NOT EXISTS uk_pump_device_timestamp ON pump_data(device_id, timestamp);
+DROP INDEX IF EXISTS idx_pump_device_timestamp;
+
+COMMENT ON INDEX uk_pump_device_timestamp IS '设备+时间唯一，重复导入时忽略已存在记录';
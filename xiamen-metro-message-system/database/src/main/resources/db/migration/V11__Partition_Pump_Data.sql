@@ -0,0 +1,128 @@
+-- 水泵数据表改为按时间范围分区
+-- 历史数据按月建分区迁入；之后的分区由应用按配置(月/日)提前创建，过期数据整分区删除
+
+-- 原表改名，主键索引与序列让出给新表
+ALTER TABLE pump_data RENAME TO pump_data_legacy;
+ALTER INDEX pump_data_pkey RENAME TO pump_data_legacy_pkey;
+ALTER SEQUENCE pump_data_id_seq OWNED BY NONE;
+
+-- 创建分区表，分区键必须包含在主键与唯一索引中
+CREATE TABLE pump_data (
+    id BIGINT NOT NULL DEFAULT nextval('pump_data_id_seq'),
+    device_id VARCHAR(100) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    pump_status INTEGER,
+    runtime_minutes DOUBLE PRECISION,
+    current_amperage DOUBLE PRECISION,
+    voltage DOUBLE PRECISION,
+    power_kw DOUBLE PRECISION,
+    energy_consumption_kwh DOUBLE PRECISION,
+    water_pressure_kpa DOUBLE PRECISION,
+    flow_rate_m3h DOUBLE PRECISION,
+    water_temperature_celsius DOUBLE PRECISION,
+    vibration_mm_s DOUBLE PRECISION,
+    noise_level_db DOUBLE PRECISION,
+    fault_code VARCHAR(50),
+    alarm_level INTEGER,
+    maintenance_flag BOOLEAN,
+    raw_message TEXT,
+    data_source VARCHAR(50),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pump_data_pkey PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- 默认分区：接收尚无对应分区的数据(如时间异常的报文)，避免写入失败
+CREATE TABLE pump_data_default PARTITION OF pump_data DEFAULT;
+
+-- 创建分区；默认分区中已有该范围的数据时先移出再迁回，范围与已有分区重叠时跳过
+CREATE OR REPLACE FUNCTION ensure_pump_data_partition(p_name TEXT, p_from TIMESTAMP, p_to TIMESTAMP)
+RETURNS BOOLEAN AS $$
+BEGIN
+    IF to_regclass(p_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    CREATE TEMP TABLE pump_data_partition_move ON COMMIT DROP AS
+        SELECT * FROM pump_data_default WHERE timestamp >= p_from AND timestamp < p_to;
+    DELETE FROM pump_data_default WHERE timestamp >= p_from AND timestamp < p_to;
+
+    EXECUTE format('CREATE TABLE %I PARTITION OF pump_data FOR VALUES FROM (%L) TO (%L)', p_name, p_from, p_to);
+
+    INSERT INTO pump_data SELECT * FROM pump_data_partition_move;
+    DROP TABLE pump_data_partition_move;
+    RETURN TRUE;
+EXCEPTION
+    WHEN invalid_object_definition THEN
+        RAISE NOTICE '分区 % 与已有分区范围重叠，跳过', p_name;
+        RETURN FALSE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 为历史数据及未来3个月建立月分区
+DO $$
+DECLARE
+    v_month TIMESTAMP;
+    v_last TIMESTAMP := date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months';
+BEGIN
+    SELECT date_trunc('month', MIN(timestamp)) INTO v_month FROM pump_data_legacy;
+    IF v_month IS NULL OR v_month > date_trunc('month', CURRENT_TIMESTAMP) THEN
+        v_month := date_trunc('month', CURRENT_TIMESTAMP);
+    END IF;
+    WHILE v_month <= v_last LOOP
+        PERFORM ensure_pump_data_partition('pump_data_p' || to_char(v_month, 'YYYYMM'),
+                                           v_month, v_month + INTERVAL '1 month');
+        v_month := v_month + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+-- 迁移历史数据
+INSERT INTO pump_data (id, device_id, timestamp, pump_status, runtime_minutes, current_amperage, voltage,
+                       power_kw, energy_consumption_kwh, water_pressure_kpa, flow_rate_m3h,
+                       water_temperature_celsius, vibration_mm_s, noise_level_db, fault_code, alarm_level,
+                       maintenance_flag, raw_message, data_source, created_at, updated_at)
+SELECT id, device_id, timestamp, pump_status, runtime_minutes, current_amperage, voltage,
+       power_kw, energy_consumption_kwh, water_pressure_kpa, flow_rate_m3h,
+       water_temperature_celsius, vibration_mm_s, noise_level_db, fault_code, alarm_level,
+       maintenance_flag, raw_message, data_source, created_at, updated_at
+FROM pump_data_legacy;
+
+DROP TABLE pump_data_legacy;
+ALTER SEQUENCE pump_data_id_seq OWNED BY pump_data.id;
+
+-- 在分区表上创建索引，自动应用到全部分区
+CREATE UNIQUE INDEX uk_pump_device_timestamp ON pump_data(device_id, timestamp);
+CREATE INDEX idx_pump_timestamp ON pump_data(timestamp);
+CREATE INDEX idx_pump_device ON pump_data(device_id);
+CREATE INDEX idx_pump_fault_code ON pump_data(fault_code) WHERE fault_code IS NOT NULL;
+CREATE INDEX idx_pump_alarm_level ON pump_data(alarm_level) WHERE alarm_level > 1;
+CREATE INDEX idx_pump_maintenance_flag ON pump_data(maintenance_flag) WHERE maintenance_flag = true;
+
+CREATE TRIGGER update_pump_data_updated_at
+    BEFORE UPDATE ON pump_data
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+-- 添加表注释
+COMMENT ON TABLE pump_data IS '水泵运行数据表(按时间范围分区)';
+COMMENT ON TABLE pump_data_default IS '水泵数据默认分区，接收无对应分区的数据';
+COMMENT ON FUNCTION ensure_pump_data_partition(TEXT, TIMESTAMP, TIMESTAMP) IS '创建水泵数据分区，已存在或范围重叠时返回false';
+COMMENT ON INDEX uk_pump_device_timestamp IS '设备+时间唯一，重复导入时忽略已存在记录';
+
+-- 添加列注释
+COMMENT ON COLUMN pump_data.device_id IS '设备ID';
+COMMENT ON COLUMN pump_data.timestamp IS '数据时间戳(分区键)';
+COMMENT ON COLUMN pump_data.pump_status IS '水泵状态 (1-启动, 0-停止)';
+COMMENT ON COLUMN pump_data.runtime_minutes IS '运行时间（分钟）';
+COMMENT ON COLUMN pump_data.current_amperage IS '电流值（A）';
+COMMENT ON COLUMN pump_data.voltage IS '电压值（V）';
+COMMENT ON COLUMN pump_data.power_kw IS '功率（kW）';
+COMMENT ON COLUMN pump_data.energy_consumption_kwh IS '能耗（kWh）';
+COMMENT ON COLUMN pump_data.water_pressure_kpa IS '水压（kPa）';
+COMMENT ON COLUMN pump_data.flow_rate_m3h IS '流量（m³/h）';
+COMMENT ON COLUMN pump_data.water_temperature_celsius IS '水温（°C）';
+COMMENT ON COLUMN pump_data.vibration_mm_s IS '振动值（mm/s）';
+COMMENT ON COLUMN pump_data.noise_level_db IS '噪音水平（dB）';
+COMMENT ON COLUMN pump_data.fault_code IS '故障代码';
+COMMENT ON COLUMN pump_data.alarm_level IS '报警级别 (0-正常, 1-预警, 2-报警, 3-严重)';
+COMMENT ON COLUMN pump_data.maintenance_flag IS '维护标志';
+COMMENT ON COLUMN pump_data.raw_message IS '原始报文内容';
@@ -0,0 +1,149 @@
+-- 水泵数据汇总表：每设备每分钟/小时/天一行，保存各数值字段的计数、求和、最小、最大、平方和
+-- 以及正值计数/求和(性能评估只统计正值)。pump_data 每条插入语句通过语句级触发器的
+-- 转换表增量合并到三张汇总表，ON CONFLICT DO NOTHING 跳过的行不会计入
+
+-- 分钟级汇总
+CREATE TABLE pump_data_rollup_1m (
+    device_id VARCHAR(100) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    row_count BIGINT NOT NULL DEFAULT 0,
+    start_count BIGINT NOT NULL DEFAULT 0,
+    fault_count BIGINT NOT NULL DEFAULT 0,
+    alarm_count BIGINT NOT NULL DEFAULT 0,
+    maintenance_count BIGINT NOT NULL DEFAULT 0,
+    runtime_cnt BIGINT NOT NULL DEFAULT 0, runtime_sum DOUBLE PRECISION NOT NULL DEFAULT 0, runtime_min DOUBLE PRECISION, runtime_max DOUBLE PRECISION,
+    runtime_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, runtime_pos_cnt BIGINT NOT NULL DEFAULT 0, runtime_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    current_cnt BIGINT NOT NULL DEFAULT 0, current_sum DOUBLE PRECISION NOT NULL DEFAULT 0, current_min DOUBLE PRECISION, current_max DOUBLE PRECISION,
+    current_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, current_pos_cnt BIGINT NOT NULL DEFAULT 0, current_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    voltage_cnt BIGINT NOT NULL DEFAULT 0, voltage_sum DOUBLE PRECISION NOT NULL DEFAULT 0, voltage_min DOUBLE PRECISION, voltage_max DOUBLE PRECISION,
+    voltage_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, voltage_pos_cnt BIGINT NOT NULL DEFAULT 0, voltage_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    power_cnt BIGINT NOT NULL DEFAULT 0, power_sum DOUBLE PRECISION NOT NULL DEFAULT 0, power_min DOUBLE PRECISION, power_max DOUBLE PRECISION,
+    power_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, power_pos_cnt BIGINT NOT NULL DEFAULT 0, power_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    energy_cnt BIGINT NOT NULL DEFAULT 0, energy_sum DOUBLE PRECISION NOT NULL DEFAULT 0, energy_min DOUBLE PRECISION, energy_max DOUBLE PRECISION,
+    energy_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, energy_pos_cnt BIGINT NOT NULL DEFAULT 0, energy_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    pressure_cnt BIGINT NOT NULL DEFAULT 0, pressure_sum DOUBLE PRECISION NOT NULL DEFAULT 0, pressure_min DOUBLE PRECISION, pressure_max DOUBLE PRECISION,
+    pressure_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, pressure_pos_cnt BIGINT NOT NULL DEFAULT 0, pressure_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    flow_cnt BIGINT NOT NULL DEFAULT 0, flow_sum DOUBLE PRECISION NOT NULL DEFAULT 0, flow_min DOUBLE PRECISION, flow_max DOUBLE PRECISION,
+    flow_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, flow_pos_cnt BIGINT NOT NULL DEFAULT 0, flow_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    temperature_cnt BIGINT NOT NULL DEFAULT 0, temperature_sum DOUBLE PRECISION NOT NULL DEFAULT 0, temperature_min DOUBLE PRECISION, temperature_max DOUBLE PRECISION,
+    temperature_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, temperature_pos_cnt BIGINT NOT NULL DEFAULT 0, temperature_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    vibration_cnt BIGINT NOT NULL DEFAULT 0, vibration_sum DOUBLE PRECISION NOT NULL DEFAULT 0, vibration_min DOUBLE PRECISION, vibration_max DOUBLE PRECISION,
+    vibration_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, vibration_pos_cnt BIGINT NOT NULL DEFAULT 0, vibration_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    noise_cnt BIGINT NOT NULL DEFAULT 0, noise_sum DOUBLE PRECISION NOT NULL DEFAULT 0, noise_min DOUBLE PRECISION, noise_max DOUBLE PRECISION,
+    noise_sumsq DOUBLE PRECISION NOT NULL DEFAULT 0, noise_pos_cnt BIGINT NOT NULL DEFAULT 0, noise_pos_sum DOUBLE PRECISION NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_pump_data_rollup_1m PRIMARY KEY (device_id, bucket_start)
+);
+
+-- 小时级、天级汇总与分钟级同结构
+CREATE TABLE pump_data_rollup_1h (
+    LIKE pump_data_rollup_1m INCLUDING DEFAULTS,
+    CONSTRAINT pk_pump_data_rollup_1h PRIMARY KEY (device_id, bucket_start)
+);
+
+CREATE TABLE pump_data_rollup_1d (
+    LIKE pump_data_rollup_1m INCLUDING DEFAULTS,
+    CONSTRAINT pk_pump_data_rollup_1d PRIMARY KEY (device_id, bucket_start)
+);
+
+COMMENT ON TABLE pump_data_rollup_1m IS '水泵数据分钟级汇总';
+COMMENT ON TABLE pump_data_rollup_1h IS '水泵数据小时级汇总';
+COMMENT ON TABLE pump_data_rollup_1d IS '水泵数据天级汇总';
+COMMENT ON COLUMN pump_data_rollup_1m.bucket_start IS '时间桶起点(date_trunc)';
+COMMENT ON COLUMN pump_data_rollup_1m.start_count IS '启泵记录数(pump_status = 1)';
+COMMENT ON COLUMN pump_data_rollup_1m.alarm_count IS '报警记录数(alarm_level > 1)';
+COMMENT ON COLUMN pump_data_rollup_1m.power_pos_cnt IS '功率大于0的记录数，其他字段的 _pos_cnt/_pos_sum 含义相同';
+
+-- 生成把 p_source 中的明细按 date_trunc(p_unit) 聚合后合并到汇总表 p_target 的语句，三张汇总表的回填与
+-- 增量合并共用。语句由调用方 EXECUTE：触发器的转换表只对触发器函数自身执行的查询可见
+CREATE OR REPLACE FUNCTION pump_data_rollup_merge_sql(p_target TEXT, p_unit TEXT, p_source TEXT)
+RETURNS TEXT AS $$
+DECLARE
+    -- 汇总列前缀与 pump_data 字段
+    v_metrics TEXT[] := ARRAY[
+        ['runtime', 'runtime_minutes'],
+        ['current', 'current_amperage'],
+        ['voltage', 'voltage'],
+        ['power', 'power_kw'],
+        ['energy', 'energy_consumption_kwh'],
+        ['pressure', 'water_pressure_kpa'],
+        ['flow', 'flow_rate_m3h'],
+        ['temperature', 'water_temperature_celsius'],
+        ['vibration', 'vibration_mm_s'],
+        ['noise', 'noise_level_db']
+    ];
+    v_columns TEXT := 'device_id, bucket_start, row_count, start_count, fault_count, alarm_count, maintenance_count';
+    v_values TEXT := format('device_id, date_trunc(%L, timestamp), COUNT(*), COUNT(*) FILTER (WHERE pump_status = 1), '
+        || 'COUNT(*) FILTER (WHERE fault_code IS NOT NULL AND btrim(fault_code) <> ''''), '
+        || 'COUNT(*) FILTER (WHERE alarm_level > 1), COUNT(*) FILTER (WHERE maintenance_flag)', p_unit);
+    v_updates TEXT := 'row_count = r.row_count + EXCLUDED.row_count, start_count = r.start_count + EXCLUDED.start_count, '
+        || 'fault_count = r.fault_count + EXCLUDED.fault_count, alarm_count = r.alarm_count + EXCLUDED.alarm_count, '
+        || 'maintenance_count = r.maintenance_count + EXCLUDED.maintenance_count';
+BEGIN
+    FOR i IN 1 .. array_length(v_metrics, 1) LOOP
+        v_columns := v_columns || format(
+            ', %1$s_cnt, %1$s_sum, %1$s_min, %1$s_max, %1$s_sumsq, %1$s_pos_cnt, %1$s_pos_sum', v_metrics[i][1]);
+        v_values := v_values || format(
+            ', COUNT(%1$I), COALESCE(SUM(%1$I), 0), MIN(%1$I), MAX(%1$I), COALESCE(SUM(%1$I * %1$I), 0), '
+            || 'COUNT(*) FILTER (WHERE %1$I > 0), COALESCE(SUM(%1$I) FILTER (WHERE %1$I > 0), 0)', v_metrics[i][2]);
+        v_updates := v_updates || format(
+            ', %1$s_cnt = r.%1$s_cnt + EXCLUDED.%1$s_cnt, %1$s_sum = r.%1$s_sum + EXCLUDED.%1$s_sum, '
+            || '%1$s_min = LEAST(r.%1$s_min, EXCLUDED.%1$s_min), %1$s_max = GREATEST(r.%1$s_max, EXCLUDED.%1$s_max), '
+            || '%1$s_sumsq = r.%1$s_sumsq + EXCLUDED.%1$s_sumsq, %1$s_pos_cnt = r.%1$s_pos_cnt + EXCLUDED.%1$s_pos_cnt, '
+            || '%1$s_pos_sum = r.%1$s_pos_sum + EXCLUDED.%1$s_pos_sum', v_metrics[i][1]);
+    END LOOP;
+
+    RETURN format('INSERT INTO %I AS r (%s) SELECT %s FROM %I GROUP BY 1, 2 ORDER BY 1, 2 '
+        || 'ON CONFLICT (device_id, bucket_start) DO UPDATE SET %s, updated_at = CURRENT_TIMESTAMP',
+        p_target, v_columns, v_values, p_source, v_updates);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- 回填已有数据
+DO $$
+BEGIN
+    EXECUTE pump_data_rollup_merge_sql('pump_data_rollup_1m', 'minute', 'pump_data');
+    EXECUTE pump_data_rollup_merge_sql('pump_data_rollup_1h', 'hour', 'pump_data');
+    EXECUTE pump_data_rollup_merge_sql('pump_data_rollup_1d', 'day', 'pump_data');
+END;
+$$;
+
+-- 插入语句结束后把本语句新增的行合并到汇总表
+CREATE OR REPLACE FUNCTION pump_data_rollup_after_insert()
+RETURNS TRIGGER AS $$
+BEGIN
+    EXECUTE pump_data_rollup_merge_sql('pump_data_rollup_1m', 'minute', 'new_rows');
+    EXECUTE pump_data_rollup_merge_sql('pump_data_rollup_1h', 'hour', 'new_rows');
+    EXECUTE pump_data_rollup_merge_sql('pump_data_rollup_1d', 'day', 'new_rows');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER pump_data_rollup_after_insert
+    AFTER INSERT ON pump_data
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION pump_data_rollup_after_insert();
+
+-- 从默认分区迁回数据时直接写入新分区，不经过父表触发器，避免重复汇总
+CREATE OR REPLACE FUNCTION ensure_pump_data_partition(p_name TEXT, p_from TIMESTAMP, p_to TIMESTAMP)
+RETURNS BOOLEAN AS $$
+BEGIN
+    IF to_regclass(p_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    CREATE TEMP TABLE pump_data_partition_move ON COMMIT DROP AS
+        SELECT * FROM pump_data_default WHERE timestamp >= p_from AND timestamp < p_to;
+    DELETE FROM pump_data_default WHERE timestamp >= p_from AND timestamp < p_to;
+
+    EXECUTE format('CREATE TABLE %I PARTITION OF pump_data FOR VALUES FROM (%L) TO (%L)', p_name, p_from, p_to);
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM pump_data_partition_move', p_name);
+    DROP TABLE pump_data_partition_move;
+    RETURN TRUE;
+EXCEPTION
+    WHEN invalid_object_definition THEN
+        RAISE NOTICE '分区 % 与已有分区范围重叠，跳过', p_name;
+        RETURN FALSE;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,66 @@
+-- 水泵数据压缩块：每设备每小时一行，payload 为 PumpBlockCodec 编码的整小时数据
+-- (时间戳二阶差分 + 数值异或)。由应用定时封存已结束的小时，row_count 与 pump_data_rollup_1h
+-- 一致时读取该小时直接解码压缩块；迟到数据使计数不一致，该小时回退读明细并在下次封存时重写。
+-- 明细被 UPDATE/DELETE 时由触发器删除所在小时的块，下次封存按新数据重写。
+-- pump_data 分区按保留期删除(DROP/DETACH 不触发 DELETE 触发器)后，压缩块作为归档继续可读
+
+CREATE TABLE pump_data_blocks (
+    device_id VARCHAR(100) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    row_count BIGINT NOT NULL,
+    first_ts TIMESTAMP NOT NULL,
+    last_ts TIMESTAMP NOT NULL,
+    encoding_version SMALLINT NOT NULL,
+    payload BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_pump_data_blocks PRIMARY KEY (device_id, bucket_start)
+);
+
+-- 压缩数据本身不可再压缩，关闭 TOAST 压缩，只做行外存储
+ALTER TABLE pump_data_blocks ALTER COLUMN payload SET STORAGE EXTERNAL;
+
+COMMENT ON TABLE pump_data_blocks IS '水泵数据按小时压缩块';
+COMMENT ON COLUMN pump_data_blocks.bucket_start IS '小时起点(date_trunc(''hour'', timestamp))';
+COMMENT ON COLUMN pump_data_blocks.row_count IS '块内行数，与 pump_data_rollup_1h.row_count 相同时块有效';
+COMMENT ON COLUMN pump_data_blocks.encoding_version IS 'PumpBlockCodec 编码格式版本';
+COMMENT ON COLUMN pump_data_blocks.payload IS 'PumpBlockCodec 编码的整小时数据';
+
+-- 同一设备小时的封存与失效互斥：封存在一个事务内加锁、读取明细、写入块，
+-- 修改明细的事务在删除块前等待封存提交，不会留下按旧数据编码的块
+CREATE OR REPLACE FUNCTION pump_data_blocks_lock(p_device_id TEXT, p_bucket_start TIMESTAMP)
+RETURNS VOID AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('pump_data_blocks'), hashtext(p_device_id || '|' || p_bucket_start::TEXT));
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION pump_data_blocks_invalidate()
+RETURNS TRIGGER AS $$
+DECLARE
+    v_hour RECORD;
+BEGIN
+    -- 按固定顺序加锁，避免并发修改之间死锁
+    FOR v_hour IN EXECUTE
+        'SELECT device_id, date_trunc(''hour'', timestamp) AS bucket_start FROM old_rows'
+        || CASE WHEN TG_OP = 'UPDATE'
+                THEN ' UNION SELECT device_id, date_trunc(''hour'', timestamp) FROM new_rows'
+                ELSE ' GROUP BY 1, 2' END
+        || ' ORDER BY 1, 2'
+    LOOP
+        PERFORM pump_data_blocks_lock(v_hour.device_id, v_hour.bucket_start);
+        DELETE FROM pump_data_blocks WHERE device_id = v_hour.device_id AND bucket_start = v_hour.bucket_start;
+    END LOOP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER pump_data_blocks_after_update
+    AFTER UPDATE ON pump_data
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION pump_data_blocks_invalidate();
+
+CREATE TRIGGER pump_data_blocks_after_delete
+    AFTER DELETE ON pump_data
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION pump_data_blocks_invalidate();
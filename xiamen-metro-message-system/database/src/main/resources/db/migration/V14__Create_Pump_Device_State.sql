@@ -0,0 +1,199 @@
+-- 水泵设备最新状态：每设备一行，保存最新时间戳、运行状态、各数值字段最近一次的非空值及其数据时间
+-- 以及最近一次故障快照。pump_data 每条插入语句通过语句级触发器的转换表合并，
+-- 与插入在同一事务内完成；ON CONFLICT DO NOTHING 跳过的行不会计入
+
+CREATE TABLE pump_device_state (
+    device_id VARCHAR(100) NOT NULL,
+    last_timestamp TIMESTAMP NOT NULL,
+    pump_status INTEGER,
+    alarm_level INTEGER,
+    maintenance_flag BOOLEAN,
+    runtime_minutes DOUBLE PRECISION,
+    runtime_minutes_time TIMESTAMP,
+    current_amperage DOUBLE PRECISION,
+    current_amperage_time TIMESTAMP,
+    voltage DOUBLE PRECISION,
+    voltage_time TIMESTAMP,
+    power_kw DOUBLE PRECISION,
+    power_kw_time TIMESTAMP,
+    energy_consumption_kwh DOUBLE PRECISION,
+    energy_consumption_kwh_time TIMESTAMP,
+    water_pressure_kpa DOUBLE PRECISION,
+    water_pressure_kpa_time TIMESTAMP,
+    flow_rate_m3h DOUBLE PRECISION,
+    flow_rate_m3h_time TIMESTAMP,
+    water_temperature_celsius DOUBLE PRECISION,
+    water_temperature_celsius_time TIMESTAMP,
+    vibration_mm_s DOUBLE PRECISION,
+    vibration_mm_s_time TIMESTAMP,
+    noise_level_db DOUBLE PRECISION,
+    noise_level_db_time TIMESTAMP,
+    last_fault_code VARCHAR(50),
+    last_fault_time TIMESTAMP,
+    last_fault_alarm_level INTEGER,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_pump_device_state PRIMARY KEY (device_id)
+);
+
+COMMENT ON TABLE pump_device_state IS '水泵设备最新状态';
+COMMENT ON COLUMN pump_device_state.last_timestamp IS '最新一条数据的时间';
+COMMENT ON COLUMN pump_device_state.pump_status IS '最新一条数据的运行状态，alarm_level、maintenance_flag 相同';
+COMMENT ON COLUMN pump_device_state.power_kw IS '最近一次非空的功率，其他数值字段含义相同';
+COMMENT ON COLUMN pump_device_state.power_kw_time IS '最近一次非空功率的数据时间，其他 *_time 字段含义相同';
+COMMENT ON COLUMN pump_device_state.last_fault_code IS '最近一次故障代码(非空白)';
+COMMENT ON COLUMN pump_device_state.last_fault_time IS '最近一次故障的数据时间';
+
+-- 回填已有数据：按 (device_id, timestamp) 索引倒序取每个字段最近的非空值及其时间
+INSERT INTO pump_device_state (
+    device_id, last_timestamp, pump_status, alarm_level, maintenance_flag,
+    runtime_minutes, runtime_minutes_time, current_amperage, current_amperage_time,
+    voltage, voltage_time, power_kw, power_kw_time,
+    energy_consumption_kwh, energy_consumption_kwh_time, water_pressure_kpa, water_pressure_kpa_time,
+    flow_rate_m3h, flow_rate_m3h_time, water_temperature_celsius, water_temperature_celsius_time,
+    vibration_mm_s, vibration_mm_s_time, noise_level_db, noise_level_db_time,
+    last_fault_code, last_fault_time, last_fault_alarm_level
+)
+SELECT d.device_id, l.timestamp, l.pump_status, l.alarm_level, l.maintenance_flag,
+       m0.value, m0.timestamp,
+       m1.value, m1.timestamp,
+       m2.value, m2.timestamp,
+       m3.value, m3.timestamp,
+       m4.value, m4.timestamp,
+       m5.value, m5.timestamp,
+       m6.value, m6.timestamp,
+       m7.value, m7.timestamp,
+       m8.value, m8.timestamp,
+       m9.value, m9.timestamp,
+       f.fault_code, f.timestamp, f.alarm_level
+FROM (SELECT DISTINCT device_id FROM pump_data_rollup_1d) d
+CROSS JOIN LATERAL (
+    SELECT p.timestamp, p.pump_status, p.alarm_level, p.maintenance_flag
+    FROM pump_data p WHERE p.device_id = d.device_id ORDER BY p.timestamp DESC LIMIT 1
+) l
+LEFT JOIN LATERAL (
+    SELECT p.fault_code, p.timestamp, p.alarm_level
+    FROM pump_data p WHERE p.device_id = d.device_id AND p.fault_code IS NOT NULL AND btrim(p.fault_code) <> ''
+    ORDER BY p.timestamp DESC LIMIT 1
+) f ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.runtime_minutes AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.runtime_minutes IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m0 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.current_amperage AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.current_amperage IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m1 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.voltage AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.voltage IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m2 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.power_kw AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.power_kw IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m3 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.energy_consumption_kwh AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.energy_consumption_kwh IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m4 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.water_pressure_kpa AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.water_pressure_kpa IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m5 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.flow_rate_m3h AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.flow_rate_m3h IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m6 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.water_temperature_celsius AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.water_temperature_celsius IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m7 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.vibration_mm_s AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.vibration_mm_s IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m8 ON TRUE
+LEFT JOIN LATERAL (
+    SELECT p.noise_level_db AS value, p.timestamp FROM pump_data p
+    WHERE p.device_id = d.device_id AND p.noise_level_db IS NOT NULL ORDER BY p.timestamp DESC LIMIT 1
+) m9 ON TRUE;
+
+-- 插入语句结束后把本语句新增的行合并到设备状态；较旧的数据不覆盖较新的状态，
+-- 数值字段按各自最近一次非空值的时间比较，乱序到达的旧数据不会覆盖更晚的非空值
+CREATE OR REPLACE FUNCTION pump_device_state_after_insert()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO pump_device_state AS s (
+        device_id, last_timestamp, pump_status, alarm_level, maintenance_flag,
+        runtime_minutes, runtime_minutes_time, current_amperage, current_amperage_time,
+        voltage, voltage_time, power_kw, power_kw_time,
+        energy_consumption_kwh, energy_consumption_kwh_time, water_pressure_kpa, water_pressure_kpa_time,
+        flow_rate_m3h, flow_rate_m3h_time, water_temperature_celsius, water_temperature_celsius_time,
+        vibration_mm_s, vibration_mm_s_time, noise_level_db, noise_level_db_time,
+        last_fault_code, last_fault_time, last_fault_alarm_level
+    )
+    SELECT device_id, MAX(timestamp),
+           (array_agg(pump_status ORDER BY timestamp DESC))[1],
+           (array_agg(alarm_level ORDER BY timestamp DESC))[1],
+           (array_agg(maintenance_flag ORDER BY timestamp DESC))[1],
+           (array_agg(runtime_minutes ORDER BY timestamp DESC) FILTER (WHERE runtime_minutes IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE runtime_minutes IS NOT NULL),
+           (array_agg(current_amperage ORDER BY timestamp DESC) FILTER (WHERE current_amperage IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE current_amperage IS NOT NULL),
+           (array_agg(voltage ORDER BY timestamp DESC) FILTER (WHERE voltage IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE voltage IS NOT NULL),
+           (array_agg(power_kw ORDER BY timestamp DESC) FILTER (WHERE power_kw IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE power_kw IS NOT NULL),
+           (array_agg(energy_consumption_kwh ORDER BY timestamp DESC) FILTER (WHERE energy_consumption_kwh IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE energy_consumption_kwh IS NOT NULL),
+           (array_agg(water_pressure_kpa ORDER BY timestamp DESC) FILTER (WHERE water_pressure_kpa IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE water_pressure_kpa IS NOT NULL),
+           (array_agg(flow_rate_m3h ORDER BY timestamp DESC) FILTER (WHERE flow_rate_m3h IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE flow_rate_m3h IS NOT NULL),
+           (array_agg(water_temperature_celsius ORDER BY timestamp DESC) FILTER (WHERE water_temperature_celsius IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE water_temperature_celsius IS NOT NULL),
+           (array_agg(vibration_mm_s ORDER BY timestamp DESC) FILTER (WHERE vibration_mm_s IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE vibration_mm_s IS NOT NULL),
+           (array_agg(noise_level_db ORDER BY timestamp DESC) FILTER (WHERE noise_level_db IS NOT NULL))[1],
+           MAX(timestamp) FILTER (WHERE noise_level_db IS NOT NULL),
+           (array_agg(fault_code ORDER BY timestamp DESC) FILTER (WHERE fault_code IS NOT NULL AND btrim(fault_code) <> ''))[1],
+           MAX(timestamp) FILTER (WHERE fault_code IS NOT NULL AND btrim(fault_code) <> ''),
+           (array_agg(alarm_level ORDER BY timestamp DESC) FILTER (WHERE fault_code IS NOT NULL AND btrim(fault_code) <> ''))[1]
+    FROM new_rows
+    GROUP BY device_id
+    ORDER BY device_id
+    ON CONFLICT (device_id) DO UPDATE SET
+        last_timestamp = GREATEST(s.last_timestamp, EXCLUDED.last_timestamp),
+        pump_status = CASE WHEN EXCLUDED.last_timestamp >= s.last_timestamp THEN EXCLUDED.pump_status ELSE s.pump_status END,
+        alarm_level = CASE WHEN EXCLUDED.last_timestamp >= s.last_timestamp THEN EXCLUDED.alarm_level ELSE s.alarm_level END,
+        maintenance_flag = CASE WHEN EXCLUDED.last_timestamp >= s.last_timestamp THEN EXCLUDED.maintenance_flag ELSE s.maintenance_flag END,
+        runtime_minutes = CASE WHEN EXCLUDED.runtime_minutes_time >= s.runtime_minutes_time OR s.runtime_minutes_time IS NULL THEN COALESCE(EXCLUDED.runtime_minutes, s.runtime_minutes) ELSE s.runtime_minutes END,
+        runtime_minutes_time = GREATEST(s.runtime_minutes_time, EXCLUDED.runtime_minutes_time),
+        current_amperage = CASE WHEN EXCLUDED.current_amperage_time >= s.current_amperage_time OR s.current_amperage_time IS NULL THEN COALESCE(EXCLUDED.current_amperage, s.current_amperage) ELSE s.current_amperage END,
+        current_amperage_time = GREATEST(s.current_amperage_time, EXCLUDED.current_amperage_time),
+        voltage = CASE WHEN EXCLUDED.voltage_time >= s.voltage_time OR s.voltage_time IS NULL THEN COALESCE(EXCLUDED.voltage, s.voltage) ELSE s.voltage END,
+        voltage_time = GREATEST(s.voltage_time, EXCLUDED.voltage_time),
+        power_kw = CASE WHEN EXCLUDED.power_kw_time >= s.power_kw_time OR s.power_kw_time IS NULL THEN COALESCE(EXCLUDED.power_kw, s.power_kw) ELSE s.power_kw END,
+        power_kw_time = GREATEST(s.power_kw_time, EXCLUDED.power_kw_time),
+        energy_consumption_kwh = CASE WHEN EXCLUDED.energy_consumption_kwh_time >= s.energy_consumption_kwh_time OR s.energy_consumption_kwh_time IS NULL THEN COALESCE(EXCLUDED.energy_consumption_kwh, s.energy_consumption_kwh) ELSE s.energy_consumption_kwh END,
+        energy_consumption_kwh_time = GREATEST(s.energy_consumption_kwh_time, EXCLUDED.energy_consumption_kwh_time),
+        water_pressure_kpa = CASE WHEN EXCLUDED.water_pressure_kpa_time >= s.water_pressure_kpa_time OR s.water_pressure_kpa_time IS NULL THEN COALESCE(EXCLUDED.water_pressure_kpa, s.water_pressure_kpa) ELSE s.water_pressure_kpa END,
+        water_pressure_kpa_time = GREATEST(s.water_pressure_kpa_time, EXCLUDED.water_pressure_kpa_time),
+        flow_rate_m3h = CASE WHEN EXCLUDED.flow_rate_m3h_time >= s.flow_rate_m3h_time OR s.flow_rate_m3h_time IS NULL THEN COALESCE(EXCLUDED.flow_rate_m3h, s.flow_rate_m3h) ELSE s.flow_rate_m3h END,
+        flow_rate_m3h_time = GREATEST(s.flow_rate_m3h_time, EXCLUDED.flow_rate_m3h_time),
+        water_temperature_celsius = CASE WHEN EXCLUDED.water_temperature_celsius_time >= s.water_temperature_celsius_time OR s.water_temperature_celsius_time IS NULL THEN COALESCE(EXCLUDED.water_temperature_celsius, s.water_temperature_celsius) ELSE s.water_temperature_celsius END,
+        water_temperature_celsius_time = GREATEST(s.water_temperature_celsius_time, EXCLUDED.water_temperature_celsius_time),
+        vibration_mm_s = CASE WHEN EXCLUDED.vibration_mm_s_time >= s.vibration_mm_s_time OR s.vibration_mm_s_time IS NULL THEN COALESCE(EXCLUDED.vibration_mm_s, s.vibration_mm_s) ELSE s.vibration_mm_s END,
+        vibration_mm_s_time = GREATEST(s.vibration_mm_s_time, EXCLUDED.vibration_mm_s_time),
+        noise_level_db = CASE WHEN EXCLUDED.noise_level_db_time >= s.noise_level_db_time OR s.noise_level_db_time IS NULL THEN COALESCE(EXCLUDED.noise_level_db, s.noise_level_db) ELSE s.noise_level_db END,
+        noise_level_db_time = GREATEST(s.noise_level_db_time, EXCLUDED.noise_level_db_time),
+        last_fault_code = CASE WHEN EXCLUDED.last_fault_time >= s.last_fault_time OR s.last_fault_time IS NULL THEN COALESCE(EXCLUDED.last_fault_code, s.last_fault_code) ELSE s.last_fault_code END,
+        last_fault_alarm_level = CASE WHEN EXCLUDED.last_fault_time >= s.last_fault_time OR s.last_fault_time IS NULL THEN COALESCE(EXCLUDED.last_fault_alarm_level, s.last_fault_alarm_level) ELSE s.last_fault_alarm_level END,
+        last_fault_time = GREATEST(s.last_fault_time, EXCLUDED.last_fault_time),
+        updated_at = CURRENT_TIMESTAMP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER pump_device_state_after_insert
+    AFTER INSERT ON pump_data
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION pump_device_state_after_insert();
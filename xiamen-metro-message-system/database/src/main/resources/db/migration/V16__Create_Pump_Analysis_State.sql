@@ -0,0 +1,16 @@
+-- 水泵增量分析状态检查点：每设备一行，payload 为 PumpAnalysisState 编码(各时间片的累加器、
+-- 能耗平滑窗口、EWMA 基线)。Redis 中的检查点丢失时从本表恢复，版本不一致的行被忽略并按窗口重建
+
+CREATE TABLE pump_analysis_state (
+    device_id VARCHAR(100) NOT NULL,
+    watermark TIMESTAMP NOT NULL,
+    encoding_version SMALLINT NOT NULL,
+    payload BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_pump_analysis_state PRIMARY KEY (device_id)
+);
+
+COMMENT ON TABLE pump_analysis_state IS '水泵增量分析状态检查点';
+COMMENT ON COLUMN pump_analysis_state.watermark IS '已折叠的最新数据时间，恢复后只读取之后的数据';
+COMMENT ON COLUMN pump_analysis_state.encoding_version IS 'PumpAnalysisState 编码版本';
+COMMENT ON COLUMN pump_analysis_state.payload IS 'PumpAnalysisState 编码';
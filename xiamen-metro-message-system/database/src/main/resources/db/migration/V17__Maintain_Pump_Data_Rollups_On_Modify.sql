@@ -0,0 +1,90 @@
+-- pump_data 的 UPDATE/DELETE 同步到汇总表。V12 只在插入时增量合并，修改或删除明细后汇总表
+-- 与明细不一致，依赖 pump_data_rollup_1h.row_count 的压缩块有效性判断也随之出错。
+-- 最小/最大值无法做减法，因此语句结束后按转换表找出受影响的设备时间桶，删除这些桶的汇总行
+-- 再从 pump_data 重新聚合。分区 DROP/DETACH 不触发 DELETE 触发器，过期数据的汇总保留
+
+-- 合并语句增加可选过滤条件，重算时只聚合受影响的桶
+DROP FUNCTION pump_data_rollup_merge_sql(TEXT, TEXT, TEXT);
+
+-- 生成把 p_source 中的明细按 date_trunc(p_unit) 聚合后合并到汇总表 p_target 的语句，p_filter 为可选的
+-- WHERE 条件。语句由调用方 EXECUTE：触发器的转换表只对触发器函数自身执行的查询可见
+CREATE FUNCTION pump_data_rollup_merge_sql(p_target TEXT, p_unit TEXT, p_source TEXT, p_filter TEXT DEFAULT NULL)
+RETURNS TEXT AS $$
+DECLARE
+    -- 汇总列前缀与 pump_data 字段
+    v_metrics TEXT[] := ARRAY[
+        ['runtime', 'runtime_minutes'],
+        ['current', 'current_amperage'],
+        ['voltage', 'voltage'],
+        ['power', 'power_kw'],
+        ['energy', 'energy_consumption_kwh'],
+        ['pressure', 'water_pressure_kpa'],
+        ['flow', 'flow_rate_m3h'],
+        ['temperature', 'water_temperature_celsius'],
+        ['vibration', 'vibration_mm_s'],
+        ['noise', 'noise_level_db']
+    ];
+    v_columns TEXT := 'device_id, bucket_start, row_count, start_count, fault_count, alarm_count, maintenance_count';
+    v_values TEXT := format('device_id, date_trunc(%L, timestamp), COUNT(*), COUNT(*) FILTER (WHERE pump_status = 1), '
+        || 'COUNT(*) FILTER (WHERE fault_code IS NOT NULL AND btrim(fault_code) <> ''''), '
+        || 'COUNT(*) FILTER (WHERE alarm_level > 1), COUNT(*) FILTER (WHERE maintenance_flag)', p_unit);
+    v_updates TEXT := 'row_count = r.row_count + EXCLUDED.row_count, start_count = r.start_count + EXCLUDED.start_count, '
+        || 'fault_count = r.fault_count + EXCLUDED.fault_count, alarm_count = r.alarm_count + EXCLUDED.alarm_count, '
+        || 'maintenance_count = r.maintenance_count + EXCLUDED.maintenance_count';
+BEGIN
+    FOR i IN 1 .. array_length(v_metrics, 1) LOOP
+        v_columns := v_columns || format(
+            ', %1$s_cnt, %1$s_sum, %1$s_min, %1$s_max, %1$s_sumsq, %1$s_pos_cnt, %1$s_pos_sum', v_metrics[i][1]);
+        v_values := v_values || format(
+            ', COUNT(%1$I), COALESCE(SUM(%1$I), 0), MIN(%1$I), MAX(%1$I), COALESCE(SUM(%1$I * %1$I), 0), '
+            || 'COUNT(*) FILTER (WHERE %1$I > 0), COALESCE(SUM(%1$I) FILTER (WHERE %1$I > 0), 0)', v_metrics[i][2]);
+        v_updates := v_updates || format(
+            ', %1$s_cnt = r.%1$s_cnt + EXCLUDED.%1$s_cnt, %1$s_sum = r.%1$s_sum + EXCLUDED.%1$s_sum, '
+            || '%1$s_min = LEAST(r.%1$s_min, EXCLUDED.%1$s_min), %1$s_max = GREATEST(r.%1$s_max, EXCLUDED.%1$s_max), '
+            || '%1$s_sumsq = r.%1$s_sumsq + EXCLUDED.%1$s_sumsq, %1$s_pos_cnt = r.%1$s_pos_cnt + EXCLUDED.%1$s_pos_cnt, '
+            || '%1$s_pos_sum = r.%1$s_pos_sum + EXCLUDED.%1$s_pos_sum', v_metrics[i][1]);
+    END LOOP;
+
+    RETURN format('INSERT INTO %I AS r (%s) SELECT %s FROM %I %s GROUP BY 1, 2 ORDER BY 1, 2 '
+        || 'ON CONFLICT (device_id, bucket_start) DO UPDATE SET %s, updated_at = CURRENT_TIMESTAMP',
+        p_target, v_columns, v_values, p_source, COALESCE('WHERE ' || p_filter, ''), v_updates);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- 重算 old_rows(UPDATE 时加上 new_rows)涉及的设备时间桶
+CREATE OR REPLACE FUNCTION pump_data_rollup_after_modify()
+RETURNS TRIGGER AS $$
+DECLARE
+    v_level TEXT[];
+    v_buckets TEXT;
+BEGIN
+    FOREACH v_level SLICE 1 IN ARRAY ARRAY[
+        ['pump_data_rollup_1m', 'minute'],
+        ['pump_data_rollup_1h', 'hour'],
+        ['pump_data_rollup_1d', 'day']
+    ] LOOP
+        v_buckets := format('SELECT device_id, date_trunc(%L, timestamp) AS bucket_start FROM old_rows', v_level[2])
+            || CASE WHEN TG_OP = 'UPDATE'
+                    THEN format(' UNION SELECT device_id, date_trunc(%L, timestamp) FROM new_rows', v_level[2])
+                    ELSE ' GROUP BY 1, 2' END;
+
+        EXECUTE format('DELETE FROM %I r USING (%s) k WHERE r.device_id = k.device_id AND r.bucket_start = k.bucket_start',
+            v_level[1], v_buckets);
+        EXECUTE pump_data_rollup_merge_sql(v_level[1], v_level[2], 'pump_data', format(
+            'EXISTS (SELECT 1 FROM (%s) k WHERE k.device_id = pump_data.device_id '
+            || 'AND pump_data.timestamp >= k.bucket_start AND pump_data.timestamp < k.bucket_start + %L::INTERVAL)',
+            v_buckets, '1 ' || v_level[2]));
+    END LOOP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER pump_data_rollup_after_update
+    AFTER UPDATE ON pump_data
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION pump_data_rollup_after_modify();
+
+CREATE TRIGGER pump_data_rollup_after_delete
+    AFTER DELETE ON pump_data
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION pump_data_rollup_after_modify();